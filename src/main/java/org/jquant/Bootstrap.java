@@ -1,24 +1,33 @@
 package org.jquant;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
 import java.util.Arrays;
 
 import org.apache.commons.lang3.time.DateFormatUtils;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
+import org.jquant.journal.TradeJournal;
 import org.jquant.model.Currency;
+import org.jquant.order.OrderManager;
 import org.jquant.portfolio.Portfolio;
 import org.jquant.portfolio.PortfolioStatistics;
+import org.jquant.portfolio.ResultWriter;
 import org.jquant.strategy.StrategyRunner;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 import org.springframework.stereotype.Component;
 
+/**
+ * Command line launcher of a simulation
+ * <p>
+ * With the system property <b>jquant.checkpoint</b> (path of a file), the state of the simulation is saved every 
+ * <b>jquant.checkpoint.interval</b> trading days (20 by default). If the file exists at launch the simulation resumes from it,
+ * it is deleted once the simulation is over.
+ * <p>
+ * With the system property <b>jquant.journal</b> (path of a file), the orders and the fills are recorded in a {@link TradeJournal}.
+ */
 @Component
 public class Bootstrap {
 
@@ -28,6 +37,12 @@ public class Bootstrap {
 	/** logger */
 	private static final Logger logger = Logger.getLogger(Bootstrap.class);
 	
+	private static final String CHECKPOINT = "jquant.checkpoint";
+	
+	private static final String CHECKPOINT_INTERVAL = "jquant.checkpoint.interval";
+	
+	private static final String JOURNAL = "jquant.journal";
+	
 	public static void main(String[] args) {
 		
 		if (args.length < 5){
@@ -61,22 +76,60 @@ public class Bootstrap {
 		 */
 		sr.init(entryDate,exitDate);
 		
+		/*
+		 * Checkpoints 
+		 */
+		File checkpoint = null;
+		if (System.getProperty(CHECKPOINT) != null){
+			checkpoint = new File(System.getProperty(CHECKPOINT));
+			sr.setCheckpoint(checkpoint, Integer.parseInt(System.getProperty(CHECKPOINT_INTERVAL, "20")));
+			if (checkpoint.exists()){
+				sr.resume(checkpoint);
+			}
+		}
+		
+		/*
+		 * Trade journal 
+		 */
+		TradeJournal journal = null;
+		if (System.getProperty(JOURNAL) != null){
+			try {
+				journal = new TradeJournal(new File(System.getProperty(JOURNAL)));
+				context.getBean(OrderManager.class).setJournal(journal);
+			} catch (IOException e) {
+				logger.error("Can not open the trade journal " + System.getProperty(JOURNAL), e);
+			}
+		}
+		
 		/*
 		 * Launch the simulation 
 		 */
-		PortfolioStatistics stats = sr.run();
+		PortfolioStatistics stats;
+		try {
+			stats = sr.run();
+		}finally {
+			// the trades journaled before a failure are flushed
+			if (journal != null){
+				try {
+					journal.close();
+				} catch (IOException e) {
+					logger.error("Error during the trade journal writing", e);
+				}
+			}
+		}
 		
 		displayStats(stats);
 		
+		if (checkpoint != null && !checkpoint.delete()){
+			logger.warn("Can not delete the checkpoint " + checkpoint);
+		}
+		
 		/*
-		 * Serialize PortfolioStatistics
+		 * Save the result (summary, equity curve and trades) 
 		 */
 		 try {
 			 String tempDir = System.getProperty("java.io.tmpdir");
-			 
-			 ObjectOutput out = new ObjectOutputStream(new FileOutputStream(tempDir+File.separator+"simulation.bin"));
-			 out.writeObject(stats);
-			 out.close();
+			 ResultWriter.write(new File(tempDir, "simulation.jqr"), stats);
 		} catch (IOException e) {
 			logger.error("Error during simulation serialization",e);
 		}
@@ -0,0 +1,88 @@
+package org.jquant.checkpoint;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Checkpoint file of a running simulation
+ * <p>
+ * The file is a header (magic number, format version), the state of a {@link Checkpointable} and a trailer.
+ * It is written in a temporary file, synced, then renamed over the previous checkpoint : a crash during the
+ * writing leaves the previous checkpoint intact.
+ * @author JQUANT TEAM
+ */
+public final class Checkpoint {
+
+	/**
+	 * "JQCK"
+	 */
+	private static final int MAGIC = 0x4A51434B;
+
+	/**
+	 * Version of the format, to be incremented when a {@link Checkpointable} changes what it writes
+	 */
+	public static final int VERSION = 1;
+
+	private Checkpoint() {
+		super();
+	}
+
+	/**
+	 * Save a state
+	 * @param file the checkpoint {@link File}, replaced if it exists
+	 * @param state the {@link Checkpointable} to save
+	 * @throws IOException
+	 */
+	public static void write(File file, Checkpointable state) throws IOException{
+		File tmp = new File(file.getPath() + ".tmp");
+		FileOutputStream fos = new FileOutputStream(tmp);
+		try {
+			CheckpointOutput out = new CheckpointOutput(new BufferedOutputStream(fos, 1 << 16));
+			out.writeInt(MAGIC);
+			out.writeVarInt(VERSION);
+			state.writeCheckpoint(out);
+			out.writeInt(MAGIC);
+			out.flush();
+			fos.getFD().sync();
+		}finally {
+			fos.close();
+		}
+		try {
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Restore a state
+	 * @param file the checkpoint {@link File}
+	 * @param state the {@link Checkpointable} to restore
+	 * @throws IOException if the file is not a checkpoint, has another version or is truncated
+	 */
+	public static void read(File file, Checkpointable state) throws IOException{
+		CheckpointInput in = new CheckpointInput(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+		try {
+			if (in.readInt() != MAGIC){
+				throw new IOException(file + " is not a checkpoint");
+			}
+			int version = in.readVarInt();
+			if (version != VERSION){
+				throw new IOException("Unsupported checkpoint version " + version + " in " + file);
+			}
+			state.readCheckpoint(in);
+			if (in.readInt() != MAGIC){
+				throw new IOException("Corrupted checkpoint " + file);
+			}
+		}finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package org.jquant.checkpoint;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.jquant.data.JQuantDataProvider;
+import org.jquant.model.Currency;
+import org.jquant.model.InstrumentId;
+import org.jquant.model.InstrumentType;
+import org.jquant.model.MarketIdentifierCode;
+
+/**
+ * Reads the binary stream written by a {@link CheckpointOutput}
+ * @author JQUANT TEAM
+ */
+public class CheckpointInput extends DataInputStream {
+
+	/*
+	 * Shared objects already read, by index - 1
+	 */
+	private final List<Object> references = new ArrayList<Object>();
+
+	public CheckpointInput(InputStream in) {
+		super(in);
+	}
+
+	/**
+	 *
+	 * @return an integer written by {@link CheckpointOutput#writeVarInt(int)}
+	 * @throws IOException
+	 */
+	public int readVarInt() throws IOException{
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7){
+			int b = readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if (b < 0x80){
+				return value;
+			}
+		}
+		throw new IOException("Malformed variable length integer");
+	}
+
+	/**
+	 *
+	 * @return a long written by {@link CheckpointOutput#writeVarLong(long)}
+	 * @throws IOException
+	 */
+	public long readVarLong() throws IOException{
+		long v = 0;
+		for (int shift = 0; shift < 70; shift += 7){
+			int b = readUnsignedByte();
+			v |= (long) (b & 0x7F) << shift;
+			if (b < 0x80){
+				return (v >>> 1) ^ -(v & 1);
+			}
+		}
+		throw new IOException("Malformed variable length long");
+	}
+
+	/**
+	 *
+	 * @return a {@link String} or <code>null</code>
+	 * @throws IOException
+	 */
+	public String readString() throws IOException{
+		return readBoolean() ? readUTF() : null;
+	}
+
+	/**
+	 *
+	 * @param type the enum class
+	 * @return the enum value or <code>null</code>
+	 * @throws IOException
+	 */
+	public <E extends Enum<E>> E readEnum(Class<E> type) throws IOException{
+		int ordinal = readVarInt();
+		if (ordinal == 0){
+			return null;
+		}
+		E[] values = type.getEnumConstants();
+		if (ordinal > values.length){
+			throw new IOException("Unknown " + type.getSimpleName() + " ordinal " + (ordinal - 1));
+		}
+		return values[ordinal - 1];
+	}
+
+	/**
+	 *
+	 * @return a {@link DateTime} or <code>null</code>
+	 * @throws IOException
+	 */
+	public DateTime readDateTime() throws IOException{
+		int index = readVarInt();
+		if (index == 0){
+			return null;
+		}
+		DateTimeZone zone;
+		if (index > references.size()){
+			zone = DateTimeZone.forID(readUTF());
+			register(index, zone);
+		}else {
+			zone = (DateTimeZone) references.get(index - 1);
+		}
+		return new DateTime(readLong(), zone);
+	}
+
+	/**
+	 *
+	 * @return an {@link InstrumentId} or <code>null</code>
+	 * @throws IOException
+	 */
+	public InstrumentId readInstrument() throws IOException{
+		int index = readVarInt();
+		if (index == 0){
+			return null;
+		}
+		if (index <= references.size()){
+			return (InstrumentId) references.get(index - 1);
+		}
+		JQuantDataProvider provider = readEnum(JQuantDataProvider.class);
+		String code = readString();
+		InstrumentType type = readEnum(InstrumentType.class);
+		String mic = readString();
+		String country = readString();
+		Currency currency = readEnum(Currency.class);
+		InstrumentId instrument = new InstrumentId(provider, code, type, mic == null ? null : new MarketIdentifierCode(mic, country), currency);
+		register(index, instrument);
+		return instrument;
+	}
+
+	private void register(int index, Object o) throws IOException{
+		if (index != references.size() + 1){
+			throw new IOException("Unexpected reference " + index);
+		}
+		references.add(o);
+	}
+}
@@ -0,0 +1,139 @@
+package org.jquant.checkpoint;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.joda.time.DateTime;
+import org.jquant.model.InstrumentId;
+
+/**
+ * Binary stream of a checkpoint
+ * <p>
+ * On top of the {@link DataOutputStream} primitives :
+ * <ul>
+ * <li>the counts and the indexes are written as variable length integers (1 byte below 128)</li>
+ * <li>the {@link InstrumentId}s and the time zones are written once, then referenced by their index</li>
+ * <li>the strings, the enums and the dates can be <code>null</code></li>
+ * </ul>
+ * @author JQUANT TEAM
+ * @see CheckpointInput
+ */
+public class CheckpointOutput extends DataOutputStream {
+
+	/*
+	 * Index of the objects already written
+	 */
+	private final Map<Object, Integer> references = new HashMap<Object, Integer>();
+
+	public CheckpointOutput(OutputStream out) {
+		super(out);
+	}
+
+	/**
+	 * Write a positive integer on 1 to 5 bytes
+	 * @param value a positive int
+	 * @throws IOException
+	 */
+	public void writeVarInt(int value) throws IOException{
+		if (value < 0){
+			throw new IllegalArgumentException("Negative value " + value);
+		}
+		while (value >= 0x80){
+			writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		writeByte(value);
+	}
+
+	/**
+	 * Write a long on 1 to 10 bytes, the small values (positive or negative) on the fewest bytes
+	 * @param value a long
+	 * @throws IOException
+	 */
+	public void writeVarLong(long value) throws IOException{
+		// zigzag : -1 -> 1, 1 -> 2, -2 -> 3 ...
+		long v = (value << 1) ^ (value >> 63);
+		while ((v & ~0x7FL) != 0){
+			writeByte((int) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		writeByte((int) v);
+	}
+
+	/**
+	 *
+	 * @param value a {@link String} or <code>null</code>
+	 * @throws IOException
+	 */
+	public void writeString(String value) throws IOException{
+		writeBoolean(value != null);
+		if (value != null){
+			writeUTF(value);
+		}
+	}
+
+	/**
+	 * Write the ordinal of an enum value
+	 * @param value an {@link Enum} value or <code>null</code>
+	 * @throws IOException
+	 */
+	public void writeEnum(Enum<?> value) throws IOException{
+		writeVarInt(value == null ? 0 : value.ordinal() + 1);
+	}
+
+	/**
+	 *
+	 * @param date a {@link DateTime} or <code>null</code>
+	 * @throws IOException
+	 */
+	public void writeDateTime(DateTime date) throws IOException{
+		if (date == null){
+			writeVarInt(0);
+			return;
+		}
+		String zone = date.getZone().getID();
+		if (writeReference(zone)){
+			writeUTF(zone);
+		}
+		writeLong(date.getMillis());
+	}
+
+	/**
+	 *
+	 * @param instrument an {@link InstrumentId} or <code>null</code>
+	 * @throws IOException
+	 */
+	public void writeInstrument(InstrumentId instrument) throws IOException{
+		if (instrument == null){
+			writeVarInt(0);
+			return;
+		}
+		if (writeReference(instrument)){
+			writeEnum(instrument.getProvider());
+			writeString(instrument.getCode());
+			writeEnum(instrument.getType());
+			writeString(instrument.getExchange() == null ? null : instrument.getExchange().getCode());
+			writeString(instrument.getExchange() == null ? null : instrument.getExchange().getCountryCode());
+			writeEnum(instrument.getCurrency());
+		}
+	}
+
+	/**
+	 * Write the index of a shared object (0 is <code>null</code>)
+	 * @return <code>true</code> if the object is written for the first time : its content follows
+	 */
+	private boolean writeReference(Object o) throws IOException{
+		Integer index = references.get(o);
+		if (index != null){
+			writeVarInt(index);
+			return false;
+		}
+		index = references.size() + 1;
+		references.put(o, index);
+		writeVarInt(index);
+		return true;
+	}
+}
@@ -0,0 +1,28 @@
+package org.jquant.checkpoint;
+
+import java.io.IOException;
+
+/**
+ * A stateful component of the simulation that can be saved in a checkpoint and restored from it
+ * <p>
+ * {@link #readCheckpoint(CheckpointInput)} must read exactly what {@link #writeCheckpoint(CheckpointOutput)} wrote,
+ * in the same order.
+ * @author JQUANT TEAM
+ * @see Checkpoint
+ */
+public interface Checkpointable {
+
+	/**
+	 * Save the state
+	 * @param out the {@link CheckpointOutput}
+	 * @throws IOException
+	 */
+	public void writeCheckpoint(CheckpointOutput out) throws IOException;
+
+	/**
+	 * Restore the state saved by {@link #writeCheckpoint(CheckpointOutput)}
+	 * @param in the {@link CheckpointInput}
+	 * @throws IOException
+	 */
+	public void readCheckpoint(CheckpointInput in) throws IOException;
+}
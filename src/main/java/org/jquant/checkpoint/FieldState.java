@@ -0,0 +1,377 @@
+package org.jquant.checkpoint;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.joda.time.DateTime;
+import org.jquant.model.InstrumentId;
+
+/**
+ * Checkpoint of the fields of an object (the state of a strategy)
+ * <p>
+ * The non static, non final and non transient fields declared below a base class are saved by name :
+ * <ul>
+ * <li>primitives, boxed primitives, {@link String}s, enums, {@link DateTime}s and {@link InstrumentId}s</li>
+ * <li>double[], int[], long[] and boolean[]</li>
+ * <li>the other {@link Serializable} values with the java serialization</li>
+ * </ul>
+ * The time series and the indicators ({@link Observable}s and {@link Observer}s) are not saved on purpose : they are
+ * rebuilt by the initialization of the object and fed again by the replay of the market data.
+ * <p>
+ * The other values that can not be serialized are skipped too, with a warning (once per field) : they keep the
+ * value given by the initialization after a restore. Such a field must be transient if it is rebuilt, or made
+ * serializable if it holds the state of the strategy.
+ * @author JQUANT TEAM
+ */
+public final class FieldState {
+
+	/** logger */
+	private static final Logger logger = Logger.getLogger(FieldState.class);
+
+	private static final int NULL = 0;
+	private static final int BOOLEAN = 1;
+	private static final int BYTE = 2;
+	private static final int SHORT = 3;
+	private static final int CHAR = 4;
+	private static final int INT = 5;
+	private static final int LONG = 6;
+	private static final int FLOAT = 7;
+	private static final int DOUBLE = 8;
+	private static final int STRING = 9;
+	private static final int ENUM = 10;
+	private static final int DATETIME = 11;
+	private static final int INSTRUMENT = 12;
+	private static final int DOUBLE_ARRAY = 13;
+	private static final int INT_ARRAY = 14;
+	private static final int LONG_ARRAY = 15;
+	private static final int BOOLEAN_ARRAY = 16;
+	private static final int SERIALIZED = 17;
+
+	/*
+	 * Keys of the fields already reported as not saved
+	 */
+	private static final Set<String> notSaved = Collections.synchronizedSet(new HashSet<String>());
+
+	private FieldState() {
+		super();
+	}
+
+	/**
+	 * Save the fields of an object
+	 * @param out the {@link CheckpointOutput}
+	 * @param o the object
+	 * @param base the fields of this class and of its super classes are not saved
+	 * @throws IOException
+	 */
+	public static void write(CheckpointOutput out, Object o, Class<?> base) throws IOException{
+		List<String> names = new ArrayList<String>();
+		List<Object> values = new ArrayList<Object>();
+		for (Field field : getFields(o.getClass(), base).values()){
+			Object value = get(field, o);
+			if (value instanceof Observable || value instanceof Observer){
+				continue;
+			}
+			if (getTag(value) == SERIALIZED){
+				value = serialize(o, field, value);
+				if (value == null){
+					continue;
+				}
+			}
+			names.add(getKey(field));
+			values.add(value);
+		}
+		out.writeVarInt(names.size());
+		for (int i = 0; i < names.size(); i++){
+			out.writeUTF(names.get(i));
+			writeValue(out, values.get(i));
+		}
+	}
+
+	/**
+	 * Restore the fields saved by {@link #write(CheckpointOutput, Object, Class)}
+	 * <p> The saved fields that do not exist anymore are ignored
+	 * @param in the {@link CheckpointInput}
+	 * @param o the object
+	 * @param base the same base class as the one of the writing
+	 * @throws IOException
+	 */
+	public static void read(CheckpointInput in, Object o, Class<?> base) throws IOException{
+		Map<String, Field> fields = getFields(o.getClass(), base);
+		int nb = in.readVarInt();
+		for (int i = 0; i < nb; i++){
+			String key = in.readUTF();
+			Object value = readValue(in);
+			Field field = fields.get(key);
+			if (field == null){
+				logger.warn("Field " + key + " of the checkpoint not found in " + o.getClass().getName());
+				continue;
+			}
+			try {
+				field.set(o, value);
+			}catch (IllegalArgumentException e) {
+				throw new IllegalStateException("The checkpoint value of " + key + " does not match its type " + field.getType().getName(), e);
+			}catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/*
+	 * Fields by key, from the class to the base
+	 */
+	private static Map<String, Field> getFields(Class<?> type, Class<?> base){
+		Map<String, Field> fields = new HashMap<String, Field>();
+		for (Class<?> c = type; c != null && !c.equals(base) && !c.equals(Object.class); c = c.getSuperclass()){
+			for (Field field : c.getDeclaredFields()){
+				int modifiers = field.getModifiers();
+				if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()){
+					continue;
+				}
+				field.setAccessible(true);
+				fields.put(getKey(field), field);
+			}
+		}
+		return fields;
+	}
+
+	private static String getKey(Field field){
+		return field.getDeclaringClass().getSimpleName() + "." + field.getName();
+	}
+
+	private static Object get(Field field, Object o){
+		try {
+			return field.get(o);
+		}catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*
+	 * The serialized bytes, null if the value is not serializable
+	 */
+	private static byte[] serialize(Object o, Field field, Object value) throws IOException{
+		if (!(value instanceof Serializable)){
+			warnNotSaved(o, field, value.getClass().getName());
+			return null;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(bytes);
+		try {
+			oos.writeObject(value);
+		}catch (NotSerializableException e) {
+			warnNotSaved(o, field, e.getMessage());
+			return null;
+		}finally {
+			oos.close();
+		}
+		return bytes.toByteArray();
+	}
+
+	/*
+	 * The field keeps its initial value after a restore : reported once
+	 */
+	private static void warnNotSaved(Object o, Field field, String type){
+		String key = getKey(field);
+		if (notSaved.add(o.getClass().getName() + "#" + key)){
+			logger.warn("Field " + key + " of " + o.getClass().getName() + " is not serializable (" + type
+					+ "), it is not saved in the checkpoint and keeps its initial value after a restore");
+		}
+	}
+
+	private static int getTag(Object value){
+		if (value == null) return NULL;
+		if (value instanceof Boolean) return BOOLEAN;
+		if (value instanceof Byte) return BYTE;
+		if (value instanceof Short) return SHORT;
+		if (value instanceof Character) return CHAR;
+		if (value instanceof Integer) return INT;
+		if (value instanceof Long) return LONG;
+		if (value instanceof Float) return FLOAT;
+		if (value instanceof Double) return DOUBLE;
+		if (value instanceof String) return STRING;
+		if (value instanceof Enum) return ENUM;
+		if (value instanceof DateTime) return DATETIME;
+		if (value instanceof InstrumentId) return INSTRUMENT;
+		if (value instanceof double[]) return DOUBLE_ARRAY;
+		if (value instanceof int[]) return INT_ARRAY;
+		if (value instanceof long[]) return LONG_ARRAY;
+		if (value instanceof boolean[]) return BOOLEAN_ARRAY;
+		return SERIALIZED;
+	}
+
+	/*
+	 * the SERIALIZED values are already turned into bytes
+	 */
+	private static void writeValue(CheckpointOutput out, Object value) throws IOException{
+		int tag = value instanceof byte[] ? SERIALIZED : getTag(value);
+		out.writeByte(tag);
+		switch (tag) {
+		case NULL:
+			break;
+		case BOOLEAN:
+			out.writeBoolean((Boolean) value);
+			break;
+		case BYTE:
+			out.writeByte((Byte) value);
+			break;
+		case SHORT:
+			out.writeShort((Short) value);
+			break;
+		case CHAR:
+			out.writeChar((Character) value);
+			break;
+		case INT:
+			out.writeInt((Integer) value);
+			break;
+		case LONG:
+			out.writeLong((Long) value);
+			break;
+		case FLOAT:
+			out.writeFloat((Float) value);
+			break;
+		case DOUBLE:
+			out.writeDouble((Double) value);
+			break;
+		case STRING:
+			out.writeUTF((String) value);
+			break;
+		case ENUM:
+			Enum<?> e = (Enum<?>) value;
+			out.writeUTF(e.getDeclaringClass().getName());
+			out.writeUTF(e.name());
+			break;
+		case DATETIME:
+			out.writeDateTime((DateTime) value);
+			break;
+		case INSTRUMENT:
+			out.writeInstrument((InstrumentId) value);
+			break;
+		case DOUBLE_ARRAY:
+			double[] d = (double[]) value;
+			out.writeVarInt(d.length);
+			for (double v : d){
+				out.writeDouble(v);
+			}
+			break;
+		case INT_ARRAY:
+			int[] n = (int[]) value;
+			out.writeVarInt(n.length);
+			for (int v : n){
+				out.writeInt(v);
+			}
+			break;
+		case LONG_ARRAY:
+			long[] l = (long[]) value;
+			out.writeVarInt(l.length);
+			for (long v : l){
+				out.writeLong(v);
+			}
+			break;
+		case BOOLEAN_ARRAY:
+			boolean[] b = (boolean[]) value;
+			out.writeVarInt(b.length);
+			for (boolean v : b){
+				out.writeBoolean(v);
+			}
+			break;
+		default:
+			byte[] bytes = (byte[]) value;
+			out.writeVarInt(bytes.length);
+			out.write(bytes);
+			break;
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Object readValue(CheckpointInput in) throws IOException{
+		int tag = in.readUnsignedByte();
+		switch (tag) {
+		case NULL:
+			return null;
+		case BOOLEAN:
+			return in.readBoolean();
+		case BYTE:
+			return in.readByte();
+		case SHORT:
+			return in.readShort();
+		case CHAR:
+			return in.readChar();
+		case INT:
+			return in.readInt();
+		case LONG:
+			return in.readLong();
+		case FLOAT:
+			return in.readFloat();
+		case DOUBLE:
+			return in.readDouble();
+		case STRING:
+			return in.readUTF();
+		case ENUM:
+			String type = in.readUTF();
+			String name = in.readUTF();
+			try {
+				return Enum.valueOf((Class<? extends Enum>) Class.forName(type), name);
+			}catch (ClassNotFoundException e) {
+				throw new IOException("Unknown enum " + type, e);
+			}
+		case DATETIME:
+			return in.readDateTime();
+		case INSTRUMENT:
+			return in.readInstrument();
+		case DOUBLE_ARRAY:
+			double[] d = new double[in.readVarInt()];
+			for (int i = 0; i < d.length; i++){
+				d[i] = in.readDouble();
+			}
+			return d;
+		case INT_ARRAY:
+			int[] n = new int[in.readVarInt()];
+			for (int i = 0; i < n.length; i++){
+				n[i] = in.readInt();
+			}
+			return n;
+		case LONG_ARRAY:
+			long[] l = new long[in.readVarInt()];
+			for (int i = 0; i < l.length; i++){
+				l[i] = in.readLong();
+			}
+			return l;
+		case BOOLEAN_ARRAY:
+			boolean[] b = new boolean[in.readVarInt()];
+			for (int i = 0; i < b.length; i++){
+				b[i] = in.readBoolean();
+			}
+			return b;
+		case SERIALIZED:
+			byte[] bytes = new byte[in.readVarInt()];
+			in.readFully(bytes);
+			ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+			try {
+				return ois.readObject();
+			}catch (ClassNotFoundException e) {
+				throw new IOException(e);
+			}finally {
+				ois.close();
+			}
+		default:
+			throw new IOException("Unknown field tag " + tag);
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package org.jquant.curve;
+
+/**
+ * Base class for the {@link Interpolation}s 
+ * <p>
+ * Holds the nodes and the last segment found : consecutive lookups on increasing abscissas 
+ * (the usual pattern when pricing a schedule) are resolved without binary search.
+ * @author JQUANT TEAM
+ *
+ */
+public abstract class AbstractInterpolation implements Interpolation {
+
+	protected double[] x;
+	
+	protected double[] y;
+	
+	protected int size;
+	
+	/**
+	 * Cached segment index of the last lookup 
+	 */
+	private int lastSegment;
+	
+	@Override
+	public void update(double[] x, double[] y, int size) {
+		if (size < 1){
+			throw new IllegalArgumentException("At least one node is needed to interpolate");
+		}
+		this.x = x;
+		this.y = y;
+		this.size = size;
+		if (lastSegment > size -2){
+			lastSegment = 0;
+		}
+	}
+	
+	/**
+	 * Locate the segment [x<sub>i</sub>, x<sub>i+1</sub>[ containing v 
+	 * <p> Values outside the nodes are mapped to the first or the last segment
+	 * @param v the abscissa
+	 * @return the index i of the left node of the segment
+	 */
+	protected int locate(double v){
+		int last = size - 2;
+		if (last <= 0){
+			return 0;
+		}
+		int i = lastSegment;
+		if (v >= x[i]){
+			// Same or next segment, sequential lookup  
+			if (i == last || v < x[i+1]){
+				return i;
+			}
+			if (i+1 == last || v < x[i+2]){
+				lastSegment = i+1;
+				return lastSegment;
+			}
+		}
+		if (v <= x[0]){
+			lastSegment = 0;
+			return 0;
+		}
+		if (v >= x[last]){
+			lastSegment = last;
+			return last;
+		}
+		// Binary search 
+		int lo = 0;
+		int hi = last;
+		while (hi - lo > 1){
+			int mid = (lo + hi) >>> 1;
+			if (v < x[mid]){
+				hi = mid;
+			}else {
+				lo = mid;
+			}
+		}
+		lastSegment = lo;
+		return lo;
+	}
+
+}
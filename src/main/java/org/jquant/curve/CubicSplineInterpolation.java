@@ -0,0 +1,82 @@
+package org.jquant.curve;
+
+/**
+ * Natural cubic spline interpolation 
+ * <p>
+ * The second derivatives are solved with a tridiagonal (Thomas) algorithm in preallocated work arrays, 
+ * they only grow when the number of nodes grows.
+ * <p> Outside of the nodes the spline is extended linearly with the slope of the end nodes. 
+ * @author JQUANT TEAM
+ *
+ */
+public class CubicSplineInterpolation extends AbstractInterpolation {
+
+	/**
+	 * Second derivatives at the nodes
+	 */
+	private double[] m = new double[0];
+	
+	/**
+	 * Work array of the tridiagonal solver 
+	 */
+	private double[] u = new double[0];
+	
+	@Override
+	public void update(double[] x, double[] y, int size) {
+		super.update(x, y, size);
+		if (m.length < size){
+			m = new double[size];
+			u = new double[size];
+		}
+		m[0] = 0;
+		u[0] = 0;
+		for (int i = 1; i < size - 1; i++){
+			double sig = (x[i] - x[i-1]) / (x[i+1] - x[i-1]);
+			double p = sig * m[i-1] + 2.0;
+			m[i] = (sig - 1.0) / p;
+			double d = (y[i+1] - y[i]) / (x[i+1] - x[i]) - (y[i] - y[i-1]) / (x[i] - x[i-1]);
+			u[i] = (6.0 * d / (x[i+1] - x[i-1]) - sig * u[i-1]) / p;
+		}
+		m[size-1] = 0;
+		for (int k = size - 2; k >= 0; k--){
+			m[k] = m[k] * m[k+1] + u[k];
+		}
+	}
+	
+	@Override
+	public double value(double v) {
+		if (size == 1){
+			return y[0];
+		}
+		if (v < x[0]){
+			return y[0] + (v - x[0]) * derivative(x[0]);
+		}
+		if (v > x[size-1]){
+			return y[size-1] + (v - x[size-1]) * derivative(x[size-1]);
+		}
+		int i = locate(v);
+		double h = x[i+1] - x[i];
+		double a = (x[i+1] - v) / h;
+		double b = (v - x[i]) / h;
+		return a * y[i] + b * y[i+1] + ((a*a*a - a) * m[i] + (b*b*b - b) * m[i+1]) * h * h / 6.0;
+	}
+
+	@Override
+	public double derivative(double v) {
+		if (size == 1){
+			return 0;
+		}
+		double w = v < x[0] ? x[0] : (v > x[size-1] ? x[size-1] : v);
+		int i = locate(w);
+		double h = x[i+1] - x[i];
+		double a = (x[i+1] - w) / h;
+		double b = (w - x[i]) / h;
+		return (y[i+1] - y[i]) / h - (3.0*a*a - 1.0) / 6.0 * h * m[i] + (3.0*b*b - 1.0) / 6.0 * h * m[i+1];
+	}
+
+	@Override
+	public boolean isLocal() {
+		return false;
+	}
+
+}
@@ -0,0 +1,276 @@
+package org.jquant.curve;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.joda.time.DateTime;
+import org.jquant.instrument.rate.IborIndex;
+import org.jquant.instrument.rate.InterestRateIndex;
+import org.jquant.model.Currency;
+import org.jquant.time.calendar.EpochDay;
+
+/**
+ * Builds a {@link YieldCurve} from a set of {@link InterestRateIndex} quotes
+ * <p>
+ * The pillars are sorted by maturity and solved one after the other : for each quote the log discount factor
+ * of its maturity node is moved (secant method) until the curve reprices the quote.
+ * <ul>
+ * <li>DEPOSIT / IBOR : DF(value date) / DF(maturity) = 1 + rate x accrual in the index {@link org.jquant.time.daycounter.DayCounter}</li>
+ * <li>SWAP : par rate of a fixed leg paying {@link #getSwapFrequency()} coupons per year in the currency {@link org.jquant.time.daycounter.DayCounter},
+ * spot start (fixing date + {@link #getSettlementDays()})</li>
+ * </ul>
+ * FUTURE quotes are not supported (convexity adjustment needed).
+ * <p>
+ * With a non local {@link Interpolation} (cubic spline) a new node moves the segments of the previous pillars :
+ * the pillars are solved again (global passes) until the nodes do not move anymore.
+ * <p>
+ * Rates are expressed in decimals (1% = 0.01). When two quotes share the same maturity the first one (after sort) is kept.
+ * <p>
+ * The bootstrapper is <b>not</b> thread safe : the pillars and the last solutions are reused from one curve to the next one,
+ * the previous solution being the starting point of the solver (a couple of iterations when the curve moves a little).
+ * @author JQUANT TEAM
+ * @see HistoricalCurveBuilder
+ */
+public class CurveBootstrapper {
+
+	private static final Logger logger = Logger.getLogger(CurveBootstrapper.class);
+
+	private static final int MAX_ITERATIONS = 100;
+
+	private static final double ACCURACY = 1e-12;
+
+	/**
+	 * Maximum number of global passes for the non local interpolations
+	 */
+	private static final int MAX_PASSES = 50;
+
+	private final InterpolationMethod interpolationMethod;
+
+	/**
+	 * Number of fixed coupons per year of the swaps
+	 */
+	private int swapFrequency = 1;
+
+	/**
+	 * Number of days between the fixing and the start of the swaps
+	 */
+	private int settlementDays = 2;
+
+	private CurvePillar[] pillars = new CurvePillar[0];
+
+	/**
+	 * Curve size after each pillar (a pillar with the same maturity as a previous one is skipped)
+	 */
+	private int[] nodeCounts = new int[0];
+
+	/**
+	 * Last solution (-ln DF) of each pillar
+	 */
+	private double[] solutions = new double[0];
+
+	public CurveBootstrapper(InterpolationMethod interpolationMethod) {
+		super();
+		this.interpolationMethod = interpolationMethod;
+	}
+
+	public CurveBootstrapper() {
+		this(InterpolationMethod.LINEAR);
+	}
+
+	/**
+	 *
+	 * @param referenceDate the curve date
+	 * @param currency the {@link Currency} of the curve
+	 * @param quotes the rate quotes
+	 * @return a new {@link YieldCurve} repricing the quotes
+	 */
+	public YieldCurve bootstrap(DateTime referenceDate, Currency currency, List<? extends InterestRateIndex> quotes){
+		YieldCurve curve = new YieldCurve(referenceDate, currency, interpolationMethod);
+		bootstrap(referenceDate, quotes, curve);
+		return curve;
+	}
+
+	/**
+	 * Rebuild an existing curve (no allocation once the buffers are big enough)
+	 * @param referenceDate the curve date
+	 * @param quotes the rate quotes
+	 * @param target the {@link YieldCurve} to rebuild
+	 */
+	public void bootstrap(DateTime referenceDate, List<? extends InterestRateIndex> quotes, YieldCurve target){
+		int nb = quotes.size();
+		ensureCapacity(nb);
+		int referenceDay = EpochDay.of(referenceDate);
+		for (int i = 0; i < nb; i++){
+			setPillar(pillars[i], referenceDay, quotes.get(i));
+		}
+		sort(pillars, nb);
+		target.reset(referenceDate);
+		bootstrap(pillars, nb, 0, target);
+	}
+
+	/**
+	 * Pillars buffer, grown on demand
+	 * @param nb the number of pillars needed
+	 * @return the pillars
+	 */
+	CurvePillar[] ensureCapacity(int nb){
+		if (pillars.length < nb){
+			int old = pillars.length;
+			pillars = Arrays.copyOf(pillars, nb);
+			for (int i = old; i < nb; i++){
+				pillars[i] = new CurvePillar();
+			}
+			nodeCounts = Arrays.copyOf(nodeCounts, nb);
+			solutions = Arrays.copyOf(solutions, nb);
+		}
+		return pillars;
+	}
+
+	/**
+	 * Fill a pillar with a quote
+	 * @return <code>true</code> if the pillar changed
+	 */
+	boolean setPillar(CurvePillar pillar, int referenceDay, InterestRateIndex quote){
+		int fixingDay = EpochDay.of(quote.getFixingDate());
+		switch (quote.getRateType()) {
+		case DEPOSIT:
+		case IBOR:
+			IborIndex ibor = (IborIndex) quote;
+			return pillar.setMoneyMarket(referenceDay, fixingDay, quote.getTerm(), ibor.getNbSettlementDays(), ibor.getDayCounter(), quote.getRateType(), quote.getRate());
+		case SWAP:
+			return pillar.setSwap(referenceDay, fixingDay + settlementDays, quote.getTerm(), quote.getCurrency().getDayCounter(), swapFrequency, quote.getRate());
+		default:
+			throw new IllegalArgumentException("Unsupported rate type for the bootstrap : " + quote.getRateType());
+		}
+	}
+
+	/**
+	 * Solve the pillars [from, nb[ , the curve nodes of the pillars [0, from[ are kept
+	 * @param pillars the pillars sorted by maturity
+	 * @param nb number of pillars
+	 * @param from first pillar to solve
+	 * @param target the {@link YieldCurve}
+	 */
+	void bootstrap(CurvePillar[] pillars, int nb, int from, YieldCurve target){
+		if (pillars != this.pillars){
+			ensureCapacity(nb);
+		}
+		target.truncate(from == 0 ? 1 : nodeCounts[from-1]);
+		for (int i = from; i < nb; i++){
+			CurvePillar pillar = pillars[i];
+			if (pillar.end <= target.getLastTime()){
+				if (logger.isDebugEnabled()){
+					logger.debug("Pillar skipped (maturity already in the curve) : " + pillar);
+				}
+				nodeCounts[i] = target.size();
+				continue;
+			}
+			double guess = solutions[i] != 0 ? solutions[i] : pillar.rate * pillar.end;
+			target.addNode(pillar.end, guess);
+			solutions[i] = solve(pillar, target, target.size()-1, guess);
+			nodeCounts[i] = target.size();
+		}
+		if (!target.isLocal()){
+			refine(pillars, nb, target);
+		}
+	}
+
+	/**
+	 * Global passes over all the pillars until the nodes are stable 
+	 */
+	private void refine(CurvePillar[] pillars, int nb, YieldCurve target){
+		for (int pass = 0; pass < MAX_PASSES; pass++){
+			double move = 0;
+			int previousCount = 1;
+			for (int i = 0; i < nb; i++){
+				if (nodeCounts[i] != previousCount){
+					int node = nodeCounts[i] - 1;
+					double before = target.getNode(node);
+					solutions[i] = solve(pillars[i], target, node, before);
+					move = Math.max(move, Math.abs(solutions[i] - before));
+				}
+				previousCount = nodeCounts[i];
+			}
+			if (move < ACCURACY){
+				return;
+			}
+		}
+		throw new IllegalStateException("Bootstrap did not converge after " + MAX_PASSES + " passes");
+	}
+
+	/**
+	 * Secant method on a node of the curve
+	 * @return the solution (-ln DF of the pillar maturity)
+	 */
+	private double solve(CurvePillar pillar, YieldCurve curve, int node, double guess){
+		double x0 = guess;
+		double f0 = pillar.residual(curve);
+		if (f0 == 0){
+			return x0;
+		}
+		double x1 = x0 + 1e-4 * Math.max(pillar.end, 0.01);
+		for (int k = 0; k < MAX_ITERATIONS; k++){
+			curve.setNode(node, x1);
+			double f1 = pillar.residual(curve);
+			if (Math.abs(f1) < ACCURACY){
+				return x1;
+			}
+			if (f1 == f0){
+				break;
+			}
+			double x2 = x1 - f1 * (x1 - x0) / (f1 - f0);
+			x0 = x1;
+			f0 = f1;
+			x1 = x2;
+			if (Math.abs(x1 - x0) < ACCURACY){
+				curve.setNode(node, x1);
+				return x1;
+			}
+		}
+		throw new IllegalStateException("Bootstrap did not converge for " + pillar);
+	}
+
+	/**
+	 * Insertion sort of the pillars by maturity (the quotes are usually already sorted)
+	 */
+	static void sort(CurvePillar[] pillars, int nb){
+		for (int i = 1; i < nb; i++){
+			CurvePillar p = pillars[i];
+			int j = i - 1;
+			while (j >= 0 && pillars[j].end > p.end){
+				pillars[j+1] = pillars[j];
+				j--;
+			}
+			pillars[j+1] = p;
+		}
+	}
+
+	public InterpolationMethod getInterpolationMethod() {
+		return interpolationMethod;
+	}
+
+	public int getSwapFrequency() {
+		return swapFrequency;
+	}
+
+	/**
+	 *
+	 * @param swapFrequency number of fixed coupons per year (1, 2, 4 or 12)
+	 */
+	public void setSwapFrequency(int swapFrequency) {
+		if (swapFrequency <= 0 || 12 % swapFrequency != 0){
+			throw new IllegalArgumentException("Invalid swap frequency : " + swapFrequency);
+		}
+		this.swapFrequency = swapFrequency;
+	}
+
+	public int getSettlementDays() {
+		return settlementDays;
+	}
+
+	public void setSettlementDays(int settlementDays) {
+		this.settlementDays = settlementDays;
+	}
+
+}
@@ -0,0 +1,20 @@
+package org.jquant.curve;
+
+import org.joda.time.DateTime;
+
+/**
+ * Callback of the {@link HistoricalCurveBuilder}
+ * @author JQUANT TEAM
+ *
+ */
+public interface CurveListener {
+
+	/**
+	 * A curve has been built
+	 * <p> The curve instance is shared and rebuilt for the next date,
+	 * use {@link YieldCurve#copy(Interpolation)} to keep it.
+	 * @param date the curve date
+	 * @param curve the {@link YieldCurve} of the date
+	 */
+	void onCurve(DateTime date, YieldCurve curve);
+}
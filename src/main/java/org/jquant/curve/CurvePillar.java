@@ -0,0 +1,167 @@
+package org.jquant.curve;
+
+import org.joda.time.Period;
+import org.jquant.instrument.rate.InterestRateIndex.RateType;
+import org.jquant.time.calendar.EpochDay;
+import org.jquant.time.daycounter.Actual365Fixed;
+import org.jquant.time.daycounter.DayCounter;
+
+/**
+ * Bootstrap helper : a rate quote with its schedule expressed in curve times
+ * <p>
+ * Instances are mutable and reused from one curve to the next one, the setters tell if the
+ * pillar changed since the last curve so that the bootstrap can restart from the first changed pillar.
+ * A pillar is compared in curve times, independently of the reference date : the same term, rate and
+ * convention on a new date is unchanged as long as its times and accruals are the same (the schedule
+ * moved with the reference date), so the nodes solved before it are still valid.
+ * <p> The dates are epoch days (see {@link EpochDay}), times and accruals are computed with the bulk {@link DayCounter} API.
+ * @author JQUANT TEAM
+ *
+ */
+final class CurvePillar {
+
+	private static final DayCounter TIME_COUNTER = Actual365Fixed.INSTANCE;
+
+	RateType type;
+
+	double rate;
+
+	/**
+	 * Curve time of the maturity (this is the node solved by the bootstrap)
+	 */
+	double end;
+
+	private int referenceDay;
+
+	private DayCounter dayCounter;
+
+	/**
+	 * Schedule dates (epoch days) : start date then the payment dates
+	 */
+	private int[] days = new int[8];
+
+	/**
+	 * Curve times of the schedule dates
+	 */
+	private double[] times = new double[8];
+
+	/**
+	 * Accrual of each period in the rate convention
+	 */
+	private double[] accruals = new double[8];
+
+	/*
+	 * Times and accruals of the last curve, swapped with the current ones to detect a change
+	 */
+	private double[] lastTimes = new double[8];
+
+	private double[] lastAccruals = new double[8];
+
+	private int nbPeriods;
+
+	/**
+	 * Deposit or Ibor fixing : DF(start)/DF(end) = 1 + rate x accrual
+	 * @param referenceDay the curve reference date (epoch day)
+	 * @param fixingDay the fixing date of the quote (epoch day)
+	 * @param term the deposit {@link Period}
+	 * @param settlementDays number of days between fixing and value date
+	 * @param dayCounter the rate {@link DayCounter}
+	 * @param type DEPOSIT or IBOR
+	 * @param rate the quoted rate (1% = 0.01)
+	 * @return <code>true</code> if the pillar changed
+	 */
+	boolean setMoneyMarket(int referenceDay, int fixingDay, Period term, int settlementDays, DayCounter dayCounter, RateType type, double rate){
+		int valueDay = fixingDay + settlementDays;
+		boolean changed = setHeader(type, rate, referenceDay, dayCounter, 1);
+		days[0] = valueDay;
+		days[1] = EpochDay.plus(valueDay, term);
+		return updateTimes() || changed;
+	}
+
+	/**
+	 * Par swap rate : rate x Sum(accrual<sub>i</sub> DF(t<sub>i</sub>)) + DF(end) = DF(start)
+	 * <p> The fixed leg schedule is generated backward from the maturity (short first stub if any)
+	 * @param referenceDay the curve reference date (epoch day)
+	 * @param spotDay the swap start date (epoch day)
+	 * @param term the swap {@link Period}
+	 * @param dayCounter fixed leg {@link DayCounter}
+	 * @param frequency number of fixed coupons per year
+	 * @param rate the par rate (1% = 0.01)
+	 * @return <code>true</code> if the pillar changed
+	 */
+	boolean setSwap(int referenceDay, int spotDay, Period term, DayCounter dayCounter, int frequency, double rate){
+		int step = 12 / frequency;
+		int termMonths = term.getYears() * 12 + term.getMonths();
+		int nb = termMonths > 0 ? (termMonths + step - 1) / step : 1;
+		int maturity = EpochDay.plus(spotDay, term);
+
+		boolean changed = setHeader(RateType.SWAP, rate, referenceDay, dayCounter, nb);
+		days[0] = spotDay;
+		for (int k = 1; k < nb; k++){
+			days[k] = EpochDay.plusMonths(maturity, -(nb - k) * step);
+		}
+		days[nb] = maturity;
+		return updateTimes() || changed;
+	}
+
+	private boolean setHeader(RateType type, double rate, int referenceDay, DayCounter dayCounter, int nbPeriods){
+		boolean changed = this.type != type || this.rate != rate
+				|| this.dayCounter != dayCounter || this.nbPeriods != nbPeriods;
+		if (days.length <= nbPeriods){
+			days = new int[nbPeriods + 1];
+			times = new double[nbPeriods + 1];
+			accruals = new double[nbPeriods];
+			lastTimes = new double[nbPeriods + 1];
+			lastAccruals = new double[nbPeriods];
+			changed = true;
+		}
+		this.type = type;
+		this.rate = rate;
+		this.referenceDay = referenceDay;
+		this.dayCounter = dayCounter;
+		this.nbPeriods = nbPeriods;
+		return changed;
+	}
+
+	/**
+	 * Compute times and accruals from the schedule
+	 * @return <code>true</code> if a time or an accrual is not the one of the last curve
+	 */
+	private boolean updateTimes(){
+		double[] t = lastTimes;
+		lastTimes = times;
+		times = t;
+		double[] a = lastAccruals;
+		lastAccruals = accruals;
+		accruals = a;
+		TIME_COUNTER.yearFractions(referenceDay, days, times, nbPeriods + 1);
+		dayCounter.accruals(days, accruals, nbPeriods);
+		end = times[nbPeriods];
+		boolean changed = false;
+		for (int k = 0; k <= nbPeriods && !changed; k++){
+			changed = times[k] != lastTimes[k] || (k < nbPeriods && accruals[k] != lastAccruals[k]);
+		}
+		return changed;
+	}
+
+	/**
+	 * Pricing error of the quote on the curve (zero when the curve reprices the quote)
+	 * @param curve the {@link YieldCurve} being built
+	 * @return the residual
+	 */
+	double residual(YieldCurve curve){
+		if (type != RateType.SWAP){
+			return curve.getDiscountFactor(times[0]) / curve.getDiscountFactor(end) - (1.0 + rate * accruals[0]);
+		}
+		double annuity = 0;
+		for (int k = 1; k <= nbPeriods; k++){
+			annuity += accruals[k-1] * curve.getDiscountFactor(times[k]);
+		}
+		return rate * annuity + curve.getDiscountFactor(end) - curve.getDiscountFactor(times[0]);
+	}
+
+	@Override
+	public String toString() {
+		return "CurvePillar [type=" + type + ", rate=" + rate + ", end=" + end + "]";
+	}
+}
@@ -0,0 +1,297 @@
+package org.jquant.curve;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.joda.time.DateTime;
+import org.joda.time.Period;
+import org.jquant.instrument.rate.InterestRateIndex.RateType;
+import org.jquant.model.Currency;
+import org.jquant.serie.Rate;
+import org.jquant.serie.TermStructure;
+import org.jquant.time.calendar.EpochDay;
+import org.jquant.time.daycounter.DayCounter;
+
+/**
+ * Daily rebuild of a {@link YieldCurve} over a historical range of {@link TermStructure}s (one serie per pillar)
+ * <p>
+ * The series are read once into primitive arrays and walked with one cursor per serie, the last known quote
+ * of each pillar is used (as-of) when a serie has no quote on a date. A pillar enters the curve with the first quote of its serie.
+ * <p>
+ * The curve is rebuilt incrementally :
+ * <ul>
+ * <li>The pillars and the curve are reused from one date to the next one (no allocation per date)</li>
+ * <li>The bootstrap restarts from the first pillar that changed, the nodes before are kept. The pillars are compared
+ * in curve times : a pillar with the same quote whose schedule moved with the date (same times and accruals) did not change</li>
+ * <li>The solver starts from the solution of the previous date</li>
+ * </ul>
+ * Rates of the series flagged {@link TermStructure#isPercent()} are divided by 100.
+ * The money market pillars use the {@link Currency#getDayCounter()} convention.
+ * @author JQUANT TEAM
+ * @see CurveBootstrapper
+ */
+public class HistoricalCurveBuilder {
+
+	private final Currency currency;
+
+	private final CurveBootstrapper bootstrapper;
+
+	private final DayCounter dayCounter;
+
+	private int settlementDays = 2;
+
+	/*
+	 * Series data, sorted by term
+	 */
+	private final Period[] terms;
+
+	private final int[][] days;
+
+	private final DateTime[][] dates;
+
+	private final double[][] rates;
+
+	private final RateType[][] types;
+
+	/**
+	 * Current index of each serie (-1 before the first quote)
+	 */
+	private final int[] cursors;
+
+	/*
+	 * Curve state
+	 */
+	private final CurvePillar[] pillars;
+
+	/**
+	 * Serie of each active pillar
+	 */
+	private final int[] pillarSeries;
+
+	private int nbPillars;
+
+	private final YieldCurve curve;
+
+	/**
+	 *
+	 * @param currency the {@link Currency} of the curve
+	 * @param structures one {@link TermStructure} per pillar, the {@link TermStructure#getTerm()} must be set
+	 * @param interpolationMethod the {@link InterpolationMethod} of the curve
+	 */
+	public HistoricalCurveBuilder(Currency currency, List<TermStructure> structures, InterpolationMethod interpolationMethod) {
+		super();
+		this.currency = currency;
+		this.bootstrapper = new CurveBootstrapper(interpolationMethod);
+		this.dayCounter = currency.getDayCounter();
+
+		List<TermStructure> sorted = new ArrayList<TermStructure>(structures);
+		Collections.sort(sorted, new Comparator<TermStructure>() {
+			@Override
+			public int compare(TermStructure o1, TermStructure o2) {
+				return Integer.valueOf(getApproximateDays(o1.getTerm())).compareTo(getApproximateDays(o2.getTerm()));
+			}
+		});
+
+		int nb = sorted.size();
+		terms = new Period[nb];
+		days = new int[nb][];
+		dates = new DateTime[nb][];
+		rates = new double[nb][];
+		types = new RateType[nb][];
+		cursors = new int[nb];
+		for (int s = 0; s < nb; s++){
+			TermStructure structure = sorted.get(s);
+			if (structure.getTerm() == null){
+				throw new IllegalArgumentException("The term of the structure is missing : " + structure.getSymbol());
+			}
+			terms[s] = structure.getTerm();
+			int size = structure.size();
+			days[s] = new int[size];
+			dates[s] = new DateTime[size];
+			rates[s] = new double[size];
+			types[s] = new RateType[size];
+			double scale = structure.isPercent() ? 0.01 : 1.0;
+			int i = 0;
+			for (Rate rate : structure){
+				dates[s][i] = rate.getDate();
+				days[s][i] = EpochDay.of(rate.getDate());
+				rates[s][i] = rate.getRate() * scale;
+				types[s][i] = rate.getRateType();
+				i++;
+			}
+			cursors[s] = -1;
+		}
+
+		pillars = bootstrapper.ensureCapacity(nb);
+		pillarSeries = new int[nb];
+		Arrays.fill(pillarSeries, -1);
+		curve = new YieldCurve(null, currency, interpolationMethod);
+	}
+
+	/**
+	 * Rebuild the curve for a date
+	 * @param date the curve date
+	 * @return the curve (shared instance, rebuilt by the next call)
+	 */
+	public YieldCurve rebuild(DateTime date){
+		int day = EpochDay.of(date);
+		int nb = 0;
+		int firstChanged = -1;
+		for (int s = 0; s < terms.length; s++){
+			int c = seek(s, day);
+			if (c < 0){
+				continue;
+			}
+			boolean changed = setPillar(pillars[nb], day, terms[s], types[s][c], rates[s][c]);
+			if (pillarSeries[nb] != s){
+				pillarSeries[nb] = s;
+				changed = true;
+			}
+			if (changed && firstChanged < 0){
+				firstChanged = nb;
+			}
+			nb++;
+		}
+		if (firstChanged < 0){
+			firstChanged = Math.min(nb, nbPillars);
+		}
+		nbPillars = nb;
+
+		if (firstChanged == 0){
+			curve.reset(date);
+		} else {
+			curve.setReferenceDate(date);
+		}
+		bootstrapper.bootstrap(pillars, nb, firstChanged, curve);
+		return curve;
+	}
+
+	/**
+	 * Build the curves of all the quotation dates in [from, to]
+	 * @param from first date
+	 * @param to last date
+	 * @param listener the {@link CurveListener} called for each curve
+	 */
+	public void build(DateTime from, DateTime to, CurveListener listener){
+		int start = EpochDay.of(from);
+		int end = EpochDay.of(to);
+		// position the cursors just before the range
+		int[] next = new int[terms.length];
+		for (int s = 0; s < terms.length; s++){
+			next[s] = seek(s, start - 1) + 1;
+		}
+		while (true){
+			// next quotation date over all the series
+			int day = Integer.MAX_VALUE;
+			DateTime date = null;
+			for (int s = 0; s < terms.length; s++){
+				if (next[s] < days[s].length && days[s][next[s]] < day){
+					day = days[s][next[s]];
+					date = dates[s][next[s]];
+				}
+			}
+			if (date == null || day > end){
+				break;
+			}
+			for (int s = 0; s < terms.length; s++){
+				while (next[s] < days[s].length && days[s][next[s]] <= day){
+					next[s]++;
+				}
+			}
+			listener.onCurve(date, rebuild(date));
+		}
+	}
+
+	/**
+	 * Build the curves of all the quotation dates in [from, to]
+	 * @param from first date
+	 * @param to last date
+	 * @return a snapshot {@link YieldCurve} per date
+	 */
+	public NavigableMap<DateTime, YieldCurve> build(DateTime from, DateTime to){
+		final NavigableMap<DateTime, YieldCurve> curves = new TreeMap<DateTime, YieldCurve>();
+		build(from, to, new CurveListener() {
+			@Override
+			public void onCurve(DateTime date, YieldCurve curve) {
+				curves.put(date, curve.copy(bootstrapper.getInterpolationMethod().create()));
+			}
+		});
+		return curves;
+	}
+
+	/**
+	 * Move the cursor of a serie to the last quote at or before a date
+	 * @return the cursor
+	 */
+	private int seek(int s, int day){
+		int[] serie = days[s];
+		int c = cursors[s];
+		if (c >= 0 && serie[c] > day){
+			// backward move : binary search
+			c = Arrays.binarySearch(serie, day);
+			if (c < 0){
+				c = -c - 2;
+			}
+		} else {
+			while (c + 1 < serie.length && serie[c+1] <= day){
+				c++;
+			}
+		}
+		cursors[s] = c;
+		return c;
+	}
+
+	private boolean setPillar(CurvePillar pillar, int day, Period term, RateType type, double rate){
+		switch (type) {
+		case DEPOSIT:
+		case IBOR:
+			return pillar.setMoneyMarket(day, day, term, settlementDays, dayCounter, type, rate);
+		case SWAP:
+			return pillar.setSwap(day, day + settlementDays, term, dayCounter, bootstrapper.getSwapFrequency(), rate);
+		default:
+			throw new IllegalArgumentException("Unsupported rate type for the bootstrap : " + type);
+		}
+	}
+
+	private static int getApproximateDays(Period term){
+		return term.getYears() * 365 + term.getMonths() * 30 + term.getWeeks() * 7 + term.getDays();
+	}
+
+	public Currency getCurrency() {
+		return currency;
+	}
+
+	public int getSettlementDays() {
+		return settlementDays;
+	}
+
+	/**
+	 *
+	 * @param settlementDays number of days between the fixing and the start of the pillars (2 by default)
+	 */
+	public void setSettlementDays(int settlementDays) {
+		this.settlementDays = settlementDays;
+	}
+
+	/**
+	 *
+	 * @param swapFrequency number of fixed coupons per year of the swaps (1 by default)
+	 */
+	public void setSwapFrequency(int swapFrequency) {
+		bootstrapper.setSwapFrequency(swapFrequency);
+	}
+
+	/**
+	 *
+	 * @return the curve of the last {@link #rebuild(DateTime)}
+	 */
+	public YieldCurve getCurve() {
+		return curve;
+	}
+
+}
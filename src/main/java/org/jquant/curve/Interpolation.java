@@ -0,0 +1,42 @@
+package org.jquant.curve;
+
+/**
+ * One dimensional interpolation over a set of nodes (x<sub>i</sub>, y<sub>i</sub>)
+ * <p>
+ * The node arrays belong to the caller, the interpolation only keeps a reference on them. 
+ * {@link #update(double[], double[], int)} must be called each time the nodes change, 
+ * the lookups ({@link #value(double)}, {@link #derivative(double)}) do not allocate. 
+ * <p> Outside of the nodes range the interpolation is extended linearly.
+ * @author JQUANT TEAM
+ * @see InterpolationMethod
+ */
+public interface Interpolation {
+
+	/**
+	 * (Re)compute the interpolation coefficients 
+	 * @param x abscissas, strictly increasing 
+	 * @param y ordinates 
+	 * @param size number of valid nodes in the arrays 
+	 */
+	public void update(double[] x, double[] y, int size);
+	
+	/**
+	 * 
+	 * @param x the abscissa
+	 * @return the interpolated value at x
+	 */
+	public double value(double x);
+	
+	/**
+	 * 
+	 * @param x the abscissa
+	 * @return the first derivative of the interpolant at x
+	 */
+	public double derivative(double x);
+	
+	/**
+	 * 
+	 * @return <code>true</code> if moving a node only changes the adjacent segments 
+	 */
+	public boolean isLocal();
+}
@@ -0,0 +1,30 @@
+package org.jquant.curve;
+
+/**
+ * The built-in interpolation methods 
+ * <ul>
+ * <li>LINEAR : piecewise linear ({@link LinearInterpolation})</li>
+ * <li>CUBIC_SPLINE : natural cubic spline ({@link CubicSplineInterpolation})</li>
+ * </ul>
+ * Any other {@link Interpolation} can be plugged directly into a {@link YieldCurve}
+ * @author JQUANT TEAM
+ *
+ */
+public enum InterpolationMethod {
+
+	LINEAR,
+	CUBIC_SPLINE;
+	
+	/**
+	 * 
+	 * @return a new (stateful) {@link Interpolation} instance
+	 */
+	public Interpolation create(){
+		switch (this) {
+		case CUBIC_SPLINE:
+			return new CubicSplineInterpolation();
+		default:
+			return new LinearInterpolation();
+		}
+	}
+}
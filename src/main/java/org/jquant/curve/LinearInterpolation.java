@@ -0,0 +1,34 @@
+package org.jquant.curve;
+
+/**
+ * Piecewise linear interpolation 
+ * <p> Used on the log discount factors it gives the usual <b>flat forward</b> curve.
+ * @author JQUANT TEAM
+ *
+ */
+public class LinearInterpolation extends AbstractInterpolation {
+
+	@Override
+	public double value(double v) {
+		if (size == 1){
+			return y[0];
+		}
+		int i = locate(v);
+		return y[i] + (v - x[i]) * (y[i+1] - y[i]) / (x[i+1] - x[i]);
+	}
+
+	@Override
+	public double derivative(double v) {
+		if (size == 1){
+			return 0;
+		}
+		int i = locate(v);
+		return (y[i+1] - y[i]) / (x[i+1] - x[i]);
+	}
+
+	@Override
+	public boolean isLocal() {
+		return true;
+	}
+
+}
@@ -0,0 +1,310 @@
+package org.jquant.curve;
+
+import java.util.Arrays;
+
+import org.joda.time.DateTime;
+import org.jquant.model.Currency;
+import org.jquant.time.calendar.EpochDay;
+import org.jquant.time.daycounter.Actual365Fixed;
+import org.jquant.time.daycounter.DayCounter;
+
+/**
+ * Discount curve for a given reference date 
+ * <p>
+ * The curve is stored as nodes (t<sub>i</sub>, -ln DF(t<sub>i</sub>)) where t is the {@link Actual365Fixed} time from the reference date.
+ * The pluggable {@link Interpolation} runs on the log discount factors, so that : 
+ * <ul>
+ * <li>{@link InterpolationMethod#LINEAR} gives flat instantaneous forwards between the pillars</li>
+ * <li>{@link InterpolationMethod#CUBIC_SPLINE} gives smooth forwards</li>
+ * </ul>
+ * Discount factors, zero rates (continuously compounded) and forwards are read from primitive arrays 
+ * without any allocation, the last segment found is cached by the interpolation.
+ * <p>
+ * The curves are built by the {@link CurveBootstrapper}, the node mutators are package private.
+ * @author JQUANT TEAM
+ * @see CurveBootstrapper
+ * @see HistoricalCurveBuilder
+ */
+public class YieldCurve {
+
+	/**
+	 * Time axis convention of the curve
+	 */
+	private static final DayCounter TIME_COUNTER = Actual365Fixed.INSTANCE;
+	
+	private final Currency currency;
+	
+	private final Interpolation interpolation;
+	
+	private DateTime referenceDate;
+	
+	/**
+	 * Epoch day of the reference date 
+	 */
+	private int referenceDay;
+	
+	private double[] times;
+	
+	private double[] logDiscounts;
+	
+	private int size;
+	
+	/**
+	 * 
+	 * @param referenceDate the curve date (DF = 1) 
+	 * @param currency the {@link Currency} of the curve 
+	 * @param interpolation the {@link Interpolation} used on the log discount factors
+	 */
+	public YieldCurve(DateTime referenceDate, Currency currency, Interpolation interpolation) {
+		super();
+		this.currency = currency;
+		this.interpolation = interpolation;
+		this.times = new double[16];
+		this.logDiscounts = new double[16];
+		reset(referenceDate);
+	}
+	
+	public YieldCurve(DateTime referenceDate, Currency currency, InterpolationMethod method) {
+		this(referenceDate, currency, method.create());
+	}
+
+	/**
+	 * Empty the curve : only the reference node (t=0, DF=1) is kept
+	 * @param referenceDate the new reference date 
+	 */
+	void reset(DateTime referenceDate){
+		setReferenceDate(referenceDate);
+		truncate(1);
+	}
+	
+	/**
+	 * Move the curve to a new reference date, the nodes are kept as is 
+	 * <p> Used by the incremental rebuild when the pillar times did not move 
+	 * @param referenceDate the new reference date 
+	 */
+	void setReferenceDate(DateTime referenceDate){
+		this.referenceDate = referenceDate;
+		this.referenceDay = referenceDate == null ? 0 : EpochDay.of(referenceDate);
+	}
+	
+	/**
+	 * Keep the first nodes only 
+	 * @param nbNodes the number of nodes kept (the reference node included)
+	 */
+	void truncate(int nbNodes){
+		size = Math.max(1, nbNodes);
+		times[0] = 0;
+		logDiscounts[0] = 0;
+		interpolation.update(times, logDiscounts, size);
+	}
+	
+	/**
+	 * Append a node at the end of the curve 
+	 * @param t time of the node, must be greater than the last node
+	 * @param logDiscount -ln DF(t)
+	 */
+	void addNode(double t, double logDiscount){
+		if (t <= times[size-1]){
+			throw new IllegalArgumentException("Curve nodes must be strictly increasing : " + t + " <= " + times[size-1]);
+		}
+		if (size == times.length){
+			times = Arrays.copyOf(times, size * 2);
+			logDiscounts = Arrays.copyOf(logDiscounts, size * 2);
+		}
+		times[size] = t;
+		logDiscounts[size] = logDiscount;
+		size++;
+		interpolation.update(times, logDiscounts, size);
+	}
+	
+	/**
+	 * Move the value of a node (used by the bootstrap solver) 
+	 * @param index index of the node 
+	 * @param logDiscount -ln DF(t) of the node 
+	 */
+	void setNode(int index, double logDiscount){
+		logDiscounts[index] = logDiscount;
+		interpolation.update(times, logDiscounts, size);
+	}
+	
+	/**
+	 * 
+	 * @param index index of the node 
+	 * @return -ln DF(t) of the node
+	 */
+	double getNode(int index){
+		return logDiscounts[index];
+	}
+	
+	/**
+	 * 
+	 * @return <code>true</code> if the interpolation is local (a node only changes the adjacent segments)
+	 */
+	boolean isLocal(){
+		return interpolation.isLocal();
+	}
+	
+	/**
+	 * 
+	 * @param t time in years from the reference date
+	 * @return -ln DF(t), the interpolated value
+	 */
+	double getLogDiscount(double t){
+		return interpolation.value(t);
+	}
+	
+	/**
+	 * 
+	 * @param date a {@link DateTime}
+	 * @return the curve time (ACT/365) of the date
+	 */
+	public double getTime(DateTime date){
+		return getTime(EpochDay.of(date));
+	}
+	
+	/**
+	 * 
+	 * @param epochDay a date (see {@link EpochDay})
+	 * @return the curve time (ACT/365) of the date
+	 */
+	public double getTime(int epochDay){
+		return TIME_COUNTER.yearFraction(referenceDay, epochDay);
+	}
+	
+	/**
+	 * 
+	 * @param t time in years from the reference date
+	 * @return DF(t)
+	 */
+	public double getDiscountFactor(double t){
+		return Math.exp(-interpolation.value(t));
+	}
+	
+	/**
+	 * 
+	 * @param date a {@link DateTime}
+	 * @return DF(date)
+	 */
+	public double getDiscountFactor(DateTime date){
+		return getDiscountFactor(getTime(date));
+	}
+	
+	/**
+	 * Continuously compounded zero rate 
+	 * @param t time in years from the reference date
+	 * @return r(t) such as DF(t) = exp(-r(t).t)
+	 */
+	public double getZeroRate(double t){
+		if (t <= 0){
+			return getInstantaneousForward(0);
+		}
+		return interpolation.value(t) / t;
+	}
+	
+	/**
+	 * Continuously compounded zero rate 
+	 * @param date a {@link DateTime}
+	 * @return r(date) 
+	 */
+	public double getZeroRate(DateTime date){
+		return getZeroRate(getTime(date));
+	}
+	
+	/**
+	 * Continuously compounded forward rate between t1 and t2
+	 * @param t1 start 
+	 * @param t2 end
+	 * @return f(t1,t2)
+	 */
+	public double getForwardRate(double t1, double t2){
+		if (t2 <= t1){
+			return getInstantaneousForward(t1);
+		}
+		return (interpolation.value(t2) - interpolation.value(t1)) / (t2 - t1);
+	}
+	
+	/**
+	 * 
+	 * @param t time in years
+	 * @return the instantaneous forward rate f(t)
+	 */
+	public double getInstantaneousForward(double t){
+		return interpolation.derivative(t);
+	}
+	
+	/**
+	 * 
+	 * @param newInterpolation the {@link Interpolation} of the copy (interpolations are stateful and can not be shared)
+	 * @return an independent copy of the curve (snapshot) 
+	 */
+	public YieldCurve copy(Interpolation newInterpolation){
+		YieldCurve dolly = new YieldCurve(referenceDate, currency, newInterpolation);
+		dolly.times = Arrays.copyOf(times, size);
+		dolly.logDiscounts = Arrays.copyOf(logDiscounts, size);
+		dolly.size = size;
+		newInterpolation.update(dolly.times, dolly.logDiscounts, size);
+		return dolly;
+	}
+	
+	/**
+	 * 
+	 * @return the times of the pillars (reference node included)
+	 */
+	public double[] getTimes(){
+		return Arrays.copyOf(times, size);
+	}
+	
+	/**
+	 * 
+	 * @return the discount factors of the pillars (reference node included)
+	 */
+	public double[] getDiscountFactors(){
+		double[] dfs = new double[size];
+		for (int i = 0; i < size; i++){
+			dfs[i] = Math.exp(-logDiscounts[i]);
+		}
+		return dfs;
+	}
+	
+	/**
+	 * 
+	 * @return number of nodes (reference node included)
+	 */
+	public int size(){
+		return size;
+	}
+	
+	/**
+	 * 
+	 * @return time of the last node
+	 */
+	double getLastTime(){
+		return times[size-1];
+	}
+	
+	/**
+	 * 
+	 * @return the reference date (DF = 1)
+	 */
+	public DateTime getReferenceDate() {
+		return referenceDate;
+	}
+	
+	/**
+	 * 
+	 * @return the epoch day of the reference date
+	 */
+	public int getReferenceDay() {
+		return referenceDay;
+	}
+
+	public Currency getCurrency() {
+		return currency;
+	}
+
+	@Override
+	public String toString() {
+		return "YieldCurve [currency=" + currency + ", referenceDate=" + referenceDate + ", size=" + size + "]";
+	}
+	
+}
@@ -5,6 +5,7 @@ import org.jquant.instrument.GenericFuture;
 import org.jquant.model.InstrumentId;
 import org.jquant.serie.CandleSerie;
 import org.jquant.serie.QuoteSerie;
+import org.jquant.serie.VolatilitySurfaceSerie;
 
 /**
  * Core interface to extend the functionnalities of JQuant Market Data Provider Layer 
@@ -73,4 +74,14 @@ public interface IMarketDataProviderAdapter {
 	 */
 	public QuoteSerie readQuoteSerie(InstrumentId symbol,DateTime start, DateTime end, Object reader);
 	
+	/**
+	 * Implied volatilities of the options on an instrument (underlying) 
+	 * @param symbol the {@link InstrumentId} of the underlying 
+	 * @param start begining of the TimeSerie
+	 * @param end end of the TimeSerie
+	 * @param reader The legacy Market Data Reader
+	 * @return a {@link VolatilitySurfaceSerie}, <code>null</code> if the provider has no implied volatility for this instrument 
+	 */
+	public VolatilitySurfaceSerie readVolatilitySurfaces(InstrumentId symbol,DateTime start, DateTime end, Object reader);
+	
 }
@@ -9,6 +9,10 @@ import org.jquant.exception.MarketDataReaderException;
 import org.jquant.model.InstrumentId;
 import org.jquant.model.StitchingMethod;
 import org.jquant.serie.Candle;
+import org.jquant.serie.CandleSerie;
+import org.jquant.serie.QuoteSerie;
+import org.jquant.serie.VolatilitySurface;
+import org.jquant.serie.VolatilitySurfaceSerie;
 
 public interface IMarketManager {
 
@@ -59,5 +63,43 @@ public interface IMarketManager {
 	 * @return First and Last DateTime for the current Market
 	 */
 	public abstract ImmutablePair<DateTime, DateTime> getFirstLast();
+	
+	/**
+	 * 
+	 * @param symbol the {@link InstrumentId} of the underlying
+	 * @return the implied volatilities loaded with the instrument, <code>null</code> if none
+	 */
+	public abstract VolatilitySurfaceSerie getVolatilitySurfaceSerie(InstrumentId symbol);
+	
+	/**
+	 * 
+	 * @param symbol the {@link InstrumentId} of the underlying
+	 * @param timestamp a {@link DateTime}
+	 * @return the last {@link VolatilitySurface} at or before the timestamp (new instance), <code>null</code> if none
+	 */
+	public abstract VolatilitySurface getVolatilitySurface(InstrumentId symbol, DateTime timestamp);
 
-}
\ No newline at end of file
+	/**
+	 * Load the best bid / best ask history of an instrument (QUOTE precision)
+	 * @param symbol the {@link InstrumentId}
+	 * @param from {@link DateTime} begining of the historical data  
+	 * @param to {@link DateTime} end of the historical data  
+	 * @throws MarketDataReaderException
+	 */
+	public abstract void addQuotes(InstrumentId symbol, DateTime from, DateTime to) throws MarketDataReaderException;
+	
+	/**
+	 * 
+	 * @param symbol the {@link InstrumentId}
+	 * @return the historical candles of the instrument, <code>null</code> if the instrument was not added
+	 */
+	public abstract CandleSerie getCandleSerie(InstrumentId symbol);
+	
+	/**
+	 * 
+	 * @param symbol the {@link InstrumentId}
+	 * @return the historical quotes of the instrument, <code>null</code> if they were not added
+	 */
+	public abstract QuoteSerie getQuoteSerie(InstrumentId symbol);
+	
+}
@@ -1,7 +1,10 @@
 package org.jquant.data;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.log4j.Logger;
@@ -13,6 +16,9 @@ import org.jquant.model.MarketDataPrecision;
 import org.jquant.model.StitchingMethod;
 import org.jquant.serie.Candle;
 import org.jquant.serie.CandleSerie;
+import org.jquant.serie.QuoteSerie;
+import org.jquant.serie.VolatilitySurface;
+import org.jquant.serie.VolatilitySurfaceSerie;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactoryUtils;
 import org.springframework.beans.factory.InitializingBean;
@@ -49,7 +55,17 @@ public class MarketManager implements IMarketManager, InitializingBean, Applicat
 	 * Map of growing TimeSeries (view of the TimeSeries in the MarketManager)
 	 * TODO: see ConcurrentHashMap to enable multi threading capabilities  
 	 */
-	private final Map<InstrumentId,CandleSerie> csMap = new HashMap<InstrumentId, CandleSerie>();
+	private final Map<InstrumentId,CandleSerie> csMap = new LinkedHashMap<InstrumentId, CandleSerie>();
+	
+	/**
+	 * Best bid / best ask of the instruments (QUOTE precision only)
+	 */
+	private final Map<InstrumentId,QuoteSerie> qsMap = new HashMap<InstrumentId, QuoteSerie>();
+	
+	/**
+	 * Implied volatility surfaces of the instruments (if any) 
+	 */
+	private final Map<InstrumentId,VolatilitySurfaceSerie> volMap = new HashMap<InstrumentId, VolatilitySurfaceSerie>();
 	
 	
 	
@@ -77,6 +93,38 @@ public class MarketManager implements IMarketManager, InitializingBean, Applicat
 		}
 		return null;
 	}
+	
+	@Override
+	public CandleSerie getCandleSerie(InstrumentId symbol) {
+		return csMap.get(symbol);
+	}
+	
+	@Override
+	public QuoteSerie getQuoteSerie(InstrumentId symbol) {
+		return qsMap.get(symbol);
+	}
+	
+	/**
+	 * 
+	 * @return the instruments with historical candles, in the order they were added
+	 */
+	public Set<InstrumentId> getInstruments() {
+		return Collections.unmodifiableSet(csMap.keySet());
+	}
+	
+	@Override
+	public VolatilitySurfaceSerie getVolatilitySurfaceSerie(InstrumentId symbol) {
+		return volMap.get(symbol);
+	}
+	
+	@Override
+	public VolatilitySurface getVolatilitySurface(InstrumentId symbol, DateTime timestamp) {
+		VolatilitySurfaceSerie vss = volMap.get(symbol);
+		if (vss != null){
+			return vss.getSurface(timestamp);
+		}
+		return null;
+	}
 
 	/**
 	 * used by the simulation stragy runner to determine 
@@ -188,7 +236,7 @@ public class MarketManager implements IMarketManager, InitializingBean, Applicat
 		if (serie != null && serie.size()>0) {
 			serie.setSymbol(symbol);
 
-			// TODO: Manage Implied Volatility If Any
+			addVolatilitySurfaces(symbol, from, to, adapter, reader);
 
 			// FIXME  : Cache with key (symbol,from,to)
 			//				candleSeries.add(serie);
@@ -217,7 +265,7 @@ public class MarketManager implements IMarketManager, InitializingBean, Applicat
 		if (serie != null && serie.size()>0) {
 			serie.setSymbol(gf.getId());
 
-			// TODO: Manage Implied Volatility If Any
+			addVolatilitySurfaces(gf.getId(), from, end, adapter, reader);
 
 			// FIXME  : Cache with key (symbol,from,to)
 			//				candleSeries.add(serie);
@@ -228,6 +276,36 @@ public class MarketManager implements IMarketManager, InitializingBean, Applicat
 
 	}
 
+	@Override
+	public void addQuotes(InstrumentId symbol, DateTime from, DateTime to) throws MarketDataReaderException {
+		Object reader = findMarketDataReader(symbol.getProvider());
+		if (reader == null ) throw new MarketDataReaderException("No MarketData reader for provider " + symbol.getProvider());
+
+		IMarketDataProviderAdapter adapter = findReaderAdapter(reader);
+
+		if (adapter == null ) throw new MarketDataReaderException("No MarketData adapter for provider " + symbol.getProvider());
+
+		QuoteSerie serie = adapter.readQuoteSerie(symbol, from, to, reader);
+		if (serie != null && serie.size()>0) {
+			serie.setSymbol(symbol);
+			qsMap.put(symbol, serie);
+		}else {
+			logger.warn("No quotes for InstrumentId"+ symbol.toString());
+		}
+	}
+
+	/**
+	 * Load the implied volatilities of an instrument, if the provider has some
+	 */
+	private void addVolatilitySurfaces(InstrumentId symbol, DateTime from, DateTime to, IMarketDataProviderAdapter adapter, Object reader){
+		VolatilitySurfaceSerie vss = adapter.readVolatilitySurfaces(symbol, from, to, reader);
+		if (vss != null && vss.size()>0){
+			vss.setSymbol(symbol);
+			vss.trimToSize();
+			volMap.put(symbol, vss);
+		}
+	}
+
 	@Override
 	public void addFuture(InstrumentId future, Integer deliveryMonth, Integer deliveryYear) throws MarketDataReaderException {
 		// TODO Auto-generated method stub
@@ -7,6 +7,7 @@ import org.jquant.model.InstrumentId;
 import org.jquant.serie.Candle;
 import org.jquant.serie.CandleSerie;
 import org.jquant.serie.QuoteSerie;
+import org.jquant.serie.VolatilitySurfaceSerie;
 import org.jquant.time.calendar.CalendarFactory;
 import org.jquant.time.calendar.IDateTimeCalendar;
 import org.jquant.time.calendar.Periods;
@@ -61,6 +62,11 @@ public class MockMarketDataReaderAdapter implements IMarketDataProviderAdapter {
 		return null;
 	}
 
+	@Override
+	public VolatilitySurfaceSerie readVolatilitySurfaces(InstrumentId symbol, DateTime start, DateTime end, Object reader) {
+		return null;
+	}
+
 	@Override
 	public GenericFuture readGenericFuture(InstrumentId future, DateTime start, DateTime end, Object reader) {
 		// TODO Auto-generated method stub
@@ -0,0 +1,61 @@
+package org.jquant.data.csv;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rows parsed from a CSV file, in primitive columns
+ * @author JQUANT TEAM
+ */
+final class CsvColumns {
+
+	long[] times;
+
+	final double[][] values;
+
+	int size;
+
+	CsvColumns(int nbValues, int capacity) {
+		times = new long[Math.max(16, capacity)];
+		values = new double[nbValues][times.length];
+	}
+
+	/**
+	 * Add a row, its values are set at the index {@link #size} - 1
+	 * @param time time of the row in milliseconds
+	 */
+	void add(long time){
+		if (size == times.length){
+			int capacity = times.length * 2;
+			times = Arrays.copyOf(times, capacity);
+			for (int i = 0; i < values.length; i++){
+				values[i] = Arrays.copyOf(values[i], capacity);
+			}
+		}
+		times[size++] = time;
+	}
+
+	/**
+	 *
+	 * @param parts the columns of consecutive parts of a file
+	 * @return the rows of the parts, in their order
+	 */
+	static CsvColumns concat(List<CsvColumns> parts, int nbValues){
+		int total = 0;
+		for (CsvColumns part : parts){
+			total += part.size;
+		}
+		if (parts.size() == 1){
+			return parts.get(0);
+		}
+		CsvColumns all = new CsvColumns(nbValues, total);
+		for (CsvColumns part : parts){
+			System.arraycopy(part.times, 0, all.times, all.size, part.size);
+			for (int i = 0; i < nbValues; i++){
+				System.arraycopy(part.values[i], 0, all.values[i], all.size, part.size);
+			}
+			all.size += part.size;
+		}
+		return all;
+	}
+}
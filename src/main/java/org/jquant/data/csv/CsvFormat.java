@@ -0,0 +1,151 @@
+package org.jquant.data.csv;
+
+import java.util.Arrays;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.jquant.time.calendar.Periods;
+
+/**
+ * Layout of a CSV market data file
+ * <p>
+ * A row has a date column (<code>yyyy-MM-dd</code>, <code>yyyy/MM/dd</code> or <code>yyyyMMdd</code>, optionally followed
+ * by a time <code>HH:mm:ss.SSS</code> after a space or a <code>T</code>), an optional time column and the columns of
+ * the values. The dates are local times in the {@link #getTimeZone() time zone} of the file. The rows which date can
+ * not be read (headers, comments) are skipped.
+ * @author JQUANT TEAM
+ */
+public class CsvFormat {
+
+	private char separator = ',';
+
+	private int headerLines = 1;
+
+	private int dateColumn = 0;
+
+	private int timeColumn = -1;
+
+	private int[] valueColumns;
+
+	private DateTimeZone timeZone = DateTimeZone.getDefault();
+
+	private Period period = Periods.ONE_DAY;
+
+	/**
+	 *
+	 * @param valueColumns index of the column of each value (from 0)
+	 */
+	public CsvFormat(int... valueColumns) {
+		setValueColumns(valueColumns);
+	}
+
+	/**
+	 *
+	 * @return Date,Open,High,Low,Close,Volume[,...] daily candles
+	 */
+	public static CsvFormat candles(){
+		return new CsvFormat(1, 2, 3, 4, 5);
+	}
+
+	/**
+	 *
+	 * @return DateTime,Bid,Ask[,...] quotes
+	 */
+	public static CsvFormat quotes(){
+		return new CsvFormat(1, 2);
+	}
+
+	/**
+	 *
+	 * @return index of the value of each column, -1 for the other columns
+	 */
+	int[] getValueIndexes(){
+		int max = Math.max(dateColumn, timeColumn);
+		for (int c : valueColumns){
+			max = Math.max(max, c);
+		}
+		int[] indexes = new int[max + 1];
+		Arrays.fill(indexes, -1);
+		for (int i = 0; i < valueColumns.length; i++){
+			indexes[valueColumns[i]] = i;
+		}
+		return indexes;
+	}
+
+	public char getSeparator() {
+		return separator;
+	}
+
+	public void setSeparator(char separator) {
+		this.separator = separator;
+	}
+
+	/**
+	 *
+	 * @return number of lines skipped at the beginning of the file
+	 */
+	public int getHeaderLines() {
+		return headerLines;
+	}
+
+	public void setHeaderLines(int headerLines) {
+		this.headerLines = headerLines;
+	}
+
+	public int getDateColumn() {
+		return dateColumn;
+	}
+
+	public void setDateColumn(int dateColumn) {
+		this.dateColumn = dateColumn;
+	}
+
+	/**
+	 *
+	 * @return index of the column of the time, -1 if the time is in the date column (or if there is no time)
+	 */
+	public int getTimeColumn() {
+		return timeColumn;
+	}
+
+	public void setTimeColumn(int timeColumn) {
+		this.timeColumn = timeColumn;
+	}
+
+	public int[] getValueColumns() {
+		return valueColumns.clone();
+	}
+
+	/**
+	 * For the candles : open, high, low, close and volume, for the quotes : bid and ask
+	 * @param valueColumns index of the column of each value
+	 */
+	public void setValueColumns(int... valueColumns) {
+		for (int c : valueColumns){
+			if (c < 0){
+				throw new IllegalArgumentException("Negative column index " + c);
+			}
+		}
+		this.valueColumns = valueColumns.clone();
+	}
+
+	public DateTimeZone getTimeZone() {
+		return timeZone;
+	}
+
+	public void setTimeZone(DateTimeZone timeZone) {
+		this.timeZone = timeZone;
+	}
+
+	/**
+	 *
+	 * @return the {@link Period} of the candles (one day by default)
+	 */
+	public Period getPeriod() {
+		return period;
+	}
+
+	public void setPeriod(Period period) {
+		this.period = period;
+	}
+}
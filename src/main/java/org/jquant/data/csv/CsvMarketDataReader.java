@@ -0,0 +1,305 @@
+package org.jquant.data.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import org.apache.log4j.Logger;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.jquant.model.InstrumentId;
+import org.jquant.serie.BBBA;
+import org.jquant.serie.Candle;
+import org.jquant.serie.CandleSerie;
+import org.jquant.serie.QuoteSerie;
+
+/**
+ * Market Data Reader of a directory of CSV files
+ * <p>
+ * The candles of an instrument are in the file <code>{code}.csv</code> and its quotes in <code>{code}_quotes.csv</code>
+ * (see {@link #setCandleFilePattern(String)}), their columns are given by a {@link CsvFormat}.
+ * <p>
+ * The files are parsed on their bytes by a {@link CsvParser}. The files larger than {@link #getSplitSize()} are cut in
+ * ranges parsed in parallel by the threads of a {@link ForkJoinPool}, and {@link #readCandleSeries(Collection, DateTime, DateTime)}
+ * parses the files of several instruments in parallel.
+ * <p>
+ * This reader is returned by a {@link org.jquant.data.IMarketDataProviderMapping} and read by the {@link CsvMarketDataReaderAdapter}.
+ * @author JQUANT TEAM
+ */
+public class CsvMarketDataReader {
+
+	/** logger */
+	private static final Logger logger = Logger.getLogger(CsvMarketDataReader.class);
+
+	private static final String CODE = "{code}";
+
+	private final File directory;
+
+	private CsvFormat candleFormat = CsvFormat.candles();
+
+	private CsvFormat quoteFormat = CsvFormat.quotes();
+
+	private String candleFilePattern = CODE + ".csv";
+
+	private String quoteFilePattern = CODE + "_quotes.csv";
+
+	private long splitSize = 64L << 20;
+
+	private ForkJoinPool pool;
+
+	/**
+	 *
+	 * @param directory directory of the CSV files
+	 */
+	public CsvMarketDataReader(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 *
+	 * @param symbol the {@link InstrumentId}
+	 * @param start beginning of the serie, <code>null</code> for the beginning of the file
+	 * @param end end of the serie, <code>null</code> for the end of the file
+	 * @return the candles of the instrument between start and end, <code>null</code> if there is no file for the instrument
+	 */
+	public CandleSerie readCandleSerie(InstrumentId symbol, DateTime start, DateTime end){
+		File file = getFile(candleFilePattern, symbol);
+		if (file == null){
+			return null;
+		}
+		return toCandleSerie(symbol, parse(file, candleFormat, start, end));
+	}
+
+	/**
+	 *
+	 * @param symbol the {@link InstrumentId}
+	 * @param start beginning of the serie, <code>null</code> for the beginning of the file
+	 * @param end end of the serie, <code>null</code> for the end of the file
+	 * @return the quotes of the instrument between start and end, <code>null</code> if there is no file for the instrument
+	 */
+	public QuoteSerie readQuoteSerie(InstrumentId symbol, DateTime start, DateTime end){
+		File file = getFile(quoteFilePattern, symbol);
+		if (file == null){
+			return null;
+		}
+		CsvColumns columns = parse(file, quoteFormat, start, end);
+		DateTimeZone zone = quoteFormat.getTimeZone();
+		QuoteSerie serie = new QuoteSerie();
+		serie.setSymbol(symbol);
+		for (int i = 0; i < columns.size; i++){
+			serie.addValue(new BBBA(new DateTime(columns.times[i], zone), columns.values[0][i], columns.values[1][i]));
+		}
+		return serie;
+	}
+
+	/**
+	 * Read the candles of several instruments, the files are parsed in parallel
+	 * @param symbols the instruments
+	 * @param start beginning of the series, <code>null</code> for the beginning of the files
+	 * @param end end of the series, <code>null</code> for the end of the files
+	 * @return the {@link CandleSerie} of each instrument having a file
+	 */
+	public Map<InstrumentId, CandleSerie> readCandleSeries(Collection<InstrumentId> symbols, DateTime start, DateTime end){
+		long from = start == null ? Long.MIN_VALUE : start.getMillis();
+		long to = end == null ? Long.MAX_VALUE : end.getMillis();
+		List<InstrumentId> found = new ArrayList<InstrumentId>();
+		List<Range> tasks = new ArrayList<Range>();
+		for (InstrumentId symbol : symbols){
+			File file = getFile(candleFilePattern, symbol);
+			if (file != null){
+				found.add(symbol);
+				tasks.add(new Range(file, candleFormat, 0, file.length(), from, to));
+			}
+		}
+		Map<InstrumentId, CandleSerie> series = new HashMap<InstrumentId, CandleSerie>();
+		if (tasks.isEmpty()){
+			return series;
+		}
+		getPool().invoke(new Files(tasks));
+		for (int i = 0; i < tasks.size(); i++){
+			series.put(found.get(i), toCandleSerie(found.get(i), tasks.get(i).getRawResult()));
+		}
+		return series;
+	}
+
+	private CandleSerie toCandleSerie(InstrumentId symbol, CsvColumns columns){
+		DateTimeZone zone = candleFormat.getTimeZone();
+		CandleSerie serie = new CandleSerie(symbol);
+		double[] volumes = columns.values.length > 4 ? columns.values[4] : null;
+		for (int i = 0; i < columns.size; i++){
+			serie.addValue(new Candle(new DateTime(columns.times[i], zone), candleFormat.getPeriod(), columns.values[0][i],
+					columns.values[1][i], columns.values[2][i], columns.values[3][i], volumes == null ? 0 : volumes[i]));
+		}
+		return serie;
+	}
+
+	private CsvColumns parse(File file, CsvFormat format, DateTime start, DateTime end){
+		long from = start == null ? Long.MIN_VALUE : start.getMillis();
+		long to = end == null ? Long.MAX_VALUE : end.getMillis();
+		Range range = new Range(file, format, 0, file.length(), from, to);
+		if (file.length() <= splitSize){
+			// not worth a task
+			return range.compute();
+		}
+		return getPool().invoke(range);
+	}
+
+	private File getFile(String pattern, InstrumentId symbol){
+		File file = new File(directory, pattern.replace(CODE, symbol.getCode()));
+		if (!file.isFile()){
+			logger.warn("No file " + file + " for " + symbol);
+			return null;
+		}
+		return file;
+	}
+
+	private synchronized ForkJoinPool getPool(){
+		if (pool == null){
+			pool = new ForkJoinPool();
+		}
+		return pool;
+	}
+
+	/**
+	 * The files of several instruments
+	 */
+	private static final class Files extends RecursiveTask<Void> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<Range> files;
+
+		Files(List<Range> files) {
+			this.files = files;
+		}
+
+		@Override
+		protected Void compute() {
+			invokeAll(files);
+			return null;
+		}
+	}
+
+	/**
+	 * A range of bytes of a file, split in halves down to the split size
+	 */
+	private final class Range extends RecursiveTask<CsvColumns> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final File file;
+
+		private final CsvFormat format;
+
+		private final long start;
+
+		private final long end;
+
+		private final long from;
+
+		private final long to;
+
+		Range(File file, CsvFormat format, long start, long end, long from, long to) {
+			this.file = file;
+			this.format = format;
+			this.start = start;
+			this.end = end;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected CsvColumns compute() {
+			if (end - start > splitSize){
+				// the parser of a range skips the line started in the previous range : any cut will do
+				long mid = start + (end - start) / 2;
+				Range first = new Range(file, format, start, mid, from, to);
+				Range second = new Range(file, format, mid, end, from, to);
+				ForkJoinTask.invokeAll(first, second);
+				List<CsvColumns> parts = new ArrayList<CsvColumns>(2);
+				parts.add(first.getRawResult());
+				parts.add(second.getRawResult());
+				return CsvColumns.concat(parts, format.getValueColumns().length);
+			}
+			try {
+				return new CsvParser(file, format).parse(start, end, from, to);
+			}catch (IOException e) {
+				throw new RuntimeException("Can not read " + file, e);
+			}
+		}
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public CsvFormat getCandleFormat() {
+		return candleFormat;
+	}
+
+	public void setCandleFormat(CsvFormat candleFormat) {
+		this.candleFormat = candleFormat;
+	}
+
+	public CsvFormat getQuoteFormat() {
+		return quoteFormat;
+	}
+
+	public void setQuoteFormat(CsvFormat quoteFormat) {
+		this.quoteFormat = quoteFormat;
+	}
+
+	public String getCandleFilePattern() {
+		return candleFilePattern;
+	}
+
+	/**
+	 *
+	 * @param candleFilePattern name of the file of the candles of an instrument, <code>{code}</code> is replaced by the code of the instrument
+	 */
+	public void setCandleFilePattern(String candleFilePattern) {
+		this.candleFilePattern = candleFilePattern;
+	}
+
+	public String getQuoteFilePattern() {
+		return quoteFilePattern;
+	}
+
+	/**
+	 *
+	 * @param quoteFilePattern name of the file of the quotes of an instrument, <code>{code}</code> is replaced by the code of the instrument
+	 */
+	public void setQuoteFilePattern(String quoteFilePattern) {
+		this.quoteFilePattern = quoteFilePattern;
+	}
+
+	/**
+	 *
+	 * @return size in bytes above which a file is parsed in parallel ranges (64 MB by default)
+	 */
+	public long getSplitSize() {
+		return splitSize;
+	}
+
+	public void setSplitSize(long splitSize) {
+		if (splitSize <= 0){
+			throw new IllegalArgumentException("Split size must be positive : " + splitSize);
+		}
+		this.splitSize = splitSize;
+	}
+
+	/**
+	 *
+	 * @param pool the {@link ForkJoinPool} of the parsing (by default a pool with one thread per processor)
+	 */
+	public synchronized void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+}
@@ -0,0 +1,53 @@
+package org.jquant.data.csv;
+
+import org.joda.time.DateTime;
+import org.jquant.data.IMarketDataProviderAdapter;
+import org.jquant.instrument.GenericFuture;
+import org.jquant.model.InstrumentId;
+import org.jquant.serie.CandleSerie;
+import org.jquant.serie.QuoteSerie;
+import org.jquant.serie.VolatilitySurfaceSerie;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adapter of a {@link CsvMarketDataReader}
+ * @author JQUANT TEAM
+ */
+@Component
+public class CsvMarketDataReaderAdapter implements IMarketDataProviderAdapter {
+
+	@Override
+	public boolean supports(Object reader) {
+		return reader instanceof CsvMarketDataReader;
+	}
+
+	@Override
+	public CandleSerie readCandleSerie(InstrumentId symbol, DateTime start, DateTime end, Object reader) {
+		return ((CsvMarketDataReader) reader).readCandleSerie(symbol, start, end);
+	}
+
+	@Override
+	public CandleSerie readCandleSerie(InstrumentId symbol, Object reader) {
+		return ((CsvMarketDataReader) reader).readCandleSerie(symbol, null, null);
+	}
+
+	@Override
+	public QuoteSerie readQuoteSerie(InstrumentId symbol, Object reader) {
+		return ((CsvMarketDataReader) reader).readQuoteSerie(symbol, null, null);
+	}
+
+	@Override
+	public QuoteSerie readQuoteSerie(InstrumentId symbol, DateTime start, DateTime end, Object reader) {
+		return ((CsvMarketDataReader) reader).readQuoteSerie(symbol, start, end);
+	}
+
+	@Override
+	public GenericFuture readGenericFuture(InstrumentId future, DateTime start, DateTime end, Object reader) {
+		return null;
+	}
+
+	@Override
+	public VolatilitySurfaceSerie readVolatilitySurfaces(InstrumentId symbol, DateTime start, DateTime end, Object reader) {
+		return null;
+	}
+}
@@ -0,0 +1,410 @@
+package org.jquant.data.csv;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+import org.joda.time.DateTimeZone;
+
+/**
+ * Parser of a range of lines of a CSV file, working on the bytes
+ * <p>
+ * The file is read by chunks of 1 MB in a byte array and each line is scanned once : the dates are computed from their
+ * digits (no formatter), the numbers are accumulated in a long mantissa and a power of ten (no String, no boxing), the
+ * values go to the primitive arrays of a {@link CsvColumns}. The numbers the fast path can not read exactly (exponents,
+ * more than 15 digits) are handed to {@link Double#parseDouble(String)}.
+ * <p>
+ * A range owns the lines starting in it : the ranges of a split file are parsed independently.
+ * <p> This class is not thread safe, there is one parser per range.
+ * @author JQUANT TEAM
+ */
+final class CsvParser {
+
+	/** logger */
+	private static final Logger logger = Logger.getLogger(CsvParser.class);
+
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+
+	private static final int CHUNK_SIZE = 1 << 20;
+
+	private static final long MILLIS_PER_DAY = 86400000L;
+
+	/**
+	 * Returned for a field which is not a date
+	 */
+	static final long NO_DATE = Long.MIN_VALUE;
+
+	private static final double[] POWERS_OF_TEN = new double[23];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++){
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private final CsvFormat format;
+
+	private final int[] valueColumns;
+
+	private final int[] valueIndexes;
+
+	private final byte separator;
+
+	private final DateTimeZone zone;
+
+	private final File file;
+
+	private byte[] buffer = new byte[CHUNK_SIZE];
+
+	/*
+	 * Fields of the current line : start and end in the buffer
+	 */
+	private int[] fieldStarts = new int[16];
+
+	private int[] fieldEnds = new int[16];
+
+	private int skipped;
+
+	CsvParser(File file, CsvFormat format) {
+		this.file = file;
+		this.format = format;
+		this.valueColumns = format.getValueColumns();
+		this.valueIndexes = format.getValueIndexes();
+		this.separator = (byte) format.getSeparator();
+		this.zone = format.getTimeZone();
+	}
+
+	/**
+	 *
+	 * @param start first byte of the range
+	 * @param end end of the range (exclusive)
+	 * @param from first time kept (milliseconds)
+	 * @param to last time kept (milliseconds)
+	 * @return the rows of the lines starting in the range
+	 * @throws IOException
+	 */
+	CsvColumns parse(long start, long end, long from, long to) throws IOException{
+		// about 50 bytes per line
+		CsvColumns columns = new CsvColumns(valueColumns.length, (int) Math.min(1 << 20, (end - start) / 50));
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			// lines skipped : the headers of the file, or the end of the line starting before the range
+			int skip = start == 0 ? format.getHeaderLines() : 0;
+			if (start > 0){
+				ByteBuffer previous = ByteBuffer.allocate(1);
+				channel.read(previous, start - 1);
+				if (previous.get(0) != '\n'){
+					skip = 1;
+				}
+			}
+			// position in the file of the beginning of the buffer
+			long bufferPosition = start;
+			int length = 0;
+			int lineStart = 0;
+			boolean eof = false;
+			while (true){
+				int lineEnd;
+				while ((lineEnd = indexOfNewLine(lineStart, length)) >= 0){
+					if (bufferPosition + lineStart >= end){
+						return columns;
+					}
+					if (skip > 0){
+						skip--;
+					}else {
+						parseLine(lineStart, lineEnd, columns, from, to);
+					}
+					lineStart = lineEnd + 1;
+				}
+				if (bufferPosition + lineStart >= end){
+					return columns;
+				}
+				if (eof){
+					// last line without new line
+					if (lineStart < length && skip == 0){
+						parseLine(lineStart, length, columns, from, to);
+					}
+					return columns;
+				}
+				// keep the partial line at the beginning of the buffer
+				int partial = length - lineStart;
+				System.arraycopy(buffer, lineStart, buffer, 0, partial);
+				bufferPosition += lineStart;
+				lineStart = 0;
+				length = partial;
+				if (length == buffer.length){
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				}
+				int read = channel.read(ByteBuffer.wrap(buffer, length, buffer.length - length), bufferPosition + length);
+				if (read < 0){
+					eof = true;
+				}else {
+					length += read;
+				}
+			}
+		}finally {
+			in.close();
+			if (skipped > 0){
+				logger.warn(skipped + " lines without date skipped in " + file);
+			}
+		}
+	}
+
+	private int indexOfNewLine(int from, int length){
+		for (int i = from; i < length; i++){
+			if (buffer[i] == '\n'){
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void parseLine(int start, int end, CsvColumns columns, long from, long to){
+		if (end > start && buffer[end - 1] == '\r'){
+			end--;
+		}
+		if (end == start){
+			return;
+		}
+		// split the fields
+		int nbFields = 0;
+		int fieldStart = start;
+		for (int i = start; i <= end; i++){
+			if (i == end || buffer[i] == separator){
+				if (nbFields == fieldStarts.length){
+					fieldStarts = Arrays.copyOf(fieldStarts, nbFields * 2);
+					fieldEnds = Arrays.copyOf(fieldEnds, nbFields * 2);
+				}
+				fieldStarts[nbFields] = fieldStart;
+				fieldEnds[nbFields++] = i;
+				fieldStart = i + 1;
+			}
+		}
+		int dateColumn = format.getDateColumn();
+		int timeColumn = format.getTimeColumn();
+		if (dateColumn >= nbFields || timeColumn >= nbFields){
+			skipped++;
+			return;
+		}
+		long local = parseDate(fieldStarts[dateColumn], fieldEnds[dateColumn]);
+		if (local != NO_DATE && timeColumn >= 0){
+			long time = parseTime(fieldStarts[timeColumn], fieldEnds[timeColumn]);
+			local = time < 0 ? NO_DATE : local + time;
+		}
+		if (local == NO_DATE){
+			skipped++;
+			return;
+		}
+		long time = zone == DateTimeZone.UTC ? local : zone.convertLocalToUTC(local, false);
+		if (time < from || time > to){
+			return;
+		}
+		columns.add(time);
+		int row = columns.size - 1;
+		for (int f = 0; f < nbFields && f < valueIndexes.length; f++){
+			int v = valueIndexes[f];
+			if (v >= 0){
+				columns.values[v][row] = parseDouble(fieldStarts[f], fieldEnds[f]);
+			}
+		}
+		for (int v = 0; v < columns.values.length; v++){
+			// missing columns
+			if (nbFields <= valueColumns[v]){
+				columns.values[v][row] = Double.NaN;
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return local milliseconds of the date (and of its time if any), {@link #NO_DATE} if not a date
+	 */
+	long parseDate(int start, int end){
+		while (start < end && (buffer[start] == ' ' || buffer[start] == '"')){
+			start++;
+		}
+		while (end > start && (buffer[end - 1] == ' ' || buffer[end - 1] == '"')){
+			end--;
+		}
+		int i = start;
+		if (end - i < 8){
+			return NO_DATE;
+		}
+		int year = digits(i, 4);
+		i += 4;
+		if (year < 0){
+			return NO_DATE;
+		}
+		if (!isDigit(buffer[i])){
+			i++;
+		}
+		int month = digits(i, 2);
+		i += 2;
+		if (i < end && !isDigit(buffer[i])){
+			i++;
+		}
+		int day = end - i >= 2 ? digits(i, 2) : -1;
+		i += 2;
+		if (month < 1 || month > 12 || day < 1 || day > 31){
+			return NO_DATE;
+		}
+		long millis = daysFromCivil(year, month, day) * MILLIS_PER_DAY;
+		if (i < end){
+			// time after the date
+			if (buffer[i] == ' ' || buffer[i] == 'T'){
+				i++;
+			}
+			long time = parseTime(i, end);
+			if (time < 0){
+				return NO_DATE;
+			}
+			millis += time;
+		}
+		return millis;
+	}
+
+	/**
+	 *
+	 * @return milliseconds of HH:mm[:ss[.SSS]] or HHmm[ss], -1 if not a time
+	 */
+	long parseTime(int start, int end){
+		while (start < end && (buffer[start] == ' ' || buffer[start] == '"')){
+			start++;
+		}
+		while (end > start && (buffer[end - 1] == ' ' || buffer[end - 1] == '"' || buffer[end - 1] == 'Z')){
+			end--;
+		}
+		int i = start;
+		if (end - i < 4){
+			return -1;
+		}
+		int hours = digits(i, 2);
+		i += 2;
+		if (buffer[i] == ':'){
+			i++;
+		}
+		int minutes = end - i >= 2 ? digits(i, 2) : -1;
+		i += 2;
+		int seconds = 0;
+		int millis = 0;
+		if (i < end){
+			if (buffer[i] == ':'){
+				i++;
+			}
+			seconds = end - i >= 2 ? digits(i, 2) : -1;
+			i += 2;
+			if (i < end && (buffer[i] == '.' || buffer[i] == ',')){
+				i++;
+				int scale = 100;
+				for (; i < end && isDigit(buffer[i]); i++){
+					millis += (buffer[i] - '0') * scale;
+					scale /= 10;
+				}
+			}
+			if (i < end){
+				return -1;
+			}
+		}
+		if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 60){
+			return -1;
+		}
+		return ((hours * 60L + minutes) * 60 + seconds) * 1000 + millis;
+	}
+
+	private int digits(int i, int n){
+		int v = 0;
+		for (int k = i; k < i + n; k++){
+			if (!isDigit(buffer[k])){
+				return -1;
+			}
+			v = v * 10 + buffer[k] - '0';
+		}
+		return v;
+	}
+
+	private static boolean isDigit(byte b){
+		return b >= '0' && b <= '9';
+	}
+
+	/**
+	 * Days since 1970-01-01 of a date of the proleptic gregorian calendar
+	 */
+	static long daysFromCivil(int year, int month, int day){
+		int y = month <= 2 ? year - 1 : year;
+		int era = (y >= 0 ? y : y - 399) / 400;
+		int yoe = y - era * 400;
+		int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		return era * 146097L + doe - 719468;
+	}
+
+	/**
+	 *
+	 * @return the number, {@link Double#NaN} for an empty field
+	 */
+	double parseDouble(int start, int end){
+		while (start < end && (buffer[start] == ' ' || buffer[start] == '"')){
+			start++;
+		}
+		while (end > start && (buffer[end - 1] == ' ' || buffer[end - 1] == '"')){
+			end--;
+		}
+		if (start == end){
+			return Double.NaN;
+		}
+		int i = start;
+		boolean negative = false;
+		if (buffer[i] == '-' || buffer[i] == '+'){
+			negative = buffer[i] == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int decimals = 0;
+		boolean dot = false;
+		for (; i < end; i++){
+			byte b = buffer[i];
+			if (isDigit(b)){
+				if (mantissa == 0 && b == '0'){
+					// leading zeros are not significant
+					if (dot){
+						decimals++;
+					}
+					continue;
+				}
+				if (++digits > 15){
+					return parseSlow(start, end);
+				}
+				mantissa = mantissa * 10 + b - '0';
+				if (dot){
+					decimals++;
+				}
+			}else if (b == '.' && !dot){
+				dot = true;
+			}else {
+				// exponent, NaN ...
+				return parseSlow(start, end);
+			}
+		}
+		if (decimals >= POWERS_OF_TEN.length){
+			return parseSlow(start, end);
+		}
+		// exact : the mantissa and the power of ten are exact doubles, the division is rounded once
+		double value = mantissa / POWERS_OF_TEN[decimals];
+		return negative ? -value : value;
+	}
+
+	private double parseSlow(int start, int end){
+		String s = new String(buffer, start, end - start, ASCII);
+		try {
+			return Double.parseDouble(s);
+		}catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Not a number '" + s + "' in " + file, e);
+		}
+	}
+}
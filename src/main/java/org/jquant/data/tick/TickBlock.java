@@ -0,0 +1,194 @@
+package org.jquant.data.tick;
+
+import java.util.Arrays;
+
+/**
+ * A block of ticks in columns, and its encoding
+ * <p>
+ * Encoding : the number of ticks, the first time on 8 bytes then the deltas of the times (variable length), then each
+ * value column. A column of values on the decimal grid of the file is written as the zigzag deltas of the scaled values
+ * (1 or 2 bytes for a quote moving by a few ticks), an other column as the XOR of the bits of each value with the
+ * previous one (the sign, the exponent and the high bits of the mantissa of close values cancel out).
+ * @author JQUANT TEAM
+ */
+final class TickBlock {
+
+	private static final int DELTA = 0;
+
+	private static final int XOR = 1;
+
+	/**
+	 * Largest scaled value exactly represented by a double
+	 */
+	private static final double MAX_SCALED = 1L << 52;
+
+	final long[] times;
+
+	final double[] first;
+
+	final double[] second;
+
+	int count;
+
+	/*
+	 * Encoding buffer
+	 */
+	private byte[] bytes = new byte[1024];
+
+	private int position;
+
+	TickBlock(int capacity) {
+		times = new long[capacity];
+		first = new double[capacity];
+		second = new double[capacity];
+	}
+
+	boolean isFull(){
+		return count == times.length;
+	}
+
+	void add(long time, double a, double b){
+		times[count] = time;
+		first[count] = a;
+		second[count] = b;
+		count++;
+	}
+
+	/**
+	 * Encode the ticks of the block
+	 * @param scale 10^decimals of the prices
+	 * @return the encoded block in {@link #getBytes()}, its length
+	 */
+	int encode(double scale){
+		position = 0;
+		writeVarLong(count);
+		writeLong(times[0]);
+		for (int i = 1; i < count; i++){
+			writeVarLong(times[i] - times[i - 1]);
+		}
+		encodeColumn(first, scale);
+		encodeColumn(second, scale);
+		return position;
+	}
+
+	byte[] getBytes(){
+		return bytes;
+	}
+
+	private void encodeColumn(double[] values, double scale){
+		if (isOnGrid(values, scale)){
+			writeByte(DELTA);
+			long previous = 0;
+			for (int i = 0; i < count; i++){
+				long scaled = Math.round(values[i] * scale);
+				writeVarLong(zigzag(scaled - previous));
+				previous = scaled;
+			}
+		}else {
+			writeByte(XOR);
+			long previous = 0;
+			for (int i = 0; i < count; i++){
+				long bits = Double.doubleToRawLongBits(values[i]);
+				writeVarLong(bits ^ previous);
+				previous = bits;
+			}
+		}
+	}
+
+	private boolean isOnGrid(double[] values, double scale){
+		for (int i = 0; i < count; i++){
+			double scaled = values[i] * scale;
+			if (!(Math.abs(scaled) < MAX_SCALED) || Math.round(scaled) / scale != values[i]){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Decode an encoded block in the columns
+	 * @param buffer the encoded block
+	 * @param scale 10^decimals of the prices
+	 */
+	void decode(byte[] buffer, double scale){
+		position = 0;
+		count = (int) readVarLong(buffer);
+		long time = readLong(buffer);
+		times[0] = time;
+		for (int i = 1; i < count; i++){
+			time += readVarLong(buffer);
+			times[i] = time;
+		}
+		decodeColumn(buffer, first, scale);
+		decodeColumn(buffer, second, scale);
+	}
+
+	private void decodeColumn(byte[] buffer, double[] values, double scale){
+		int mode = buffer[position++];
+		long previous = 0;
+		if (mode == DELTA){
+			for (int i = 0; i < count; i++){
+				previous += unzigzag(readVarLong(buffer));
+				values[i] = previous / scale;
+			}
+		}else {
+			for (int i = 0; i < count; i++){
+				previous ^= readVarLong(buffer);
+				values[i] = Double.longBitsToDouble(previous);
+			}
+		}
+	}
+
+	private static long zigzag(long value){
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unzigzag(long value){
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/*
+	 * Unsigned variable length longs
+	 */
+
+	private void writeByte(int b){
+		if (position == bytes.length){
+			bytes = Arrays.copyOf(bytes, bytes.length * 2);
+		}
+		bytes[position++] = (byte) b;
+	}
+
+	private void writeVarLong(long v){
+		while ((v & ~0x7FL) != 0){
+			writeByte((int) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		writeByte((int) v);
+	}
+
+	private void writeLong(long v){
+		for (int shift = 56; shift >= 0; shift -= 8){
+			writeByte((int) (v >>> shift));
+		}
+	}
+
+	private long readVarLong(byte[] buffer){
+		long v = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer[position++];
+			v |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		}while (b < 0);
+		return v;
+	}
+
+	private long readLong(byte[] buffer){
+		long v = 0;
+		for (int i = 0; i < 8; i++){
+			v = (v << 8) | (buffer[position++] & 0xFF);
+		}
+		return v;
+	}
+}
@@ -0,0 +1,105 @@
+package org.jquant.data.tick;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Sequential reading of the ticks of a {@link TickReader}, without allocation
+ * <pre>
+ * TickCursor cursor = reader.cursor(from);
+ * while (cursor.next()){
+ * 	spread = cursor.getAsk() - cursor.getBid();
+ * }
+ * </pre>
+ * A cursor is used by one thread.
+ * @author JQUANT TEAM
+ */
+public final class TickCursor {
+
+	private final TickReader reader;
+
+	private final TickBlock ticks;
+
+	private final ByteBuffer buffer;
+
+	private final long from;
+
+	private int block;
+
+	private int index;
+
+	TickCursor(TickReader reader, int block, long from) {
+		this.reader = reader;
+		this.ticks = new TickBlock(Math.max(1, reader.getMaxBlockSize()));
+		this.buffer = ByteBuffer.allocate(reader.getMaxBlockLength());
+		this.block = block - 1;
+		this.from = from;
+	}
+
+	/**
+	 * Move to the next tick
+	 * @return <code>false</code> after the last tick
+	 * @throws IllegalStateException if the file can not be read
+	 */
+	public boolean next(){
+		while (++index >= ticks.count){
+			if (++block >= reader.getNbBlocks()){
+				index = ticks.count;
+				return false;
+			}
+			try {
+				reader.readBlock(block, ticks, buffer);
+			}catch (IOException e) {
+				throw new IllegalStateException("Can not read the block " + block + " of " + reader, e);
+			}
+			index = -1;
+			if (ticks.times[0] < from){
+				// first block : skip the ticks before the time
+				while (index + 1 < ticks.count && ticks.times[index + 1] < from){
+					index++;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 *
+	 * @return time of the tick in milliseconds
+	 */
+	public long getTime(){
+		return ticks.times[index];
+	}
+
+	/**
+	 *
+	 * @return best bid of the quote
+	 */
+	public double getBid(){
+		return ticks.first[index];
+	}
+
+	/**
+	 *
+	 * @return best ask of the quote
+	 */
+	public double getAsk(){
+		return ticks.second[index];
+	}
+
+	/**
+	 *
+	 * @return price of the trade
+	 */
+	public double getPrice(){
+		return ticks.first[index];
+	}
+
+	/**
+	 *
+	 * @return volume of the trade
+	 */
+	public double getVolume(){
+		return ticks.second[index];
+	}
+}
@@ -0,0 +1,225 @@
+package org.jquant.data.tick;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.joda.time.DateTime;
+import org.jquant.serie.BBBA;
+import org.jquant.serie.QuoteSerie;
+
+/**
+ * Read a tick file written by a {@link TickWriter}
+ * <p>
+ * The sparse index of the blocks is loaded on opening : {@link #cursor(DateTime)} finds the first block of a time by a
+ * binary search and decodes the blocks one after the other from there. The cursors can be used by several threads, each
+ * one its own cursor.
+ * @author JQUANT TEAM
+ * @see TickCursor
+ */
+public class TickReader implements Closeable {
+
+	private final File file;
+
+	private final RandomAccessFile raf;
+
+	private final FileChannel channel;
+
+	private final TickType type;
+
+	private final double scale;
+
+	/*
+	 * Sparse index : one entry per block
+	 */
+	private final long[] offsets;
+
+	private final int[] lengths;
+
+	private final int[] counts;
+
+	private final long[] firstTimes;
+
+	private final long[] lastTimes;
+
+	private final int maxCount;
+
+	private final int maxLength;
+
+	private final long size;
+
+	/**
+	 *
+	 * @param file a tick file
+	 * @throws IOException if the file is not a complete tick file
+	 */
+	public TickReader(File file) throws IOException {
+		this.file = file;
+		this.raf = new RandomAccessFile(file, "r");
+		this.channel = raf.getChannel();
+		try {
+			if (raf.length() < 10 + TickWriter.FOOTER_LENGTH || raf.readInt() != TickWriter.MAGIC){
+				throw new IOException("Not a tick file : " + file);
+			}
+			int version = raf.readInt();
+			if (version != TickWriter.VERSION){
+				throw new IOException("Unsupported tick file version " + version);
+			}
+			type = TickType.values()[raf.readByte()];
+			scale = Math.pow(10, raf.readByte());
+
+			raf.seek(raf.length() - TickWriter.FOOTER_LENGTH);
+			long indexOffset = raf.readLong();
+			int nbBlocks = raf.readInt();
+			if (raf.readInt() != TickWriter.MAGIC){
+				throw new IOException("Incomplete tick file (not closed) : " + file);
+			}
+			offsets = new long[nbBlocks];
+			lengths = new int[nbBlocks];
+			counts = new int[nbBlocks];
+			firstTimes = new long[nbBlocks];
+			lastTimes = new long[nbBlocks];
+			ByteBuffer buffer = ByteBuffer.allocate(nbBlocks * TickWriter.INDEX_ENTRY_LENGTH);
+			readFully(buffer, indexOffset);
+			int max = 0, maxLen = 0;
+			long total = 0;
+			for (int i = 0; i < nbBlocks; i++){
+				offsets[i] = buffer.getLong();
+				lengths[i] = buffer.getInt();
+				counts[i] = buffer.getInt();
+				firstTimes[i] = buffer.getLong();
+				lastTimes[i] = buffer.getLong();
+				max = Math.max(max, counts[i]);
+				maxLen = Math.max(maxLen, lengths[i]);
+				total += counts[i];
+			}
+			maxCount = max;
+			maxLength = maxLen;
+			size = total;
+		}catch (IOException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException{
+		while (buffer.hasRemaining()){
+			if (channel.read(buffer, position + buffer.position()) < 0){
+				throw new EOFException("Truncated tick file " + file);
+			}
+		}
+		buffer.flip();
+	}
+
+	/**
+	 *
+	 * @param from the first time, <code>null</code> for the first tick
+	 * @return a {@link TickCursor} before the first tick at or after the time
+	 */
+	public TickCursor cursor(DateTime from){
+		int block = 0;
+		if (from != null){
+			// first block ending at or after the time
+			long t = from.getMillis();
+			int lo = 0, hi = lastTimes.length;
+			while (lo < hi){
+				int mid = (lo + hi) >>> 1;
+				if (lastTimes[mid] < t){
+					lo = mid + 1;
+				}else {
+					hi = mid;
+				}
+			}
+			block = lo;
+		}
+		return new TickCursor(this, block, from == null ? Long.MIN_VALUE : from.getMillis());
+	}
+
+	/**
+	 * Decode a block
+	 * @param i index of the block
+	 * @param ticks the decoded ticks
+	 * @param buffer a buffer of {@link #getMaxBlockLength()} bytes
+	 * @throws IOException
+	 */
+	void readBlock(int i, TickBlock ticks, ByteBuffer buffer) throws IOException{
+		buffer.clear();
+		buffer.limit(lengths[i]);
+		readFully(buffer, offsets[i]);
+		ticks.decode(buffer.array(), scale);
+	}
+
+	/**
+	 *
+	 * @param from first time (inclusive), <code>null</code> for the first quote
+	 * @param to last time (inclusive), <code>null</code> for the last quote
+	 * @return the quotes of the period in a {@link QuoteSerie}
+	 * @throws IOException
+	 */
+	public QuoteSerie readQuotes(DateTime from, DateTime to) throws IOException{
+		if (type != TickType.QUOTE){
+			throw new IllegalArgumentException("Not a QUOTE file : " + type);
+		}
+		QuoteSerie quotes = new QuoteSerie();
+		long last = to == null ? Long.MAX_VALUE : to.getMillis();
+		TickCursor cursor = cursor(from);
+		while (cursor.next() && cursor.getTime() <= last){
+			quotes.addValue(new BBBA(new DateTime(cursor.getTime()), cursor.getBid(), cursor.getAsk()));
+		}
+		return quotes;
+	}
+
+	int getNbBlocks(){
+		return offsets.length;
+	}
+
+	int getMaxBlockSize(){
+		return maxCount;
+	}
+
+	int getMaxBlockLength(){
+		return maxLength;
+	}
+
+	public TickType getType() {
+		return type;
+	}
+
+	/**
+	 *
+	 * @return number of ticks of the file
+	 */
+	public long size(){
+		return size;
+	}
+
+	/**
+	 *
+	 * @return time of the first tick, <code>null</code> if the file is empty
+	 */
+	public DateTime getFirstTime(){
+		return firstTimes.length == 0 ? null : new DateTime(firstTimes[0]);
+	}
+
+	/**
+	 *
+	 * @return time of the last tick, <code>null</code> if the file is empty
+	 */
+	public DateTime getLastTime(){
+		return lastTimes.length == 0 ? null : new DateTime(lastTimes[lastTimes.length - 1]);
+	}
+
+	@Override
+	public void close() throws IOException {
+		raf.close();
+	}
+
+	@Override
+	public String toString() {
+		return "TickReader [file=" + file + ", type=" + type + ", size=" + size + ", blocks=" + offsets.length + "]";
+	}
+}
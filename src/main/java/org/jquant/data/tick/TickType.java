@@ -0,0 +1,15 @@
+package org.jquant.data.tick;
+
+/**
+ * Content of a tick file : each tick is a time and two values
+ * <ul>
+ * <li>QUOTE : best bid and best ask</li>
+ * <li>TRADE : price and volume</li>
+ * </ul>
+ * @author JQUANT TEAM
+ */
+public enum TickType {
+
+	QUOTE,
+	TRADE,
+}
@@ -0,0 +1,205 @@
+package org.jquant.data.tick;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.joda.time.DateTime;
+import org.jquant.serie.BBBA;
+import org.jquant.serie.QuoteSerie;
+
+/**
+ * Append the ticks of an instrument to a compressed tick file
+ * <p>
+ * The ticks are buffered in columns and written by blocks (see {@link TickBlock} for the encoding). On {@link #close()}
+ * the sparse index of the blocks (offset, length, number of ticks, first and last time) is written at the end of the
+ * file, the {@link TickReader} reads it to seek a time without decoding the previous blocks.
+ * <p>
+ * File format : the magic number, the version, the {@link TickType}, the number of decimals of the prices, the blocks,
+ * the index, then the offset of the index, the number of blocks and the magic number.
+ * <p> This class is not thread safe.
+ * @author JQUANT TEAM
+ * @see TickReader
+ */
+public class TickWriter implements Closeable {
+
+	/**
+	 * "JQTK"
+	 */
+	static final int MAGIC = 0x4A51544B;
+
+	static final int VERSION = 1;
+
+	/**
+	 * Offset of the index, number of blocks, magic number
+	 */
+	static final int FOOTER_LENGTH = 8 + 4 + 4;
+
+	/**
+	 * Offset, length, number of ticks, first and last time of a block
+	 */
+	static final int INDEX_ENTRY_LENGTH = 8 + 4 + 4 + 8 + 8;
+
+	static final int DEFAULT_BLOCK_SIZE = 4096;
+
+	private final DataOutputStream out;
+
+	private final TickType type;
+
+	private final double scale;
+
+	private final TickBlock block;
+
+	private long offset;
+
+	private long lastTime = Long.MIN_VALUE;
+
+	/*
+	 * Index of the written blocks
+	 */
+	private final ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+
+	private final DataOutputStream index = new DataOutputStream(indexBytes);
+
+	private int nbBlocks;
+
+	private boolean closed;
+
+	/**
+	 * Blocks of 4096 ticks
+	 * @param file the tick file (overwritten)
+	 * @param type the {@link TickType} of the ticks
+	 * @param decimals number of decimals of the prices (the tick size is 10^-decimals) : the prices on this grid are
+	 * delta encoded, the others XOR encoded
+	 * @throws IOException
+	 */
+	public TickWriter(File file, TickType type, int decimals) throws IOException {
+		this(file, type, decimals, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 *
+	 * @param file the tick file (overwritten)
+	 * @param type the {@link TickType} of the ticks
+	 * @param decimals number of decimals of the prices
+	 * @param blockSize number of ticks per block
+	 * @throws IOException
+	 */
+	public TickWriter(File file, TickType type, int decimals, int blockSize) throws IOException {
+		if (decimals < 0 || decimals > 12){
+			throw new IllegalArgumentException("Number of decimals out of [0, 12] : " + decimals);
+		}
+		if (blockSize <= 0){
+			throw new IllegalArgumentException("The size of the blocks must be positive : " + blockSize);
+		}
+		this.type = type;
+		this.scale = Math.pow(10, decimals);
+		this.block = new TickBlock(blockSize);
+		this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeByte(type.ordinal());
+		out.writeByte(decimals);
+		offset = 4 + 4 + 1 + 1;
+	}
+
+	/**
+	 *
+	 * @param time time of the tick in milliseconds, not before the previous one
+	 * @param first best bid or price
+	 * @param second best ask or volume
+	 * @throws IOException
+	 */
+	public void write(long time, double first, double second) throws IOException{
+		if (closed){
+			throw new IllegalStateException("The tick file is closed");
+		}
+		if (time < lastTime){
+			throw new IllegalArgumentException("Tick on " + new DateTime(time) + " before the previous one on " + new DateTime(lastTime));
+		}
+		lastTime = time;
+		block.add(time, first, second);
+		if (block.isFull()){
+			writeBlock();
+		}
+	}
+
+	/**
+	 *
+	 * @param quote a {@link BBBA}
+	 * @throws IOException
+	 */
+	public void writeQuote(BBBA quote) throws IOException{
+		checkType(TickType.QUOTE);
+		write(quote.getDate().getMillis(), quote.getBestBid(), quote.getBestAsk());
+	}
+
+	/**
+	 *
+	 * @param quotes the quotes of a {@link QuoteSerie}
+	 * @throws IOException
+	 */
+	public void writeQuotes(QuoteSerie quotes) throws IOException{
+		for (BBBA quote : quotes){
+			writeQuote(quote);
+		}
+	}
+
+	/**
+	 *
+	 * @param time time of the trade
+	 * @param price price of the trade
+	 * @param volume quantity of the trade
+	 * @throws IOException
+	 */
+	public void writeTrade(DateTime time, double price, double volume) throws IOException{
+		checkType(TickType.TRADE);
+		write(time.getMillis(), price, volume);
+	}
+
+	private void checkType(TickType expected){
+		if (type != expected){
+			throw new IllegalArgumentException("Not a " + expected + " file : " + type);
+		}
+	}
+
+	private void writeBlock() throws IOException{
+		int length = block.encode(scale);
+		out.write(block.getBytes(), 0, length);
+		index.writeLong(offset);
+		index.writeInt(length);
+		index.writeInt(block.count);
+		index.writeLong(block.times[0]);
+		index.writeLong(block.times[block.count - 1]);
+		offset += length;
+		nbBlocks++;
+		block.count = 0;
+	}
+
+	/**
+	 * Write the last block and the index
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed){
+			return;
+		}
+		closed = true;
+		try {
+			if (block.count > 0){
+				writeBlock();
+			}
+			index.flush();
+			indexBytes.writeTo(out);
+			out.writeLong(offset);
+			out.writeInt(nbBlocks);
+			out.writeInt(MAGIC);
+		}finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package org.jquant.event;
+
+import java.util.Arrays;
+
+/**
+ * Time-ordered merge of {@link EventSource}s
+ * <p>
+ * The queue is a binary heap of sources keyed by (time of the next event, {@link EventType}, registration order)
+ * on primitive arrays : the events of the same timestamp are dispatched by type (see {@link EventType}), then
+ * in the registration order of their sources, which makes the replay deterministic.
+ * <p> Dispatching an event does not allocate. The queue is not thread safe.
+ * @author JQUANT TEAM
+ */
+public final class EventQueue {
+
+	private EventSource[] sources = new EventSource[16];
+
+	/**
+	 * Time of the next event of each source
+	 */
+	private long[] times = new long[16];
+
+	/**
+	 * Heap of source ids
+	 */
+	private int[] heap = new int[16];
+
+	/**
+	 * Position of each source in the heap
+	 */
+	private int[] positions = new int[16];
+
+	private int size;
+
+	/**
+	 * Time of the event being (or last) dispatched
+	 */
+	private long currentTime = Long.MIN_VALUE;
+
+	/**
+	 * Register a source
+	 * @param source the {@link EventSource}
+	 */
+	public void add(EventSource source){
+		if (source.queue != null){
+			throw new IllegalArgumentException("The source is already registered in a queue");
+		}
+		if (size == sources.length){
+			int capacity = size * 2;
+			sources = Arrays.copyOf(sources, capacity);
+			times = Arrays.copyOf(times, capacity);
+			heap = Arrays.copyOf(heap, capacity);
+			positions = Arrays.copyOf(positions, capacity);
+		}
+		int id = size++;
+		source.id = id;
+		source.queue = this;
+		sources[id] = source;
+		times[id] = source.getTime();
+		heap[id] = id;
+		positions[id] = id;
+		siftUp(id);
+	}
+
+	/**
+	 *
+	 * @return <code>true</code> when no source has an event left
+	 */
+	public boolean isEmpty(){
+		return getTime() == Long.MAX_VALUE;
+	}
+
+	/**
+	 *
+	 * @return time of the next event, {@link Long#MAX_VALUE} if the queue is empty
+	 */
+	public long getTime(){
+		return size == 0 ? Long.MAX_VALUE : times[heap[0]];
+	}
+
+	/**
+	 *
+	 * @return the source of the next event, <code>null</code> if the queue is empty
+	 */
+	public EventSource peek(){
+		return isEmpty() ? null : sources[heap[0]];
+	}
+
+	/**
+	 * Dispatch the next event
+	 * @return the time of the dispatched event
+	 */
+	public long fireNext(){
+		if (isEmpty()){
+			throw new IllegalStateException("No more event");
+		}
+		int id = heap[0];
+		long time = times[id];
+		currentTime = time;
+		sources[id].fire();
+		// the source may have moved if another source was updated during the dispatch
+		times[id] = sources[id].getTime();
+		sift(positions[id]);
+		return time;
+	}
+
+	/**
+	 * Dispatch all the events up to a time (included)
+	 * @param until time in ms
+	 * @return number of dispatched events
+	 */
+	public int run(long until){
+		int nb = 0;
+		while (getTime() <= until && !isEmpty()){
+			fireNext();
+			nb++;
+		}
+		return nb;
+	}
+
+	/**
+	 *
+	 * @return time of the event being (or last) dispatched, {@link Long#MIN_VALUE} before the first event
+	 */
+	public long getCurrentTime(){
+		return currentTime;
+	}
+
+	/**
+	 *
+	 * @return number of registered sources
+	 */
+	public int size(){
+		return size;
+	}
+
+	void update(EventSource source){
+		int id = source.id;
+		times[id] = source.getTime();
+		sift(positions[id]);
+	}
+
+	private void sift(int position){
+		if (position > 0 && less(heap[position], heap[(position - 1) >>> 1])){
+			siftUp(position);
+		}else {
+			siftDown(position);
+		}
+	}
+
+	private void siftUp(int position){
+		int id = heap[position];
+		while (position > 0){
+			int parent = (position - 1) >>> 1;
+			int p = heap[parent];
+			if (!less(id, p)){
+				break;
+			}
+			heap[position] = p;
+			positions[p] = position;
+			position = parent;
+		}
+		heap[position] = id;
+		positions[id] = position;
+	}
+
+	private void siftDown(int position){
+		int id = heap[position];
+		int half = size >>> 1;
+		while (position < half){
+			int child = 2 * position + 1;
+			int c = heap[child];
+			int right = child + 1;
+			if (right < size && less(heap[right], c)){
+				child = right;
+				c = heap[child];
+			}
+			if (!less(c, id)){
+				break;
+			}
+			heap[position] = c;
+			positions[c] = position;
+			position = child;
+		}
+		heap[position] = id;
+		positions[id] = position;
+	}
+
+	private boolean less(int a, int b){
+		long ta = times[a];
+		long tb = times[b];
+		if (ta != tb){
+			return ta < tb;
+		}
+		int pa = sources[a].getType().ordinal();
+		int pb = sources[b].getType().ordinal();
+		if (pa != pb){
+			return pa < pb;
+		}
+		return a < b;
+	}
+}
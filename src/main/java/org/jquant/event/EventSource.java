@@ -0,0 +1,50 @@
+package org.jquant.event;
+
+/**
+ * A time-ordered stream of events registered in an {@link EventQueue}
+ * <p>
+ * A source exposes the time of its next event only : the queue merges the sources (k-way merge) instead of
+ * holding one object per event, so the cost of an event is a heap update over the sources, not over the events.
+ * @author JQUANT TEAM
+ * @see EventQueue
+ */
+public abstract class EventSource {
+
+	private final EventType type;
+
+	/**
+	 * Position in the {@link EventQueue} (-1 if not registered)
+	 */
+	int id = -1;
+
+	EventQueue queue;
+
+	protected EventSource(EventType type) {
+		super();
+		this.type = type;
+	}
+
+	/**
+	 *
+	 * @return the time (ms) of the next event, {@link Long#MAX_VALUE} when there is no more event
+	 */
+	public abstract long getTime();
+
+	/**
+	 * Dispatch the next event and move to the following one
+	 */
+	public abstract void fire();
+
+	/**
+	 * Must be called when the time of the next event changes outside of {@link #fire()} (ex : a timer scheduled by a strategy)
+	 */
+	protected void timeChanged(){
+		if (queue != null){
+			queue.update(this);
+		}
+	}
+
+	public EventType getType() {
+		return type;
+	}
+}
@@ -0,0 +1,27 @@
+package org.jquant.event;
+
+/**
+ * Kind of the events of the {@link EventQueue}
+ * <p> Events with the same timestamp are dispatched in the order of this enum :
+ * the market data first, then the timers, the end of the day last.
+ * @author JQUANT TEAM
+ */
+public enum EventType {
+
+	/**
+	 * Best bid / best ask update
+	 */
+	QUOTE,
+	/**
+	 * Candle (tick, minute, daily ...)
+	 */
+	CANDLE,
+	/**
+	 * Timer scheduled by a strategy
+	 */
+	TIMER,
+	/**
+	 * Close of the trading day (market on close orders, mark to market)
+	 */
+	END_OF_DAY
+}
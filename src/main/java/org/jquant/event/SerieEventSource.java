@@ -0,0 +1,91 @@
+package org.jquant.event;
+
+import java.util.Arrays;
+
+import org.joda.time.DateTime;
+import org.jquant.serie.AbstractTimeValue;
+import org.jquant.serie.TimeSerie;
+
+/**
+ * Cursor over the values of a {@link TimeSerie} in a time window
+ * <p> The serie is read once into a sorted array with the timestamps in a <code>long[]</code>, moving the cursor
+ * does not touch the {@link TimeSerie} map.
+ * @author JQUANT TEAM
+ * @param <T> the value type ({@link org.jquant.serie.Candle}, {@link org.jquant.serie.BBBA} ...)
+ */
+public abstract class SerieEventSource<T extends AbstractTimeValue> extends EventSource {
+
+	private final T[] values;
+
+	private final long[] times;
+
+	private int cursor;
+
+	private final int end;
+
+	/**
+	 *
+	 * @param type the {@link EventType} of the values
+	 * @param serie the {@link TimeSerie}
+	 * @param from first timestamp (included), <code>null</code> for the first value of the serie
+	 * @param to last timestamp (included), <code>null</code> for the last value of the serie
+	 */
+	protected SerieEventSource(EventType type, TimeSerie<T> serie, DateTime from, DateTime to) {
+		this(type, serie.toArray(), null, from, to);
+	}
+
+	/**
+	 * Cursor over values already read
+	 * @param type the {@link EventType} of the values
+	 * @param values the values in time order (not copied)
+	 * @param times their timestamps in milliseconds (not copied), <code>null</code> to compute them
+	 * @param from first timestamp (included), <code>null</code> for the first value
+	 * @param to last timestamp (included), <code>null</code> for the last value
+	 */
+	protected SerieEventSource(EventType type, T[] values, long[] times, DateTime from, DateTime to) {
+		super(type);
+		this.values = values;
+		if (times == null){
+			times = new long[values.length];
+			for (int i = 0; i < values.length; i++){
+				times[i] = values[i].getDate().getMillis();
+			}
+		}
+		this.times = times;
+		this.cursor = from == null ? 0 : lowerBound(from.getMillis());
+		this.end = to == null ? values.length : lowerBound(to.getMillis() + 1);
+	}
+
+	/**
+	 *
+	 * @return first index with a time &gt;= t
+	 */
+	private int lowerBound(long t){
+		int index = Arrays.binarySearch(times, t);
+		return index >= 0 ? index : -index - 1;
+	}
+
+	@Override
+	public long getTime() {
+		return cursor < end ? times[cursor] : Long.MAX_VALUE;
+	}
+
+	@Override
+	public void fire() {
+		onEvent(values[cursor++]);
+	}
+
+	/**
+	 * Dispatch a value of the serie
+	 * @param value the current value
+	 */
+	protected abstract void onEvent(T value);
+
+	/**
+	 *
+	 * @return number of values left
+	 */
+	public int remaining(){
+		return end - cursor;
+	}
+}
@@ -0,0 +1,16 @@
+package org.jquant.event;
+
+import org.joda.time.DateTime;
+
+/**
+ * Receives the timers scheduled in a {@link TimerSource}
+ * @author JQUANT TEAM
+ */
+public interface TimerListener {
+
+	/**
+	 * Called when a scheduled timer expires
+	 * @param time the scheduled {@link DateTime}
+	 */
+	public void onTimer(DateTime time);
+}
@@ -0,0 +1,182 @@
+package org.jquant.event;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.joda.time.DateTime;
+
+/**
+ * Timers scheduled by the strategies (intraday rebalancing, time stops ...)
+ * <p> The pending timers are kept in a binary heap, timers with the same time expire in their scheduling order.
+ * @author JQUANT TEAM
+ * @see TimerListener
+ */
+public class TimerSource extends EventSource {
+
+	private long[] times = new long[16];
+
+	/**
+	 * Scheduling order (FIFO for the timers of the same time)
+	 */
+	private long[] sequences = new long[16];
+
+	private DateTime[] dates = new DateTime[16];
+
+	private TimerListener[] listeners = new TimerListener[16];
+
+	private int size;
+
+	private long sequence;
+
+	public TimerSource() {
+		super(EventType.TIMER);
+	}
+
+	/**
+	 * Schedule a timer
+	 * @param time the expiry {@link DateTime}, it can not be before the event being dispatched
+	 * @param listener the {@link TimerListener}
+	 */
+	public void schedule(DateTime time, TimerListener listener){
+		long t = time.getMillis();
+		if (queue != null && t < queue.getCurrentTime()){
+			throw new IllegalArgumentException("Timer scheduled in the past : " + time);
+		}
+		if (size == times.length){
+			int capacity = size * 2;
+			times = Arrays.copyOf(times, capacity);
+			sequences = Arrays.copyOf(sequences, capacity);
+			dates = Arrays.copyOf(dates, capacity);
+			listeners = Arrays.copyOf(listeners, capacity);
+		}
+		int position = size++;
+		long seq = sequence++;
+		// sift up
+		while (position > 0){
+			int parent = (position - 1) >>> 1;
+			if (!less(t, seq, parent)){
+				break;
+			}
+			move(parent, position);
+			position = parent;
+		}
+		set(position, t, seq, time, listener);
+		if (position == 0){
+			timeChanged();
+		}
+	}
+
+	@Override
+	public long getTime() {
+		return size > 0 ? times[0] : Long.MAX_VALUE;
+	}
+
+	@Override
+	public void fire() {
+		DateTime date = dates[0];
+		TimerListener listener = listeners[0];
+		removeFirst();
+		onTimer(listener, date);
+	}
+
+	/**
+	 * Dispatch an expired timer
+	 * @param listener the {@link TimerListener}
+	 * @param time the scheduled {@link DateTime}
+	 */
+	protected void onTimer(TimerListener listener, DateTime time){
+		listener.onTimer(time);
+	}
+
+	/**
+	 *
+	 * @return number of pending timers
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Copy the pending timers in their expiry order
+	 * @param expiries the expiry {@link DateTime}s
+	 * @param timerListeners the {@link TimerListener}s
+	 */
+	public void getPendingTimers(List<DateTime> expiries, List<TimerListener> timerListeners){
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++){
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return less(times[a], sequences[a], b) ? -1 : (less(times[b], sequences[b], a) ? 1 : 0);
+			}
+		});
+		for (Integer i : order){
+			expiries.add(dates[i]);
+			timerListeners.add(listeners[i]);
+		}
+	}
+
+	/**
+	 * Cancel all the pending timers
+	 */
+	public void clear(){
+		Arrays.fill(dates, 0, size, null);
+		Arrays.fill(listeners, 0, size, null);
+		size = 0;
+		timeChanged();
+	}
+
+	private void removeFirst(){
+		int last = --size;
+		long t = times[last];
+		long seq = sequences[last];
+		DateTime date = dates[last];
+		TimerListener listener = listeners[last];
+		dates[last] = null;
+		listeners[last] = null;
+		if (last == 0){
+			return;
+		}
+		// sift down the last timer from the root
+		int position = 0;
+		int half = size >>> 1;
+		while (position < half){
+			int child = 2 * position + 1;
+			int right = child + 1;
+			if (right < size && less(times[right], sequences[right], child)){
+				child = right;
+			}
+			if (!less(times[child], sequences[child], t, seq)){
+				break;
+			}
+			move(child, position);
+			position = child;
+		}
+		set(position, t, seq, date, listener);
+	}
+
+	private boolean less(long t, long seq, int position){
+		return less(t, seq, times[position], sequences[position]);
+	}
+
+	private static boolean less(long t1, long seq1, long t2, long seq2){
+		return t1 < t2 || (t1 == t2 && seq1 < seq2);
+	}
+
+	private void move(int from, int to){
+		times[to] = times[from];
+		sequences[to] = sequences[from];
+		dates[to] = dates[from];
+		listeners[to] = listeners[from];
+	}
+
+	private void set(int position, long t, long seq, DateTime date, TimerListener listener){
+		times[position] = t;
+		sequences[position] = seq;
+		dates[position] = date;
+		listeners[position] = listener;
+	}
+}
@@ -0,0 +1,34 @@
+package org.jquant.execution;
+
+import org.joda.time.DateTime;
+import org.jquant.order.Order;
+
+/**
+ * Callbacks of an {@link IBroker}, they can be called from any thread 
+ * @author JQUANT TEAM
+ */
+public interface BrokerListener {
+
+	/**
+	 * An execution (partial or complete) of an order
+	 * @param order the {@link Order}
+	 * @param quantity executed quantity
+	 * @param price execution price
+	 * @param commission fees of the execution
+	 * @param time {@link DateTime} of the execution
+	 */
+	public void onFill(Order order, double quantity, double price, double commission, DateTime time);
+	
+	/**
+	 * 
+	 * @param order an {@link Order} cancelled by the broker
+	 */
+	public void onCancelled(Order order);
+	
+	/**
+	 * 
+	 * @param order an {@link Order} refused by the broker
+	 * @param reason the message of the broker
+	 */
+	public void onRejected(Order order, String reason);
+}
@@ -0,0 +1,50 @@
+package org.jquant.execution;
+
+/**
+ * Result of a {@link FillModel} : quantity, price and fees of one execution
+ * <p> Instances are mutable and meant to be reused from one execution to the next one.
+ * @author JQUANT TEAM
+ */
+public final class Fill {
+
+	private double quantity;
+
+	private double price;
+
+	private double commission;
+
+	void set(double quantity, double price, double commission){
+		this.quantity = quantity;
+		this.price = price;
+		this.commission = commission;
+	}
+
+	/**
+	 *
+	 * @return executed quantity (0 if nothing could be executed)
+	 */
+	public double getQuantity() {
+		return quantity;
+	}
+
+	/**
+	 *
+	 * @return execution price, slippage included
+	 */
+	public double getPrice() {
+		return price;
+	}
+
+	/**
+	 *
+	 * @return fees of the execution
+	 */
+	public double getCommission() {
+		return commission;
+	}
+
+	@Override
+	public String toString() {
+		return "Fill [quantity=" + quantity + ", price=" + price + ", commission=" + commission + "]";
+	}
+}
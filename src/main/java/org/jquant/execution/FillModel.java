@@ -0,0 +1,122 @@
+package org.jquant.execution;
+
+import org.jquant.order.Order;
+import org.jquant.order.Order.OrderSide;
+
+/**
+ * Paper broker execution costs
+ * <ul>
+ * <li>slippage : the execution price is moved against the order by a fraction of the reference price
+ * (reference = best ask / best bid with quotes, the candle price otherwise)</li>
+ * <li>fees : flat fee per execution + size fee per unit traded</li>
+ * <li>liquidity : an execution on a candle can not exceed a fraction of the candle volume, the rest of the order
+ * is executed on the next candles (partial fills)</li>
+ * </ul>
+ * The default model has no cost and no volume limit.
+ * <p> The model does not allocate : the result is written in a caller {@link Fill}.
+ * @author JQUANT TEAM
+ */
+public class FillModel {
+
+	/**
+	 * Fraction of the reference price (0.0005 = 5 bp)
+	 */
+	private double slippage;
+
+	/**
+	 * Fee per execution
+	 */
+	private double flatFee;
+
+	/**
+	 * Fee per unit traded
+	 */
+	private double sizeFee;
+
+	/**
+	 * Maximum fraction of the candle volume (0 = no limit)
+	 */
+	private double volumeLimit;
+
+	public FillModel() {
+		super();
+	}
+
+	/**
+	 *
+	 * @param slippage fraction of the reference price (0.0005 = 5 bp)
+	 * @param flatFee fee per execution
+	 * @param sizeFee fee per unit traded
+	 */
+	public FillModel(double slippage, double flatFee, double sizeFee) {
+		super();
+		this.slippage = slippage;
+		this.flatFee = flatFee;
+		this.sizeFee = sizeFee;
+	}
+
+	/**
+	 * Execute (part of) the remaining quantity of an order
+	 * @param order the {@link Order}
+	 * @param referencePrice the price before slippage (ask for a BUY / bid for a SELL with quotes)
+	 * @param volume the volume of the candle, 0 or {@link Double#NaN} if unknown (no volume limit)
+	 * @param fill receives the execution, the quantity is 0 when the volume limit leaves nothing to execute
+	 */
+	public void fill(Order order, double referencePrice, double volume, Fill fill){
+		double quantity = order.getQuantity() - order.getFilledQuantity();
+		if (volumeLimit > 0 && volume > 0){
+			// whole units only
+			quantity = Math.min(quantity, Math.floor(volume * volumeLimit));
+		}
+		if (quantity <= 0){
+			fill.set(0, referencePrice, 0);
+			return;
+		}
+		double price = OrderSide.BUY.equals(order.getSide()) ? referencePrice * (1 + slippage) : referencePrice * (1 - slippage);
+		fill.set(quantity, price, flatFee + sizeFee * quantity);
+	}
+
+	public double getSlippage() {
+		return slippage;
+	}
+
+	public void setSlippage(double slippage) {
+		this.slippage = slippage;
+	}
+
+	public double getFlatFee() {
+		return flatFee;
+	}
+
+	public void setFlatFee(double flatFee) {
+		this.flatFee = flatFee;
+	}
+
+	public double getSizeFee() {
+		return sizeFee;
+	}
+
+	public void setSizeFee(double sizeFee) {
+		this.sizeFee = sizeFee;
+	}
+
+	public double getVolumeLimit() {
+		return volumeLimit;
+	}
+
+	/**
+	 *
+	 * @param volumeLimit maximum fraction of the candle volume executed per candle (0.1 = 10%), 0 for no limit
+	 */
+	public void setVolumeLimit(double volumeLimit) {
+		if (volumeLimit < 0 || volumeLimit > 1){
+			throw new IllegalArgumentException("The volume limit must be in [0, 1] : " + volumeLimit);
+		}
+		this.volumeLimit = volumeLimit;
+	}
+
+	@Override
+	public String toString() {
+		return "FillModel [slippage=" + slippage + ", flatFee=" + flatFee + ", sizeFee=" + sizeFee + ", volumeLimit=" + volumeLimit + "]";
+	}
+}
@@ -0,0 +1,39 @@
+package org.jquant.execution;
+
+import org.jquant.order.Order;
+
+/**
+ * A broker of the live order pipeline
+ * <p>
+ * The orders are submitted and cancelled by the order thread of the {@link LiveOrderManager}. The executions, the 
+ * cancels and the rejects are reported to the {@link BrokerListener} from any thread : the executions are applied 
+ * to the orders by the order thread only.
+ * @author JQUANT TEAM
+ * @see SimulatedBroker
+ */
+public interface IBroker {
+
+	/**
+	 * 
+	 * @return the {@link JQuantExecutionProvider} of the broker
+	 */
+	public JQuantExecutionProvider getProvider();
+	
+	/**
+	 * 
+	 * @param listener receives the executions, the cancels and the rejects of the orders
+	 */
+	public void setListener(BrokerListener listener);
+	
+	/**
+	 * Send an order to the broker 
+	 * @param order an {@link Order} accepted by the risk checks
+	 */
+	public void submit(Order order);
+	
+	/**
+	 * Cancel an order : the broker reports the cancel unless the order is already filled
+	 * @param order the {@link Order} to cancel
+	 */
+	public void cancel(Order order);
+}
@@ -7,7 +7,7 @@ package org.jquant.execution;
  */
 public enum JQuantExecutionProvider {
 
-	PAPER,/*Mock Broker, used for backtesting*/
+	PAPER,/*Mock Broker, used for backtesting and paper trading (SimulatedBroker)*/
 	IB,/*Interactive Brokers*/
 	MBT/*MB Trading */;
 }
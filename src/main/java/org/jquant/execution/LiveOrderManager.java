@@ -0,0 +1,753 @@
+package org.jquant.execution;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.joda.time.DateTime;
+import org.jquant.execution.OrderEvent.EventType;
+import org.jquant.journal.TradeJournal;
+import org.jquant.metrics.Histogram;
+import org.jquant.model.InstrumentId;
+import org.jquant.order.IOrderManager;
+import org.jquant.order.Order;
+import org.jquant.order.Order.OrderSide;
+import org.jquant.order.OrderManager;
+import org.jquant.order.OrderStatus;
+import org.jquant.portfolio.Portfolio;
+import org.jquant.portfolio.PortfolioException;
+import org.jquant.portfolio.Trade;
+import org.jquant.portfolio.Trade.TradeSide;
+import org.jquant.serie.BBBA;
+import org.jquant.serie.Candle;
+import org.jquant.strategy.IStrategy;
+
+/**
+ * Order manager of live and paper trading, the counterpart of the back test {@link OrderManager}
+ * <p>
+ * The strategies send their orders from their own threads : an order is published in a preallocated ring buffer
+ * without lock ({@link #sendOrder(Order)} returns at once). A single order thread reads the ring buffer and owns the
+ * state of the orders, the positions and the portfolio :
+ * <ul>
+ * <li>risk checks of the new orders ({@link RiskLimits})</li>
+ * <li>routing to the {@link IBroker} of the instrument (default {@link JQuantExecutionProvider#PAPER})</li>
+ * <li>executions and cancels reported by the brokers (published in the same ring buffer when they come from an other
+ * thread), the portfolio and the {@link TradeJournal}</li>
+ * </ul>
+ * The executions, the cancels and the rejects are published back to the strategies of the instrument in one ring
+ * buffer per strategy : the thread of a strategy calls {@link #dispatch(IStrategy)} in its event loop to receive them
+ * ({@link IStrategy#onPositionOpened(TradeSide, InstrumentId)}, and {@link OrderListener#onOrderEvent(OrderEvent)}
+ * if the strategy implements it). The strategy code is the one of the back test. The order thread never waits for a
+ * strategy and no event is lost : when the buffer of a strategy is full (the strategy does not dispatch its events)
+ * its next events are copied in an unbounded overflow queue of the strategy, delivered by {@link #dispatch(IStrategy)}
+ * after the buffer ({@link #getNbOverflowed(IStrategy)}). The other strategies and the orders are not affected.
+ * <p>
+ * An order belongs to the order thread once sent : its status and executions are followed with the events. The
+ * portfolio is updated under its lock. The strategies and the brokers are set before {@link #start()}.
+ * @author JQUANT TEAM
+ * @see SimulatedBroker
+ */
+public class LiveOrderManager implements IOrderManager, BrokerListener {
+
+	/** logger */
+	private static final Logger logger = Logger.getLogger(LiveOrderManager.class);
+
+	private static final int DEFAULT_CAPACITY = 4096;
+
+	private static final int STRATEGY_CAPACITY = 1024;
+
+	private static final Outbox[] NO_SUBSCRIBER = new Outbox[0];
+
+	/**
+	 * Orders and cancels of the strategies, executions of the brokers
+	 */
+	private final OrderRing intake;
+
+	private final int strategyCapacity;
+
+	private final Map<JQuantExecutionProvider, IBroker> brokers = new EnumMap<JQuantExecutionProvider, IBroker>(JQuantExecutionProvider.class);
+
+	private final Map<InstrumentId, JQuantExecutionProvider> routes = new HashMap<InstrumentId, JQuantExecutionProvider>();
+
+	private JQuantExecutionProvider defaultProvider = JQuantExecutionProvider.PAPER;
+
+	private RiskLimits riskLimits = new RiskLimits();
+
+	private Portfolio ptf;
+
+	private TradeJournal journal;
+
+	private final List<IStrategy> strategies = new ArrayList<IStrategy>();
+
+	/**
+	 * Events of each strategy, built by {@link #start()}
+	 */
+	private volatile Map<IStrategy, Outbox> outboxes;
+
+	/**
+	 * Strategies which market contains each instrument, built by {@link #start()}
+	 */
+	private Map<InstrumentId, Outbox[]> subscriptions;
+
+	/*
+	 * State of the order thread
+	 */
+	private final Map<Order, OpenOrder> openOrders = new IdentityHashMap<Order, OpenOrder>();
+
+	/**
+	 * Position and remaining quantity of the open orders (signed) of each instrument
+	 */
+	private final Map<InstrumentId, double[]> exposures = new HashMap<InstrumentId, double[]>();
+
+	/**
+	 * Reports of the brokers from the order thread itself, processed without the ring buffer
+	 */
+	private final OrderEvent direct = new OrderEvent();
+
+	/**
+	 * Time from {@link #sendOrder(Order)} to the processing of the last execution
+	 */
+	private final Histogram turnaround = new Histogram();
+
+	private volatile long nbOrders;
+
+	private volatile long nbRejected;
+
+	private volatile long nbExecutions;
+
+	private volatile Thread thread;
+
+	private volatile boolean running;
+
+	/**
+	 * A ring buffer of 4096 events, 1024 events per strategy
+	 */
+	public LiveOrderManager() {
+		this(DEFAULT_CAPACITY, STRATEGY_CAPACITY);
+	}
+
+	/**
+	 *
+	 * @param capacity number of events of the ring buffer (rounded up to a power of 2)
+	 */
+	public LiveOrderManager(int capacity) {
+		this(capacity, STRATEGY_CAPACITY);
+	}
+
+	/**
+	 *
+	 * @param capacity number of events of the ring buffer (rounded up to a power of 2)
+	 * @param strategyCapacity number of events waiting for the {@link #dispatch(IStrategy)} of a strategy (rounded up
+	 * to a power of 2)
+	 */
+	public LiveOrderManager(int capacity, int strategyCapacity) {
+		super();
+		if (strategyCapacity <= 0){
+			throw new IllegalArgumentException("The capacity of a strategy must be positive : " + strategyCapacity);
+		}
+		this.intake = new OrderRing(capacity);
+		this.strategyCapacity = strategyCapacity;
+	}
+
+	/**
+	 * Start the order thread
+	 */
+	public synchronized void start(){
+		if (running){
+			throw new IllegalStateException("The live order manager is already started");
+		}
+		Map<IStrategy, Outbox> rings = new IdentityHashMap<IStrategy, Outbox>();
+		Map<InstrumentId, List<Outbox>> routing = new HashMap<InstrumentId, List<Outbox>>();
+		for (IStrategy s : strategies){
+			Outbox outbox = new Outbox(s, strategyCapacity);
+			rings.put(s, outbox);
+			for (InstrumentId i : s.getMarket()){
+				List<Outbox> subscribers = routing.get(i);
+				if (subscribers == null){
+					subscribers = new ArrayList<Outbox>();
+					routing.put(i, subscribers);
+				}
+				if (!subscribers.contains(outbox)){
+					subscribers.add(outbox);
+				}
+			}
+		}
+		subscriptions = new HashMap<InstrumentId, Outbox[]>();
+		for (Map.Entry<InstrumentId, List<Outbox>> e : routing.entrySet()){
+			subscriptions.put(e.getKey(), e.getValue().toArray(new Outbox[e.getValue().size()]));
+		}
+		outboxes = rings;
+
+		running = true;
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				processEvents();
+			}
+		}, "LiveOrderManager");
+		thread.setDaemon(true);
+		thread.start();
+		logger.info("Live order manager started : " + brokers.keySet() + ", " + strategies.size() + " strategies, " + riskLimits);
+	}
+
+	/**
+	 * Process the events already published and stop the order thread
+	 */
+	public void stop(){
+		Thread t;
+		synchronized (this) {
+			if (!running){
+				return;
+			}
+			running = false;
+			t = thread;
+		}
+		try {
+			t.join();
+		}catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while stopping the live order manager", e);
+		}
+		logger.info("Live order manager stopped : " + nbOrders + " orders, " + nbRejected + " rejected, " + nbExecutions
+				+ " executions, turnaround " + turnaround);
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Publish the order for the order thread, without waiting (unless the ring buffer is full)
+	 * @return the order, rejected at once if its quantity is not positive
+	 * @throws IllegalStateException if the order thread is not started
+	 */
+	@Override
+	public Order sendOrder(Order order) {
+		if (order.getQuantity() <= 0){
+			order.setStatus(OrderStatus.REJECTED);
+			return order;
+		}
+		if (!running){
+			throw new IllegalStateException("The live order manager is not started");
+		}
+		order.setStatus(OrderStatus.CREATED);
+		publish(EventType.NEW, order, 0, Double.NaN, 0, null, null, false);
+		return order;
+	}
+
+	/**
+	 * Ask the broker of the order to cancel it
+	 */
+	@Override
+	public void cancelOrder(Order order) {
+		if (!running){
+			throw new IllegalStateException("The live order manager is not started");
+		}
+		publish(EventType.CANCEL, order, 0, Double.NaN, 0, null, null, false);
+	}
+
+	@Override
+	public void onFill(Order order, double quantity, double price, double commission, DateTime time) {
+		report(EventType.FILL, order, quantity, price, commission, time, null, false);
+	}
+
+	@Override
+	public void onCancelled(Order order) {
+		report(EventType.CANCELLED, order, 0, Double.NaN, 0, null, null, false);
+	}
+
+	@Override
+	public void onRejected(Order order, String reason) {
+		report(EventType.REJECTED, order, 0, Double.NaN, 0, null, reason, false);
+	}
+
+	/**
+	 * The last execution of the order, already recorded on it by the caller : the portfolio, the journal and the
+	 * strategies are updated like for a {@link #onFill(Order, double, double, double, DateTime)}
+	 * @deprecated the brokers report their executions with {@link #onFill(Order, double, double, double, DateTime)}
+	 */
+	@Deprecated
+	@Override
+	public void onOrderFilled(Order order) {
+		report(EventType.FILL, order, order.getLastFilledQuantity(), order.getLastFilledPrice(), order.getLastCommission(),
+				order.getExecutionTime(), null, true);
+	}
+
+	/**
+	 * @deprecated the brokers report their cancels with {@link #onCancelled(Order)}
+	 */
+	@Deprecated
+	@Override
+	public void onOrderCancelled(Order order) {
+		onCancelled(order);
+	}
+
+	/**
+	 * A report of a broker : processed at once on the order thread, published otherwise
+	 */
+	private void report(EventType type, Order order, double quantity, double price, double commission, DateTime time, String reason, boolean recorded){
+		if (Thread.currentThread() == thread){
+			direct.set(type, order, quantity, price, commission, time);
+			direct.setReason(reason);
+			direct.setRecorded(recorded);
+			process(direct);
+			direct.clear();
+		}else {
+			publish(type, order, quantity, price, commission, time, reason, recorded);
+		}
+	}
+
+	private void publish(EventType type, Order order, double quantity, double price, double commission, DateTime time, String reason, boolean recorded){
+		long seq = intake.next();
+		OrderEvent e = intake.get(seq);
+		e.set(type, order, quantity, price, commission, time);
+		e.setReason(reason);
+		e.setRecorded(recorded);
+		intake.publish(seq);
+	}
+
+	/**
+	 * Order thread
+	 */
+	private void processEvents(){
+		while (true){
+			OrderEvent e = intake.peek();
+			if (e == null){
+				if (!running){
+					break;
+				}
+				intake.await();
+				continue;
+			}
+			try {
+				process(e);
+			}catch (RuntimeException ex) {
+				logger.error("Can not process " + e, ex);
+			}finally {
+				intake.release();
+			}
+		}
+	}
+
+	private void process(OrderEvent e){
+		switch (e.getType()) {
+		case NEW:
+			processNewOrder(e);
+			break;
+		case CANCEL:
+			OpenOrder open = openOrders.get(e.getOrder());
+			// else already filled or cancelled
+			if (open != null){
+				open.broker.cancel(e.getOrder());
+			}
+			break;
+		case FILL:
+			processFill(e);
+			break;
+		case CANCELLED:
+		case REJECTED:
+			processCancel(e);
+			break;
+		}
+	}
+
+	private void processNewOrder(OrderEvent e){
+		Order o = e.getOrder();
+		nbOrders++;
+		if (journal != null){
+			journal.onOrderSent(o);
+		}
+		double[] exposure = getExposure(o.getInstrument());
+		String reason = riskLimits.check(o, exposure[0] + exposure[1], openOrders.size());
+		IBroker broker = null;
+		if (reason == null){
+			JQuantExecutionProvider provider = routes.get(o.getInstrument());
+			if (provider == null){
+				provider = defaultProvider;
+			}
+			broker = brokers.get(provider);
+			if (broker == null){
+				reason = "No broker for " + provider;
+			}
+		}
+		if (reason != null){
+			o.setStatus(OrderStatus.REJECTED);
+			nbRejected++;
+			if (journal != null){
+				journal.onOrderCancelled(o);
+			}
+			if (logger.isDebugEnabled()){
+				logger.debug("Order " + o.getText() + " rejected : " + reason);
+			}
+			notify(EventType.REJECTED, o, 0, Double.NaN, 0, null, reason, false);
+			return;
+		}
+		o.setStatus(OrderStatus.SUBMITED);
+		openOrders.put(o, new OpenOrder(broker, e.getNanos()));
+		exposure[1] += signed(o, o.getQuantity());
+		broker.submit(o);
+	}
+
+	private void processFill(OrderEvent e){
+		Order o = e.getOrder();
+		OpenOrder open = openOrders.get(o);
+		if (open == null){
+			logger.warn("Execution of an order which is not open : " + o);
+			return;
+		}
+		double quantity = e.getQuantity();
+		if (!e.isRecorded()){
+			quantity = Math.min(quantity, o.getRemainingQuantity());
+			o.addFill(quantity, e.getPrice(), e.getCommission(), e.getTime());
+		}
+		nbExecutions++;
+		double[] exposure = getExposure(o.getInstrument());
+		boolean opening = exposure[0] == 0;
+		exposure[0] += signed(o, quantity);
+		exposure[1] -= signed(o, quantity);
+		if (ptf != null){
+			addTrade(o, quantity, e.getPrice(), e.getCommission(), e.getTime());
+		}
+		if (journal != null){
+			journal.onFill(o);
+		}
+		if (OrderStatus.FILLED.equals(o.getStatus())){
+			openOrders.remove(o);
+			turnaround.record(System.nanoTime() - open.nanos);
+		}
+		notify(EventType.FILL, o, quantity, e.getPrice(), e.getCommission(), e.getTime(), null, opening);
+	}
+
+	private void processCancel(OrderEvent e){
+		Order o = e.getOrder();
+		if (openOrders.remove(o) == null){
+			return;
+		}
+		getExposure(o.getInstrument())[1] -= signed(o, o.getRemainingQuantity());
+		if (EventType.REJECTED.equals(e.getType())){
+			o.setStatus(OrderStatus.REJECTED);
+			nbRejected++;
+		}else {
+			o.setStatus(OrderStatus.CANCELLED);
+		}
+		if (journal != null){
+			journal.onOrderCancelled(o);
+		}
+		notify(e.getType(), o, 0, Double.NaN, 0, null, e.getReason(), false);
+	}
+
+	/**
+	 * The portfolio trade of an execution, as in the back test
+	 */
+	private void addTrade(Order order, double quantity, double price, double commission, DateTime time){
+		TradeSide side = OrderSide.BUY.equals(order.getSide()) ? TradeSide.BUY : TradeSide.SELL;
+		// the fees are paid on top of a purchase and deducted from a sale
+		double fees = TradeSide.BUY.equals(side) ? commission : -commission;
+		double amount = quantity * price + fees;
+		Trade tr = new Trade(side, order.getInstrument(), quantity, amount, time);
+		try {
+			synchronized (ptf) {
+				ptf.addTransaction(tr);
+			}
+		}catch (PortfolioException e) {
+			logger.warn("Can not update Portfolio: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Publish an event to the strategies of the instrument, without waiting : the event goes to the overflow queue of
+	 * a strategy which buffer is full, or which overflow queue is not empty (the events stay in order)
+	 */
+	private void notify(EventType type, Order order, double quantity, double price, double commission, DateTime time, String reason, boolean opening){
+		Outbox[] subscribers = subscriptions.get(order.getInstrument());
+		for (Outbox outbox : subscribers == null ? NO_SUBSCRIBER : subscribers){
+			if (!outbox.overflowing){
+				long seq = outbox.ring.tryNext();
+				if (seq >= 0){
+					OrderEvent e = outbox.ring.get(seq);
+					e.set(type, order, quantity, price, commission, time);
+					e.setReason(reason);
+					e.setOpening(opening);
+					outbox.ring.publish(seq);
+					continue;
+				}
+			}
+			OrderEvent e = new OrderEvent();
+			e.set(type, order, quantity, price, commission, time);
+			e.setReason(reason);
+			e.setOpening(opening);
+			synchronized (outbox) {
+				outbox.overflow.add(e);
+				outbox.overflowing = true;
+			}
+			if (outbox.nbOverflowed++ == 0){
+				logger.warn("The events of " + outbox.strategy + " are not dispatched fast enough, the next ones wait in an unbounded queue");
+			}
+		}
+	}
+
+	/**
+	 * Deliver the events published for a strategy, on the thread of the strategy
+	 * @param strategy a strategy added before {@link #start()}
+	 * @return number of events delivered
+	 */
+	public int dispatch(IStrategy strategy){
+		Outbox outbox = getOutbox(strategy);
+		OrderRing ring = outbox.ring;
+		int n = 0;
+		OrderEvent e;
+		while ((e = ring.peek()) != null){
+			try {
+				deliver(strategy, e);
+			}finally {
+				ring.release();
+			}
+			n++;
+		}
+		// the overflow is younger than the events of the buffer
+		while (outbox.overflowing){
+			synchronized (outbox) {
+				e = outbox.overflow.poll();
+				outbox.overflowing = !outbox.overflow.isEmpty();
+			}
+			if (e != null){
+				deliver(strategy, e);
+				n++;
+			}
+		}
+		return n;
+	}
+
+	private static void deliver(IStrategy strategy, OrderEvent e){
+		if (EventType.FILL.equals(e.getType()) && e.isOpening()){
+			Order o = e.getOrder();
+			strategy.onPositionOpened(OrderSide.BUY.equals(o.getSide()) ? TradeSide.BUY : TradeSide.SELL, o.getInstrument());
+		}
+		if (strategy instanceof OrderListener){
+			((OrderListener) strategy).onOrderEvent(e);
+		}
+	}
+
+	/**
+	 *
+	 * @param strategy a strategy added before {@link #start()}
+	 * @return number of events that went through the overflow queue because the buffer of the strategy was full
+	 */
+	public long getNbOverflowed(IStrategy strategy){
+		return getOutbox(strategy).nbOverflowed;
+	}
+
+	private Outbox getOutbox(IStrategy strategy){
+		Map<IStrategy, Outbox> rings = outboxes;
+		Outbox outbox = rings == null ? null : rings.get(strategy);
+		if (outbox == null){
+			throw new IllegalArgumentException("The strategy " + strategy + " is not registered");
+		}
+		return outbox;
+	}
+
+	private double[] getExposure(InstrumentId instrument){
+		double[] exposure = exposures.get(instrument);
+		if (exposure == null){
+			exposure = new double[2];
+			exposures.put(instrument, exposure);
+		}
+		return exposure;
+	}
+
+	private static double signed(Order o, double quantity){
+		return OrderSide.BUY.equals(o.getSide()) ? quantity : -quantity;
+	}
+
+	/**
+	 * Register a broker for its {@link JQuantExecutionProvider}
+	 * @param broker an {@link IBroker}
+	 */
+	public synchronized void addBroker(IBroker broker){
+		checkNotRunning();
+		broker.setListener(this);
+		brokers.put(broker.getProvider(), broker);
+	}
+
+	/**
+	 * Route the orders of an instrument to an other broker than the default one
+	 * @param instrument an {@link InstrumentId}
+	 * @param provider the {@link JQuantExecutionProvider} of the broker
+	 */
+	public synchronized void setRoute(InstrumentId instrument, JQuantExecutionProvider provider){
+		checkNotRunning();
+		routes.put(instrument, provider);
+	}
+
+	public JQuantExecutionProvider getDefaultProvider() {
+		return defaultProvider;
+	}
+
+	public synchronized void setDefaultProvider(JQuantExecutionProvider defaultProvider) {
+		checkNotRunning();
+		this.defaultProvider = defaultProvider;
+	}
+
+	public RiskLimits getRiskLimits() {
+		return riskLimits;
+	}
+
+	public synchronized void setRiskLimits(RiskLimits riskLimits) {
+		checkNotRunning();
+		this.riskLimits = riskLimits;
+	}
+
+	@Override
+	public synchronized void addStrategy(IStrategy strategy) {
+		checkNotRunning();
+		strategies.add(strategy);
+	}
+
+	@Override
+	public synchronized void setPortfolio(Portfolio ptf) {
+		checkNotRunning();
+		this.ptf = ptf;
+	}
+
+	public Portfolio getPortfolio() {
+		return ptf;
+	}
+
+	public TradeJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * The orders, the executions, the cancels and the rejects are recorded by the order thread
+	 * @param journal a {@link TradeJournal}, <code>null</code> (default) for none
+	 */
+	public synchronized void setJournal(TradeJournal journal) {
+		checkNotRunning();
+		this.journal = journal;
+	}
+
+	private void checkNotRunning(){
+		if (running){
+			throw new IllegalStateException("The live order manager is started");
+		}
+	}
+
+	/**
+	 * The candles are the market of the {@link SimulatedBroker}s
+	 */
+	@Override
+	public void onCandle(InstrumentId instrument, Candle candle) {
+		for (IBroker broker : brokers.values()){
+			if (broker instanceof SimulatedBroker){
+				((SimulatedBroker) broker).onCandle(instrument, candle);
+			}
+		}
+	}
+
+	@Override
+	public void onCandleOpen(InstrumentId instrument, Candle candle) {
+		// the open is a quote like the others for a live broker
+	}
+
+	/**
+	 * The quotes are the market of the {@link SimulatedBroker}s
+	 */
+	@Override
+	public void onQuote(InstrumentId instrument, BBBA quote) {
+		for (IBroker broker : brokers.values()){
+			if (broker instanceof SimulatedBroker){
+				((SimulatedBroker) broker).onQuote(instrument, quote);
+			}
+		}
+	}
+
+	@Override
+	public void onEndOfDay(DateTime day, Map<InstrumentId, Candle> lastCandles) {
+		// the market on close orders are handled by the brokers
+	}
+
+	/**
+	 *
+	 * @return time from {@link #sendOrder(Order)} to the last execution of the filled orders, read it after {@link #stop()}
+	 */
+	public Histogram getTurnaround() {
+		return turnaround;
+	}
+
+	/**
+	 *
+	 * @return number of orders processed by the order thread
+	 */
+	public long getNbOrders() {
+		return nbOrders;
+	}
+
+	/**
+	 *
+	 * @return number of orders rejected by the risk checks or by the brokers
+	 */
+	public long getNbRejected() {
+		return nbRejected;
+	}
+
+	/**
+	 *
+	 * @return number of (partial) executions
+	 */
+	public long getNbExecutions() {
+		return nbExecutions;
+	}
+
+	/**
+	 * The events of a strategy
+	 */
+	private static final class Outbox {
+
+		private final IStrategy strategy;
+
+		private final OrderRing ring;
+
+		/**
+		 * Events that did not fit in the ring buffer, under the lock of the outbox
+		 */
+		private final ArrayDeque<OrderEvent> overflow = new ArrayDeque<OrderEvent>();
+
+		/**
+		 * The overflow queue is not empty : the next events go to it
+		 */
+		private volatile boolean overflowing;
+
+		/**
+		 * Written by the order thread only
+		 */
+		private volatile long nbOverflowed;
+
+		Outbox(IStrategy strategy, int capacity) {
+			this.strategy = strategy;
+			this.ring = new OrderRing(capacity);
+		}
+	}
+
+	/**
+	 * An order sent to a broker
+	 */
+	private static final class OpenOrder {
+
+		private final IBroker broker;
+
+		/**
+		 * {@link System#nanoTime()} of {@link LiveOrderManager#sendOrder(Order)}
+		 */
+		private final long nanos;
+
+		OpenOrder(IBroker broker, long nanos) {
+			this.broker = broker;
+			this.nanos = nanos;
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package org.jquant.execution;
+
+import org.joda.time.DateTime;
+import org.jquant.order.Order;
+
+/**
+ * An event of the live order pipeline : an order or a cancel from a strategy, an execution or a cancel from a broker
+ * <p> The events of the ring buffers are preallocated and overwritten : a listener must copy what it keeps.
+ * @author JQUANT TEAM
+ * @see LiveOrderManager
+ */
+public final class OrderEvent {
+
+	/**
+	 * Kind of the event
+	 */
+	public enum EventType {
+		/**
+		 * An order sent by a strategy
+		 */
+		NEW,
+		/**
+		 * A cancel requested by a strategy
+		 */
+		CANCEL,
+		/**
+		 * A (partial) execution of an order
+		 */
+		FILL,
+		/**
+		 * An order cancelled by its broker
+		 */
+		CANCELLED,
+		/**
+		 * An order rejected by the risk checks or by its broker
+		 */
+		REJECTED
+	}
+
+	private EventType type;
+
+	private Order order;
+
+	private double quantity;
+
+	private double price;
+
+	private double commission;
+
+	private DateTime time;
+
+	private String reason;
+
+	private boolean opening;
+
+	/**
+	 * The execution is already recorded on the order
+	 */
+	private boolean recorded;
+
+	/**
+	 * {@link System#nanoTime()} of the publication
+	 */
+	private long nanos;
+
+	void set(EventType type, Order order){
+		set(type, order, 0, Double.NaN, 0, null);
+	}
+
+	void set(EventType type, Order order, double quantity, double price, double commission, DateTime time){
+		this.type = type;
+		this.order = order;
+		this.quantity = quantity;
+		this.price = price;
+		this.commission = commission;
+		this.time = time;
+		this.reason = null;
+		this.opening = false;
+		this.recorded = false;
+		this.nanos = System.nanoTime();
+	}
+
+	void copy(OrderEvent other){
+		this.type = other.type;
+		this.order = other.order;
+		this.quantity = other.quantity;
+		this.price = other.price;
+		this.commission = other.commission;
+		this.time = other.time;
+		this.reason = other.reason;
+		this.opening = other.opening;
+		this.recorded = other.recorded;
+		this.nanos = other.nanos;
+	}
+
+	void clear(){
+		order = null;
+		time = null;
+		reason = null;
+	}
+
+	public EventType getType() {
+		return type;
+	}
+
+	public Order getOrder() {
+		return order;
+	}
+
+	/**
+	 *
+	 * @return quantity of the execution (FILL)
+	 */
+	public double getQuantity() {
+		return quantity;
+	}
+
+	/**
+	 *
+	 * @return price of the execution (FILL), {@link Double#NaN} otherwise
+	 */
+	public double getPrice() {
+		return price;
+	}
+
+	/**
+	 *
+	 * @return fees of the execution (FILL)
+	 */
+	public double getCommission() {
+		return commission;
+	}
+
+	/**
+	 *
+	 * @return {@link DateTime} of the execution (FILL)
+	 */
+	public DateTime getTime() {
+		return time;
+	}
+
+	/**
+	 *
+	 * @return why the order was rejected (REJECTED)
+	 */
+	public String getReason() {
+		return reason;
+	}
+
+	void setReason(String reason) {
+		this.reason = reason;
+	}
+
+	/**
+	 *
+	 * @return <code>true</code> if the execution opened a position (FILL)
+	 */
+	public boolean isOpening() {
+		return opening;
+	}
+
+	void setOpening(boolean opening) {
+		this.opening = opening;
+	}
+
+	boolean isRecorded() {
+		return recorded;
+	}
+
+	void setRecorded(boolean recorded) {
+		this.recorded = recorded;
+	}
+
+	long getNanos() {
+		return nanos;
+	}
+
+	@Override
+	public String toString() {
+		return "OrderEvent [type=" + type + ", order=" + order + ", quantity=" + quantity + ", price=" + price + ", reason=" + reason + "]";
+	}
+}
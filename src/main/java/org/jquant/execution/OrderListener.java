@@ -0,0 +1,18 @@
+package org.jquant.execution;
+
+import org.jquant.strategy.IStrategy;
+
+/**
+ * A strategy implementing this interface receives the executions, the cancels and the rejects of the orders of its 
+ * market from a {@link LiveOrderManager}
+ * <p> The events are delivered on the thread of the strategy by {@link LiveOrderManager#dispatch(IStrategy)}.
+ * @author JQUANT TEAM
+ */
+public interface OrderListener {
+
+	/**
+	 * 
+	 * @param event a FILL, CANCELLED or REJECTED {@link OrderEvent}, overwritten after the call
+	 */
+	public void onOrderEvent(OrderEvent event);
+}
@@ -0,0 +1,142 @@
+package org.jquant.execution;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded ring buffer of preallocated {@link OrderEvent}s, many producers and one consumer, without lock
+ * <p>
+ * A producer claims a sequence with a compare and set on the head, fills the event of the slot and publishes it by
+ * writing the sequence of the slot. The consumer reads the published slots in order and gives them back to the
+ * producers. When the buffer is full the producers wait for the consumer, no event is lost.
+ * <p>
+ * A consumer with nothing to read parks until a producer publishes : the producers unpark it only when it waits.
+ * @author JQUANT TEAM
+ */
+final class OrderRing {
+
+	/**
+	 * Wait of a producer on a full buffer, and longest wait of the consumer
+	 */
+	private static final long PARK_NANOS = 50000L;
+
+	private final OrderEvent[] events;
+
+	/**
+	 * Slot i holds the sequence s when the producer of s can fill it and s + 1 when the event s is published
+	 */
+	private final AtomicLongArray sequences;
+
+	private final int mask;
+
+	/**
+	 * Next sequence to claim (producers)
+	 */
+	private final AtomicLong head = new AtomicLong();
+
+	/**
+	 * Next sequence to read (consumer only)
+	 */
+	private long tail;
+
+	private volatile Thread consumer;
+
+	private volatile boolean waiting;
+
+	/**
+	 *
+	 * @param capacity number of events (rounded up to a power of 2)
+	 */
+	OrderRing(int capacity) {
+		if (capacity <= 0){
+			throw new IllegalArgumentException("The capacity of the ring must be positive : " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity){
+			size <<= 1;
+		}
+		events = new OrderEvent[size];
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++){
+			events[i] = new OrderEvent();
+			sequences.set(i, i);
+		}
+		mask = size - 1;
+	}
+
+	/**
+	 * Claim the next slot, wait while the buffer is full
+	 * @return the sequence to fill with {@link #get(long)} and to {@link #publish(long)}
+	 */
+	long next(){
+		long seq;
+		while ((seq = tryNext()) < 0){
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+		return seq;
+	}
+
+	/**
+	 * Claim the next slot without waiting
+	 * @return the sequence to fill with {@link #get(long)} and to {@link #publish(long)}, -1 if the buffer is full
+	 */
+	long tryNext(){
+		while (true){
+			long seq = head.get();
+			long available = sequences.get((int) seq & mask);
+			if (available == seq){
+				if (head.compareAndSet(seq, seq + 1)){
+					return seq;
+				}
+			}else if (available < seq){
+				// full : the consumer has not read the event of the previous lap
+				return -1;
+			}
+			// else an other producer claimed the slot meanwhile
+		}
+	}
+
+	OrderEvent get(long seq){
+		return events[(int) seq & mask];
+	}
+
+	void publish(long seq){
+		sequences.set((int) seq & mask, seq + 1);
+		if (waiting){
+			LockSupport.unpark(consumer);
+		}
+	}
+
+	/**
+	 * Consumer : the next published event
+	 * @return the event, to {@link #release()} once processed, <code>null</code> if there is none
+	 */
+	OrderEvent peek(){
+		int index = (int) tail & mask;
+		return sequences.get(index) == tail + 1 ? events[index] : null;
+	}
+
+	/**
+	 * Consumer : give the slot of the last {@link #peek()} back to the producers
+	 */
+	void release(){
+		int index = (int) tail & mask;
+		events[index].clear();
+		sequences.lazySet(index, tail + events.length);
+		tail++;
+	}
+
+	/**
+	 * Consumer : park until an event is published (or a timeout)
+	 */
+	void await(){
+		consumer = Thread.currentThread();
+		waiting = true;
+		// published before waiting was seen by the producer
+		if (peek() == null){
+			LockSupport.parkNanos(this, PARK_NANOS);
+		}
+		waiting = false;
+	}
+}
@@ -0,0 +1,93 @@
+package org.jquant.execution;
+
+import org.jquant.order.Order;
+import org.jquant.order.Order.OrderSide;
+
+/**
+ * Pre-trade risk checks of the {@link LiveOrderManager}
+ * <ul>
+ * <li>maximum quantity of an order</li>
+ * <li>maximum position on an instrument (in absolute value), the open orders included as if they were filled</li>
+ * <li>maximum number of open orders</li>
+ * </ul>
+ * A limit of 0 (the default) is no limit. The checks run on the order thread and do not allocate unless the order
+ * is rejected.
+ * @author JQUANT TEAM
+ */
+public class RiskLimits {
+
+	private double maxOrderQuantity;
+
+	private double maxPosition;
+
+	private int maxOpenOrders;
+
+	public RiskLimits() {
+		super();
+	}
+
+	/**
+	 *
+	 * @param maxOrderQuantity maximum quantity of an order
+	 * @param maxPosition maximum position on an instrument (in absolute value)
+	 * @param maxOpenOrders maximum number of open orders
+	 */
+	public RiskLimits(double maxOrderQuantity, double maxPosition, int maxOpenOrders) {
+		super();
+		this.maxOrderQuantity = maxOrderQuantity;
+		this.maxPosition = maxPosition;
+		this.maxOpenOrders = maxOpenOrders;
+	}
+
+	/**
+	 * Check a new order
+	 * @param order the {@link Order}
+	 * @param exposure position on the instrument plus the remaining quantities of its open orders (signed)
+	 * @param openOrders number of open orders
+	 * @return why the order is rejected, <code>null</code> if it is accepted
+	 */
+	public String check(Order order, double exposure, int openOrders){
+		if (maxOrderQuantity > 0 && order.getQuantity() > maxOrderQuantity){
+			return "Quantity " + order.getQuantity() + " above the limit " + maxOrderQuantity;
+		}
+		if (maxPosition > 0){
+			double after = OrderSide.BUY.equals(order.getSide()) ? exposure + order.getQuantity() : exposure - order.getQuantity();
+			if (Math.abs(after) > maxPosition){
+				return "Position " + after + " on " + order.getInstrument().getCode() + " above the limit " + maxPosition;
+			}
+		}
+		if (maxOpenOrders > 0 && openOrders >= maxOpenOrders){
+			return openOrders + " open orders, limit " + maxOpenOrders;
+		}
+		return null;
+	}
+
+	public double getMaxOrderQuantity() {
+		return maxOrderQuantity;
+	}
+
+	public void setMaxOrderQuantity(double maxOrderQuantity) {
+		this.maxOrderQuantity = maxOrderQuantity;
+	}
+
+	public double getMaxPosition() {
+		return maxPosition;
+	}
+
+	public void setMaxPosition(double maxPosition) {
+		this.maxPosition = maxPosition;
+	}
+
+	public int getMaxOpenOrders() {
+		return maxOpenOrders;
+	}
+
+	public void setMaxOpenOrders(int maxOpenOrders) {
+		this.maxOpenOrders = maxOpenOrders;
+	}
+
+	@Override
+	public String toString() {
+		return "RiskLimits [maxOrderQuantity=" + maxOrderQuantity + ", maxPosition=" + maxPosition + ", maxOpenOrders=" + maxOpenOrders + "]";
+	}
+}
@@ -0,0 +1,242 @@
+package org.jquant.execution;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.DateTime;
+import org.jquant.model.InstrumentId;
+import org.jquant.order.LimitOrder;
+import org.jquant.order.MarketOrder;
+import org.jquant.order.Order;
+import org.jquant.order.Order.OrderSide;
+import org.jquant.order.StopOrder;
+import org.jquant.order.TrailingStopOrder;
+import org.jquant.serie.BBBA;
+import org.jquant.serie.Candle;
+
+/**
+ * Local paper broker : a stand-in for a real broker, to test the live pipeline without a connection
+ * <p>
+ * The orders are executed on the last quote of their instrument like in a back test with quotes : BUY at the ask,
+ * SELL at the bid, with the costs of a {@link FillModel} (no volume limit). A market order is executed at once, the
+ * limit, stop and trailing stop orders wait for a quote that triggers them. The orders received before the first
+ * quote of their instrument wait for it. The market on close orders are rejected.
+ * <p> The quotes can come from any thread. The executions are reported outside of the lock of the broker.
+ * @author JQUANT TEAM
+ */
+public class SimulatedBroker implements IBroker {
+
+	private final FillModel fillModel;
+
+	private final Map<InstrumentId, BBBA> quotes = new HashMap<InstrumentId, BBBA>();
+
+	private final List<Order> waitingOrders = new ArrayList<Order>();
+
+	/*
+	 * Reused for each execution, under the lock
+	 */
+	private final Fill fill = new Fill();
+
+	private volatile BrokerListener listener;
+
+	private long nbExecutions;
+
+	public SimulatedBroker() {
+		this(new FillModel());
+	}
+
+	/**
+	 *
+	 * @param fillModel the execution costs
+	 */
+	public SimulatedBroker(FillModel fillModel) {
+		super();
+		this.fillModel = fillModel;
+	}
+
+	@Override
+	public JQuantExecutionProvider getProvider() {
+		return JQuantExecutionProvider.PAPER;
+	}
+
+	@Override
+	public void setListener(BrokerListener listener) {
+		this.listener = listener;
+	}
+
+	@Override
+	public void submit(Order order) {
+		if (!(order instanceof MarketOrder || order instanceof LimitOrder || order instanceof StopOrder || order instanceof TrailingStopOrder)){
+			getListener().onRejected(order, "Unsupported order type " + order.getClass().getSimpleName());
+			return;
+		}
+		Execution execution = null;
+		synchronized (this) {
+			BBBA quote = quotes.get(order.getInstrument());
+			if (quote != null){
+				execution = trigger(order, quote);
+			}
+			if (execution == null){
+				waitingOrders.add(order);
+			}
+		}
+		if (execution != null){
+			report(execution);
+		}
+	}
+
+	@Override
+	public void cancel(Order order) {
+		boolean removed;
+		synchronized (this) {
+			removed = waitingOrders.remove(order);
+		}
+		// an executed order can not be cancelled
+		if (removed){
+			getListener().onCancelled(order);
+		}
+	}
+
+	/**
+	 * A new best bid / best ask : the waiting orders of the instrument are executed if they trigger
+	 * @param instrument an {@link InstrumentId}
+	 * @param quote a {@link BBBA}
+	 */
+	public void onQuote(InstrumentId instrument, BBBA quote){
+		List<Execution> executions = null;
+		synchronized (this) {
+			quotes.put(instrument, quote);
+			for (Iterator<Order> it = waitingOrders.iterator(); it.hasNext();){
+				Order o = it.next();
+				if (o.getInstrument().equals(instrument)){
+					Execution execution = trigger(o, quote);
+					if (execution != null){
+						it.remove();
+						if (executions == null){
+							executions = new ArrayList<Execution>();
+						}
+						executions.add(execution);
+					}
+				}
+			}
+		}
+		if (executions != null){
+			for (Execution execution : executions){
+				report(execution);
+			}
+		}
+	}
+
+	/**
+	 * Paper trading on candles : the close is the bid and the ask
+	 * @param instrument an {@link InstrumentId}
+	 * @param candle a {@link Candle}
+	 */
+	public void onCandle(InstrumentId instrument, Candle candle){
+		onQuote(instrument, new BBBA(candle.getDate(), candle.getClose(), candle.getClose()));
+	}
+
+	/**
+	 *
+	 * @return the execution of the order on the quote, <code>null</code> if the order does not trigger
+	 */
+	private Execution trigger(Order o, BBBA quote){
+		boolean buy = OrderSide.BUY.equals(o.getSide());
+		double price = buy ? quote.getBestAsk() : quote.getBestBid();
+		boolean triggered;
+		if (o instanceof MarketOrder){
+			triggered = true;
+		}else if (o instanceof LimitOrder){
+			double limit = ((LimitOrder) o).getLimitPrice();
+			triggered = buy ? price <= limit : price >= limit;
+		}else if (o instanceof StopOrder){
+			double stop = ((StopOrder) o).getStopPrice();
+			triggered = buy ? price >= stop : price <= stop;
+		}else {
+			triggered = trigger((TrailingStopOrder) o, price);
+		}
+		if (!triggered){
+			return null;
+		}
+		fillModel.fill(o, price, Double.NaN, fill);
+		nbExecutions++;
+		return new Execution(o, fill.getQuantity(), fill.getPrice(), fill.getCommission(), quote.getDate());
+	}
+
+	/**
+	 * Same rule as the back test : the trigger follows the best price seen since the submission
+	 */
+	private boolean trigger(TrailingStopOrder o, double price){
+		if (o.getTrigger() == 0){
+			o.refresh(price);
+		}
+		boolean sell = OrderSide.SELL.equals(o.getSide());
+		if (sell ? price < o.getTrigger() : price > o.getTrigger()){
+			return true;
+		}
+		if (sell ? price > o.getWatermark() : price < o.getWatermark()){
+			o.refresh(price);
+			o.setWatermark(price);
+		}
+		return false;
+	}
+
+	private void report(Execution execution){
+		getListener().onFill(execution.order, execution.quantity, execution.price, execution.commission, execution.time);
+	}
+
+	private BrokerListener getListener(){
+		BrokerListener l = listener;
+		if (l == null){
+			throw new IllegalStateException("The simulated broker has no listener");
+		}
+		return l;
+	}
+
+	/**
+	 *
+	 * @return number of orders waiting for a quote that triggers them
+	 */
+	public synchronized int getNbWaitingOrders(){
+		return waitingOrders.size();
+	}
+
+	/**
+	 *
+	 * @return number of executions since the creation
+	 */
+	public synchronized long getNbExecutions() {
+		return nbExecutions;
+	}
+
+	public FillModel getFillModel() {
+		return fillModel;
+	}
+
+	/**
+	 * An execution, reported once the lock is released
+	 */
+	private static final class Execution {
+
+		private final Order order;
+
+		private final double quantity;
+
+		private final double price;
+
+		private final double commission;
+
+		private final DateTime time;
+
+		Execution(Order order, double quantity, double price, double commission, DateTime time) {
+			this.order = order;
+			this.quantity = quantity;
+			this.price = price;
+			this.commission = commission;
+			this.time = time;
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package org.jquant.indicator;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.jquant.serie.CandleSerie;
+
+/**
+ * Indicators shared by the strategies of a simulation
+ * <p>
+ * An indicator is identified by its class, its input serie (the instance) and the other arguments of its constructor :
+ * <pre>
+ * SMA sma = registry.acquire(SMA.class, serie, 50, CandleData.CLOSE);
+ * </pre>
+ * The strategies acquiring the same indicator get the same instance, which observes its serie once : with 100 variants
+ * of a strategy on a symbol each indicator is computed once per candle instead of 100 times.
+ * <p>
+ * The instances are reference counted : the last {@link #release(CandleIndicator)} stops the observation of the serie.
+ * @author JQUANT TEAM
+ * @see org.jquant.strategy.AbstractStrategy
+ */
+public class IndicatorRegistry {
+
+	private final Map<Key, Shared> indicators = new HashMap<Key, Shared>();
+
+	private final Map<CandleIndicator, Key> keys = new IdentityHashMap<CandleIndicator, Key>();
+
+	private long nbRequests;
+
+	/**
+	 * The shared instance of an indicator, created at the first request
+	 * @param type class of the indicator, with a public constructor (input serie, parameters...)
+	 * @param input the input serie
+	 * @param parameters the other arguments of the constructor
+	 * @return the indicator, to {@link #release(CandleIndicator)} when it is not used anymore
+	 * @throws IllegalArgumentException if the class has no such constructor
+	 */
+	public synchronized <T extends CandleIndicator> T acquire(Class<T> type, CandleSerie input, Object... parameters){
+		nbRequests++;
+		Key key = new Key(type, input, parameters);
+		Shared shared = indicators.get(key);
+		if (shared == null){
+			shared = new Shared(create(type, input, parameters));
+			indicators.put(key, shared);
+			keys.put(shared.indicator, key);
+		}
+		shared.references++;
+		return type.cast(shared.indicator);
+	}
+
+	/**
+	 * Release an indicator : when it is not used anymore it stops observing its serie
+	 * @param indicator an indicator given by {@link #acquire(Class, CandleSerie, Object...)}
+	 * @throws IllegalArgumentException if the indicator does not come from this registry
+	 */
+	public synchronized void release(CandleIndicator indicator){
+		Key key = keys.get(indicator);
+		if (key == null){
+			throw new IllegalArgumentException("The indicator " + indicator + " is not in the registry");
+		}
+		Shared shared = indicators.get(key);
+		if (--shared.references == 0){
+			indicators.remove(key);
+			keys.remove(indicator);
+			key.input.deleteObserver(indicator);
+		}
+	}
+
+	/**
+	 * Release all the indicators
+	 */
+	public synchronized void clear(){
+		for (Key key : indicators.keySet()){
+			key.input.deleteObserver(indicators.get(key).indicator);
+		}
+		indicators.clear();
+		keys.clear();
+	}
+
+	/**
+	 *
+	 * @param indicator an indicator
+	 * @return number of acquisitions not released, 0 if the indicator is not in the registry
+	 */
+	public synchronized int getReferences(CandleIndicator indicator){
+		Key key = keys.get(indicator);
+		return key == null ? 0 : indicators.get(key).references;
+	}
+
+	/**
+	 *
+	 * @return number of distinct indicators
+	 */
+	public synchronized int size(){
+		return indicators.size();
+	}
+
+	/**
+	 *
+	 * @return number of calls to {@link #acquire(Class, CandleSerie, Object...)}
+	 */
+	public synchronized long getNbRequests(){
+		return nbRequests;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "IndicatorRegistry : " + indicators.size() + " indicators for " + nbRequests + " requests";
+	}
+
+	private static <T extends CandleIndicator> T create(Class<T> type, CandleSerie input, Object[] parameters){
+		for (Constructor<?> c : type.getConstructors()){
+			Class<?>[] types = c.getParameterTypes();
+			if (types.length != parameters.length + 1 || !types[0].isInstance(input)){
+				continue;
+			}
+			boolean matches = true;
+			for (int i = 0; i < parameters.length && matches; i++){
+				matches = wrap(types[i + 1]).isInstance(parameters[i]) || (parameters[i] == null && !types[i + 1].isPrimitive());
+			}
+			if (!matches){
+				continue;
+			}
+			Object[] args = new Object[types.length];
+			args[0] = input;
+			System.arraycopy(parameters, 0, args, 1, parameters.length);
+			try {
+				return type.cast(c.newInstance(args));
+			}catch (InvocationTargetException e) {
+				throw new IllegalArgumentException("Can not create the indicator " + type.getName(), e.getCause());
+			}catch (Exception e) {
+				throw new IllegalArgumentException("Can not create the indicator " + type.getName(), e);
+			}
+		}
+		throw new IllegalArgumentException("No constructor " + type.getSimpleName() + "(" + CandleSerie.class.getSimpleName() + ", "
+				+ Arrays.toString(parameters) + ")");
+	}
+
+	private static Class<?> wrap(Class<?> type){
+		if (!type.isPrimitive()){
+			return type;
+		}
+		if (type == int.class){
+			return Integer.class;
+		}else if (type == double.class){
+			return Double.class;
+		}else if (type == long.class){
+			return Long.class;
+		}else if (type == boolean.class){
+			return Boolean.class;
+		}else if (type == float.class){
+			return Float.class;
+		}else if (type == short.class){
+			return Short.class;
+		}else if (type == byte.class){
+			return Byte.class;
+		}
+		return Character.class;
+	}
+
+	/**
+	 * Class, input serie (by identity) and parameters
+	 */
+	private static final class Key {
+
+		private final Class<?> type;
+
+		private final CandleSerie input;
+
+		private final Object[] parameters;
+
+		private final int hash;
+
+		Key(Class<?> type, CandleSerie input, Object[] parameters) {
+			this.type = type;
+			this.input = input;
+			this.parameters = parameters.clone();
+			this.hash = (type.hashCode() * 31 + System.identityHashCode(input)) * 31 + Arrays.hashCode(parameters);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)){
+				return false;
+			}
+			Key other = (Key) obj;
+			return type == other.type && input == other.input && Arrays.equals(parameters, other.parameters);
+		}
+	}
+
+	private static final class Shared {
+
+		private final CandleIndicator indicator;
+
+		private int references;
+
+		Shared(CandleIndicator indicator) {
+			this.indicator = indicator;
+		}
+	}
+}
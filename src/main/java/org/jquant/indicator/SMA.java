@@ -1,11 +1,9 @@
 package org.jquant.indicator;
 
-import org.apache.commons.lang3.ArrayUtils;
 import org.jquant.serie.Candle;
 import org.jquant.serie.Candle.CandleData;
 import org.jquant.serie.CandleSerie;
 import org.jquant.serie.TimeValue;
-import org.jquant.util.FinancialLibrary;
 
 /**
  * Simple Moving Average 
@@ -24,23 +22,47 @@ public final class SMA extends CandleIndicator {
 	
 	private final CandleData data;
 	
+	/*
+	 * The last values of the input, circular
+	 */
+	private final double[] window;
+	
+	/*
+	 * Number of values seen
+	 */
+	private long count;
+	
 	
 	public SMA(CandleSerie serie, int length,CandleData data) {
 		super(serie);
+		if (length <= 0){
+			throw new IllegalArgumentException("The length of the SMA must be positive : " + length);
+		}
 		this.length = length;
 		this.data = data;
-		
+		this.window = new double[length];
+		// the candles already in the serie
+		for (Candle c : serie){
+			window[(int) (count++ % length)] = c.getData(data);
+		}
 	}
 
 
+	/**
+	 * O(length) per candle : the values are kept in a window instead of being copied from the whole serie
+	 */
 	@Override
 	public void add(Candle candle) {
-	 if (input.size()>=length){
-		 double[] array = input.getData(data);
-		 output.addValue(new TimeValue(candle.getDate(), 
-				 					 FinancialLibrary.SMA(length, ArrayUtils.subarray(array,array.length-length ,array.length),0)));
-	 }
-		
+		int next = (int) (count++ % length);
+		window[next] = candle.getData(data);
+		if (count >= length){
+			// from the oldest value, in the order of FinancialLibrary.SMA
+			double sum = 0;
+			for (int i = 1; i <= length; i++){
+				sum += window[(next + i) % length];
+			}
+			output.addValue(new TimeValue(candle.getDate(), sum / length));
+		}
 	}
 
 }
@@ -18,9 +18,9 @@ public class DepositIndex extends IborIndex{
 	public DepositIndex(DateTime fixingDate, double rate, Currency currency, Period term) {
 		super(fixingDate, rate, currency, term, null, 2);
 		if (currency==Currency.GBP)
-			this.dayCounter = new Actual365Fixed();
+			this.dayCounter = Actual365Fixed.INSTANCE;
 		else
-			this.dayCounter = new Actual360();
+			this.dayCounter = Actual360.INSTANCE;
 	}
 
 	public RateType getRateType() {
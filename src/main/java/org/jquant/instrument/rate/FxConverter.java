@@ -0,0 +1,287 @@
+package org.jquant.instrument.rate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.joda.time.DateTime;
+import org.jquant.data.MarketManager;
+import org.jquant.model.Currency;
+import org.jquant.model.InstrumentId;
+import org.jquant.model.InstrumentType;
+import org.jquant.portfolio.ResultKey;
+import org.jquant.serie.Candle;
+import org.jquant.serie.CandleSerie;
+
+/**
+ * Conversion of amounts between currencies with the FOREX series of the {@link MarketManager}
+ * <p>
+ * A pair <b>BASEQUOTE</b> (EURUSD) quotes the price of 1 BASE in QUOTE, the rate at a time is the close of the last
+ * candle known at that time : the candle dated at that time (same convention as the candles of the instruments) or the
+ * last candle ended before it. An intraday time uses the close of the previous day, the daily candle of the day is
+ * not closed yet. The rates of a pair are copied in primitive arrays and browsed with a cursor, the
+ * simulation time going forward. A pair with no series is inverted or triangulated through a pivot currency (USD first,
+ * then EUR, then the others), the cross rates are cached for the current timestamp.
+ * <p> This class is not thread safe, there is one converter per simulation.
+ * @author JQUANT TEAM
+ * @see org.jquant.portfolio.Portfolio#setFxConverter(FxConverter)
+ */
+public class FxConverter {
+
+	/** logger */
+	private static final Logger logger = Logger.getLogger(FxConverter.class);
+
+	private static final Currency[] CURRENCIES = Currency.values();
+
+	private static final int NB_CURRENCIES = CURRENCIES.length;
+
+	/**
+	 * Rates of a quoted pair
+	 */
+	private static final class Pair {
+
+		private final long[] times;
+
+		/**
+		 * End of the period of each candle : its close is known from then
+		 */
+		private final long[] ends;
+
+		private final double[] rates;
+
+		private int cursor;
+
+		Pair(long[] times, long[] ends, double[] rates) {
+			this.times = times;
+			this.ends = ends;
+			this.rates = rates;
+		}
+
+		/**
+		 * @return the last rate known at the time, NaN if none
+		 */
+		double getRate(long time){
+			if (times.length == 0 || time < times[0]){
+				return Double.NaN;
+			}
+			if (times[cursor] > time){
+				// back in time
+				int i = Arrays.binarySearch(times, time);
+				cursor = i >= 0 ? i : -i - 2;
+			}else {
+				while (cursor + 1 < times.length && times[cursor + 1] <= time){
+					cursor++;
+				}
+			}
+			if (times[cursor] == time || ends[cursor] <= time){
+				return rates[cursor];
+			}
+			// the candle is not closed at that time
+			return cursor > 0 ? rates[cursor - 1] : Double.NaN;
+		}
+	}
+
+	/**
+	 * index of the pair base/quote in pairs by base.ordinal() * NB_CURRENCIES + quote.ordinal(), -1 if none
+	 */
+	private final int[] pairIndex = new int[NB_CURRENCIES * NB_CURRENCIES];
+
+	private final List<Pair> pairs = new ArrayList<Pair>();
+
+	/**
+	 * Pivot currencies of the triangulation, by preference
+	 */
+	private final List<Currency> pivots = new ArrayList<Currency>();
+
+	/**
+	 * Rates of the cached timestamp, NaN if not computed yet
+	 */
+	private final double[] cache = new double[NB_CURRENCIES * NB_CURRENCIES];
+
+	private long cacheTime = Long.MIN_VALUE;
+
+	public FxConverter() {
+		Arrays.fill(pairIndex, -1);
+		Arrays.fill(cache, Double.NaN);
+		pivots.add(Currency.USD);
+		pivots.add(Currency.EUR);
+	}
+
+	/**
+	 * Use the FOREX instruments of the MarketManager (code BASEQUOTE, currency QUOTE)
+	 * @param marketMgr the {@link MarketManager}
+	 */
+	public FxConverter(MarketManager marketMgr) {
+		this();
+		for (InstrumentId instrument : marketMgr.getInstruments()){
+			if (InstrumentType.FOREX.equals(instrument.getType())){
+				Currency base = getBaseCurrency(instrument);
+				Currency quote = instrument.getCurrency();
+				if (base == null || quote == null){
+					logger.warn("Unknown currencies of the pair " + instrument.getCode() + ", not used for the conversions");
+					continue;
+				}
+				addPair(base, quote, marketMgr.getCandleSerie(instrument));
+			}
+		}
+	}
+
+	private static Currency getBaseCurrency(InstrumentId instrument){
+		String code = instrument.getCode();
+		if (code == null || code.length() != 6){
+			return null;
+		}
+		try {
+			return Currency.valueOf(code.substring(0, 3));
+		}catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 *
+	 * @param base the base currency (EUR of EURUSD)
+	 * @param quote the quote currency (USD of EURUSD)
+	 * @param serie the price of 1 base in quote
+	 */
+	public void addPair(Currency base, Currency quote, CandleSerie serie){
+		Candle[] candles = serie.toArray();
+		long[] times = new long[candles.length];
+		long[] ends = new long[candles.length];
+		double[] rates = new double[candles.length];
+		for (int i = 0; i < candles.length; i++){
+			DateTime date = candles[i].getDate();
+			times[i] = date.getMillis();
+			ends[i] = candles[i].getPeriod() == null ? times[i] : date.plus(candles[i].getPeriod()).getMillis();
+			rates[i] = candles[i].getClose();
+		}
+		pairIndex[base.ordinal() * NB_CURRENCIES + quote.ordinal()] = pairs.size();
+		pairs.add(new Pair(times, ends, rates));
+		for (Currency c : new Currency[]{base, quote}){
+			if (!pivots.contains(c)){
+				pivots.add(c);
+			}
+		}
+		cacheTime = Long.MIN_VALUE;
+	}
+
+	/**
+	 *
+	 * @param from a {@link Currency}
+	 * @param to a {@link Currency}
+	 * @param time a {@link DateTime}
+	 * @return the price of 1 <b>from</b> in <b>to</b> at the time
+	 * @throws IllegalStateException if the rate is unknown
+	 */
+	public double getRate(Currency from, Currency to, DateTime time){
+		return getRate(from, to, time.getMillis());
+	}
+
+	/**
+	 *
+	 * @param from a {@link Currency}
+	 * @param to a {@link Currency}
+	 * @param time a {@link DateTime}
+	 * @return <code>true</code> if the rate is known at the time (directly, inverted or triangulated)
+	 */
+	public boolean hasRate(Currency from, Currency to, DateTime time){
+		return !Double.isNaN(findRate(from, to, time.getMillis()));
+	}
+
+	/**
+	 *
+	 * @param amount an amount in <b>from</b>
+	 * @param from a {@link Currency}
+	 * @param to a {@link Currency}
+	 * @param time a {@link DateTime}
+	 * @return the amount in <b>to</b>
+	 * @throws IllegalStateException if the rate is unknown
+	 */
+	public double convert(double amount, Currency from, Currency to, DateTime time){
+		return from == to ? amount : amount * getRate(from, to, time.getMillis());
+	}
+
+	private double getRate(Currency from, Currency to, long time){
+		double rate = findRate(from, to, time);
+		if (Double.isNaN(rate)){
+			throw new IllegalStateException("No exchange rate " + from + "/" + to + " on " + new DateTime(time));
+		}
+		return rate;
+	}
+
+	/**
+	 * @return the rate, NaN if unknown
+	 */
+	private double findRate(Currency from, Currency to, long time){
+		if (from == to){
+			return 1;
+		}
+		if (time != cacheTime){
+			Arrays.fill(cache, Double.NaN);
+			cacheTime = time;
+		}
+		int key = from.ordinal() * NB_CURRENCIES + to.ordinal();
+		double rate = cache[key];
+		if (Double.isNaN(rate)){
+			rate = getDirectRate(from, to, time);
+			for (int i = 0; Double.isNaN(rate) && i < pivots.size(); i++){
+				Currency pivot = pivots.get(i);
+				if (pivot != from && pivot != to){
+					rate = getDirectRate(from, pivot, time) * getDirectRate(pivot, to, time);
+				}
+			}
+			if (Double.isNaN(rate)){
+				return rate;
+			}
+			cache[key] = rate;
+			cache[to.ordinal() * NB_CURRENCIES + from.ordinal()] = 1 / rate;
+		}
+		return rate;
+	}
+
+	/**
+	 * @return the rate of the pair or of the inverse pair, NaN if none
+	 */
+	private double getDirectRate(Currency from, Currency to, long time){
+		int index = pairIndex[from.ordinal() * NB_CURRENCIES + to.ordinal()];
+		if (index >= 0){
+			return pairs.get(index).getRate(time);
+		}
+		index = pairIndex[to.ordinal() * NB_CURRENCIES + from.ordinal()];
+		if (index >= 0){
+			return 1 / pairs.get(index).getRate(time);
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 *
+	 * @return number of quoted pairs
+	 */
+	public int size(){
+		return pairs.size();
+	}
+
+	/**
+	 * Digest of the pairs (currencies, times and rates) and of the pivot currencies
+	 * @param key the {@link ResultKey} of a simulation
+	 */
+	public void addTo(ResultKey key){
+		key.add((long) pairs.size());
+		for (int i = 0; i < pairIndex.length; i++){
+			if (pairIndex[i] < 0){
+				continue;
+			}
+			Pair pair = pairs.get(pairIndex[i]);
+			key.add(CURRENCIES[i / NB_CURRENCIES].name()).add(CURRENCIES[i % NB_CURRENCIES].name());
+			key.add((long) pair.times.length);
+			for (int j = 0; j < pair.times.length; j++){
+				key.add(pair.times[j]).add(pair.ends[j]).add(pair.rates[j]);
+			}
+		}
+		for (Currency pivot : pivots){
+			key.add(pivot.name());
+		}
+	}
+}
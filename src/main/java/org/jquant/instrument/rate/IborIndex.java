@@ -27,24 +27,49 @@ public abstract class IborIndex extends InterestRateIndex{
 		return RateType.IBOR;
 	}
 	
-	//TODO : peut etre  deplacé vers un "rateHelper"
-//	public InterestRateIndex getZeroCoupon() {
-//		InterestRateIndex zeroCoupon = null;
-//		// get the maturity date
-//		DateTime valueDate=getValueDate(this.fixingDate);
-//		DateTime maturityDate=getMaturityDate(valueDate);
-//		Actual365Fixed actual365Fixed = new Actual365Fixed();
-//		
-//		
-//		// get the daycount fraction
-//		double dayCountFraction = dayCounter.calculateYearFraction(valueDate, maturityDate);
-//		double annualYearFraction = actual365Fixed.calculateYearFraction(valueDate, maturityDate);
-//		
-//		//MODIFY IT : take the convention ISDA or ISMA or AFB
-//		double zc = java.lang.Math.pow(1+rate*dayCountFraction,1/annualYearFraction)-1;
-//		zeroCoupon = new InterestRateIndex(zc,annualYearFraction,actual365Fixed);
-//		return zeroCoupon;
-//	}
+	/**
+	 * Zero coupon conversion of the money market rate, annual compounding on ACT/365 year fractions
+	 * @return the annually compounded zero coupon rate
+	 * @see #getZeroCouponRate(DayCounter)
+	 */
+	public double getZeroCouponRate() {
+		return getZeroCouponRate(Actual365Fixed.INSTANCE);
+	}
+	
+	/**
+	 * Zero coupon conversion of the money market rate
+	 * <p> ZC = (1 + rate x dcf)<sup>1/t</sup> - 1 with dcf the year fraction in the index convention and t the year fraction 
+	 * between the value date and the maturity date in the zero coupon convention (annual compounding).
+	 * @param zeroCouponCounter the {@link DayCounter} of the zero coupon rate (ACT/365, ACT/ACT ISDA...)
+	 * @return the annually compounded zero coupon rate
+	 */
+	public double getZeroCouponRate(DayCounter zeroCouponCounter) {
+		// get the maturity date
+		DateTime valueDate=getValueDate(this.fixingDate);
+		DateTime maturityDate=getMaturityDate(valueDate);
+		
+		// get the daycount fraction
+		double dayCountFraction = dayCounter.calculateYearFraction(valueDate, maturityDate);
+		double zeroCouponFraction = zeroCouponCounter.calculateYearFraction(valueDate, maturityDate);
+		
+		return java.lang.Math.pow(1+rate*dayCountFraction,1/zeroCouponFraction)-1;
+	}
+	
+	/**
+	 * 
+	 * @return the {@link DayCounter} of the index 
+	 */
+	public DayCounter getDayCounter() {
+		return dayCounter;
+	}
+
+	/**
+	 * 
+	 * @return number of days between fixing date and value date 
+	 */
+	public int getNbSettlementDays() {
+		return nbSettlementDays;
+	}
 	
 	public MarketIdentifierCode getMICMarketPlace() {
 		MarketIdentifierCode micMarketPlace=null;
@@ -63,8 +88,7 @@ public abstract class IborIndex extends InterestRateIndex{
 	}
 	
 	public double getTimeToMaturity() {
-		Actual365Fixed actual365Fixed = new Actual365Fixed();
-		return actual365Fixed.calculateYearFraction(this.fixingDate,getMaturityDate(getValueDate(this.fixingDate)));
+		return Actual365Fixed.INSTANCE.calculateYearFraction(this.fixingDate,getMaturityDate(getValueDate(this.fixingDate)));
 	}
 	
 	
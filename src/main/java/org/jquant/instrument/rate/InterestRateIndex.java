@@ -53,5 +53,17 @@ abstract public class InterestRateIndex {
 		return rate;
 	}
 
+	public Currency getCurrency() {
+		return currency;
+	}
+
+	/**
+	 * 
+	 * @return the date of the quotation (SPOT)
+	 */
+	public DateTime getFixingDate() {
+		return fixingDate;
+	}
+
 	
 }
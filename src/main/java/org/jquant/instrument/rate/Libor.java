@@ -9,7 +9,7 @@ import org.jquant.time.daycounter.Actual365Fixed;
 public class Libor extends IborIndex {
 
 	public Libor(DateTime fixingDate, double rate, Currency currency, Period term) {
-		super(fixingDate, rate, currency, term, new Actual365Fixed(),0);
+		super(fixingDate, rate, currency, term, Actual365Fixed.INSTANCE,0);
 	}
 
 }
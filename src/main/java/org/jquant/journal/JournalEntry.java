@@ -0,0 +1,167 @@
+package org.jquant.journal;
+
+import org.joda.time.DateTime;
+import org.jquant.model.InstrumentId;
+import org.jquant.order.Order;
+import org.jquant.order.Order.OrderSide;
+import org.jquant.order.OrderStatus;
+
+/**
+ * A record of the {@link TradeJournal}
+ * <p> The entries of the ring buffer are preallocated and overwritten : an entry read from the journal file is a copy.
+ * @author JQUANT TEAM
+ */
+public final class JournalEntry {
+
+	/**
+	 * Kind of the record
+	 */
+	public enum EntryType {
+		/**
+		 * An order sent to the order manager
+		 */
+		ORDER_SENT,
+		/**
+		 * A (partial) execution of an order
+		 */
+		FILL,
+		/**
+		 * A cancelled order
+		 */
+		ORDER_CANCELLED
+	}
+
+	private EntryType type;
+
+	private DateTime time;
+
+	private InstrumentId instrument;
+
+	private OrderSide side;
+
+	private OrderStatus status;
+
+	private double quantity;
+
+	private double price;
+
+	private double commission;
+
+	private double filledQuantity;
+
+	private String text;
+
+	/**
+	 * Copy the state of the order
+	 */
+	void set(EntryType type, Order order){
+		this.type = type;
+		this.instrument = order.getInstrument();
+		this.side = order.getSide();
+		this.status = order.getStatus();
+		this.text = order.getText();
+		this.filledQuantity = order.getFilledQuantity();
+		if (EntryType.FILL.equals(type)){
+			this.time = order.getExecutionTime();
+			this.quantity = order.getLastFilledQuantity();
+			this.price = order.getLastFilledPrice();
+			this.commission = order.getLastCommission();
+		}else {
+			this.time = order.getCreationTime();
+			this.quantity = order.getQuantity();
+			this.price = Double.NaN;
+			this.commission = 0;
+		}
+	}
+
+	void set(EntryType type, DateTime time, InstrumentId instrument, OrderSide side, OrderStatus status, double quantity, double price, double commission, double filledQuantity, String text){
+		this.type = type;
+		this.time = time;
+		this.instrument = instrument;
+		this.side = side;
+		this.status = status;
+		this.quantity = quantity;
+		this.price = price;
+		this.commission = commission;
+		this.filledQuantity = filledQuantity;
+		this.text = text;
+	}
+
+	/**
+	 * Release the references of a written entry
+	 */
+	void clear(){
+		time = null;
+		instrument = null;
+		text = null;
+	}
+
+	public EntryType getType() {
+		return type;
+	}
+
+	/**
+	 *
+	 * @return execution time of a {@link EntryType#FILL}, creation time of the order otherwise
+	 */
+	public DateTime getTime() {
+		return time;
+	}
+
+	public InstrumentId getInstrument() {
+		return instrument;
+	}
+
+	public OrderSide getSide() {
+		return side;
+	}
+
+	/**
+	 *
+	 * @return status of the order after the event
+	 */
+	public OrderStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 *
+	 * @return quantity of the fill, quantity of the order otherwise
+	 */
+	public double getQuantity() {
+		return quantity;
+	}
+
+	/**
+	 *
+	 * @return price of the fill, {@link Double#NaN} otherwise
+	 */
+	public double getPrice() {
+		return price;
+	}
+
+	/**
+	 *
+	 * @return fees of the fill
+	 */
+	public double getCommission() {
+		return commission;
+	}
+
+	/**
+	 *
+	 * @return total filled quantity of the order
+	 */
+	public double getFilledQuantity() {
+		return filledQuantity;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	@Override
+	public String toString() {
+		return type + " " + side + " " + quantity + " " + (instrument != null ? instrument.getCode() : null) + " @ " + price + " on " + time + " (" + text + ")";
+	}
+}
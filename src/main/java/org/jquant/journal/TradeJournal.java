@@ -0,0 +1,287 @@
+package org.jquant.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Logger;
+import org.jquant.checkpoint.CheckpointInput;
+import org.jquant.checkpoint.CheckpointOutput;
+import org.jquant.journal.JournalEntry.EntryType;
+import org.jquant.order.Order;
+import org.jquant.order.Order.OrderSide;
+import org.jquant.order.OrderManager;
+import org.jquant.order.OrderStatus;
+
+/**
+ * Binary journal of the orders and of the fills, written on a background thread
+ * <p>
+ * The simulation thread copies the state of the order in a preallocated entry of a ring buffer and goes on : no string
+ * is formatted and nothing is allocated on its side. A writer thread drains the ring buffer into the file. When the
+ * buffer is full the simulation waits for the writer, no event is lost. Without a journal (the default of the
+ * {@link OrderManager}) the cost is a null check.
+ * <p>
+ * File format : the magic number, the version, then one record per entry (the type, then the fields of the
+ * {@link JournalEntry} with the {@link CheckpointOutput} encoding) and a 0 after the last one.
+ * <p> The entries must be published by a single thread.
+ * @author JQUANT TEAM
+ * @see OrderManager#setJournal(TradeJournal)
+ */
+public class TradeJournal implements Closeable {
+
+	/** logger */
+	private static final Logger logger = Logger.getLogger(TradeJournal.class);
+
+	/**
+	 * "JQTJ"
+	 */
+	static final int MAGIC = 0x4A51544A;
+
+	static final int VERSION = 1;
+
+	private static final int END = 0;
+
+	private static final int DEFAULT_CAPACITY = 4096;
+
+	/**
+	 * Wait of the writer on an empty buffer (and of the simulation on a full one)
+	 */
+	private static final long PARK_NANOS = 100000L;
+
+	private final File file;
+
+	private final JournalEntry[] ring;
+
+	private final int mask;
+
+	/**
+	 * Sequence of the next entry to publish (simulation thread)
+	 */
+	private final AtomicLong head = new AtomicLong();
+
+	/**
+	 * Sequence of the next entry to write (writer thread)
+	 */
+	private final AtomicLong tail = new AtomicLong();
+
+	private final CheckpointOutput out;
+
+	private final Thread writer;
+
+	private volatile boolean closed;
+
+	private volatile IOException failure;
+
+	/**
+	 * Open a journal with a buffer of 4096 entries
+	 * @param file the journal file (overwritten)
+	 * @throws IOException
+	 */
+	public TradeJournal(File file) throws IOException {
+		this(file, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 *
+	 * @param file the journal file (overwritten)
+	 * @param capacity number of entries of the ring buffer (rounded up to a power of 2)
+	 * @throws IOException
+	 */
+	public TradeJournal(File file, int capacity) throws IOException {
+		if (capacity <= 0){
+			throw new IllegalArgumentException("The capacity of the journal must be positive : " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity){
+			size <<= 1;
+		}
+		this.file = file;
+		this.ring = new JournalEntry[size];
+		for (int i = 0; i < size; i++){
+			ring[i] = new JournalEntry();
+		}
+		this.mask = size - 1;
+		this.out = new CheckpointOutput(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "TradeJournal-" + file.getName());
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 *
+	 * @param order an {@link Order} sent to the order manager
+	 */
+	public void onOrderSent(Order order){
+		publish(EntryType.ORDER_SENT, order);
+	}
+
+	/**
+	 *
+	 * @param order an {@link Order} just (partially) filled
+	 */
+	public void onFill(Order order){
+		publish(EntryType.FILL, order);
+	}
+
+	/**
+	 *
+	 * @param order a cancelled {@link Order}
+	 */
+	public void onOrderCancelled(Order order){
+		publish(EntryType.ORDER_CANCELLED, order);
+	}
+
+	private void publish(EntryType type, Order order){
+		if (closed){
+			throw new IllegalStateException("The journal " + file + " is closed");
+		}
+		long seq = head.get();
+		while (seq - tail.get() >= ring.length){
+			if (failure != null){
+				// the writer is dead : the entries are dropped
+				return;
+			}
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+		ring[(int) seq & mask].set(type, order);
+		head.lazySet(seq + 1);
+	}
+
+	/**
+	 * Writer thread
+	 */
+	private void drain(){
+		try {
+			while (true){
+				long t = tail.get();
+				long h = head.get();
+				if (t == h){
+					if (closed){
+						// the last entries may have been published between the read of head and the close
+						if (head.get() == t){
+							break;
+						}
+						continue;
+					}
+					out.flush();
+					LockSupport.parkNanos(PARK_NANOS);
+					continue;
+				}
+				for (; t < h; t++){
+					JournalEntry e = ring[(int) t & mask];
+					write(e);
+					e.clear();
+					tail.lazySet(t + 1);
+				}
+			}
+			out.writeByte(END);
+			out.close();
+		}catch (IOException e) {
+			logger.error("Can not write the trade journal " + file + ", the next entries are lost", e);
+			failure = e;
+			try {
+				out.close();
+			}catch (IOException ignored) {
+				// already failed
+			}
+		}
+	}
+
+	private void write(JournalEntry e) throws IOException{
+		out.writeByte(e.getType().ordinal() + 1);
+		out.writeDateTime(e.getTime());
+		out.writeInstrument(e.getInstrument());
+		out.writeEnum(e.getSide());
+		out.writeEnum(e.getStatus());
+		out.writeDouble(e.getQuantity());
+		out.writeDouble(e.getPrice());
+		out.writeDouble(e.getCommission());
+		out.writeDouble(e.getFilledQuantity());
+		out.writeString(e.getText());
+	}
+
+	/**
+	 *
+	 * @return number of entries published and not written yet
+	 */
+	public int getPending(){
+		return (int) (head.get() - tail.get());
+	}
+
+	/**
+	 * Write the pending entries and close the file
+	 * @throws IOException if the journal could not be written
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed){
+			return;
+		}
+		closed = true;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		}catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while closing the journal " + file, e);
+		}
+		if (failure != null){
+			throw failure;
+		}
+	}
+
+	/**
+	 * Read a journal, a truncated journal (crash of the writer) is read up to its last complete entry
+	 * @param file a journal file
+	 * @return the {@link JournalEntry}s in their order
+	 * @throws IOException
+	 */
+	public static List<JournalEntry> read(File file) throws IOException{
+		CheckpointInput in = new CheckpointInput(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+		try {
+			if (in.readInt() != MAGIC){
+				throw new IOException("Not a trade journal : " + file);
+			}
+			int version = in.readInt();
+			if (version != VERSION){
+				throw new IOException("Unsupported trade journal version " + version);
+			}
+			EntryType[] types = EntryType.values();
+			List<JournalEntry> entries = new ArrayList<JournalEntry>();
+			try {
+				int type;
+				while ((type = in.readUnsignedByte()) != END){
+					if (type > types.length){
+						throw new IOException("Corrupted trade journal " + file + " after " + entries.size() + " entries");
+					}
+					JournalEntry e = new JournalEntry();
+					e.set(types[type - 1], in.readDateTime(), in.readInstrument(), in.readEnum(OrderSide.class), in.readEnum(OrderStatus.class),
+							in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(), in.readString());
+					entries.add(e);
+				}
+			}catch (EOFException e) {
+				logger.warn("Truncated trade journal " + file + " : " + entries.size() + " entries read");
+			}
+			return entries;
+		}finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,248 @@
+package org.jquant.metrics;
+
+import java.lang.management.ManagementFactory;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Counters and timings of a back test, collected by the {@link org.jquant.strategy.StrategyRunner} during the replay
+ * <p>
+ * The time of each {@link Phase} of the dispatch is recorded in a {@link Histogram}, along with the number of candles
+ * (bars), quotes and events, the number of pending orders scanned and triggered by the order manager and the bytes allocated
+ * by the simulation thread (when the JVM supports it). The metrics are always on : the overhead is a couple of
+ * {@link System#nanoTime()} per phase. They are read with the getters or dumped with {@link #toString()} at the end of the run.
+ * <p> This class is not thread safe, there is one instance per runner.
+ * @author JQUANT TEAM
+ */
+public final class BacktestMetrics {
+
+	/** logger */
+	private static final Logger logger = Logger.getLogger(BacktestMetrics.class);
+
+	/**
+	 * The phases of the dispatch of the events
+	 */
+	public enum Phase {
+		/**
+		 * Grow of the candle series and cross-sectional update of the universes (market slice)
+		 */
+		SLICE,
+		/**
+		 * onCandleOpen of the strategies
+		 */
+		STRATEGY_CANDLE_OPEN,
+		/**
+		 * onCandleOpen of the order manager (orders at the open)
+		 */
+		ORDER_CANDLE_OPEN,
+		/**
+		 * onCandle of the order manager (intra day orders)
+		 */
+		ORDER_CANDLE,
+		/**
+		 * onCandle of the strategies
+		 */
+		STRATEGY_CANDLE,
+		/**
+		 * onQuote of the order manager and of the strategies
+		 */
+		QUOTE,
+		/**
+		 * Timers of the strategies
+		 */
+		TIMER,
+		/**
+		 * Market on close orders of the end of the day
+		 */
+		END_OF_DAY_ORDERS,
+		/**
+		 * Mark to market of the global portfolio
+		 */
+		MARK_TO_MARKET
+	}
+
+	private static final com.sun.management.ThreadMXBean ALLOCATIONS = getAllocationBean();
+
+	private final Histogram[] phases = new Histogram[Phase.values().length];
+
+	private long nbBars;
+
+	private long nbQuotes;
+
+	private long nbEvents;
+
+	private long nbOrdersScanned;
+
+	private long nbOrdersTriggered;
+
+	private long startTime;
+
+	private long elapsed;
+
+	private long startAllocated;
+
+	private long allocated = -1;
+
+	public BacktestMetrics() {
+		for (int i = 0; i < phases.length; i++){
+			phases[i] = new Histogram();
+		}
+	}
+
+	/**
+	 * Reset the metrics and start the clock (and the allocation counter) of the current thread
+	 */
+	public void start(){
+		for (Histogram h : phases){
+			h.reset();
+		}
+		nbBars = 0;
+		nbQuotes = 0;
+		nbEvents = 0;
+		nbOrdersScanned = 0;
+		nbOrdersTriggered = 0;
+		elapsed = 0;
+		allocated = -1;
+		startAllocated = getThreadAllocatedBytes();
+		startTime = System.nanoTime();
+	}
+
+	/**
+	 * Stop the clock, on the thread of {@link #start()}
+	 */
+	public void stop(){
+		elapsed = System.nanoTime() - startTime;
+		long end = getThreadAllocatedBytes();
+		allocated = startAllocated >= 0 && end >= 0 ? end - startAllocated : -1;
+	}
+
+	/**
+	 *
+	 * @param phase a {@link Phase}
+	 * @param nanos duration of the phase
+	 */
+	public void record(Phase phase, long nanos){
+		phases[phase.ordinal()].record(nanos);
+	}
+
+	public void incrementBars(){
+		nbBars++;
+	}
+
+	public void incrementQuotes(){
+		nbQuotes++;
+	}
+
+	public void incrementEvents(){
+		nbEvents++;
+	}
+
+	/**
+	 *
+	 * @param scanned number of pending orders examined
+	 * @param triggered number of executions
+	 */
+	public void addOrders(long scanned, long triggered){
+		nbOrdersScanned += scanned;
+		nbOrdersTriggered += triggered;
+	}
+
+	/**
+	 *
+	 * @param phase a {@link Phase}
+	 * @return the {@link Histogram} of the durations of the phase
+	 */
+	public Histogram getPhase(Phase phase){
+		return phases[phase.ordinal()];
+	}
+
+	public long getNbBars() {
+		return nbBars;
+	}
+
+	public long getNbQuotes() {
+		return nbQuotes;
+	}
+
+	public long getNbEvents() {
+		return nbEvents;
+	}
+
+	public long getNbOrdersScanned() {
+		return nbOrdersScanned;
+	}
+
+	public long getNbOrdersTriggered() {
+		return nbOrdersTriggered;
+	}
+
+	/**
+	 *
+	 * @return duration of the run (nanoseconds)
+	 */
+	public long getElapsed() {
+		return elapsed;
+	}
+
+	/**
+	 *
+	 * @return candles dispatched per second of the run
+	 */
+	public double getBarsPerSecond(){
+		return elapsed > 0 ? nbBars / (elapsed / 1.0e9) : Double.NaN;
+	}
+
+	/**
+	 *
+	 * @return bytes allocated by the simulation thread during the run, -1 if the JVM does not measure it
+	 */
+	public long getAllocatedBytes() {
+		return allocated;
+	}
+
+	/**
+	 *
+	 * @return bytes allocated per candle, {@link Double#NaN} if unknown
+	 */
+	public double getAllocatedBytesPerBar(){
+		return allocated >= 0 && nbBars > 0 ? (double) allocated / nbBars : Double.NaN;
+	}
+
+	private static long getThreadAllocatedBytes(){
+		return ALLOCATIONS != null ? ALLOCATIONS.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+	}
+
+	private static com.sun.management.ThreadMXBean getAllocationBean(){
+		try {
+			java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+			if (bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()){
+				com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) bean;
+				allocations.setThreadAllocatedMemoryEnabled(true);
+				return allocations;
+			}
+		}catch (LinkageError e) {
+			logger.debug("Allocations per thread not supported by this JVM");
+		}catch (UnsupportedOperationException e) {
+			logger.debug("Allocations per thread not supported by this JVM");
+		}
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("Backtest metrics\n");
+		sb.append("  elapsed            ").append(String.format("%.3f", elapsed / 1.0e9)).append("s\n");
+		sb.append("  events             ").append(nbEvents).append('\n');
+		sb.append("  bars               ").append(nbBars).append(" (").append(String.format("%.0f", getBarsPerSecond())).append(" /s)\n");
+		sb.append("  quotes             ").append(nbQuotes).append('\n');
+		sb.append("  orders scanned     ").append(nbOrdersScanned).append(", triggered ").append(nbOrdersTriggered).append('\n');
+		sb.append("  allocated          ").append(allocated >= 0 ? allocated + " bytes (" + String.format("%.0f", getAllocatedBytesPerBar()) + " /bar)" : "n/a").append('\n');
+		for (Phase p : Phase.values()){
+			Histogram h = phases[p.ordinal()];
+			if (h.getCount() > 0){
+				sb.append("  ").append(String.format("%-19s", p.name().toLowerCase())).append(h).append('\n');
+			}
+		}
+		return sb.toString();
+	}
+}
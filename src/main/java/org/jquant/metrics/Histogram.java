@@ -0,0 +1,98 @@
+package org.jquant.metrics;
+
+/**
+ * Distribution of durations in nanoseconds, in buckets of powers of two
+ * <p> Recording a value is a few arithmetic operations with no allocation : the histogram can stay on in the hot path.
+ * The percentiles are the upper bounds of the buckets (at most a factor 2 above the true value). This class is
+ * not thread safe, there is one histogram per simulation thread.
+ * @author JQUANT TEAM
+ */
+public final class Histogram {
+
+	private static final int NB_BUCKETS = 64;
+
+	/**
+	 * bucket b counts the values in [2^(b-1), 2^b[ (bucket 0 counts 0)
+	 */
+	private final long[] buckets = new long[NB_BUCKETS];
+
+	private long count;
+
+	private long total;
+
+	private long max;
+
+	/**
+	 *
+	 * @param nanos a duration in nanoseconds
+	 */
+	public void record(long nanos){
+		if (nanos < 0){
+			nanos = 0;
+		}
+		buckets[NB_BUCKETS - Long.numberOfLeadingZeros(nanos)]++;
+		count++;
+		total += nanos;
+		if (nanos > max){
+			max = nanos;
+		}
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 *
+	 * @return sum of the recorded durations (nanoseconds)
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 *
+	 * @return mean of the recorded durations (nanoseconds), {@link Double#NaN} if empty
+	 */
+	public double getMean() {
+		return count > 0 ? (double) total / count : Double.NaN;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 *
+	 * @param p a probability in [0,1]
+	 * @return upper bound of the p-quantile of the recorded durations (nanoseconds), 0 if empty
+	 */
+	public long getPercentile(double p){
+		if (p < 0 || p > 1){
+			throw new IllegalArgumentException("Probability out of [0,1] : " + p);
+		}
+		long rank = (long) Math.ceil(p * count);
+		long seen = 0;
+		for (int b = 0; b < NB_BUCKETS; b++){
+			seen += buckets[b];
+			if (seen >= rank && seen > 0){
+				return b == 0 ? 0 : Math.min(max, (1L << b) - 1);
+			}
+		}
+		return max;
+	}
+
+	public void reset(){
+		for (int b = 0; b < NB_BUCKETS; b++){
+			buckets[b] = 0;
+		}
+		count = 0;
+		total = 0;
+		max = 0;
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + count + ", mean=" + String.format("%.0f", getMean()) + "ns, p50=" + getPercentile(0.5) + "ns, p99=" + getPercentile(0.99) + "ns, max=" + max + "ns, total=" + String.format("%.3f", total / 1.0e9) + "s";
+	}
+}
@@ -68,10 +68,10 @@ public enum Currency implements Comparable<Currency> {
 		case AUD:
 		case CAD:
 		case NZD:
-			dayCounter = new Actual365Fixed();
+			dayCounter = Actual365Fixed.INSTANCE;
 			break;
 		default:
-			dayCounter = new Actual360();
+			dayCounter = Actual360.INSTANCE;
 		break;
 		}
 		
@@ -1,8 +1,12 @@
 package org.jquant.order;
 
+import java.util.Map;
+
+import org.joda.time.DateTime;
 import org.jquant.data.MarketManager;
 import org.jquant.model.InstrumentId;
 import org.jquant.portfolio.Portfolio;
+import org.jquant.serie.BBBA;
 import org.jquant.serie.Candle;
 import org.jquant.strategy.IStrategy;
 import org.jquant.strategy.Strategy;
@@ -46,13 +50,19 @@ public interface IOrderManager {
 	/**
 	 * This method is called when the Order is Filled by the Execution Provider 
 	 * @param order the {@link Order} that has been Filled
+	 * @deprecated the internal callback of the back test paper broker, the live brokers report their executions
+	 * with {@link org.jquant.execution.BrokerListener}
 	 */
+	@Deprecated
 	public void onOrderFilled(Order order);
 	
 	/**
 	 * This method is called when the Order is Cancelled 
 	 * @param order the {@link Order} that has been Cancelled
+	 * @deprecated the internal callback of the back test paper broker, the live brokers report their cancels
+	 * with {@link org.jquant.execution.BrokerListener}
 	 */
+	@Deprecated
 	public void onOrderCancelled(Order order);
 	
 	/**
@@ -70,4 +80,23 @@ public interface IOrderManager {
 	 * @param candle 
 	 */
 	public void onCandleOpen(InstrumentId instrument, Candle candle);
+	
+	/**
+	 * A new best bid / best ask is known for an instrument (QUOTE precision)
+	 * <p>
+	 * The pending orders of the instrument are executed on the quote : BUY orders at the ask, SELL orders at the bid
+	 * @param instrument an {@link InstrumentId}
+	 * @param quote a {@link BBBA}
+	 */
+	public void onQuote(InstrumentId instrument, BBBA quote);
+	
+	/**
+	 * The trading day is over 
+	 * <p>
+	 * used for the Market On Close Orders 
+	 * @param day the trading day
+	 * @param lastCandles the last known candle of each instrument
+	 * @see MarketOnCloseOrder
+	 */
+	public void onEndOfDay(DateTime day, Map<InstrumentId, Candle> lastCandles);
 }
@@ -0,0 +1,25 @@
+package org.jquant.order;
+
+import org.joda.time.DateTime;
+import org.jquant.model.InstrumentId;
+
+/**
+ * An order executed at the closing price of the trading day (MOC)
+ * <p>
+ * In simulation mode the order is filled at the close of the last candle of the day, when the trading day ends :
+ * with intraday candles it is the close of the last minute / tick of the day, not the close of the next candle.
+ * If the instrument did not trade during the day the order stays pending until the next close.
+ * @author JQUANT TEAM
+ * @see IOrderManager#onEndOfDay(DateTime, java.util.Map)
+ */
+public class MarketOnCloseOrder extends Order {
+
+	public MarketOnCloseOrder(OrderSide side, InstrumentId instrument, double quantity, String text) {
+		super(side, instrument, quantity, text);
+	}
+
+	public MarketOnCloseOrder(OrderSide side, InstrumentId instrument, double quantity, String text, DateTime created) {
+		super(side, instrument, quantity, text, created);
+	}
+
+}
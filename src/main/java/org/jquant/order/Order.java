@@ -23,6 +23,14 @@ public class Order {
 	private double filledPrice;
 	
 	private double filledQuantity;
+	
+	private double lastFilledPrice;
+	
+	private double lastFilledQuantity;
+	
+	private double commission;
+	
+	private double lastCommission;
 
 	private final String text;
 	
@@ -86,7 +94,7 @@ public class Order {
 
 	/**
 	 * 
-	 * @return The price @ which the order was filled
+	 * @return The (average) price @ which the order was filled
 	 */
 	public double getFilledPrice() {
 		return filledPrice;
@@ -96,6 +104,79 @@ public class Order {
 		this.filledPrice = filledPrice;
 	}
 
+	/**
+	 * Record an execution (partial or complete) of the order
+	 * @param quantity executed quantity
+	 * @param price execution price
+	 * @param fees fees of the execution
+	 * @param time {@link DateTime} of the execution
+	 */
+	public void addFill(double quantity, double price, double fees, DateTime time) {
+		boolean complete = quantity >= getRemainingQuantity();
+		double total = complete ? this.quantity : filledQuantity + quantity;
+		// average price of the executions
+		this.filledPrice = (filledPrice * filledQuantity + price * quantity) / (filledQuantity + quantity);
+		this.filledQuantity = total;
+		this.lastFilledPrice = price;
+		this.lastFilledQuantity = quantity;
+		this.commission += fees;
+		this.lastCommission = fees;
+		this.executionTime = time;
+		this.status = complete ? OrderStatus.FILLED : OrderStatus.PARTIALLY_FILLED;
+	}
+	
+	/**
+	 * Restore the executions of a checkpoint
+	 */
+	void restoreFills(double filledQuantity, double filledPrice, double lastFilledQuantity, double lastFilledPrice, double commission, double lastCommission) {
+		this.filledQuantity = filledQuantity;
+		this.filledPrice = filledPrice;
+		this.lastFilledQuantity = lastFilledQuantity;
+		this.lastFilledPrice = lastFilledPrice;
+		this.commission = commission;
+		this.lastCommission = lastCommission;
+	}
+	
+	/**
+	 * 
+	 * @return The quantity that remains to be filled 
+	 */
+	public double getRemainingQuantity() {
+		return quantity - filledQuantity;
+	}
+	
+	/**
+	 * 
+	 * @return The quantity of the last execution 
+	 */
+	public double getLastFilledQuantity() {
+		return lastFilledQuantity;
+	}
+	
+	/**
+	 * 
+	 * @return The price of the last execution 
+	 */
+	public double getLastFilledPrice() {
+		return lastFilledPrice;
+	}
+	
+	/**
+	 * 
+	 * @return The fees of all the executions 
+	 */
+	public double getCommission() {
+		return commission;
+	}
+	
+	/**
+	 * 
+	 * @return The fees of the last execution 
+	 */
+	public double getLastCommission() {
+		return lastCommission;
+	}
+
 	/**
 	 * A comment alongside the Order
 	 * @return A {@link String} 
@@ -1,20 +1,34 @@
 package org.jquant.order;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
+import org.jquant.checkpoint.CheckpointInput;
+import org.jquant.checkpoint.CheckpointOutput;
+import org.jquant.checkpoint.Checkpointable;
 import org.jquant.data.MarketManager;
+import org.jquant.execution.Fill;
+import org.jquant.execution.FillModel;
+import org.jquant.journal.TradeJournal;
 import org.jquant.model.InstrumentId;
 import org.jquant.order.Order.OrderSide;
 import org.jquant.portfolio.Portfolio;
 import org.jquant.portfolio.PortfolioException;
 import org.jquant.portfolio.Trade;
 import org.jquant.portfolio.Trade.TradeSide;
+import org.jquant.serie.BBBA;
 import org.jquant.serie.Candle;
 import org.jquant.serie.Candle.CandleData;
 import org.jquant.strategy.IStrategy;
@@ -41,46 +55,79 @@ import org.springframework.stereotype.Service;
  * @author patrick.merheb
  */
 @Service
-public class OrderManager implements IOrderManager {
+public class OrderManager implements IOrderManager, Checkpointable {
 
 	/** logger */
 	private static final Logger logger = Logger.getLogger(OrderManager.class);
 	
+	private static final IStrategy[] NO_SUBSCRIBER = new IStrategy[0];
+	
 	private Portfolio ptf;
 	
 	private final List<IStrategy> strategies = new ArrayList<IStrategy>();
 	
+	/**
+	 * Routing of the fills : the strategies which market contains each instrument, built on the first fill after the 
+	 * last {@link #addStrategy(IStrategy)}
+	 */
+	private Map<InstrumentId, IStrategy[]> subscriptions;
+	
 	
 	@Autowired
 	private MarketManager mktManager;
 	
 	
+	/**
+	 * Execution costs and liquidity of the paper broker 
+	 */
+	private FillModel fillModel;
+	
 	/*
-	 * TODO: To move into ExecutionProvider
+	 * Reused for each execution 
 	 */
-	private double slippage;
+	private final Fill fill = new Fill();
 	
-	private double flatFee;
 	
-	private double sizeFee;
+	/*
+	 * Kinds of pending orders in a checkpoint 
+	 */
+	private static final int MARKET = 0;
+	private static final int MARKET_ON_CLOSE = 1;
+	private static final int LIMIT = 2;
+	private static final int STOP = 3;
+	private static final int TRAILING_STOP = 4;
 	
 	
 	private final Queue<Order> pendingOrders = new ConcurrentLinkedQueue<Order>();
 	
 	private final List<InstrumentId> instruments = new LinkedList<InstrumentId>();
 	
+	/*
+	 * Instruments with quotes : their orders are executed on the best bid / best ask, not on the candles 
+	 */
+	private final Set<InstrumentId> quotedInstruments = new HashSet<InstrumentId>();
+	
+	/*
+	 * Pending orders examined and executions, for the back test metrics 
+	 */
+	private long nbOrdersScanned;
+	
+	private long nbOrdersTriggered;
+	
+	/**
+	 * {@link #setJournal(TradeJournal)}
+	 */
+	private TradeJournal journal;
 	
 
 	
 	public OrderManager(){
-		
+		this.fillModel = new FillModel();
 	}
 	
 	public OrderManager(double slippage, double flatFee, double sizeFee) {
 		super();
-		this.slippage = slippage;
-		this.flatFee = flatFee;
-		this.sizeFee = sizeFee;
+		this.fillModel = new FillModel(slippage, flatFee, sizeFee);
 	}
 
 	/**
@@ -96,6 +143,10 @@ public class OrderManager implements IOrderManager {
 			
 			//Add the order in the 
 			pendingOrders.add(order);
+			
+			if (journal != null){
+				journal.onOrderSent(order);
+			}
 		}
 		return order;
 	}
@@ -108,7 +159,7 @@ public class OrderManager implements IOrderManager {
 	@Override
 	public void onCandle(InstrumentId instrument, Candle candle) {
 	
-		if (pendingOrders.size()>0 && instruments.contains(instrument)){
+		if (pendingOrders.size()>0 && instruments.contains(instrument) && !quotedInstruments.contains(instrument)){
 			/* I Have a candle for an instrument i 
 			 * What are the pending orders concerning i ? 
 			 * Do they triggers ? 
@@ -116,9 +167,12 @@ public class OrderManager implements IOrderManager {
 			 */
 
 			for (Order o : pendingOrders){
-
-				if (o.getInstrument().equals(instrument)){
-					if (o instanceof MarketOrder){
+				nbOrdersScanned++;
+				if (o.getInstrument().equals(instrument) && !isFilledOn(o, candle)){
+					if (OrderStatus.PARTIALLY_FILLED.equals(o.getStatus()) && (o instanceof StopOrder || o instanceof TrailingStopOrder)){
+						// triggered stop : the rest is a market order 
+						popAndSendOrder(o, candle.getOpen(), candle.getVolume(), candle.getDate());
+					}else if (o instanceof MarketOrder){
 						processMarketOrder((MarketOrder) o,candle);
 					}else if (o instanceof LimitOrder){
 						processLimitOrder((LimitOrder)o,candle);
@@ -138,8 +192,12 @@ public class OrderManager implements IOrderManager {
 		/**
 		 * Process OPEN MARKET orders only 
 		 */
+		if (quotedInstruments.contains(instrument)){
+			return;
+		}
 		for (Order o : pendingOrders){
-			if (o.getInstrument().equals(instrument)){
+			nbOrdersScanned++;
+			if (o.getInstrument().equals(instrument) && !isFilledOn(o, candle)){
 				if (o instanceof MarketOrder){
 					if (CandleData.OPEN.equals(((MarketOrder) o).getOhlc())){
 					processMarketOrder((MarketOrder) o,candle);
@@ -149,6 +207,81 @@ public class OrderManager implements IOrderManager {
 		}
 	}
 
+	/**
+	 * 
+	 * @return <code>true</code> if the order was partially filled on this candle (the volume of the candle is consumed)
+	 */
+	private boolean isFilledOn(Order o, Candle candle){
+		return OrderStatus.PARTIALLY_FILLED.equals(o.getStatus()) && candle.getDate().equals(o.getExecutionTime());
+	}
+	
+	@Override
+	public void onQuote(InstrumentId instrument, BBBA quote) {
+		
+		quotedInstruments.add(instrument);
+		if (pendingOrders.size()>0 && instruments.contains(instrument)){
+			
+			for (Order o : pendingOrders){
+				nbOrdersScanned++;
+				if (o.getInstrument().equals(instrument)){
+					// BUY at the ask, SELL at the bid 
+					double price = OrderSide.BUY.equals(o.getSide())?quote.getBestAsk():quote.getBestBid();
+					if (o instanceof MarketOrder){
+						popAndSendOrder(o, price, Double.NaN, quote.getDate());
+					}else if (o instanceof LimitOrder){
+						double limit = ((LimitOrder) o).getLimitPrice();
+						if (OrderSide.BUY.equals(o.getSide())?price<=limit:price>=limit){
+							popAndSendOrder(o, price, Double.NaN, quote.getDate());
+						}
+					}else if (o instanceof StopOrder){
+						double stop = ((StopOrder) o).getStopPrice();
+						if (OrderSide.BUY.equals(o.getSide())?price>=stop:price<=stop){
+							popAndSendOrder(o, price, Double.NaN, quote.getDate());
+						}
+					}else if (o instanceof TrailingStopOrder){
+						processTrailingStopOrder((TrailingStopOrder) o, price, quote.getDate());
+					}
+				}
+			}
+		}
+	}
+	
+	@Override
+	public void onEndOfDay(DateTime day, Map<InstrumentId, Candle> lastCandles) {
+		/**
+		 * Process MARKET ON CLOSE orders only 
+		 */
+		long dayStart = day.millisOfDay().withMinimumValue().getMillis();
+		for (Order o : pendingOrders){
+			nbOrdersScanned++;
+			if (o instanceof MarketOnCloseOrder){
+				Candle close = lastCandles.get(o.getInstrument());
+				// the instrument must have traded during the day 
+				if (close != null && close.getDate().getMillis() >= dayStart){
+					popAndSendOrder(o, close.getClose(), close.getVolume(), close.getDate());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Trailing stop on a traded price (quote) 
+	 */
+	private void processTrailingStopOrder(TrailingStopOrder o, double price, DateTime timestamp) {
+		
+		// Init trigger if needed  
+		if (o.getTrigger() == 0){
+			o.refresh(price);
+		}
+		
+		if (OrderSide.SELL.equals(o.getSide())?price<o.getTrigger():price>o.getTrigger()){
+			popAndSendOrder(o, price, Double.NaN, timestamp);
+		}else if (OrderSide.SELL.equals(o.getSide())?price>o.getWatermark():price<o.getWatermark()){
+			o.refresh(price);
+			o.setWatermark(price);
+		}
+	}
+
 	private void processTrailingStopOrder(TrailingStopOrder o, Candle candle) {
 		
 		// Init trigger if needed  
@@ -160,12 +293,12 @@ public class OrderManager implements IOrderManager {
 		if (OrderSide.SELL.equals(o.getSide())){
 			if (candle.getLow()<o.getTrigger()){
 				double execPrice = candle.getHigh()<o.getTrigger()?candle.getOpen():o.getTrigger();
-				popAndSendOrder(o, execPrice, candle.getDate());
+				popAndSendOrder(o, execPrice, candle.getVolume(), candle.getDate());
 			}
 		}else {
 			if (candle.getHigh()>o.getTrigger()){
 				double execPrice = candle.getLow()>o.getTrigger()?candle.getOpen():o.getTrigger();
-				popAndSendOrder(o, execPrice, candle.getDate());
+				popAndSendOrder(o, execPrice, candle.getVolume(), candle.getDate());
 			}
 		}
 		
@@ -189,14 +322,14 @@ public class OrderManager implements IOrderManager {
 				// Is there a gap or not 
 				double execPrice = candle.getHigh()<o.getStopPrice()?candle.getOpen():o.getStopPrice();
 				// trigger order 
-				popAndSendOrder(o,execPrice,  candle.getDate());
+				popAndSendOrder(o,execPrice, candle.getVolume(), candle.getDate());
 			}
 		}else {
 			// Stop loss on short pos
 			if (candle.getHigh()>o.getStopPrice()){
 				// Is there a gap or not 
 				double execPrice = candle.getLow()>o.getStopPrice()?candle.getOpen():o.getStopPrice();
-				popAndSendOrder(o,execPrice,  candle.getDate());
+				popAndSendOrder(o,execPrice, candle.getVolume(), candle.getDate());
 				
 			}
 		}
@@ -212,14 +345,14 @@ public class OrderManager implements IOrderManager {
 				// Is there a gap or not 
 				double execPrice = candle.getLow()>o.getLimitPrice()?candle.getOpen():o.getLimitPrice();
 				// trigger order 
-				popAndSendOrder(o,execPrice,  candle.getDate());
+				popAndSendOrder(o,execPrice, candle.getVolume(), candle.getDate());
 			}
 		}else {
 			// BUY Limit
 			if (candle.getLow()<o.getLimitPrice()){
 				// Is there a gap or not 
 				double execPrice = candle.getHigh()<o.getLimitPrice()?candle.getOpen():o.getLimitPrice();
-				popAndSendOrder(o,execPrice,  candle.getDate());
+				popAndSendOrder(o,execPrice, candle.getVolume(), candle.getDate());
 				
 			}
 		}
@@ -228,69 +361,79 @@ public class OrderManager implements IOrderManager {
 
 	private void processMarketOrder(MarketOrder o, Candle candle) {
 		
-		// Remove order from queue 
-		pendingOrders.remove(o);
-		// Remove instrument from perimeter
-		instruments.remove(o.getInstrument());
-		
 		CandleData data = CandleData.CLOSE;
 		
 		if (o.getOhlc()!= null){
 			data = o.getOhlc();
 		}
 		double execPrice = candle.getData(data);
-		sendMarketOrderToBroker(o, execPrice,candle.getDate());
+		popAndSendOrder(o, execPrice, candle.getVolume(), candle.getDate());
 		
 	}
 
 	/**
-	 * Remove the order from the Queue
-	 * <p>
-	 * Remove the instrument from the {@link OrderManager} scope 
-	 * <p>
 	 * Send the order to the Broker 
+	 * <p>
+	 * Once the order is completely filled : remove the order from the Queue and the instrument from the {@link OrderManager} scope 
 	 * @param o the {@link Order}
 	 * @param execPrice The price you wish the order to be executed
+	 * @param volume the available volume (candle volume), {@link Double#NaN} if unknown 
 	 * @param timestamp SIMULATION MODE ONLY 
 	 */
-	private void popAndSendOrder(Order o, double execPrice, DateTime timestamp) {
-		// Remove order from queue 
-		pendingOrders.remove(o);
-		// Remove instrument from perimeter
-		instruments.remove(o.getInstrument());
+	private void popAndSendOrder(Order o, double execPrice, double volume, DateTime timestamp) {
 		
 		//trigger order 
-		sendMarketOrderToBroker(o, execPrice,timestamp);
+		if (sendMarketOrderToBroker(o, execPrice, volume, timestamp) && OrderStatus.FILLED.equals(o.getStatus())){
+			// Remove order from queue 
+			pendingOrders.remove(o);
+			// Remove instrument from perimeter
+			instruments.remove(o.getInstrument());
+		}
 	}
 	
 	
 	/**
 	 * Send to Broker Manager For the time being we mock a PaperBroker
 	 * <p>
+	 * The {@link FillModel} applies the slippage, the fees and the volume limit 
 	 * TODO : Externalize to PaperBrokerManager
 	 * @param o The {@link Order}
-	 * @param candle the {@link Candle}
+	 * @return <code>true</code> if (part of) the order was executed
 	 */
-	private void sendMarketOrderToBroker(Order o, double executionPrice, DateTime replayTime) {
+	private boolean sendMarketOrderToBroker(Order o, double executionPrice, double volume, DateTime replayTime) {
 
-		o.setFilledPrice(executionPrice);//TODO : CLOSE, LOW, HIGH , OPEN
-		o.setFilledQuantity(o.getQuantity());
-		o.setStatus(OrderStatus.FILLED);
-		o.setExecutionTime(replayTime);
+		fillModel.fill(o, executionPrice, volume, fill);
+		if (fill.getQuantity() <= 0){
+			return false;
+		}
+		o.addFill(fill.getQuantity(), fill.getPrice(), fill.getCommission(), replayTime);
+		nbOrdersTriggered++;
+		if (journal != null){
+			journal.onFill(o);
+		}
 		
 		// Callback
 		onOrderFilled(o);
+		return true;
 	}
 
+	/**
+	 * This method is called when the Order is Filled by the paper broker 
+	 * @param order the {@link Order} that has been Filled
+	 */
+	@Override
 	public void onOrderFilled(Order order) {
 		
 		/*
 		 * We build the Portfolio Trade 
 		 */
 		TradeSide side = OrderSide.BUY.equals(order.getSide())?TradeSide.BUY:TradeSide.SELL;
-		double dealPrice = order.getFilledPrice(); 
-		double amount = order.getQuantity() * dealPrice;
-		Trade tr = new Trade(side, order.getInstrument(), order.getQuantity(),amount, order.getExecutionTime());
+		double quantity = order.getLastFilledQuantity();
+		double dealPrice = order.getLastFilledPrice(); 
+		// the fees are paid on top of a purchase and deducted from a sale 
+		double fees = TradeSide.BUY.equals(side)?order.getLastCommission():-order.getLastCommission();
+		double amount = quantity * dealPrice + fees;
+		Trade tr = new Trade(side, order.getInstrument(), quantity,amount, order.getExecutionTime());
 		InstrumentId instrument = tr.getInstrument();
 		boolean openingPosition = false ;
 		// Is it an opening position on Instrument i 
@@ -303,20 +446,20 @@ public class OrderManager implements IOrderManager {
 		try {
 			ptf.addTransaction(tr);
 			
-			logger.info(order.getSide() + " order filled for quantity " 
-					+ order.getFilledQuantity()+ " of " + instrument.getCode() 
-					+ " @ " + order.getFilledPrice()  
-					+ " on date " + order.getExecutionTime().toString("dd/MM/yyyy")
-					+" : (" + order.getText() + ")");
+			if (logger.isDebugEnabled()){
+				logger.debug(order.getSide() + " order filled for quantity " 
+						+ quantity + " of " + instrument.getCode() 
+						+ " @ " + dealPrice  
+						+ " on date " + order.getExecutionTime().toString("dd/MM/yyyy")
+						+" : (" + order.getText() + ")");
+			}
 			
 			/*
 			 * Tells the strategy position has opened  
 			 */
-			for (IStrategy s: strategies){
-				if (s.getMarket().contains(instrument)){
-					if (openingPosition){
-						s.onPositionOpened(tr.getSide(),instrument);
-					}
+			if (openingPosition){
+				for (IStrategy s: getSubscribers(instrument)){
+					s.onPositionOpened(tr.getSide(),instrument);
 				}
 			}
 			
@@ -330,9 +473,137 @@ public class OrderManager implements IOrderManager {
 
 	
 
+	/**
+	 * Save the pending orders (with their partial executions) and the quoted instruments
+	 */
+	@Override
+	public void writeCheckpoint(CheckpointOutput out) throws IOException {
+		out.writeVarInt(pendingOrders.size());
+		for (Order o : pendingOrders){
+			if (o instanceof MarketOrder){
+				out.writeByte(MARKET);
+			}else if (o instanceof MarketOnCloseOrder){
+				out.writeByte(MARKET_ON_CLOSE);
+			}else if (o instanceof LimitOrder){
+				out.writeByte(LIMIT);
+			}else if (o instanceof StopOrder){
+				out.writeByte(STOP);
+			}else if (o instanceof TrailingStopOrder){
+				out.writeByte(TRAILING_STOP);
+			}else {
+				throw new IllegalStateException("Can not checkpoint the order " + o);
+			}
+			out.writeEnum(o.getSide());
+			out.writeInstrument(o.getInstrument());
+			out.writeDouble(o.getQuantity());
+			out.writeString(o.getText());
+			out.writeDateTime(o.getCreationTime());
+			out.writeEnum(o.getStatus());
+			out.writeDateTime(o.getExecutionTime());
+			out.writeDouble(o.getFilledQuantity());
+			out.writeDouble(o.getFilledPrice());
+			out.writeDouble(o.getLastFilledQuantity());
+			out.writeDouble(o.getLastFilledPrice());
+			out.writeDouble(o.getCommission());
+			out.writeDouble(o.getLastCommission());
+			if (o instanceof MarketOrder){
+				out.writeEnum(((MarketOrder) o).getOhlc());
+			}else if (o instanceof LimitOrder){
+				out.writeDouble(((LimitOrder) o).getLimitPrice());
+			}else if (o instanceof StopOrder){
+				out.writeDouble(((StopOrder) o).getStopPrice());
+			}else if (o instanceof TrailingStopOrder){
+				TrailingStopOrder ts = (TrailingStopOrder) o;
+				out.writeDouble(ts.getPercentageLevel());
+				out.writeDouble(ts.getTrigger());
+				out.writeDouble(ts.getWatermark());
+			}
+		}
+		out.writeVarInt(quotedInstruments.size());
+		for (InstrumentId instrument : quotedInstruments){
+			out.writeInstrument(instrument);
+		}
+	}
+
+	/**
+	 * Replace the pending orders by the ones of a checkpoint
+	 */
+	@Override
+	public void readCheckpoint(CheckpointInput in) throws IOException {
+		pendingOrders.clear();
+		instruments.clear();
+		int nbOrders = in.readVarInt();
+		for (int i = 0; i < nbOrders; i++){
+			int kind = in.readUnsignedByte();
+			OrderSide side = in.readEnum(OrderSide.class);
+			InstrumentId instrument = in.readInstrument();
+			double quantity = in.readDouble();
+			String text = in.readString();
+			DateTime created = in.readDateTime();
+			OrderStatus status = in.readEnum(OrderStatus.class);
+			DateTime executed = in.readDateTime();
+			double filledQuantity = in.readDouble();
+			double filledPrice = in.readDouble();
+			double lastFilledQuantity = in.readDouble();
+			double lastFilledPrice = in.readDouble();
+			double commission = in.readDouble();
+			double lastCommission = in.readDouble();
+			Order o;
+			switch (kind) {
+			case MARKET:
+				o = new MarketOrder(side, instrument, quantity, in.readEnum(CandleData.class), text, created);
+				break;
+			case MARKET_ON_CLOSE:
+				o = new MarketOnCloseOrder(side, instrument, quantity, text, created);
+				break;
+			case LIMIT:
+				o = new LimitOrder(side, instrument, quantity, in.readDouble(), text, created);
+				break;
+			case STOP:
+				o = new StopOrder(side, instrument, quantity, in.readDouble(), text, created);
+				break;
+			case TRAILING_STOP:
+				TrailingStopOrder ts = new TrailingStopOrder(side, instrument, in.readDouble(), quantity, text, created);
+				ts.setTrigger(in.readDouble());
+				ts.setWatermark(in.readDouble());
+				o = ts;
+				break;
+			default:
+				throw new IOException("Unknown order kind " + kind);
+			}
+			o.setStatus(status);
+			o.setExecutionTime(executed);
+			o.restoreFills(filledQuantity, filledPrice, lastFilledQuantity, lastFilledPrice, commission, lastCommission);
+			pendingOrders.add(o);
+			instruments.add(instrument);
+		}
+		quotedInstruments.clear();
+		int nbQuoted = in.readVarInt();
+		for (int i = 0; i < nbQuoted; i++){
+			quotedInstruments.add(in.readInstrument());
+		}
+	}
+	
+	/**
+	 * 
+	 * @return the orders waiting for an execution (read only)
+	 */
+	public Collection<Order> getPendingOrders() {
+		return Collections.unmodifiableCollection(pendingOrders);
+	}
+
+	/**
+	 * This method is called when the Order is Cancelled 
+	 * @param order the {@link Order} that has been Cancelled
+	 */
 	@Override
 	public void onOrderCancelled(Order order) {
-		logger.debug("Order " + order.getText() +" was cancelled");
+		if (journal != null){
+			journal.onOrderCancelled(order);
+		}
+		if (logger.isDebugEnabled()){
+			logger.debug("Order " + order.getText() +" was cancelled");
+		}
 		
 	}
 
@@ -362,27 +633,64 @@ public class OrderManager implements IOrderManager {
 	}
 
 	public double getSlippage() {
-		return slippage;
+		return fillModel.getSlippage();
 	}
 
 	public void setSlippage(double slippage) {
-		this.slippage = slippage;
+		fillModel.setSlippage(slippage);
 	}
 
 	public double getFlatFee() {
-		return flatFee;
+		return fillModel.getFlatFee();
 	}
 
 	public void setFlatFee(double flatFee) {
-		this.flatFee = flatFee;
+		fillModel.setFlatFee(flatFee);
 	}
 
 	public double getSizeFee() {
-		return sizeFee;
+		return fillModel.getSizeFee();
 	}
 
 	public void setSizeFee(double sizeFee) {
-		this.sizeFee = sizeFee;
+		fillModel.setSizeFee(sizeFee);
+	}
+
+	public FillModel getFillModel() {
+		return fillModel;
+	}
+
+	/**
+	 * 
+	 * @return number of pending orders examined on the candles, the quotes and the ends of day (since the creation)
+	 */
+	public long getNbOrdersScanned() {
+		return nbOrdersScanned;
+	}
+
+	/**
+	 * 
+	 * @return number of (partial) executions of orders (since the creation)
+	 */
+	public long getNbOrdersTriggered() {
+		return nbOrdersTriggered;
+	}
+
+	public TradeJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * The orders sent, the fills and the cancels are recorded in the journal (binary, written on a background thread),  
+	 * the fills are no longer logged (DEBUG only)
+	 * @param journal a {@link TradeJournal}, <code>null</code> (default) for none
+	 */
+	public void setJournal(TradeJournal journal) {
+		this.journal = journal;
+	}
+
+	public void setFillModel(FillModel fillModel) {
+		this.fillModel = fillModel;
 	}
 
 	@Override
@@ -394,7 +702,36 @@ public class OrderManager implements IOrderManager {
 	@Override
 	public void addStrategy(IStrategy strategy) {
 		strategies.add(strategy);
-		
+		subscriptions = null;
+	}
+	
+	/**
+	 * 
+	 * @param instrument an {@link InstrumentId}
+	 * @return the strategies listening to the fills of the instrument
+	 */
+	private IStrategy[] getSubscribers(InstrumentId instrument){
+		if (subscriptions == null){
+			Map<InstrumentId, List<IStrategy>> routes = new HashMap<InstrumentId, List<IStrategy>>();
+			for (IStrategy s : strategies){
+				for (InstrumentId i : s.getMarket()){
+					List<IStrategy> subscribers = routes.get(i);
+					if (subscribers == null){
+						subscribers = new ArrayList<IStrategy>();
+						routes.put(i, subscribers);
+					}
+					if (subscribers.isEmpty() || subscribers.get(subscribers.size() - 1) != s){
+						subscribers.add(s);
+					}
+				}
+			}
+			subscriptions = new HashMap<InstrumentId, IStrategy[]>();
+			for (Map.Entry<InstrumentId, List<IStrategy>> e : routes.entrySet()){
+				subscriptions.put(e.getKey(), e.getValue().toArray(new IStrategy[e.getValue().size()]));
+			}
+		}
+		IStrategy[] subscribers = subscriptions.get(instrument);
+		return subscribers == null ? NO_SUBSCRIBER : subscribers;
 	}
 	
 
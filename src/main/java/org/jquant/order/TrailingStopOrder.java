@@ -44,10 +44,25 @@ public class TrailingStopOrder extends Order {
 		trigger = lastClose*coef;
 	}
 
+	/**
+	 * 
+	 * @return the distance of the trigger to the watermark, in percent of the price
+	 */
+	public double getPercentageLevel() {
+		return percentageLevel;
+	}
+
 	public double getTrigger() {
 		return trigger;
 	}
 
+	/**
+	 * Restore the trigger of a checkpoint
+	 */
+	void setTrigger(double trigger) {
+		this.trigger = trigger;
+	}
+
 	public double getWatermark() {
 		return watermark;
 	}
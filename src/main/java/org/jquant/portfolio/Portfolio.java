@@ -1,23 +1,31 @@
 package org.jquant.portfolio;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import org.joda.time.DateTime;
+import org.jquant.checkpoint.CheckpointInput;
+import org.jquant.checkpoint.CheckpointOutput;
+import org.jquant.checkpoint.Checkpointable;
+import org.jquant.instrument.rate.FxConverter;
 import org.jquant.model.Currency;
 import org.jquant.model.IInstrument;
 import org.jquant.model.InstrumentId;
 import org.jquant.portfolio.StockMovement.MovementType;
+import org.jquant.portfolio.Trade.TradeSide;
 import org.jquant.portfolio.Trade.TradeStatus;
 import org.jquant.serie.Candle;
 import org.jquant.serie.DoubleSerie;
+import org.jquant.serie.TimeValue;
 
 /**
  * A grouping of financial assets such as stocks, bonds and cash equivalents
@@ -32,7 +40,7 @@ import org.jquant.serie.DoubleSerie;
  * @author patrick.merheb
  *
  */
-public class Portfolio implements Serializable {
+public class Portfolio implements Serializable, Checkpointable {
 	
 	/**
 	 * 
@@ -72,6 +80,16 @@ public class Portfolio implements Serializable {
 	
 	private double cash;
 	
+	/**
+	 * {@link #setFxConverter(FxConverter)}
+	 */
+	private transient FxConverter fxConverter;
+	
+	/*
+	 * Value of the positions by currency ordinal during the marking to market 
+	 */
+	private transient double[] valueByCurrency;
+	
 	
 
 	public Portfolio(String name, Currency currency, double initialCash) {
@@ -180,6 +198,8 @@ public class Portfolio implements Serializable {
 	/**
 	 * Marking to market of the portfolio 
 	 * <p>Builds the equity curve 
+	 * <p>With a {@link FxConverter} the values of the positions are summed by currency, then each sum is converted 
+	 * in the currency of the portfolio 
 	 * <p>
 	 * TODO : Derivatives and exotic products
 	 * @param time the {@link DateTime} of the marking to market 
@@ -190,21 +210,43 @@ public class Portfolio implements Serializable {
 		
 		
 		if (positions.size()>0){
+			
+			if (fxConverter != null && valueByCurrency == null){
+				valueByCurrency = new double[Currency.values().length];
+			}
 
 			for(Entry<InstrumentId,Double> pos : positions.entrySet()){
-				if (slice.containsKey(pos.getKey())){
+				double value = 0;
+				Candle candle = slice.get(pos.getKey());
+				if (candle != null){
 					// Still listed instrument
-					total += pos.getValue()* slice.get(pos.getKey()).getClose();
+					value = pos.getValue()* candle.getClose();
 				}else {
 					// Unlisted instrument, take the last known valo from the StockMovements inventory
 					StockMovement sm = getLastStockMovement(pos.getKey());
 					if ( sm!=null ){
 						double lastVal = sm.getUnitPrice();
-						total += pos.getValue() * lastVal;
+						value = pos.getValue() * lastVal;
 					}
 				}
+				Currency instrumentCurrency = pos.getKey().getCurrency();
+				if (fxConverter == null || instrumentCurrency == null || instrumentCurrency == currency){
+					total += value;
+				}else {
+					// converted once per currency below
+					valueByCurrency[instrumentCurrency.ordinal()] += value;
+				}
 			}
 			
+			if (fxConverter != null){
+				Currency[] currencies = Currency.values();
+				for (int i = 0; i < valueByCurrency.length; i++){
+					if (valueByCurrency[i] != 0){
+						total += fxConverter.convert(valueByCurrency[i], currencies[i], currency, time);
+						valueByCurrency[i] = 0;
+					}
+				}
+			}
 			
 		}
 		total += getCash();
@@ -220,10 +262,11 @@ public class Portfolio implements Serializable {
 		boolean split = false;
 		
 		// update cash 
-		if (getCash()<(trade.getPrice())){
+		double amount = toPortfolioCurrency(trade.getPrice(), asset, trade.getTimestamp());
+		if (getCash()<amount){
 			throw new PortfolioException("Not Enough cash");
 		}
-		this.cash -= trade.getPrice();
+		this.cash -= amount;
 		
 		// update positions
 		if (positions.containsKey(asset)){
@@ -279,6 +322,19 @@ public class Portfolio implements Serializable {
 	}
 	
 	
+	/**
+	 * 
+	 * @param amount an amount in the currency of the instrument 
+	 * @return the amount in the currency of the portfolio
+	 */
+	private double toPortfolioCurrency(double amount, InstrumentId asset, DateTime time){
+		Currency instrumentCurrency = asset.getCurrency();
+		if (fxConverter == null || instrumentCurrency == null || instrumentCurrency == currency){
+			return amount;
+		}
+		return fxConverter.convert(amount, instrumentCurrency, currency, time);
+	}
+	
 	private void sell(Trade trade) throws PortfolioException{
 
 		InstrumentId asset = trade.getInstrument();
@@ -288,7 +344,7 @@ public class Portfolio implements Serializable {
 		boolean split = false;
 
 		// update cash
-		this.cash += trade.getPrice();
+		this.cash += toPortfolioCurrency(trade.getPrice(), asset, trade.getTimestamp());
 
 		//  update positions
 		if (positions.containsKey(asset)){
@@ -483,12 +539,145 @@ public class Portfolio implements Serializable {
 	
 
 
+	public FxConverter getFxConverter() {
+		return fxConverter;
+	}
+
+	/**
+	 * Multi currency portfolio : the cash flows of the trades and the positions in an other currency are converted in the
+	 * currency of the portfolio (the trades and their P&amp;L stay in the currency of the instrument)
+	 * <p> Without converter (default) all the amounts are supposed in the currency of the portfolio
+	 * @param fxConverter a {@link FxConverter}
+	 */
+	public void setFxConverter(FxConverter fxConverter) {
+		this.fxConverter = fxConverter;
+	}
+
 	public DoubleSerie getEquityCurve() {
 		return equityCurve;
 	}
 
 
 
+	/**
+	 * Save the trades, the positions, the lots of the inventory, the cash and the equity curve
+	 * <p> The lots reference their trade by its index in the transactions
+	 */
+	@Override
+	public void writeCheckpoint(CheckpointOutput out) throws IOException {
+		out.writeString(name);
+		out.writeEnum(currency);
+		out.writeDouble(cash);
+		
+		Map<Trade, Integer> indexes = new IdentityHashMap<Trade, Integer>();
+		out.writeVarInt(transactions.size());
+		for (Trade trade : transactions){
+			indexes.put(trade, indexes.size());
+			writeTrade(out, trade);
+		}
+		
+		out.writeVarInt(positions.size());
+		for (Entry<InstrumentId, Double> pos : positions.entrySet()){
+			out.writeInstrument(pos.getKey());
+			out.writeDouble(pos.getValue());
+		}
+		
+		out.writeVarInt(inventory.size());
+		for (Entry<InstrumentId, Deque<StockMovement>> lots : inventory.entrySet()){
+			out.writeInstrument(lots.getKey());
+			out.writeVarInt(lots.getValue().size());
+			for (StockMovement sm : lots.getValue()){
+				out.writeEnum(sm.getMovement());
+				Integer index = indexes.get(sm.getTrade());
+				if (index != null){
+					out.writeVarInt(index + 1);
+				}else {
+					// trade out of the transactions
+					out.writeVarInt(0);
+					writeTrade(out, sm.getTrade());
+				}
+				out.writeDouble(sm.getRemainingQuantity());
+			}
+		}
+		
+		out.writeVarInt(equityCurve.size());
+		for (TimeValue tv : equityCurve){
+			out.writeDateTime(tv.getDate());
+			out.writeDouble(tv.getValue());
+		}
+	}
+
+	/**
+	 * Replace the state of the portfolio by the one of a checkpoint 
+	 */
+	@Override
+	public void readCheckpoint(CheckpointInput in) throws IOException {
+		String ptfName = in.readString();
+		Currency ptfCurrency = in.readEnum(Currency.class);
+		if (!currency.equals(ptfCurrency)){
+			throw new IllegalStateException("The checkpoint of the portfolio " + ptfName + " is in " + ptfCurrency + ", not in " + currency);
+		}
+		cash = in.readDouble();
+		
+		transactions.clear();
+		int nbTrades = in.readVarInt();
+		for (int i = 0; i < nbTrades; i++){
+			transactions.add(readTrade(in));
+		}
+		
+		positions.clear();
+		int nbPositions = in.readVarInt();
+		for (int i = 0; i < nbPositions; i++){
+			positions.put(in.readInstrument(), in.readDouble());
+		}
+		
+		inventory.clear();
+		int nbAssets = in.readVarInt();
+		for (int i = 0; i < nbAssets; i++){
+			InstrumentId asset = in.readInstrument();
+			int nbLots = in.readVarInt();
+			Deque<StockMovement> lots = new ArrayDeque<StockMovement>(Math.max(nbLots, 1));
+			for (int j = 0; j < nbLots; j++){
+				MovementType movement = in.readEnum(MovementType.class);
+				int index = in.readVarInt();
+				Trade trade = index > 0 ? transactions.get(index - 1) : readTrade(in);
+				StockMovement sm = new StockMovement(movement, trade);
+				sm.setRemainingQuantity(in.readDouble());
+				lots.add(sm);
+			}
+			inventory.put(asset, lots);
+		}
+		
+		equityCurve.clear();
+		int nbValues = in.readVarInt();
+		for (int i = 0; i < nbValues; i++){
+			equityCurve.add(in.readDateTime(), in.readDouble());
+		}
+	}
+	
+	private static void writeTrade(CheckpointOutput out, Trade trade) throws IOException{
+		out.writeEnum(trade.getSide());
+		out.writeInstrument(trade.getInstrument());
+		out.writeDouble(trade.getQuantity());
+		out.writeDouble(trade.getPrice());
+		out.writeDateTime(trade.getTimestamp());
+		out.writeEnum(trade.getStatus());
+		out.writeDouble(trade.getProfitAndLoss());
+	}
+	
+	private static Trade readTrade(CheckpointInput in) throws IOException{
+		TradeSide side = in.readEnum(TradeSide.class);
+		InstrumentId instrument = in.readInstrument();
+		double quantity = in.readDouble();
+		double price = in.readDouble();
+		Trade trade = new Trade(side, instrument, quantity, price, in.readDateTime());
+		trade.setStatus(in.readEnum(TradeStatus.class));
+		trade.setProfitAndLoss(in.readDouble());
+		return trade;
+	}
+	
+
+
 	/**
 	 * Portfolio inventory valuation valuationMode 
 	 * @author patrick.merheb
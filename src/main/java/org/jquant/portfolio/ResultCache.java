@@ -0,0 +1,244 @@
+package org.jquant.portfolio;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.jquant.checkpoint.Checkpoint;
+import org.jquant.checkpoint.CheckpointInput;
+import org.jquant.checkpoint.CheckpointOutput;
+import org.jquant.checkpoint.Checkpointable;
+import org.jquant.model.Currency;
+import org.jquant.portfolio.Portfolio.InventoryValuationMode;
+
+/**
+ * Disk cache of simulation results, by {@link ResultKey}
+ * <p>
+ * An entry is the {@link Portfolio} of a simulation (trades, positions, equity curve) in the checkpoint format, and its
+ * period : a hit rebuilds the {@link PortfolioStatistics} without replaying the simulation.
+ * <p>
+ * The entries are evicted in least recently used order when their total size exceeds {@link #getMaxSize()}. The last
+ * modification time of a file is its last use, the order survives a restart.
+ * <p> This class is thread safe : the simulations of an optimization share one cache.
+ * @author JQUANT TEAM
+ * @see org.jquant.strategy.StrategyRunner#setResultCache(ResultCache)
+ */
+public class ResultCache {
+
+	/** logger */
+	private static final Logger logger = Logger.getLogger(ResultCache.class);
+
+	private static final String EXTENSION = ".jqc";
+
+	private final File directory;
+
+	private final long maxSize;
+
+	/*
+	 * Size of the entries, in access order
+	 */
+	private final LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+
+	private long size;
+
+	private long nbHits;
+
+	private long nbMisses;
+
+	/**
+	 *
+	 * @param directory directory of the entries, created if needed
+	 * @param maxSize maximum size of the entries in bytes
+	 */
+	public ResultCache(File directory, long maxSize) {
+		if (maxSize <= 0){
+			throw new IllegalArgumentException("The size of the cache must be positive : " + maxSize);
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()){
+			throw new IllegalArgumentException("Can not create the directory " + directory);
+		}
+		this.directory = directory;
+		this.maxSize = maxSize;
+		File[] files = directory.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				return file.getName().endsWith(EXTENSION);
+			}
+		});
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File f1, File f2) {
+				long m1 = f1.lastModified();
+				long m2 = f2.lastModified();
+				return m1 < m2 ? -1 : m1 == m2 ? 0 : 1;
+			}
+		});
+		for (File file : files){
+			String name = file.getName();
+			entries.put(name.substring(0, name.length() - EXTENSION.length()), file.length());
+			size += file.length();
+		}
+		evict();
+	}
+
+	/**
+	 *
+	 * @param key the {@link ResultKey} of the simulation
+	 * @return its statistics, <code>null</code> if they are not in the cache
+	 */
+	public PortfolioStatistics get(String key){
+		File file = getFile(key);
+		synchronized (this) {
+			if (entries.get(key) == null){
+				nbMisses++;
+				return null;
+			}
+			file.setLastModified(System.currentTimeMillis());
+		}
+		Entry entry = new Entry();
+		try {
+			Checkpoint.read(file, entry);
+		}catch (IOException e) {
+			// evicted meanwhile or corrupted
+			logger.warn("Can not read the cached result " + file, e);
+			synchronized (this) {
+				remove(key);
+				nbMisses++;
+			}
+			return null;
+		}
+		synchronized (this) {
+			nbHits++;
+		}
+		return new PortfolioStatistics(entry.portfolio, entry.start, entry.end);
+	}
+
+	/**
+	 * Add the result of a simulation, the least recently used entries are evicted if needed
+	 * @param key the {@link ResultKey} of the simulation
+	 * @param stats the {@link PortfolioStatistics} of the simulation
+	 */
+	public synchronized void put(String key, PortfolioStatistics stats){
+		File file = getFile(key);
+		Entry entry = new Entry();
+		entry.portfolio = stats.getPortfolio();
+		entry.start = stats.getStart();
+		entry.end = stats.getEnd();
+		try {
+			Checkpoint.write(file, entry);
+		}catch (IOException e) {
+			logger.warn("Can not cache the result " + file, e);
+			return;
+		}
+		Long previous = entries.put(key, file.length());
+		size += file.length() - (previous == null ? 0 : previous);
+		evict();
+	}
+
+	/**
+	 * Remove all the entries
+	 */
+	public synchronized void clear(){
+		for (String key : entries.keySet().toArray(new String[entries.size()])){
+			remove(key);
+		}
+	}
+
+	private void evict(){
+		Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+		while (size > maxSize && it.hasNext()){
+			Map.Entry<String, Long> eldest = it.next();
+			it.remove();
+			size -= eldest.getValue();
+			if (!getFile(eldest.getKey()).delete()){
+				logger.warn("Can not delete the cached result " + getFile(eldest.getKey()));
+			}
+		}
+	}
+
+	private void remove(String key){
+		Long length = entries.remove(key);
+		if (length != null){
+			size -= length;
+			getFile(key).delete();
+		}
+	}
+
+	private File getFile(String key){
+		return new File(directory, key + EXTENSION);
+	}
+
+	/**
+	 *
+	 * @return number of entries
+	 */
+	public synchronized int getNbEntries(){
+		return entries.size();
+	}
+
+	/**
+	 *
+	 * @return total size of the entries in bytes
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	public synchronized long getNbHits() {
+		return nbHits;
+	}
+
+	public synchronized long getNbMisses() {
+		return nbMisses;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * A cached result : the period and the portfolio
+	 */
+	private static final class Entry implements Checkpointable {
+
+		private Portfolio portfolio;
+
+		private Date start;
+
+		private Date end;
+
+		@Override
+		public void writeCheckpoint(CheckpointOutput out) throws IOException {
+			out.writeString(portfolio.getName());
+			out.writeEnum(portfolio.getCurrency());
+			out.writeDouble(portfolio.getInitialWealth());
+			out.writeEnum(portfolio.getValuationMode());
+			out.writeLong(start.getTime());
+			out.writeLong(end.getTime());
+			portfolio.writeCheckpoint(out);
+		}
+
+		@Override
+		public void readCheckpoint(CheckpointInput in) throws IOException {
+			String name = in.readString();
+			Currency currency = in.readEnum(Currency.class);
+			double initialWealth = in.readDouble();
+			InventoryValuationMode mode = in.readEnum(InventoryValuationMode.class);
+			start = new Date(in.readLong());
+			end = new Date(in.readLong());
+			portfolio = new Portfolio(name, currency, initialWealth, mode);
+			portfolio.readCheckpoint(in);
+		}
+	}
+}
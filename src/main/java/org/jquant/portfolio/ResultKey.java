@@ -0,0 +1,226 @@
+package org.jquant.portfolio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.jquant.model.InstrumentId;
+import org.jquant.serie.BBBA;
+import org.jquant.serie.Candle;
+import org.jquant.serie.CandleSerie;
+import org.jquant.serie.QuoteSerie;
+
+/**
+ * Digest of everything a simulation depends on, the key of a {@link ResultCache}
+ * <p>
+ * The values are written in a SHA-1 digest through a byte buffer : the fingerprint of a serie of a million candles
+ * reads the candles once, without allocation. The numbers of the parameters are digested as doubles (10 and 10.0 give
+ * the same key) and a class is digested with its bytecode : a recompiled strategy gives an other key.
+ * <p>
+ * Only the classes added to the key are digested, not the library code they call (order manager, indicators, portfolio...) : 
+ * after a change of the library, clear the {@link ResultCache} or give a new salt to the keys. The {@link #ENGINE_VERSION} 
+ * is increased by the releases that change the results of the simulations.
+ * <p> A key is used by one thread.
+ * @author JQUANT TEAM
+ * @see ResultCache
+ */
+public final class ResultKey {
+
+	/**
+	 * Version of the simulation engine, first value of every key
+	 */
+	public static final int ENGINE_VERSION = 1;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final MessageDigest digest;
+
+	private final byte[] buffer = new byte[1 << 12];
+
+	private int position;
+
+	private String hex;
+
+	public ResultKey() {
+		this(null);
+	}
+
+	/**
+	 *
+	 * @param salt a value that changes all the keys (a version of the library code), possibly <code>null</code>
+	 */
+	public ResultKey(String salt) {
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		}catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		add((long) ENGINE_VERSION);
+		add(salt);
+	}
+
+	public ResultKey add(long value){
+		if (position + 8 > buffer.length){
+			flush();
+		}
+		for (int shift = 56; shift >= 0; shift -= 8){
+			buffer[position++] = (byte) (value >>> shift);
+		}
+		return this;
+	}
+
+	public ResultKey add(double value){
+		return add(Double.doubleToLongBits(value));
+	}
+
+	/**
+	 *
+	 * @param value a String, <code>null</code> is different from the empty String
+	 * @return this key
+	 */
+	public ResultKey add(String value){
+		if (value == null){
+			return add(-1L);
+		}
+		byte[] bytes = value.getBytes(UTF8);
+		add((long) bytes.length);
+		return add(bytes, bytes.length);
+	}
+
+	private ResultKey add(byte[] bytes, int length){
+		flush();
+		digest.update(bytes, 0, length);
+		return this;
+	}
+
+	/**
+	 *
+	 * @param parameters values of the {@link org.jquant.strategy.Parameter}s, in any order
+	 * @return this key
+	 */
+	public ResultKey add(Map<String, ?> parameters){
+		if (parameters == null){
+			return add(0L);
+		}
+		add((long) parameters.size());
+		for (Entry<String, ?> e : new TreeMap<String, Object>(parameters).entrySet()){
+			add(e.getKey());
+			if (e.getValue() instanceof Number){
+				add(((Number) e.getValue()).doubleValue());
+			}else {
+				add(String.valueOf(e.getValue()));
+			}
+		}
+		return this;
+	}
+
+	public ResultKey add(InstrumentId instrument){
+		add(String.valueOf(instrument.getProvider()));
+		add(instrument.getCode());
+		add(String.valueOf(instrument.getType()));
+		add(instrument.getExchange() == null ? null : instrument.getExchange().getCode());
+		return add(String.valueOf(instrument.getCurrency()));
+	}
+
+	/**
+	 * The name and the bytecode of a class and of its super classes, up to the JDK
+	 * @param type a class
+	 * @return this key
+	 * @throws IllegalArgumentException if the bytecode of the class can not be read
+	 */
+	public ResultKey add(Class<?> type){
+		byte[] bytes = new byte[1 << 12];
+		for (Class<?> c = type; c != null && !c.getName().startsWith("java."); c = c.getSuperclass()){
+			add(c.getName());
+			InputStream in = c.getResourceAsStream("/" + c.getName().replace('.', '/') + ".class");
+			if (in == null){
+				throw new IllegalArgumentException("No bytecode for " + c.getName());
+			}
+			try {
+				try {
+					int n;
+					while ((n = in.read(bytes)) > 0){
+						add(bytes, n);
+					}
+				}finally {
+					in.close();
+				}
+			}catch (IOException e) {
+				throw new IllegalArgumentException("Can not read the bytecode of " + c.getName(), e);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * The content of a serie : the time, the period and the values of each candle
+	 * @param serie a {@link CandleSerie}, possibly <code>null</code>
+	 * @return this key
+	 */
+	public ResultKey add(CandleSerie serie){
+		if (serie == null){
+			return add(-1L);
+		}
+		add((long) serie.size());
+		for (Candle c : serie){
+			add(c.getDate().getMillis());
+			add(c.getPeriod() == null ? 0L : c.getPeriod().hashCode());
+			add(c.getOpen());
+			add(c.getHigh());
+			add(c.getLow());
+			add(c.getClose());
+			add(c.getVolume());
+		}
+		return this;
+	}
+
+	/**
+	 * The content of a serie : the time and the prices of each quote
+	 * @param serie a {@link QuoteSerie}, possibly <code>null</code>
+	 * @return this key
+	 */
+	public ResultKey add(QuoteSerie serie){
+		if (serie == null){
+			return add(-1L);
+		}
+		add((long) serie.size());
+		for (BBBA q : serie){
+			add(q.getDate().getMillis());
+			add(q.getBestBid());
+			add(q.getBestAsk());
+		}
+		return this;
+	}
+
+	private void flush(){
+		if (hex != null){
+			throw new IllegalStateException("The key is complete");
+		}
+		digest.update(buffer, 0, position);
+		position = 0;
+	}
+
+	/**
+	 * Ends the digest : nothing can be added after
+	 * @return the digest in hexadecimal
+	 */
+	@Override
+	public String toString() {
+		if (hex != null){
+			return hex;
+		}
+		flush();
+		byte[] bytes = digest.digest();
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes){
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		hex = sb.toString();
+		return hex;
+	}
+}
@@ -0,0 +1,181 @@
+package org.jquant.portfolio;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.jquant.checkpoint.CheckpointInput;
+import org.jquant.model.Currency;
+import org.jquant.model.InstrumentId;
+import org.jquant.portfolio.Trade.TradeSide;
+import org.jquant.portfolio.Trade.TradeStatus;
+import org.jquant.serie.DoubleSerie;
+
+/**
+ * Reads the sections of a result file written by a {@link ResultWriter}
+ * <p>
+ * Each method decodes one section and skips the others : loading the summary of a result does not read its
+ * equity curve nor its trades. The dates are restored in the default time zone.
+ * @author JQUANT TEAM
+ */
+public final class ResultReader {
+
+	private ResultReader() {
+		super();
+	}
+
+	/**
+	 *
+	 * @param file a result {@link File}
+	 * @return the {@link ResultSummary}
+	 * @throws IOException if the file has no summary
+	 */
+	public static ResultSummary readSummary(File file) throws IOException{
+		CheckpointInput in = openSection(file, ResultWriter.SUMMARY);
+		try {
+			String name = in.readString();
+			Currency currency = in.readEnum(Currency.class);
+			long start = in.readLong();
+			long end = in.readLong();
+			double[] values = new double[ResultSummary.NB_STATISTICS];
+			Arrays.fill(values, Double.NaN);
+			int nb = in.readVarInt();
+			for (int i = 0; i < nb; i++){
+				double v = in.readDouble();
+				// statistics of a newer version are ignored
+				if (i < values.length){
+					values[i] = v;
+				}
+			}
+			return new ResultSummary(name, currency, start == Long.MIN_VALUE ? null : new Date(start), end == Long.MIN_VALUE ? null : new Date(end), values);
+		}finally {
+			in.close();
+		}
+	}
+
+	/**
+	 *
+	 * @param file a result {@link File}
+	 * @return the equity curve
+	 * @throws IOException if the file has no equity curve
+	 */
+	public static DoubleSerie readEquityCurve(File file) throws IOException{
+		CheckpointInput in = openSection(file, ResultWriter.EQUITY_CURVE);
+		try {
+			int n = in.readVarInt();
+			long[] times = new long[n];
+			long previous = 0;
+			long delta = 0;
+			for (int i = 0; i < n; i++){
+				delta += in.readVarLong();
+				previous += delta;
+				times[i] = previous;
+			}
+			DoubleSerie curve = new DoubleSerie();
+			for (int i = 0; i < n; i++){
+				curve.add(new DateTime(times[i]), in.readDouble());
+			}
+			return curve;
+		}finally {
+			in.close();
+		}
+	}
+
+	/**
+	 *
+	 * @param file a result {@link File}
+	 * @return the {@link Trade}s
+	 * @throws IOException if the file has no trades
+	 */
+	public static List<Trade> readTrades(File file) throws IOException{
+		CheckpointInput in = openSection(file, ResultWriter.TRADES);
+		try {
+			int n = in.readVarInt();
+			InstrumentId[] instruments = new InstrumentId[n];
+			for (int i = 0; i < n; i++){
+				instruments[i] = in.readInstrument();
+			}
+			long[] times = new long[n];
+			long previous = 0;
+			for (int i = 0; i < n; i++){
+				previous += in.readVarLong();
+				times[i] = previous;
+			}
+			TradeSide[] sides = new TradeSide[n];
+			for (int i = 0; i < n; i++){
+				sides[i] = in.readEnum(TradeSide.class);
+			}
+			TradeStatus[] statuses = new TradeStatus[n];
+			for (int i = 0; i < n; i++){
+				statuses[i] = in.readEnum(TradeStatus.class);
+			}
+			double[] quantities = new double[n];
+			for (int i = 0; i < n; i++){
+				quantities[i] = in.readDouble();
+			}
+			double[] prices = new double[n];
+			for (int i = 0; i < n; i++){
+				prices[i] = in.readDouble();
+			}
+			List<Trade> trades = new ArrayList<Trade>(n);
+			for (int i = 0; i < n; i++){
+				Trade t = new Trade(sides[i], instruments[i], quantities[i], prices[i], new DateTime(times[i]));
+				t.setStatus(statuses[i]);
+				t.setProfitAndLoss(in.readDouble());
+				trades.add(t);
+			}
+			return trades;
+		}finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Open the file and skip the sections up to the wanted one
+	 * @return the stream positioned on the content of the section
+	 */
+	private static CheckpointInput openSection(File file, int wanted) throws IOException{
+		CheckpointInput in = new CheckpointInput(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+		boolean found = false;
+		try {
+			if (in.readInt() != ResultWriter.MAGIC){
+				throw new IOException(file + " is not a result file");
+			}
+			int version = in.readVarInt();
+			if (version > ResultWriter.VERSION){
+				throw new IOException("Result file " + file + " has a newer version " + version);
+			}
+			int tag;
+			while ((tag = in.readUnsignedByte()) != ResultWriter.END){
+				int length = in.readInt();
+				if (tag == wanted){
+					found = true;
+					return in;
+				}
+				skipFully(in, length);
+			}
+			throw new IOException("No section " + wanted + " in the result file " + file);
+		}finally {
+			if (!found){
+				in.close();
+			}
+		}
+	}
+
+	private static void skipFully(CheckpointInput in, int length) throws IOException{
+		int remaining = length;
+		while (remaining > 0){
+			int skipped = in.skipBytes(remaining);
+			if (skipped <= 0){
+				throw new IOException("Truncated result file");
+			}
+			remaining -= skipped;
+		}
+	}
+}
@@ -0,0 +1,543 @@
+package org.jquant.portfolio;
+
+import java.io.Closeable;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+import org.apache.log4j.Logger;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.joda.time.DateTime;
+import org.jquant.data.JQuantDataProvider;
+import org.jquant.model.Currency;
+import org.jquant.model.InstrumentId;
+import org.jquant.model.InstrumentType;
+import org.jquant.model.MarketIdentifierCode;
+import org.jquant.portfolio.Trade.TradeSide;
+import org.jquant.portfolio.Trade.TradeStatus;
+import org.jquant.serie.DoubleSerie;
+import org.jquant.serie.TimeValue;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Relational store of simulation results : the runs, their parameters, their trades and their equity curves
+ * <p>
+ * The results of the optimizations of several nights are kept in one embedded database ({@link #open(File)}, H2) and
+ * compared with queries instead of new simulations. A run is identified by its strategy and its parameters, indexed by 
+ * their hash ({@link #hash(Map)}), its statistics ({@link ResultSummary}) are columns of the <code>RUNS</code> table, indexed with the
+ * strategy for the main {@link Metric}s.
+ * <p>
+ * A run is saved in one transaction, its trades and the points of its equity curve with JDBC batches of
+ * {@value #BATCH_SIZE} rows (NaN is stored as NULL) ; the equity curves and the trades are loaded with one query and no intermediate objects.
+ * <p> This class is thread safe : the simulations of an optimization can save their results concurrently.
+ * @author JQUANT TEAM
+ * @see ResultWriter
+ */
+public class ResultStore implements Closeable {
+
+	/** logger */
+	private static final Logger logger = Logger.getLogger(ResultStore.class);
+
+	static final int BATCH_SIZE = 1000;
+
+	/**
+	 * The statistics of a run, in the order of {@link ResultSummary#toArray()}
+	 */
+	public enum Metric {
+		INITIAL_WEALTH, FINAL_WEALTH(true), REALIZED_PNL(true), GROSS_PROFIT, GROSS_LOSS, TOTAL_TRADES, WINNING_TRADES, LOSING_TRADES,
+		AVERAGE_WINNING_TRADE, AVERAGE_LOSING_TRADE, AVERAGE_TRADE, LARGEST_WINNING_TRADE, LARGEST_LOSING_TRADE,
+		MAX_DRAWDOWN(true), TIME_IN_MAX_DD, TIME_TO_RECOVER, ANNUALIZED_RETURN(true), NB_EQUITY_VALUES;
+
+		private final boolean indexed;
+
+		private Metric() {
+			this(false);
+		}
+
+		private Metric(boolean indexed) {
+			this.indexed = indexed;
+		}
+
+		/**
+		 *
+		 * @return <code>true</code> if the runs of a strategy are indexed on this metric
+		 */
+		public boolean isIndexed() {
+			return indexed;
+		}
+	}
+
+	private static final String RUN_COLUMNS;
+	static {
+		StringBuilder sb = new StringBuilder("ID, STRATEGY, PARAM_HASH, CREATED, NAME, CURRENCY, START_DATE, END_DATE");
+		for (Metric m : Metric.values()){
+			sb.append(", ").append(m.name());
+		}
+		RUN_COLUMNS = sb.toString();
+	}
+
+	private final DataSource dataSource;
+
+	private final JdbcTemplate jdbc;
+
+	private final TransactionTemplate transaction;
+
+	/*
+	 * Pool opened by the store
+	 */
+	private JdbcConnectionPool pool;
+
+	/**
+	 *
+	 * @param dataSource the database, its tables are created if needed
+	 */
+	public ResultStore(DataSource dataSource) {
+		this.dataSource = dataSource;
+		this.jdbc = new JdbcTemplate(dataSource);
+		this.transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		createSchema();
+	}
+
+	/**
+	 * Open (or create) an embedded H2 database
+	 * @param file the database file, without the <code>.mv.db</code> extension
+	 * @return the {@link ResultStore}, to close after use
+	 */
+	public static ResultStore open(File file){
+		JdbcConnectionPool pool = JdbcConnectionPool.create("jdbc:h2:" + file.getAbsolutePath(), "sa", "");
+		ResultStore store = new ResultStore(pool);
+		store.pool = pool;
+		return store;
+	}
+
+	private void createSchema(){
+		StringBuilder runs = new StringBuilder("CREATE TABLE IF NOT EXISTS RUNS (ID BIGINT AUTO_INCREMENT PRIMARY KEY, STRATEGY VARCHAR NOT NULL, "
+				+ "PARAM_HASH BIGINT NOT NULL, CREATED TIMESTAMP NOT NULL, NAME VARCHAR, CURRENCY VARCHAR, START_DATE TIMESTAMP, END_DATE TIMESTAMP");
+		for (Metric m : Metric.values()){
+			runs.append(", ").append(m.name()).append(" DOUBLE");
+		}
+		jdbc.execute(runs.append(')').toString());
+		jdbc.execute("CREATE INDEX IF NOT EXISTS RUNS_STRATEGY ON RUNS(STRATEGY, PARAM_HASH, CREATED)");
+		jdbc.execute("CREATE INDEX IF NOT EXISTS RUNS_PARAM_HASH ON RUNS(PARAM_HASH)");
+		for (Metric m : Metric.values()){
+			if (m.isIndexed()){
+				jdbc.execute("CREATE INDEX IF NOT EXISTS RUNS_" + m.name() + " ON RUNS(STRATEGY, " + m.name() + ")");
+			}
+		}
+		jdbc.execute("CREATE TABLE IF NOT EXISTS PARAMETERS (RUN_ID BIGINT NOT NULL, NAME VARCHAR NOT NULL, TEXT_VALUE VARCHAR, NUMBER_VALUE DOUBLE, "
+				+ "PRIMARY KEY (RUN_ID, NAME), FOREIGN KEY (RUN_ID) REFERENCES RUNS(ID) ON DELETE CASCADE)");
+		jdbc.execute("CREATE TABLE IF NOT EXISTS TRADES (RUN_ID BIGINT NOT NULL, SEQ INT NOT NULL, PROVIDER VARCHAR, CODE VARCHAR, TYPE VARCHAR, MIC VARCHAR, "
+				+ "COUNTRY VARCHAR, CURRENCY VARCHAR, TIME BIGINT, SIDE VARCHAR, STATUS VARCHAR, QUANTITY DOUBLE, PRICE DOUBLE, PNL DOUBLE, "
+				+ "PRIMARY KEY (RUN_ID, SEQ), FOREIGN KEY (RUN_ID) REFERENCES RUNS(ID) ON DELETE CASCADE)");
+		jdbc.execute("CREATE TABLE IF NOT EXISTS EQUITY (RUN_ID BIGINT NOT NULL, SEQ INT NOT NULL, TIME BIGINT NOT NULL, VALUE DOUBLE, "
+				+ "PRIMARY KEY (RUN_ID, SEQ), FOREIGN KEY (RUN_ID) REFERENCES RUNS(ID) ON DELETE CASCADE)");
+	}
+
+	/**
+	 * Hash of a combination of parameters, independent of the order of the map and of the type of the numbers (10 and 10.0 have the same hash)
+	 * @param parameters values by {@link org.jquant.strategy.Parameter} name
+	 * @return a 64 bits hash (FNV-1a)
+	 */
+	public static long hash(Map<String, ?> parameters){
+		long h = 0xcbf29ce484222325L;
+		for (Entry<String, ?> e : new TreeMap<String, Object>(parameters).entrySet()){
+			String s = e.getKey() + '=' + toText(e.getValue()) + ';';
+			for (int i = 0; i < s.length(); i++){
+				h ^= s.charAt(i);
+				h *= 0x100000001b3L;
+			}
+		}
+		return h;
+	}
+
+	private static String toText(Object value){
+		if (value instanceof Number){
+			return Double.toString(((Number) value).doubleValue());
+		}
+		return String.valueOf(value);
+	}
+
+	/**
+	 * Save the summary, the parameters, the trades and the equity curve of a simulation
+	 * @param strategy name of the strategy (or of the strategies) of the simulation
+	 * @param parameters values of the parameters of the simulation
+	 * @param stats the {@link PortfolioStatistics} of the simulation
+	 * @return the id of the run
+	 */
+	public long save(String strategy, Map<String, ?> parameters, PortfolioStatistics stats){
+		Portfolio ptf = stats.getPortfolio();
+		return save(strategy, parameters, new ResultSummary(stats), ptf.getEquityCurve(), ptf.getTransactions());
+	}
+
+	/**
+	 *
+	 * @param strategy name of the strategy (or of the strategies) of the simulation
+	 * @param parameters values of the parameters of the simulation
+	 * @param summary the {@link ResultSummary} of the simulation
+	 * @param equityCurve its equity curve
+	 * @param trades its {@link Trade}s
+	 * @return the id of the run
+	 */
+	public long save(final String strategy, final Map<String, ?> parameters, final ResultSummary summary, final DoubleSerie equityCurve, final List<Trade> trades){
+		long start = System.nanoTime();
+		Long id = transaction.execute(new TransactionCallback<Long>() {
+			@Override
+			public Long doInTransaction(TransactionStatus status) {
+				long id = insertRun(strategy, hash(parameters), summary);
+				insertParameters(id, parameters);
+				insertTrades(id, trades);
+				insertEquityCurve(id, equityCurve);
+				return id;
+			}
+		});
+		if (logger.isDebugEnabled()){
+			logger.debug("Run " + id + " of " + strategy + " saved in (ms) " + (System.nanoTime() - start) / 1e6);
+		}
+		return id;
+	}
+
+	private long insertRun(final String strategy, final long paramHash, final ResultSummary summary){
+		final String sql = "INSERT INTO RUNS (" + RUN_COLUMNS.substring("ID, ".length()) + ") VALUES (?" + repeat(", ?", Metric.values().length + 6) + ")";
+		KeyHolder key = new GeneratedKeyHolder();
+		jdbc.update(new PreparedStatementCreator() {
+			@Override
+			public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+				PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+				int i = 1;
+				ps.setString(i++, strategy);
+				ps.setLong(i++, paramHash);
+				ps.setTimestamp(i++, new Timestamp(System.currentTimeMillis()));
+				ps.setString(i++, summary.getName());
+				ps.setString(i++, summary.getCurrency() == null ? null : summary.getCurrency().name());
+				ps.setTimestamp(i++, summary.getStart() == null ? null : new Timestamp(summary.getStart().getTime()));
+				ps.setTimestamp(i++, summary.getEnd() == null ? null : new Timestamp(summary.getEnd().getTime()));
+				for (double v : summary.toArray()){
+					setDouble(ps, i++, v);
+				}
+				return ps;
+			}
+		}, key);
+		return key.getKey().longValue();
+	}
+
+	private void insertParameters(final long id, Map<String, ?> parameters){
+		final List<Entry<String, ?>> entries = new ArrayList<Entry<String, ?>>(parameters.entrySet());
+		jdbc.batchUpdate("INSERT INTO PARAMETERS (RUN_ID, NAME, TEXT_VALUE, NUMBER_VALUE) VALUES (?, ?, ?, ?)", new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException {
+				Entry<String, ?> e = entries.get(i);
+				ps.setLong(1, id);
+				ps.setString(2, e.getKey());
+				ps.setString(3, toText(e.getValue()));
+				if (e.getValue() instanceof Number){
+					ps.setDouble(4, ((Number) e.getValue()).doubleValue());
+				}else {
+					ps.setNull(4, Types.DOUBLE);
+				}
+			}
+
+			@Override
+			public int getBatchSize() {
+				return entries.size();
+			}
+		});
+	}
+
+	private void insertTrades(final long id, final List<Trade> trades){
+		String sql = "INSERT INTO TRADES (RUN_ID, SEQ, PROVIDER, CODE, TYPE, MIC, COUNTRY, CURRENCY, TIME, SIDE, STATUS, QUANTITY, PRICE, PNL) "
+				+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+		for (int from = 0; from < trades.size(); from += BATCH_SIZE){
+			final int offset = from;
+			final int size = Math.min(BATCH_SIZE, trades.size() - from);
+			jdbc.batchUpdate(sql, new BatchPreparedStatementSetter() {
+				@Override
+				public void setValues(PreparedStatement ps, int i) throws SQLException {
+					Trade t = trades.get(offset + i);
+					InstrumentId instrument = t.getInstrument();
+					ps.setLong(1, id);
+					ps.setInt(2, offset + i);
+					ps.setString(3, name(instrument.getProvider()));
+					ps.setString(4, instrument.getCode());
+					ps.setString(5, name(instrument.getType()));
+					ps.setString(6, instrument.getExchange() == null ? null : instrument.getExchange().getCode());
+					ps.setString(7, instrument.getExchange() == null ? null : instrument.getExchange().getCountryCode());
+					ps.setString(8, name(instrument.getCurrency()));
+					ps.setLong(9, t.getTimestamp().getMillis());
+					ps.setString(10, name(t.getSide()));
+					ps.setString(11, name(t.getStatus()));
+					setDouble(ps, 12, t.getQuantity());
+					setDouble(ps, 13, t.getPrice());
+					setDouble(ps, 14, t.getProfitAndLoss());
+				}
+
+				@Override
+				public int getBatchSize() {
+					return size;
+				}
+			});
+		}
+	}
+
+	private void insertEquityCurve(final long id, DoubleSerie equityCurve){
+		// one pass on the serie into columns
+		final long[] times = new long[equityCurve.size()];
+		final double[] values = new double[times.length];
+		int n = 0;
+		for (TimeValue tv : equityCurve){
+			times[n] = tv.getDate().getMillis();
+			values[n++] = tv.getValue();
+		}
+		for (int from = 0; from < times.length; from += BATCH_SIZE){
+			final int offset = from;
+			final int size = Math.min(BATCH_SIZE, times.length - from);
+			jdbc.batchUpdate("INSERT INTO EQUITY (RUN_ID, SEQ, TIME, VALUE) VALUES (?, ?, ?, ?)", new BatchPreparedStatementSetter() {
+				@Override
+				public void setValues(PreparedStatement ps, int i) throws SQLException {
+					ps.setLong(1, id);
+					ps.setInt(2, offset + i);
+					ps.setLong(3, times[offset + i]);
+					setDouble(ps, 4, values[offset + i]);
+				}
+
+				@Override
+				public int getBatchSize() {
+					return size;
+				}
+			});
+		}
+	}
+
+	/**
+	 *
+	 * @param strategy name of the strategy
+	 * @return the runs of the strategy, in the order they were saved
+	 */
+	public List<StoredRun> findRuns(String strategy){
+		return jdbc.query("SELECT " + RUN_COLUMNS + " FROM RUNS WHERE STRATEGY = ? ORDER BY CREATED, ID", RUN_MAPPER, strategy);
+	}
+
+	/**
+	 * The runs of the same parameters, to compare the results of several nights
+	 * <p>
+	 * The runs are selected on the hash of the parameters then compared on the values of the <code>PARAMETERS</code> table :
+	 * two combinations of the same hash are not mixed.
+	 * @param strategy name of the strategy
+	 * @param parameters values of the parameters
+	 * @return the runs of the strategy with these parameters, in the order they were saved
+	 */
+	public List<StoredRun> findRuns(String strategy, Map<String, ?> parameters){
+		long paramHash = hash(parameters);
+		List<StoredRun> runs = jdbc.query("SELECT " + RUN_COLUMNS + " FROM RUNS WHERE STRATEGY = ? AND PARAM_HASH = ? ORDER BY CREATED, ID", 
+				RUN_MAPPER, strategy, paramHash);
+		if (runs.isEmpty()){
+			return runs;
+		}
+		Map<String, String> expected = new TreeMap<String, String>();
+		for (Entry<String, ?> e : parameters.entrySet()){
+			expected.put(e.getKey(), toText(e.getValue()));
+		}
+		final Map<Long, Map<String, String>> stored = new HashMap<Long, Map<String, String>>();
+		jdbc.query("SELECT P.RUN_ID, P.NAME, P.TEXT_VALUE FROM PARAMETERS P JOIN RUNS R ON P.RUN_ID = R.ID WHERE R.STRATEGY = ? AND R.PARAM_HASH = ?", 
+				new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				Long id = Long.valueOf(rs.getLong(1));
+				Map<String, String> values = stored.get(id);
+				if (values == null){
+					values = new TreeMap<String, String>();
+					stored.put(id, values);
+				}
+				values.put(rs.getString(2), rs.getString(3));
+			}
+		}, strategy, paramHash);
+		List<StoredRun> matching = new ArrayList<StoredRun>(runs.size());
+		for (StoredRun run : runs){
+			Map<String, String> values = stored.get(Long.valueOf(run.getId()));
+			if (expected.equals(values != null ? values : new TreeMap<String, String>())){
+				matching.add(run);
+			}
+		}
+		return matching;
+	}
+
+	/**
+	 * The best (or worst) runs of a strategy on a metric, the runs without value are ignored
+	 * @param strategy name of the strategy
+	 * @param metric the {@link Metric}
+	 * @param descending <code>true</code> for the highest values first
+	 * @param limit maximum number of runs
+	 * @return the runs of the strategy ordered by the metric
+	 */
+	public List<StoredRun> findRuns(String strategy, Metric metric, boolean descending, int limit){
+		return jdbc.query("SELECT " + RUN_COLUMNS + " FROM RUNS WHERE STRATEGY = ? AND " + metric.name() + " IS NOT NULL"
+				+ " ORDER BY " + metric.name() + (descending ? " DESC" : "") + ", ID LIMIT ?", RUN_MAPPER, strategy, limit);
+	}
+
+	/**
+	 *
+	 * @param id id of a run
+	 * @return the values of its parameters by name, the numbers as {@link Double}
+	 */
+	public Map<String, Object> loadParameters(long id){
+		final Map<String, Object> parameters = new LinkedHashMap<String, Object>();
+		jdbc.query("SELECT NAME, TEXT_VALUE, NUMBER_VALUE FROM PARAMETERS WHERE RUN_ID = ? ORDER BY NAME", new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				double number = getDouble(rs, 3);
+				parameters.put(rs.getString(1), Double.isNaN(number) ? rs.getString(2) : Double.valueOf(number));
+			}
+		}, id);
+		return parameters;
+	}
+
+	/**
+	 *
+	 * @param id id of a run
+	 * @return its equity curve
+	 */
+	public DoubleSerie loadEquityCurve(long id){
+		final DoubleSerie curve = new DoubleSerie();
+		jdbc.query("SELECT TIME, VALUE FROM EQUITY WHERE RUN_ID = ? ORDER BY SEQ", new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				curve.add(new DateTime(rs.getLong(1)), getDouble(rs, 2));
+			}
+		}, id);
+		return curve;
+	}
+
+	/**
+	 *
+	 * @param id id of a run
+	 * @return its {@link Trade}s
+	 */
+	public List<Trade> loadTrades(long id){
+		final List<Trade> trades = new ArrayList<Trade>();
+		jdbc.query("SELECT PROVIDER, CODE, TYPE, MIC, COUNTRY, CURRENCY, TIME, SIDE, STATUS, QUANTITY, PRICE, PNL FROM TRADES WHERE RUN_ID = ? ORDER BY SEQ",
+				new RowCallbackHandler() {
+			// the instruments of the trades are shared
+			private final Map<InstrumentId, InstrumentId> instruments = new HashMap<InstrumentId, InstrumentId>();
+
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				String mic = rs.getString(4);
+				InstrumentId instrument = new InstrumentId(value(JQuantDataProvider.class, rs.getString(1)), rs.getString(2),
+						value(InstrumentType.class, rs.getString(3)), mic == null ? null : new MarketIdentifierCode(mic, rs.getString(5)),
+						value(Currency.class, rs.getString(6)));
+				InstrumentId shared = instruments.get(instrument);
+				if (shared == null){
+					instruments.put(instrument, instrument);
+				}else {
+					instrument = shared;
+				}
+				Trade t = new Trade(value(TradeSide.class, rs.getString(8)), instrument, getDouble(rs, 10), getDouble(rs, 11), new DateTime(rs.getLong(7)));
+				t.setStatus(value(TradeStatus.class, rs.getString(9)));
+				t.setProfitAndLoss(getDouble(rs, 12));
+				trades.add(t);
+			}
+		}, id);
+		return trades;
+	}
+
+	/**
+	 * Delete a run, its parameters, its trades and its equity curve
+	 * @param id id of the run
+	 * @return <code>false</code> if there is no such run
+	 */
+	public boolean delete(long id){
+		return jdbc.update("DELETE FROM RUNS WHERE ID = ?", id) > 0;
+	}
+
+	/**
+	 *
+	 * @return the {@link DataSource} of the store
+	 */
+	public DataSource getDataSource() {
+		return dataSource;
+	}
+
+	/**
+	 * Close the database opened by {@link #open(File)}
+	 */
+	@Override
+	public void close(){
+		if (pool != null){
+			pool.dispose();
+			pool = null;
+		}
+	}
+
+	private static final RowMapper<StoredRun> RUN_MAPPER = new RowMapper<StoredRun>() {
+		@Override
+		public StoredRun mapRow(ResultSet rs, int rowNum) throws SQLException {
+			double[] values = new double[ResultSummary.NB_STATISTICS];
+			for (int i = 0; i < values.length; i++){
+				values[i] = getDouble(rs, 9 + i);
+			}
+			ResultSummary summary = new ResultSummary(rs.getString(5), value(Currency.class, rs.getString(6)), date(rs.getTimestamp(7)),
+					date(rs.getTimestamp(8)), values);
+			return new StoredRun(rs.getLong(1), rs.getString(2), rs.getLong(3), date(rs.getTimestamp(4)), summary);
+		}
+	};
+
+	/**
+	 * NaN is stored as NULL
+	 */
+	private static void setDouble(PreparedStatement ps, int index, double value) throws SQLException{
+		if (Double.isNaN(value)){
+			ps.setNull(index, Types.DOUBLE);
+		}else {
+			ps.setDouble(index, value);
+		}
+	}
+
+	private static double getDouble(ResultSet rs, int index) throws SQLException{
+		double value = rs.getDouble(index);
+		return rs.wasNull() ? Double.NaN : value;
+	}
+
+	private static Date date(Timestamp timestamp){
+		return timestamp == null ? null : new Date(timestamp.getTime());
+	}
+
+	private static String name(Enum<?> e){
+		return e == null ? null : e.name();
+	}
+
+	private static <E extends Enum<E>> E value(Class<E> type, String name){
+		return name == null ? null : Enum.valueOf(type, name);
+	}
+
+	private static String repeat(String s, int n){
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < n; i++){
+			sb.append(s);
+		}
+		return sb.toString();
+	}
+}
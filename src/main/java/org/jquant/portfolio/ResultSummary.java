@@ -0,0 +1,236 @@
+package org.jquant.portfolio;
+
+import java.util.Date;
+
+import org.jquant.model.Currency;
+
+/**
+ * Summary statistics of a simulation, without the portfolio, the trades and the equity curve
+ * <p> This class is immutable
+ * @author JQUANT TEAM
+ * @see ResultWriter
+ * @see ResultReader
+ */
+public final class ResultSummary {
+
+	/**
+	 * Number of statistics in {@link #toArray()}
+	 */
+	static final int NB_STATISTICS = 18;
+
+	private final String name;
+
+	private final Currency currency;
+
+	private final Date start;
+
+	private final Date end;
+
+	private final double initialWealth;
+
+	private final double finalWealth;
+
+	private final double realizedPnL;
+
+	private final double grossProfit;
+
+	private final double grossLoss;
+
+	private final int totalTrades;
+
+	private final int winningTrades;
+
+	private final int losingTrades;
+
+	private final double averageWinningTrade;
+
+	private final double averageLosingTrade;
+
+	private final double averageTrade;
+
+	private final double largestWinningTrade;
+
+	private final double largestLosingTrade;
+
+	private final double maxDrawDown;
+
+	private final int timeInMaxDD;
+
+	private final int timeToRecover;
+
+	private final double annualizedReturn;
+
+	private final int nbEquityValues;
+
+	public ResultSummary(PortfolioStatistics stats) {
+		Portfolio ptf = stats.getPortfolio();
+		this.name = ptf.getName();
+		this.currency = ptf.getCurrency();
+		this.start = stats.getStart();
+		this.end = stats.getEnd();
+		this.initialWealth = stats.getInitialWealth();
+		this.finalWealth = stats.getFinalWealth();
+		this.realizedPnL = stats.getRealizedPnL();
+		this.grossProfit = stats.getGrossProfit();
+		this.grossLoss = stats.getGrossLoss();
+		this.totalTrades = stats.getTotalTrades();
+		this.winningTrades = stats.getWinningTrades();
+		this.losingTrades = stats.getLosingTrades();
+		this.averageWinningTrade = stats.getAverageWinningTrade();
+		this.averageLosingTrade = stats.getAverageLosingTrade();
+		this.averageTrade = stats.getAverageTrade();
+		this.largestWinningTrade = stats.getLargestWinningTrade();
+		this.largestLosingTrade = stats.getLargestLosingTrade();
+		DrawDownData dd = stats.getMaxDrawDownData();
+		this.maxDrawDown = dd != null ? dd.getMaxDrawDown() : Double.NaN;
+		this.timeInMaxDD = dd != null ? dd.getTimeInMaxDD() : 0;
+		this.timeToRecover = dd != null ? dd.getTimeToRecover() : 0;
+		this.annualizedReturn = stats.getAnnualizedReturn();
+		this.nbEquityValues = ptf.getEquityCurve().size();
+	}
+
+	/**
+	 * Statistics read by a {@link ResultReader}, the missing ones (older version) are NaN
+	 */
+	ResultSummary(String name, Currency currency, Date start, Date end, double[] values) {
+		this.name = name;
+		this.currency = currency;
+		this.start = start;
+		this.end = end;
+		this.initialWealth = values[0];
+		this.finalWealth = values[1];
+		this.realizedPnL = values[2];
+		this.grossProfit = values[3];
+		this.grossLoss = values[4];
+		this.totalTrades = (int) values[5];
+		this.winningTrades = (int) values[6];
+		this.losingTrades = (int) values[7];
+		this.averageWinningTrade = values[8];
+		this.averageLosingTrade = values[9];
+		this.averageTrade = values[10];
+		this.largestWinningTrade = values[11];
+		this.largestLosingTrade = values[12];
+		this.maxDrawDown = values[13];
+		this.timeInMaxDD = (int) values[14];
+		this.timeToRecover = (int) values[15];
+		this.annualizedReturn = values[16];
+		this.nbEquityValues = (int) values[17];
+	}
+
+	/**
+	 * The numeric statistics in the order of the file format (new statistics are appended)
+	 */
+	double[] toArray(){
+		return new double[]{initialWealth, finalWealth, realizedPnL, grossProfit, grossLoss, totalTrades, winningTrades, losingTrades,
+				averageWinningTrade, averageLosingTrade, averageTrade, largestWinningTrade, largestLosingTrade,
+				maxDrawDown, timeInMaxDD, timeToRecover, annualizedReturn, nbEquityValues};
+	}
+
+	/**
+	 *
+	 * @return the portfolio Name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 *
+	 * @return The portfolio Main currency ( {@link Currency} )
+	 */
+	public Currency getCurrency() {
+		return currency;
+	}
+
+	/**
+	 *
+	 * @return Start of the Sampling/Simulation Period
+	 */
+	public Date getStart() {
+		return start;
+	}
+
+	/**
+	 *
+	 * @return End of the Sampling/Simulation Period
+	 */
+	public Date getEnd() {
+		return end;
+	}
+
+	public double getInitialWealth() {
+		return initialWealth;
+	}
+
+	public double getFinalWealth() {
+		return finalWealth;
+	}
+
+	public double getRealizedPnL() {
+		return realizedPnL;
+	}
+
+	public double getGrossProfit() {
+		return grossProfit;
+	}
+
+	public double getGrossLoss() {
+		return grossLoss;
+	}
+
+	public int getTotalTrades() {
+		return totalTrades;
+	}
+
+	public int getWinningTrades() {
+		return winningTrades;
+	}
+
+	public int getLosingTrades() {
+		return losingTrades;
+	}
+
+	public double getAverageWinningTrade() {
+		return averageWinningTrade;
+	}
+
+	public double getAverageLosingTrade() {
+		return averageLosingTrade;
+	}
+
+	public double getAverageTrade() {
+		return averageTrade;
+	}
+
+	public double getLargestWinningTrade() {
+		return largestWinningTrade;
+	}
+
+	public double getLargestLosingTrade() {
+		return largestLosingTrade;
+	}
+
+	public double getMaxDrawDown() {
+		return maxDrawDown;
+	}
+
+	public int getTimeInMaxDD() {
+		return timeInMaxDD;
+	}
+
+	public int getTimeToRecover() {
+		return timeToRecover;
+	}
+
+	public double getAnnualizedReturn() {
+		return annualizedReturn;
+	}
+
+	/**
+	 *
+	 * @return number of points of the equity curve
+	 */
+	public int getNbEquityValues() {
+		return nbEquityValues;
+	}
+}
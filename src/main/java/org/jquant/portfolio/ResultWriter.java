@@ -0,0 +1,183 @@
+package org.jquant.portfolio;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.jquant.checkpoint.CheckpointOutput;
+import org.jquant.serie.DoubleSerie;
+import org.jquant.serie.TimeValue;
+
+/**
+ * Writes the result of a simulation in a compact, versioned and columnar binary format
+ * <p>
+ * The file is a header (magic number, version) followed by sections (tag, length in bytes, content) :
+ * <ul>
+ * <li>the summary ({@link ResultSummary}) : the name, the currency, the period and the statistics</li>
+ * <li>the equity curve : the dates column (delta of delta of the milliseconds, as variable length integers) then the values column</li>
+ * <li>the trades : one column by attribute (instrument, date, side, status, quantity, price, P&amp;L)</li>
+ * </ul>
+ * Each section is buffered then streamed to the output, the length lets a {@link ResultReader} skip the sections it does not need.
+ * A reader ignores the unknown sections and the statistics appended by newer versions.
+ * @author JQUANT TEAM
+ * @see ResultReader
+ */
+public class ResultWriter implements Closeable {
+
+	/**
+	 * "JQRS"
+	 */
+	static final int MAGIC = 0x4A515253;
+
+	static final int VERSION = 1;
+
+	static final int END = 0;
+
+	static final int SUMMARY = 1;
+
+	static final int EQUITY_CURVE = 2;
+
+	static final int TRADES = 3;
+
+	private final CheckpointOutput out;
+
+	/*
+	 * Content of the section being written
+	 */
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 12);
+
+	public ResultWriter(OutputStream os) throws IOException {
+		out = new CheckpointOutput(new BufferedOutputStream(os, 1 << 16));
+		out.writeInt(MAGIC);
+		out.writeVarInt(VERSION);
+	}
+
+	/**
+	 * Write the summary, the equity curve and the trades of a simulation in a file
+	 * @param file the result {@link File}
+	 * @param stats the {@link PortfolioStatistics} of the simulation
+	 * @throws IOException
+	 */
+	public static void write(File file, PortfolioStatistics stats) throws IOException{
+		ResultWriter writer = new ResultWriter(new FileOutputStream(file));
+		try {
+			writer.write(stats);
+		}finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Write the summary, the equity curve and the trades
+	 * @param stats the {@link PortfolioStatistics} of the simulation
+	 * @throws IOException
+	 */
+	public void write(PortfolioStatistics stats) throws IOException{
+		writeSummary(new ResultSummary(stats));
+		writeEquityCurve(stats.getPortfolio().getEquityCurve());
+		writeTrades(stats.getPortfolio().getTransactions());
+	}
+
+	/**
+	 *
+	 * @param summary the {@link ResultSummary}
+	 * @throws IOException
+	 */
+	public void writeSummary(ResultSummary summary) throws IOException{
+		CheckpointOutput section = new CheckpointOutput(buffer);
+		section.writeString(summary.getName());
+		section.writeEnum(summary.getCurrency());
+		section.writeLong(summary.getStart() != null ? summary.getStart().getTime() : Long.MIN_VALUE);
+		section.writeLong(summary.getEnd() != null ? summary.getEnd().getTime() : Long.MIN_VALUE);
+		double[] values = summary.toArray();
+		section.writeVarInt(values.length);
+		for (double v : values){
+			section.writeDouble(v);
+		}
+		flushSection(SUMMARY, section);
+	}
+
+	/**
+	 *
+	 * @param equityCurve the equity curve
+	 * @throws IOException
+	 */
+	public void writeEquityCurve(DoubleSerie equityCurve) throws IOException{
+		CheckpointOutput section = new CheckpointOutput(buffer);
+		section.writeVarInt(equityCurve.size());
+		// regular dates : the delta of delta is mostly 0
+		long previous = 0;
+		long delta = 0;
+		for (TimeValue tv : equityCurve){
+			long time = tv.getDate().getMillis();
+			long d = time - previous;
+			section.writeVarLong(d - delta);
+			delta = d;
+			previous = time;
+		}
+		for (TimeValue tv : equityCurve){
+			section.writeDouble(tv.getValue());
+		}
+		flushSection(EQUITY_CURVE, section);
+	}
+
+	/**
+	 *
+	 * @param trades the {@link Trade}s of the portfolio
+	 * @throws IOException
+	 */
+	public void writeTrades(List<Trade> trades) throws IOException{
+		CheckpointOutput section = new CheckpointOutput(buffer);
+		section.writeVarInt(trades.size());
+		for (Trade t : trades){
+			section.writeInstrument(t.getInstrument());
+		}
+		long previous = 0;
+		for (Trade t : trades){
+			long time = t.getTimestamp().getMillis();
+			section.writeVarLong(time - previous);
+			previous = time;
+		}
+		for (Trade t : trades){
+			section.writeEnum(t.getSide());
+		}
+		for (Trade t : trades){
+			section.writeEnum(t.getStatus());
+		}
+		for (Trade t : trades){
+			section.writeDouble(t.getQuantity());
+		}
+		for (Trade t : trades){
+			section.writeDouble(t.getPrice());
+		}
+		for (Trade t : trades){
+			section.writeDouble(t.getProfitAndLoss());
+		}
+		flushSection(TRADES, section);
+	}
+
+	private void flushSection(int tag, CheckpointOutput section) throws IOException{
+		section.flush();
+		out.writeByte(tag);
+		out.writeInt(buffer.size());
+		buffer.writeTo(out);
+		buffer.reset();
+	}
+
+	/**
+	 * Write the end of the file and close the output
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			out.writeByte(END);
+		}finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package org.jquant.portfolio;
+
+import java.util.Date;
+
+/**
+ * A run saved in a {@link ResultStore} : its identification and its statistics
+ * <p> This class is immutable
+ * @author JQUANT TEAM
+ */
+public final class StoredRun {
+
+	private final long id;
+
+	private final String strategy;
+
+	private final long parameterHash;
+
+	private final Date created;
+
+	private final ResultSummary summary;
+
+	StoredRun(long id, String strategy, long parameterHash, Date created, ResultSummary summary) {
+		this.id = id;
+		this.strategy = strategy;
+		this.parameterHash = parameterHash;
+		this.created = created;
+		this.summary = summary;
+	}
+
+	/**
+	 *
+	 * @return id of the run in the store
+	 */
+	public long getId() {
+		return id;
+	}
+
+	public String getStrategy() {
+		return strategy;
+	}
+
+	/**
+	 *
+	 * @return {@link ResultStore#hash(java.util.Map)} of the parameters of the run
+	 */
+	public long getParameterHash() {
+		return parameterHash;
+	}
+
+	/**
+	 *
+	 * @return when the run was saved
+	 */
+	public Date getCreated() {
+		return created;
+	}
+
+	public ResultSummary getSummary() {
+		return summary;
+	}
+
+	@Override
+	public String toString() {
+		return "Run " + id + " " + strategy + " [" + Long.toHexString(parameterHash) + "] " + created + " final wealth " + summary.getFinalWealth();
+	}
+}
@@ -0,0 +1,308 @@
+package org.jquant.portfolio.resampling;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.jquant.portfolio.Portfolio;
+import org.jquant.portfolio.PortfolioStatistics;
+import org.jquant.portfolio.Trade;
+import org.jquant.portfolio.Trade.TradeStatus;
+import org.jquant.portfolio.resampling.ResamplingResult.Metric;
+
+/**
+ * Bootstrap resampling of the returns of the equity curve or of the P&amp;L of the trades, for confidence intervals on
+ * the statistics of a {@link PortfolioStatistics}
+ * <p>
+ * Each resample draws a serie of the same length by blocks of consecutive values (circular), which keeps the
+ * autocorrelation of the returns :
+ * <ul>
+ * <li>{@link Method#BLOCK} : blocks of constant length (moving block bootstrap)</li>
+ * <li>{@link Method#STATIONARY} : blocks of geometric length of mean {@link #getBlockLength()} (stationary bootstrap, Politis &amp; Romano)</li>
+ * </ul>
+ * The statistics of a resample are computed while it is drawn, on the primitive array of the original values : a resample
+ * allocates nothing. The resamples are split among the threads of a {@link ForkJoinPool}, the random generator of a
+ * resample is seeded by its index so the result does not depend on the parallelism.
+ * <p>
+ * The pool created by the resampler (when none is {@link #setPool(ForkJoinPool) given}) is shut down by {@link #close()}.
+ * @author JQUANT TEAM
+ * @see ResamplingResult
+ */
+public class Resampler implements Closeable {
+
+	/**
+	 * Resamples per fork/join leaf
+	 */
+	private static final int THRESHOLD = 64;
+
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	public enum Method {
+		BLOCK, STATIONARY;
+	}
+
+	private Method method = Method.STATIONARY;
+
+	private int blockLength = 20;
+
+	private int nbResamples = 10000;
+
+	private long seed = 20120301L;
+
+	private int periodsPerYear = 252;
+
+	private ForkJoinPool pool;
+
+	/*
+	 * Pool created by the resampler
+	 */
+	private boolean ownPool;
+
+	/**
+	 * Resample the (daily) returns of an equity curve, the wealth path compounds the returns
+	 * @param returns the returns
+	 * @param initialWealth the initial wealth
+	 * @return the {@link ResamplingResult}, the Sharpe ratios are annualized with {@link #getPeriodsPerYear()}
+	 */
+	public ResamplingResult resampleReturns(double[] returns, double initialWealth){
+		return resample(returns, initialWealth, true, Math.sqrt(periodsPerYear));
+	}
+
+	/**
+	 * Resample the P&amp;L of the trades, the wealth path adds the P&amp;L
+	 * @param pnl the P&amp;L of the closed trades, in their order
+	 * @param initialWealth the initial wealth
+	 * @return the {@link ResamplingResult}, the Sharpe ratios are by trade (not annualized)
+	 */
+	public ResamplingResult resampleTrades(double[] pnl, double initialWealth){
+		return resample(pnl, initialWealth, false, 1);
+	}
+
+	/**
+	 *
+	 * @param ptf a {@link Portfolio}
+	 * @return the returns of its equity curve
+	 */
+	public static double[] getReturns(Portfolio ptf){
+		double[] equity = ptf.getEquityCurve().getData();
+		double[] returns = new double[Math.max(equity.length - 1, 0)];
+		for (int i = 0; i < returns.length; i++){
+			returns[i] = equity[i + 1] / equity[i] - 1;
+		}
+		return returns;
+	}
+
+	/**
+	 *
+	 * @param ptf a {@link Portfolio}
+	 * @return the P&amp;L of its closed trades
+	 */
+	public static double[] getTradePnL(Portfolio ptf){
+		List<Trade> trades = ptf.getTransactions();
+		double[] pnl = new double[trades.size()];
+		int n = 0;
+		for (Trade t : trades){
+			if (TradeStatus.CLOSED.equals(t.getStatus()) && !Double.isNaN(t.getProfitAndLoss())){
+				pnl[n++] = t.getProfitAndLoss();
+			}
+		}
+		double[] closed = new double[n];
+		System.arraycopy(pnl, 0, closed, 0, n);
+		return closed;
+	}
+
+	private ResamplingResult resample(double[] data, double initialWealth, boolean compounding, double annualization){
+		if (data.length < 2){
+			throw new IllegalArgumentException("Not enough values to resample : " + data.length);
+		}
+		double[][] out = new double[Metric.values().length][nbResamples];
+		getPool().invoke(new Resamples(data, initialWealth, compounding, annualization, out, 0, nbResamples));
+		return new ResamplingResult(out);
+	}
+
+	private synchronized ForkJoinPool getPool(){
+		if (pool == null){
+			pool = new ForkJoinPool();
+			ownPool = true;
+		}
+		return pool;
+	}
+
+	/**
+	 * Shut down the pool created by the resampler, a pool given with {@link #setPool(ForkJoinPool)} is left to its owner.
+	 * The resampler can be used again (with a new pool).
+	 */
+	@Override
+	public synchronized void close() {
+		if (pool != null && ownPool){
+			pool.shutdown();
+		}
+		pool = null;
+		ownPool = false;
+	}
+
+	/**
+	 * A range of resamples
+	 */
+	private final class Resamples extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[] data;
+
+		private final double initialWealth;
+
+		private final boolean compounding;
+
+		private final double annualization;
+
+		private final double[][] out;
+
+		private final int from;
+
+		private final int to;
+
+		Resamples(double[] data, double initialWealth, boolean compounding, double annualization, double[][] out, int from, int to) {
+			this.data = data;
+			this.initialWealth = initialWealth;
+			this.compounding = compounding;
+			this.annualization = annualization;
+			this.out = out;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= THRESHOLD){
+				for (int i = from; i < to; i++){
+					sample(i);
+				}
+			}else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Resamples(data, initialWealth, compounding, annualization, out, from, mid),
+						new Resamples(data, initialWealth, compounding, annualization, out, mid, to));
+			}
+		}
+
+		private void sample(int index){
+			final int n = data.length;
+			final double newBlock = 1.0 / blockLength;
+			long state = mix(seed + index * GOLDEN_GAMMA);
+			int pos = 0;
+			double sum = 0;
+			double sumSq = 0;
+			double wealth = initialWealth;
+			double peak = initialWealth;
+			double maxDrawDown = 0;
+			for (int k = 0; k < n; k++){
+				boolean start;
+				if (k == 0){
+					start = true;
+				}else if (Method.BLOCK.equals(method)){
+					start = k % blockLength == 0;
+				}else {
+					state += GOLDEN_GAMMA;
+					start = (mix(state) >>> 11) * 0x1.0p-53 < newBlock;
+				}
+				if (start){
+					state += GOLDEN_GAMMA;
+					pos = (int) (((mix(state) >>> 32) * n) >>> 32);
+				}else if (++pos == n){
+					pos = 0;
+				}
+				double v = data[pos];
+				sum += v;
+				sumSq += v * v;
+				wealth = compounding ? wealth * (1 + v) : wealth + v;
+				if (wealth > peak){
+					peak = wealth;
+				}else {
+					double dd = wealth / peak - 1;
+					if (dd < maxDrawDown){
+						maxDrawDown = dd;
+					}
+				}
+			}
+			double mean = sum / n;
+			double variance = (sumSq - n * mean * mean) / (n - 1);
+			out[Metric.SHARPE.ordinal()][index] = variance > 0 ? mean / Math.sqrt(variance) * annualization : Double.NaN;
+			out[Metric.MAX_DRAWDOWN.ordinal()][index] = maxDrawDown;
+			out[Metric.FINAL_WEALTH.ordinal()][index] = wealth;
+		}
+	}
+
+	/*
+	 * SplitMix64 finalizer
+	 */
+	private static long mix(long z){
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	public Method getMethod() {
+		return method;
+	}
+
+	public void setMethod(Method method) {
+		this.method = method;
+	}
+
+	/**
+	 *
+	 * @return the (mean) length of the blocks
+	 */
+	public int getBlockLength() {
+		return blockLength;
+	}
+
+	public void setBlockLength(int blockLength) {
+		if (blockLength <= 0){
+			throw new IllegalArgumentException("The block length must be positive : " + blockLength);
+		}
+		this.blockLength = blockLength;
+	}
+
+	public int getNbResamples() {
+		return nbResamples;
+	}
+
+	public void setNbResamples(int nbResamples) {
+		if (nbResamples <= 0){
+			throw new IllegalArgumentException("The number of resamples must be positive : " + nbResamples);
+		}
+		this.nbResamples = nbResamples;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 *
+	 * @return number of returns per year (annualization of the Sharpe ratio)
+	 */
+	public int getPeriodsPerYear() {
+		return periodsPerYear;
+	}
+
+	public void setPeriodsPerYear(int periodsPerYear) {
+		this.periodsPerYear = periodsPerYear;
+	}
+
+	/**
+	 *
+	 * @param pool the {@link ForkJoinPool} of the resamples, not shut down by the resampler (by default a pool with one thread
+	 * per processor, shut down by {@link #close()})
+	 */
+	public synchronized void setPool(ForkJoinPool pool) {
+		close();
+		this.pool = pool;
+	}
+}
@@ -0,0 +1,123 @@
+package org.jquant.portfolio.resampling;
+
+import java.util.Arrays;
+
+/**
+ * Distributions of the statistics of the bootstrap resamples
+ * <p> The values of each {@link Metric} are sorted, the percentiles are interpolated between the order statistics.
+ * @author JQUANT TEAM
+ * @see Resampler
+ */
+public class ResamplingResult {
+
+	/**
+	 * The resampled statistics
+	 */
+	public enum Metric {
+		/**
+		 * mean / standard deviation of the resampled values (annualized for the returns)
+		 */
+		SHARPE,
+		/**
+		 * Max drawdown of the resampled wealth path (negative, relative to the peak)
+		 */
+		MAX_DRAWDOWN,
+		/**
+		 * Last value of the resampled wealth path
+		 */
+		FINAL_WEALTH;
+	}
+
+	private final double[][] values;
+
+	/**
+	 * @param values the values of the resamples by {@link Metric} ordinal, sorted in place
+	 */
+	ResamplingResult(double[][] values) {
+		for (double[] v : values){
+			Arrays.sort(v);
+		}
+		this.values = values;
+	}
+
+	/**
+	 *
+	 * @return number of resamples
+	 */
+	public int size(){
+		return values[0].length;
+	}
+
+	/**
+	 *
+	 * @param metric a {@link Metric}
+	 * @return the sorted values of the resamples (copy)
+	 */
+	public double[] getDistribution(Metric metric){
+		return values[metric.ordinal()].clone();
+	}
+
+	/**
+	 *
+	 * @param metric a {@link Metric}
+	 * @param p a probability in [0,1]
+	 * @return the p-quantile of the metric
+	 */
+	public double getPercentile(Metric metric, double p){
+		if (p < 0 || p > 1){
+			throw new IllegalArgumentException("Probability out of [0,1] : " + p);
+		}
+		double[] v = values[metric.ordinal()];
+		double pos = p * (v.length - 1);
+		int i = (int) Math.floor(pos);
+		if (i >= v.length - 1){
+			return v[v.length - 1];
+		}
+		return v[i] + (pos - i) * (v[i + 1] - v[i]);
+	}
+
+	/**
+	 * Percentile confidence interval
+	 * @param metric a {@link Metric}
+	 * @param level confidence level, 0.95 for a 95% interval
+	 * @return {lower bound, upper bound}
+	 */
+	public double[] getConfidenceInterval(Metric metric, double level){
+		double alpha = (1 - level) / 2;
+		return new double[]{getPercentile(metric, alpha), getPercentile(metric, 1 - alpha)};
+	}
+
+	/**
+	 *
+	 * @param metric a {@link Metric}
+	 * @return mean of the resampled values
+	 */
+	public double getMean(Metric metric){
+		double sum = 0;
+		for (double v : values[metric.ordinal()]){
+			sum += v;
+		}
+		return sum / size();
+	}
+
+	/**
+	 * Monte Carlo drawdown distribution
+	 * @param drawDown a drawdown level (negative, -0.2 for 20%)
+	 * @return the probability of a max drawdown worse than the level
+	 */
+	public double getDrawDownProbability(double drawDown){
+		double[] v = values[Metric.MAX_DRAWDOWN.ordinal()];
+		// first index with a value >= drawDown
+		int lo = 0;
+		int hi = v.length;
+		while (lo < hi){
+			int mid = (lo + hi) >>> 1;
+			if (v[mid] < drawDown){
+				lo = mid + 1;
+			}else {
+				hi = mid;
+			}
+		}
+		return (double) lo / v.length;
+	}
+}
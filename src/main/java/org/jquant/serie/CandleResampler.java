@@ -0,0 +1,281 @@
+package org.jquant.serie;
+
+import java.util.Observable;
+import java.util.Observer;
+
+import org.joda.time.DateTime;
+import org.joda.time.LocalTime;
+import org.joda.time.Period;
+import org.jquant.time.calendar.CalendarFactory;
+import org.jquant.time.calendar.DayOfTheWeek;
+import org.jquant.time.calendar.IDateTimeCalendar;
+import org.jquant.time.calendar.Periods;
+
+/**
+ * Streaming aggregation of candles (or of ticks) into candles of a higher timeframe
+ * <p>
+ * The bars are built incrementally, in one pass : each candle updates the open, high, low, close and volume of the bar
+ * of its period, the bar is added to the output {@link CandleSerie} (and its observers notified) as soon as it is
+ * complete, i.e. when a candle reaches the end of its period or when a candle of a later period arrives. The periods are
+ * <ul>
+ * <li>{@link #minutes(int, CandleSerie)} : N minutes from midnight</li>
+ * <li>{@link #daily(LocalTime, CandleSerie)} : trading sessions starting at a time of the day</li>
+ * <li>{@link #weekly(DayOfTheWeek, CandleSerie)} : weeks ending on a day, by the weekly browser of the {@link CalendarFactory}</li>
+ * <li>{@link #monthly(CandleSerie)} : months, by the end of month browser of the {@link CalendarFactory}</li>
+ * </ul>
+ * A bar is dated by its first candle (or tick). The input must be chronological.
+ * <p>
+ * A multi-timeframe strategy subscribes the resampler to its daily serie instead of loading the weekly candles :
+ * <pre>
+ * weekly = new CandleSerie(getInstrument());
+ * CandleResampler.weekly(DayOfTheWeek.FRIDAY, weekly).subscribe(getSerie());
+ * sma = new SMA(weekly, 10, CandleData.CLOSE);
+ * </pre>
+ * @author JQUANT TEAM
+ */
+public class CandleResampler implements Observer {
+
+	/**
+	 * Browsers of the weekly and monthly periods are created on the first candle for this number of years
+	 */
+	private static final int CALENDAR_YEARS = 200;
+
+	/**
+	 * Periods of the bars
+	 */
+	private abstract static class Bucketing {
+
+		/**
+		 *
+		 * @param time a time at or after the time of the previous call
+		 * @return end (exclusive, in milliseconds) of the period of the time
+		 */
+		abstract long getEnd(DateTime time);
+	}
+
+	/**
+	 * Fixed length periods from a time of the day
+	 */
+	private static final class Intraday extends Bucketing {
+
+		private final long length;
+
+		private final long offset;
+
+		Intraday(long length, long offset) {
+			this.length = length;
+			this.offset = offset;
+		}
+
+		@Override
+		long getEnd(DateTime time) {
+			long day = time.millisOfDay().withMinimumValue().getMillis();
+			long sinceStart = time.getMillis() - day - offset;
+			return day + offset + (long) Math.floor((double) sinceStart / length) * length + length;
+		}
+	}
+
+	/**
+	 * Periods ending on the (last) days of a calendar browser
+	 */
+	private abstract static class CalendarBucketing extends Bucketing {
+
+		private IDateTimeCalendar calendar;
+
+		private long end = Long.MIN_VALUE;
+
+		abstract IDateTimeCalendar createCalendar(DateTime from, DateTime to);
+
+		@Override
+		long getEnd(DateTime time) {
+			if (calendar == null){
+				DateTime from = time.millisOfDay().withMinimumValue();
+				calendar = createCalendar(from, from.plusYears(CALENDAR_YEARS));
+			}
+			while (end <= time.getMillis()){
+				DateTime last = calendar.hasNext() ? calendar.next() : null;
+				if (last == null){
+					throw new IllegalStateException("No period after " + time + " in " + calendar);
+				}
+				end = last.millisOfDay().withMinimumValue().plusDays(1).getMillis();
+			}
+			return end;
+		}
+	}
+
+	private final Bucketing bucketing;
+
+	private final Period period;
+
+	private final CandleSerie output;
+
+	/*
+	 * Bar under construction
+	 */
+	private boolean pending;
+
+	private DateTime date;
+
+	private long end;
+
+	private double open, high, low, close, volume;
+
+	private CandleResampler(Bucketing bucketing, Period period, CandleSerie output) {
+		this.bucketing = bucketing;
+		this.period = period;
+		this.output = output;
+	}
+
+	/**
+	 *
+	 * @param n length of the bars in minutes
+	 * @param output the {@link CandleSerie} of the bars
+	 * @return bars of N minutes, aligned on midnight
+	 */
+	public static CandleResampler minutes(int n, CandleSerie output){
+		if (n <= 0 || 24 * 60 % n != 0){
+			throw new IllegalArgumentException("The length of the bars must divide a day : " + n + " minutes");
+		}
+		return new CandleResampler(new Intraday(n * 60000L, 0), Period.minutes(n), output);
+	}
+
+	/**
+	 *
+	 * @param sessionStart start of the trading session (the previous evening for the sessions starting before midnight),
+	 * <code>null</code> for midnight
+	 * @param output the {@link CandleSerie} of the bars
+	 * @return one bar per session
+	 */
+	public static CandleResampler daily(LocalTime sessionStart, CandleSerie output){
+		long offset = sessionStart == null ? 0 : sessionStart.getMillisOfDay();
+		return new CandleResampler(new Intraday(Periods.ONE_DAY.toStandardDuration().getMillis(), offset), Periods.ONE_DAY, output);
+	}
+
+	/**
+	 *
+	 * @param lastDay the last day of the weeks
+	 * @param output the {@link CandleSerie} of the bars
+	 * @return one bar per week
+	 */
+	public static CandleResampler weekly(final DayOfTheWeek lastDay, CandleSerie output){
+		return new CandleResampler(new CalendarBucketing() {
+			@Override
+			IDateTimeCalendar createCalendar(DateTime from, DateTime to) {
+				return CalendarFactory.getWeeklyBrowser(from, to, lastDay, false, false);
+			}
+		}, Periods.ONE_WEEK, output);
+	}
+
+	/**
+	 *
+	 * @param output the {@link CandleSerie} of the bars
+	 * @return one bar per calendar month
+	 */
+	public static CandleResampler monthly(CandleSerie output){
+		return new CandleResampler(new CalendarBucketing() {
+			@Override
+			IDateTimeCalendar createCalendar(DateTime from, DateTime to) {
+				return CalendarFactory.getEndOfMonthBrowser(from, to, false, false);
+			}
+		}, Periods.ONE_MONTH, output);
+	}
+
+	/**
+	 * Resample the candles added to a serie
+	 * @param input a growing {@link CandleSerie}
+	 * @return this resampler
+	 */
+	public CandleResampler subscribe(CandleSerie input){
+		input.addObserver(this);
+		return this;
+	}
+
+	@Override
+	public void update(Observable o, Object arg) {
+		if (o instanceof CandleSerie){
+			onCandle(((CandleSerie) o).getLast());
+		}
+	}
+
+	/**
+	 *
+	 * @param candle the next {@link Candle}
+	 */
+	public void onCandle(Candle candle){
+		DateTime time = candle.getDate();
+		add(time, candle.getOpen(), candle.getHigh(), candle.getLow(), candle.getClose(), candle.getVolume());
+		// the candle reaches the end of the bar
+		if (candle.getPeriod() != null && time.plus(candle.getPeriod()).getMillis() >= end){
+			flush();
+		}
+	}
+
+	/**
+	 * A tick at the mid price, without volume
+	 * @param quote the next {@link BBBA}
+	 */
+	public void onQuote(BBBA quote){
+		double mid = (quote.getBestBid() + quote.getBestAsk()) / 2;
+		add(quote.getDate(), mid, mid, mid, mid, 0);
+	}
+
+	/**
+	 *
+	 * @param time time of the trade
+	 * @param price price of the trade
+	 * @param volume quantity of the trade
+	 */
+	public void onTrade(DateTime time, double price, double volume){
+		add(time, price, price, price, price, volume);
+	}
+
+	private void add(DateTime time, double o, double h, double l, double c, double v){
+		if (pending && time.getMillis() >= end){
+			flush();
+		}
+		if (!pending){
+			end = bucketing.getEnd(time);
+			date = time;
+			open = o;
+			high = h;
+			low = l;
+			volume = 0;
+			pending = true;
+		}else {
+			high = Math.max(high, h);
+			low = Math.min(low, l);
+		}
+		close = c;
+		volume += v;
+	}
+
+	/**
+	 * Complete the bar under construction (end of the data)
+	 * @return the completed bar, <code>null</code> if none
+	 */
+	public Candle flush(){
+		if (!pending){
+			return null;
+		}
+		pending = false;
+		Candle bar = new Candle(date, period, open, high, low, close, volume);
+		output.addValue(bar);
+		return bar;
+	}
+
+	/**
+	 *
+	 * @return the bar under construction (not in the output yet), <code>null</code> if none
+	 */
+	public Candle getCurrent(){
+		return pending ? new Candle(date, period, open, high, low, close, volume) : null;
+	}
+
+	/**
+	 *
+	 * @return the {@link CandleSerie} of the completed bars
+	 */
+	public CandleSerie getOutput() {
+		return output;
+	}
+}
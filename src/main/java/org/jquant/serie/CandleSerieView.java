@@ -0,0 +1,266 @@
+package org.jquant.serie;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+import org.jquant.model.InstrumentId;
+import org.jquant.serie.Candle.CandleData;
+
+/**
+ * Read only view of the candles of a {@link CandleSerie} visible up to the simulation time
+ * <p>
+ * The view shares the candles of the loaded serie (the {@link org.jquant.data.MarketManager} one) : nothing is copied
+ * during the simulation, {@link #advance(Candle)} only moves a cursor and notifies the observers (the indicators) like
+ * {@link #addValue(Candle)} on a growing serie. The candles after the cursor are not reachable (no look-ahead).
+ * <p>
+ * The view is empty until {@link #bind(CandleSerie, DateTime)}, the candles before the start date are not visible.
+ * @author JQUANT TEAM
+ */
+public class CandleSerieView extends CandleSerie {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final Candle[] NO_CANDLE = new Candle[0];
+
+	private static final long[] NO_TIME = new long[0];
+
+	private Candle[] candles = NO_CANDLE;
+
+	private long[] times = NO_TIME;
+
+	/**
+	 * index of the first visible candle
+	 */
+	private int start;
+
+	/**
+	 * index after the last visible candle (the cursor)
+	 */
+	private int end;
+
+	public CandleSerieView(InstrumentId symbol) {
+		super(symbol);
+	}
+
+	/**
+	 * Read the candles of the serie, none visible
+	 * @param source the loaded {@link CandleSerie}
+	 * @param from the first candle to be visible is the first one at or after this date, <code>null</code> for the first one of the serie
+	 */
+	public void bind(CandleSerie source, DateTime from){
+		candles = source.toArray();
+		times = new long[candles.length];
+		for (int i = 0; i < candles.length; i++){
+			times[i] = candles[i].getDate().getMillis();
+		}
+		start = from == null ? 0 : lowerBound(from.getMillis(), 0, candles.length);
+		end = start;
+	}
+
+	/**
+	 * Make the next candle visible and notify the observers
+	 * @param candle the next candle of the serie
+	 * @throws IllegalStateException if it is not the next candle
+	 */
+	public void advance(Candle candle){
+		if (end >= candles.length || candles[end] != candle){
+			throw new IllegalStateException("The candle " + candle + " is not the next one of " + this);
+		}
+		end++;
+		setChanged();
+		notifyObservers(this);
+		clearChanged();
+	}
+
+	/**
+	 *
+	 * @return the candles of the bound serie, visible or not (shared array, read only)
+	 */
+	public Candle[] getLoadedCandles(){
+		return candles;
+	}
+
+	/**
+	 *
+	 * @return the timestamps (milliseconds) of {@link #getLoadedCandles()} (shared array, read only)
+	 */
+	public long[] getLoadedTimes(){
+		return times;
+	}
+
+	/**
+	 * @return first index in [from, to[ with a time &gt;= t, to if none
+	 */
+	private int lowerBound(long t, int from, int to){
+		int index = Arrays.binarySearch(times, from, to, t);
+		return index >= 0 ? index : -index - 1;
+	}
+
+	private int indexOf(DateTime timestamp){
+		if (timestamp == null){
+			return -1;
+		}
+		int index = Arrays.binarySearch(times, start, end, timestamp.getMillis());
+		return index >= 0 ? index : -1;
+	}
+
+	@Override
+	public void addValue(Candle candle) {
+		throw new UnsupportedOperationException("The view of " + getSymbol() + " is read only, use advance");
+	}
+
+	@Override
+	public void addAll(TimeSerie<Candle> ts) {
+		throw new UnsupportedOperationException("The view of " + getSymbol() + " is read only");
+	}
+
+	/**
+	 * Hide all the candles (the observers are not notified)
+	 */
+	@Override
+	public void clear() {
+		end = start;
+	}
+
+	@Override
+	public int size() {
+		return end - start;
+	}
+
+	@Override
+	public Candle get(int index) {
+		if (index < 0 || index >= size()){
+			throw new IllegalArgumentException("Index is out of bounds : " + index, null);
+		}
+		return candles[start + index];
+	}
+
+	@Override
+	public Candle getValue(DateTime timestamp) {
+		int index = indexOf(timestamp);
+		return index >= 0 ? candles[index] : null;
+	}
+
+	@Override
+	public boolean containsDate(DateTime date) {
+		return indexOf(date) >= 0;
+	}
+
+	@Override
+	public Set<DateTime> getDateTimes() {
+		Set<DateTime> dates = new LinkedHashSet<DateTime>();
+		for (int i = start; i < end; i++){
+			dates.add(candles[i].getDate());
+		}
+		return dates;
+	}
+
+	@Override
+	public Candle[] toArray() {
+		return Arrays.copyOfRange(candles, start, end);
+	}
+
+	@Override
+	public Iterator<Candle> iterator() {
+		return new Iterator<Candle>() {
+
+			private int next = start;
+
+			private final int last = end;
+
+			@Override
+			public boolean hasNext() {
+				return next < last;
+			}
+
+			@Override
+			public Candle next() {
+				if (next >= last){
+					throw new NoSuchElementException();
+				}
+				return candles[next++];
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public Iterator<Candle> reverseIterator() {
+		return new Iterator<Candle>() {
+
+			private int next = end - 1;
+
+			@Override
+			public boolean hasNext() {
+				return next >= start;
+			}
+
+			@Override
+			public Candle next() {
+				if (next < start){
+					throw new NoSuchElementException();
+				}
+				return candles[next--];
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public DateTime getFirstDate() {
+		return getFirst().getDate();
+	}
+
+	@Override
+	public DateTime getLastDate() {
+		return getLast().getDate();
+	}
+
+	@Override
+	public Candle getFirst() {
+		if (end == start){
+			throw new NoSuchElementException();
+		}
+		return candles[start];
+	}
+
+	@Override
+	public Candle getLast() {
+		if (end == start){
+			throw new NoSuchElementException();
+		}
+		return candles[end - 1];
+	}
+
+	@Override
+	public double[] getData(CandleData data) {
+		double[] array = new double[size()];
+		for (int i = start; i < end; i++){
+			Candle c = candles[i];
+			switch (data){
+				case CLOSE : array[i - start] = c.getClose();break;
+				case OPEN : array[i - start] = c.getOpen();break;
+				case HIGH : array[i - start] = c.getHigh();break;
+				case LOW : array[i - start] = c.getLow();break;
+			}
+		}
+		return array;
+	}
+
+	@Override
+	public String toString() {
+		return "CandleSerieView [size=" + size() + ", symbol=" + getSymbol() + "]";
+	}
+}
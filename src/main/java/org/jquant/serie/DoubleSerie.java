@@ -2,6 +2,8 @@ package org.jquant.serie;
 
 import org.apache.commons.math3.stat.StatUtils;
 import org.joda.time.DateTime;
+import org.jquant.serie.DoubleSerieExpression.Join;
+import org.jquant.serie.DoubleSerieExpression.Operator;
 
 
 /**
@@ -74,10 +76,12 @@ public class DoubleSerie extends TimeSerie<TimeValue> {
 	 */
 	public DoubleSerie getReturns() {
 		DoubleSerie returns = new DoubleSerie();
-		for(int i=1;i<size();i++){
-			TimeValue c0 = this.get(i-1);
-			TimeValue c1 = this.get(i);
-			returns.addValue(new TimeValue(c0.getDate(), (c1.getValue()- c0.getValue()) / c0.getValue()));
+		TimeValue c0 = null;
+		for (TimeValue c1 : this){
+			if (c0 != null){
+				returns.addValue(new TimeValue(c0.getDate(), (c1.getValue()- c0.getValue()) / c0.getValue()));
+			}
+			c0 = c1;
 		}
 		return returns;
 	}
@@ -88,15 +92,8 @@ public class DoubleSerie extends TimeSerie<TimeValue> {
 	 * @return  S1(this) + S2 addend 
 	 */
 	public DoubleSerie sum(DoubleSerie addend){
-		DoubleSerie sum = new DoubleSerie();
-		for (TimeValue tv:this){
-			TimeValue add = addend.getValue(tv.getDate());
-			double toAdd = add != null ? add.getValue(): 0;
-			TimeValue ntv = new TimeValue(tv.getDate(), tv.getValue()+toAdd);
-			sum.addValue(ntv);
-		}
-		
-		return sum;
+		// linear merge of the dates, a missing addend counts for 0
+		return asExpression().join(addend.asExpression(), Operator.ADD, Join.LEFT, 0).toDoubleSerie();
 	}
 	
 	/**
@@ -114,6 +111,14 @@ public class DoubleSerie extends TimeSerie<TimeValue> {
 		return result;
 	}
 	
+	/**
+	 * 
+	 * @return a lazy {@link DoubleSerieExpression} over the values of this serie (copied once) 
+	 */
+	public DoubleSerieExpression asExpression(){
+		return DoubleSerieExpression.of(this);
+	}
+	
 	/**
 	 * Returns the arithmetic mean of the entries in the input array, or Double.NaN if the array is empty. 
 	 * <p>
@@ -0,0 +1,1020 @@
+package org.jquant.serie;
+
+import java.util.Arrays;
+
+import org.joda.time.Chronology;
+import org.joda.time.DateTime;
+import org.joda.time.chrono.ISOChronology;
+import org.jquant.serie.Candle.CandleData;
+
+/**
+ * Lazy algebra of time series of doubles
+ * <p>
+ * An expression chains operations over one or several series : joins on the timestamps, element-wise operations,
+ * returns, cumulative sums and products, rolling windows, lags and leads. Nothing is computed before a terminal
+ * operation ({@link #toDoubleSerie()}, {@link #toArray()}, {@link #sum()} ...) : the operations are then fused in
+ * one pass over the primitive columns of the sources, each step pulling its values from the previous one, without
+ * intermediate series. The joins are linear merges of the sorted timestamps.
+ * <p>
+ * <pre>
+ * // daily log returns of a 50/50 portfolio, then their 20 days rolling volatility
+ * DoubleSerieExpression.of(a).logReturns().multiply(0.5)
+ * 	.add(DoubleSerieExpression.of(b).logReturns().multiply(0.5))
+ * 	.rolling(20, Statistic.STDDEV).toDoubleSerie();
+ * </pre>
+ * An expression is immutable : it can be evaluated several times and shared by several expressions.
+ * Use {@link #materialize()} to compute once an expression read many times.
+ * <p>
+ * The points of an expression are dated in the chronology (and the time zone) of its source, of the left operand for a join.
+ * @author JQUANT TEAM
+ * @see DoubleSerie#asExpression()
+ */
+public abstract class DoubleSerieExpression {
+
+	/**
+	 * Alignment of two series
+	 */
+	public enum Join {
+		/** the timestamps of both series */
+		INNER,
+		/** the timestamps of the left serie, the missing value for the right one */
+		LEFT,
+		/** the timestamps of either serie, the missing value for the other one */
+		OUTER,
+		/** the timestamps of the left serie with the last value of the right one at or before them */
+		ASOF
+	}
+
+	/**
+	 * Element-wise binary operations
+	 */
+	public enum Operator {
+		ADD, SUBTRACT, MULTIPLY, DIVIDE, MIN, MAX;
+
+		double apply(double a, double b){
+			switch (this){
+				case ADD : return a + b;
+				case SUBTRACT : return a - b;
+				case MULTIPLY : return a * b;
+				case DIVIDE : return a / b;
+				case MIN : return Math.min(a, b);
+				default : return Math.max(a, b);
+			}
+		}
+	}
+
+	/**
+	 * Element-wise functions
+	 */
+	public enum Function {
+		LOG, EXP, ABS, NEGATE, SQRT;
+
+		double apply(double v){
+			switch (this){
+				case LOG : return Math.log(v);
+				case EXP : return Math.exp(v);
+				case ABS : return Math.abs(v);
+				case NEGATE : return -v;
+				default : return Math.sqrt(v);
+			}
+		}
+	}
+
+	/**
+	 * Statistics of the rolling windows
+	 */
+	public enum Statistic {
+		SUM, MEAN,
+		/** bias-corrected sample variance */
+		VARIANCE,
+		/** square root of the sample variance */
+		STDDEV,
+		MIN, MAX
+	}
+
+	/**
+	 * Pull iterator of an evaluation : {@link #next()} moves to the next point and sets its time and its value
+	 */
+	abstract static class Cursor {
+
+		long time;
+
+		double value;
+
+		abstract boolean next();
+	}
+
+	/**
+	 * Chronology of the dates of the points
+	 */
+	final Chronology chronology;
+
+	DoubleSerieExpression(Chronology chronology) {
+		// the expressions are built by the factory methods
+		this.chronology = chronology;
+	}
+
+	/**
+	 *
+	 * @return a new cursor on the points of the expression
+	 */
+	abstract Cursor cursor();
+
+	/**
+	 *
+	 * @return maximum number of points of the expression
+	 */
+	abstract int sizeHint();
+
+	/*
+	 * Sources
+	 */
+
+	/**
+	 *
+	 * @param serie a {@link DoubleSerie}
+	 * @return its values (copied once in primitive columns)
+	 */
+	public static DoubleSerieExpression of(DoubleSerie serie){
+		long[] times = new long[serie.size()];
+		double[] values = new double[times.length];
+		Chronology chronology = null;
+		int i = 0;
+		for (TimeValue tv : serie){
+			if (chronology == null){
+				chronology = tv.getDate().getChronology();
+			}
+			times[i] = tv.getDate().getMillis();
+			values[i++] = tv.getValue();
+		}
+		return new Columns(times, values, i, chronology);
+	}
+
+	/**
+	 *
+	 * @param serie a {@link CandleSerie}
+	 * @param data the field of the candles
+	 * @return the field of the candles (copied once in primitive columns)
+	 */
+	public static DoubleSerieExpression of(CandleSerie serie, CandleData data){
+		Candle[] candles = serie.toArray();
+		long[] times = new long[candles.length];
+		double[] values = new double[candles.length];
+		for (int i = 0; i < candles.length; i++){
+			times[i] = candles[i].getDate().getMillis();
+			switch (data){
+				case OPEN : values[i] = candles[i].getOpen();break;
+				case HIGH : values[i] = candles[i].getHigh();break;
+				case LOW : values[i] = candles[i].getLow();break;
+				default : values[i] = candles[i].getClose();
+			}
+		}
+		return new Columns(times, values, candles.length, candles.length > 0 ? candles[0].getDate().getChronology() : null);
+	}
+
+	/**
+	 * The arrays are not copied : they must not be modified while the expression is used
+	 * @param times increasing timestamps in milliseconds
+	 * @param values the values at these timestamps
+	 * @return the points (times[i], values[i])
+	 */
+	public static DoubleSerieExpression of(long[] times, double[] values){
+		if (times.length != values.length){
+			throw new IllegalArgumentException("Not as many times as values : " + times.length + " != " + values.length);
+		}
+		for (int i = 1; i < times.length; i++){
+			if (times[i] <= times[i - 1]){
+				throw new IllegalArgumentException("The times are not increasing at index " + i);
+			}
+		}
+		return new Columns(times, values, times.length, null);
+	}
+
+	/*
+	 * Element-wise operations
+	 */
+
+	/**
+	 *
+	 * @param function a {@link Function}
+	 * @return f(this)
+	 */
+	public DoubleSerieExpression apply(Function function){
+		return new Transform(this, function);
+	}
+
+	/**
+	 *
+	 * @param operator an {@link Operator}
+	 * @param scalar the right operand
+	 * @return this (op) scalar
+	 */
+	public DoubleSerieExpression apply(Operator operator, double scalar){
+		return new Scalar(this, operator, scalar);
+	}
+
+	public DoubleSerieExpression add(double scalar){
+		return apply(Operator.ADD, scalar);
+	}
+
+	public DoubleSerieExpression multiply(double scalar){
+		return apply(Operator.MULTIPLY, scalar);
+	}
+
+	/**
+	 *
+	 * @param other an other expression
+	 * @param operator an {@link Operator}
+	 * @param join the alignment of the series
+	 * @param missing value of a serie at a missing timestamp ({@link Join#LEFT} and {@link Join#OUTER})
+	 * @return this (op) other
+	 */
+	public DoubleSerieExpression join(DoubleSerieExpression other, Operator operator, Join join, double missing){
+		return new Merge(this, other, operator, join, missing);
+	}
+
+	/**
+	 * A missing value is {@link Double#NaN}
+	 * @param other an other expression
+	 * @param operator an {@link Operator}
+	 * @param join the alignment of the series
+	 * @return this (op) other
+	 */
+	public DoubleSerieExpression join(DoubleSerieExpression other, Operator operator, Join join){
+		return join(other, operator, join, Double.NaN);
+	}
+
+	/**
+	 *
+	 * @param other an other expression
+	 * @return this + other on the common timestamps
+	 */
+	public DoubleSerieExpression add(DoubleSerieExpression other){
+		return join(other, Operator.ADD, Join.INNER);
+	}
+
+	/**
+	 *
+	 * @param other an other expression
+	 * @return this - other on the common timestamps
+	 */
+	public DoubleSerieExpression subtract(DoubleSerieExpression other){
+		return join(other, Operator.SUBTRACT, Join.INNER);
+	}
+
+	/**
+	 *
+	 * @param other an other expression
+	 * @return this x other on the common timestamps
+	 */
+	public DoubleSerieExpression multiply(DoubleSerieExpression other){
+		return join(other, Operator.MULTIPLY, Join.INNER);
+	}
+
+	/**
+	 *
+	 * @param other an other expression
+	 * @return this / other on the common timestamps
+	 */
+	public DoubleSerieExpression divide(DoubleSerieExpression other){
+		return join(other, Operator.DIVIDE, Join.INNER);
+	}
+
+	/*
+	 * Serial operations
+	 */
+
+	/**
+	 *
+	 * @return v(i) / v(i-1) - 1 at the time of v(i)
+	 */
+	public DoubleSerieExpression returns(){
+		return new Returns(this, false);
+	}
+
+	/**
+	 *
+	 * @return log(v(i) / v(i-1)) at the time of v(i)
+	 */
+	public DoubleSerieExpression logReturns(){
+		return new Returns(this, true);
+	}
+
+	/**
+	 *
+	 * @return v(0) + ... + v(i)
+	 */
+	public DoubleSerieExpression cumulativeSum(){
+		return new Cumulative(this, Operator.ADD);
+	}
+
+	/**
+	 * Use <code>returns().add(1).cumulativeProduct()</code> for a wealth curve
+	 * @return v(0) x ... x v(i)
+	 */
+	public DoubleSerieExpression cumulativeProduct(){
+		return new Cumulative(this, Operator.MULTIPLY);
+	}
+
+	/**
+	 *
+	 * @param window number of points of the window
+	 * @param statistic a {@link Statistic}
+	 * @return the statistic of the points i-window+1 ... i at the time of the point i, from the point window-1
+	 */
+	public DoubleSerieExpression rolling(int window, Statistic statistic){
+		if (window < 1 || (window < 2 && (statistic == Statistic.VARIANCE || statistic == Statistic.STDDEV))){
+			throw new IllegalArgumentException("Window too short for the " + statistic + " : " + window);
+		}
+		return new Rolling(this, window, statistic);
+	}
+
+	/**
+	 *
+	 * @param k number of points
+	 * @return v(i-k) at the time of v(i), from the point k
+	 */
+	public DoubleSerieExpression lag(int k){
+		if (k < 0){
+			throw new IllegalArgumentException("Negative lag " + k);
+		}
+		return k == 0 ? this : new Lag(this, k);
+	}
+
+	/**
+	 *
+	 * @param k number of points
+	 * @return v(i+k) at the time of v(i), up to the point n-k-1
+	 */
+	public DoubleSerieExpression lead(int k){
+		if (k < 0){
+			throw new IllegalArgumentException("Negative lead " + k);
+		}
+		return k == 0 ? this : new Lead(this, k);
+	}
+
+	/*
+	 * Terminal operations
+	 */
+
+	/**
+	 * Evaluate the expression
+	 * @return an expression over the computed columns
+	 */
+	public DoubleSerieExpression materialize(){
+		int capacity = sizeHint();
+		long[] times = new long[capacity];
+		double[] values = new double[capacity];
+		Cursor c = cursor();
+		int n = 0;
+		while (c.next()){
+			times[n] = c.time;
+			values[n++] = c.value;
+		}
+		return new Columns(times, values, n, chronology);
+	}
+
+	/**
+	 *
+	 * @return the values of the expression
+	 */
+	public double[] toArray(){
+		double[] values = new double[sizeHint()];
+		Cursor c = cursor();
+		int n = 0;
+		while (c.next()){
+			values[n++] = c.value;
+		}
+		return n == values.length ? values : Arrays.copyOf(values, n);
+	}
+
+	/**
+	 *
+	 * @return the timestamps of the expression in milliseconds
+	 */
+	public long[] getTimes(){
+		long[] times = new long[sizeHint()];
+		Cursor c = cursor();
+		int n = 0;
+		while (c.next()){
+			times[n++] = c.time;
+		}
+		return n == times.length ? times : Arrays.copyOf(times, n);
+	}
+
+	/**
+	 *
+	 * @return a new {@link DoubleSerie} with the points of the expression
+	 */
+	public DoubleSerie toDoubleSerie(){
+		DoubleSerie serie = new DoubleSerie();
+		Cursor c = cursor();
+		while (c.next()){
+			serie.add(new DateTime(c.time, chronology), c.value);
+		}
+		return serie;
+	}
+
+	/**
+	 *
+	 * @return number of points
+	 */
+	public int count(){
+		Cursor c = cursor();
+		int n = 0;
+		while (c.next()){
+			n++;
+		}
+		return n;
+	}
+
+	/**
+	 *
+	 * @return sum of the values
+	 */
+	public double sum(){
+		Cursor c = cursor();
+		double sum = 0;
+		while (c.next()){
+			sum += c.value;
+		}
+		return sum;
+	}
+
+	/**
+	 *
+	 * @return arithmetic mean of the values, {@link Double#NaN} without value
+	 */
+	public double mean(){
+		Cursor c = cursor();
+		double sum = 0;
+		int n = 0;
+		while (c.next()){
+			sum += c.value;
+			n++;
+		}
+		return n == 0 ? Double.NaN : sum / n;
+	}
+
+	/**
+	 *
+	 * @return last value, {@link Double#NaN} without value
+	 */
+	public double last(){
+		Cursor c = cursor();
+		double last = Double.NaN;
+		while (c.next()){
+			last = c.value;
+		}
+		return last;
+	}
+
+	/**
+	 * Sorted primitive columns
+	 */
+	private static final class Columns extends DoubleSerieExpression {
+
+		private final long[] times;
+
+		private final double[] values;
+
+		private final int length;
+
+		/**
+		 * @param chronology the chronology of the dates, <code>null</code> for ISO in the default zone
+		 */
+		Columns(long[] times, double[] values, int length, Chronology chronology) {
+			super(chronology != null ? chronology : ISOChronology.getInstance());
+			this.times = times;
+			this.values = values;
+			this.length = length;
+		}
+
+		@Override
+		Cursor cursor() {
+			return new Cursor() {
+
+				private int i = -1;
+
+				@Override
+				boolean next() {
+					if (++i >= length){
+						return false;
+					}
+					time = times[i];
+					value = values[i];
+					return true;
+				}
+			};
+		}
+
+		@Override
+		int sizeHint() {
+			return length;
+		}
+
+		@Override
+		public DoubleSerieExpression materialize() {
+			return this;
+		}
+	}
+
+	private static final class Transform extends DoubleSerieExpression {
+
+		private final DoubleSerieExpression input;
+
+		private final Function function;
+
+		Transform(DoubleSerieExpression input, Function function) {
+			super(input.chronology);
+			this.input = input;
+			this.function = function;
+		}
+
+		@Override
+		Cursor cursor() {
+			final Cursor in = input.cursor();
+			return new Cursor() {
+				@Override
+				boolean next() {
+					if (!in.next()){
+						return false;
+					}
+					time = in.time;
+					value = function.apply(in.value);
+					return true;
+				}
+			};
+		}
+
+		@Override
+		int sizeHint() {
+			return input.sizeHint();
+		}
+	}
+
+	private static final class Scalar extends DoubleSerieExpression {
+
+		private final DoubleSerieExpression input;
+
+		private final Operator operator;
+
+		private final double scalar;
+
+		Scalar(DoubleSerieExpression input, Operator operator, double scalar) {
+			super(input.chronology);
+			this.input = input;
+			this.operator = operator;
+			this.scalar = scalar;
+		}
+
+		@Override
+		Cursor cursor() {
+			final Cursor in = input.cursor();
+			return new Cursor() {
+				@Override
+				boolean next() {
+					if (!in.next()){
+						return false;
+					}
+					time = in.time;
+					value = operator.apply(in.value, scalar);
+					return true;
+				}
+			};
+		}
+
+		@Override
+		int sizeHint() {
+			return input.sizeHint();
+		}
+	}
+
+	/**
+	 * Linear merge of two sorted series
+	 */
+	private static final class Merge extends DoubleSerieExpression {
+
+		private final DoubleSerieExpression left;
+
+		private final DoubleSerieExpression right;
+
+		private final Operator operator;
+
+		private final Join join;
+
+		private final double missing;
+
+		Merge(DoubleSerieExpression left, DoubleSerieExpression right, Operator operator, Join join, double missing) {
+			super(left.chronology);
+			this.left = left;
+			this.right = right;
+			this.operator = operator;
+			this.join = join;
+			this.missing = missing;
+		}
+
+		@Override
+		Cursor cursor() {
+			final Cursor l = left.cursor();
+			final Cursor r = right.cursor();
+			switch (join){
+				case INNER : return new Cursor() {
+					@Override
+					boolean next() {
+						boolean hasL = l.next();
+						boolean hasR = r.next();
+						while (hasL && hasR){
+							if (l.time < r.time){
+								hasL = l.next();
+							}else if (l.time > r.time){
+								hasR = r.next();
+							}else {
+								time = l.time;
+								value = operator.apply(l.value, r.value);
+								return true;
+							}
+						}
+						return false;
+					}
+				};
+				case LEFT : return new Cursor() {
+
+					private boolean started;
+
+					private boolean hasR;
+
+					@Override
+					boolean next() {
+						if (!l.next()){
+							return false;
+						}
+						if (!started){
+							hasR = r.next();
+							started = true;
+						}
+						while (hasR && r.time < l.time){
+							hasR = r.next();
+						}
+						time = l.time;
+						value = operator.apply(l.value, hasR && r.time == l.time ? r.value : missing);
+						return true;
+					}
+				};
+				case OUTER : return new Cursor() {
+
+					private boolean hasL, hasR;
+
+					private boolean nextL = true, nextR = true;
+
+					@Override
+					boolean next() {
+						if (nextL){
+							hasL = l.next();
+						}
+						if (nextR){
+							hasR = r.next();
+						}
+						if (!hasL && !hasR){
+							nextL = nextR = false;
+							return false;
+						}
+						nextL = hasL && (!hasR || l.time <= r.time);
+						nextR = hasR && (!hasL || r.time <= l.time);
+						time = nextL ? l.time : r.time;
+						value = operator.apply(nextL ? l.value : missing, nextR ? r.value : missing);
+						return true;
+					}
+				};
+				default : return new Cursor() {
+
+					private boolean started;
+
+					private boolean hasR;
+
+					private boolean found;
+
+					private double last;
+
+					@Override
+					boolean next() {
+						if (!started){
+							hasR = r.next();
+							started = true;
+						}
+						while (l.next()){
+							while (hasR && r.time <= l.time){
+								last = r.value;
+								found = true;
+								hasR = r.next();
+							}
+							if (found){
+								time = l.time;
+								value = operator.apply(l.value, last);
+								return true;
+							}
+						}
+						return false;
+					}
+				};
+			}
+		}
+
+		@Override
+		int sizeHint() {
+			switch (join){
+				case INNER : return Math.min(left.sizeHint(), right.sizeHint());
+				case OUTER : return left.sizeHint() + right.sizeHint();
+				default : return left.sizeHint();
+			}
+		}
+	}
+
+	private static final class Returns extends DoubleSerieExpression {
+
+		private final DoubleSerieExpression input;
+
+		private final boolean log;
+
+		Returns(DoubleSerieExpression input, boolean log) {
+			super(input.chronology);
+			this.input = input;
+			this.log = log;
+		}
+
+		@Override
+		Cursor cursor() {
+			final Cursor in = input.cursor();
+			return new Cursor() {
+
+				private boolean started;
+
+				private double previous;
+
+				@Override
+				boolean next() {
+					while (in.next()){
+						double p = previous;
+						previous = in.value;
+						if (started){
+							time = in.time;
+							value = log ? Math.log(in.value / p) : in.value / p - 1;
+							return true;
+						}
+						started = true;
+					}
+					return false;
+				}
+			};
+		}
+
+		@Override
+		int sizeHint() {
+			return Math.max(0, input.sizeHint() - 1);
+		}
+	}
+
+	private static final class Cumulative extends DoubleSerieExpression {
+
+		private final DoubleSerieExpression input;
+
+		private final Operator operator;
+
+		Cumulative(DoubleSerieExpression input, Operator operator) {
+			super(input.chronology);
+			this.input = input;
+			this.operator = operator;
+		}
+
+		@Override
+		Cursor cursor() {
+			final Cursor in = input.cursor();
+			return new Cursor() {
+
+				private boolean started;
+
+				@Override
+				boolean next() {
+					if (!in.next()){
+						return false;
+					}
+					time = in.time;
+					value = started ? operator.apply(value, in.value) : in.value;
+					started = true;
+					return true;
+				}
+			};
+		}
+
+		@Override
+		int sizeHint() {
+			return input.sizeHint();
+		}
+	}
+
+	private static final class Rolling extends DoubleSerieExpression {
+
+		private final DoubleSerieExpression input;
+
+		private final int window;
+
+		private final Statistic statistic;
+
+		Rolling(DoubleSerieExpression input, int window, Statistic statistic) {
+			super(input.chronology);
+			this.input = input;
+			this.window = window;
+			this.statistic = statistic;
+		}
+
+		@Override
+		Cursor cursor() {
+			final Cursor in = input.cursor();
+			if (statistic == Statistic.MIN || statistic == Statistic.MAX){
+				return new Cursor() {
+
+					/*
+					 * Monotonic deque of the candidates : their values and their index
+					 */
+					private final double[] values = new double[window];
+
+					private final long[] indexes = new long[window];
+
+					private int head, size;
+
+					private long index = -1;
+
+					@Override
+					boolean next() {
+						while (in.next()){
+							index++;
+							double v = in.value;
+							if (size > 0 && indexes[head] <= index - window){
+								head = (head + 1) % window;
+								size--;
+							}
+							while (size > 0 && dominates(v, values[(head + size - 1) % window])){
+								size--;
+							}
+							int tail = (head + size) % window;
+							values[tail] = v;
+							indexes[tail] = index;
+							size++;
+							if (index >= window - 1){
+								time = in.time;
+								value = values[head];
+								return true;
+							}
+						}
+						return false;
+					}
+
+					private boolean dominates(double v, double candidate){
+						return statistic == Statistic.MIN ? v <= candidate : v >= candidate;
+					}
+				};
+			}
+			return new Cursor() {
+
+				private final double[] ring = new double[window];
+
+				private int count;
+
+				private double sum, sumSq;
+
+				@Override
+				boolean next() {
+					while (in.next()){
+						int slot = count % window;
+						if (count >= window){
+							sum -= ring[slot];
+							sumSq -= ring[slot] * ring[slot];
+						}
+						ring[slot] = in.value;
+						sum += in.value;
+						sumSq += in.value * in.value;
+						count++;
+						if (count % window == 0){
+							// exact sums once per window against the rounding drift
+							sum = 0;
+							sumSq = 0;
+							for (double v : ring){
+								sum += v;
+								sumSq += v * v;
+							}
+						}
+						if (count >= window){
+							time = in.time;
+							value = compute();
+							return true;
+						}
+					}
+					return false;
+				}
+
+				private double compute(){
+					switch (statistic){
+						case SUM : return sum;
+						case MEAN : return sum / window;
+						default :
+							double variance = Math.max(0, (sumSq - sum * sum / window) / (window - 1));
+							return statistic == Statistic.VARIANCE ? variance : Math.sqrt(variance);
+					}
+				}
+			};
+		}
+
+		@Override
+		int sizeHint() {
+			return Math.max(0, input.sizeHint() - window + 1);
+		}
+	}
+
+	private static final class Lag extends DoubleSerieExpression {
+
+		private final DoubleSerieExpression input;
+
+		private final int k;
+
+		Lag(DoubleSerieExpression input, int k) {
+			super(input.chronology);
+			this.input = input;
+			this.k = k;
+		}
+
+		@Override
+		Cursor cursor() {
+			final Cursor in = input.cursor();
+			return new Cursor() {
+
+				private final double[] ring = new double[k];
+
+				private int count;
+
+				@Override
+				boolean next() {
+					while (in.next()){
+						int slot = count++ % k;
+						double lagged = ring[slot];
+						ring[slot] = in.value;
+						if (count > k){
+							time = in.time;
+							value = lagged;
+							return true;
+						}
+					}
+					return false;
+				}
+			};
+		}
+
+		@Override
+		int sizeHint() {
+			return Math.max(0, input.sizeHint() - k);
+		}
+	}
+
+	private static final class Lead extends DoubleSerieExpression {
+
+		private final DoubleSerieExpression input;
+
+		private final int k;
+
+		Lead(DoubleSerieExpression input, int k) {
+			super(input.chronology);
+			this.input = input;
+			this.k = k;
+		}
+
+		@Override
+		Cursor cursor() {
+			final Cursor in = input.cursor();
+			return new Cursor() {
+
+				private final long[] ring = new long[k];
+
+				private int count;
+
+				@Override
+				boolean next() {
+					while (in.next()){
+						int slot = count++ % k;
+						long early = ring[slot];
+						ring[slot] = in.time;
+						if (count > k){
+							time = early;
+							value = in.value;
+							return true;
+						}
+					}
+					return false;
+				}
+			};
+		}
+
+		@Override
+		int sizeHint() {
+			return Math.max(0, input.sizeHint() - k);
+		}
+	}
+}
@@ -115,6 +115,14 @@ public abstract class TimeSerie<T extends AbstractTimeValue> extends Observable
     }
     
     
+    /**
+     * Remove all the values of this TimeSerie (the observers are not notified)
+     */
+    public void clear(){
+    	map.clear();
+    }
+    
+    
     /**
      * Add all time values contained in ts in this TimeSerie 
      * @param ts the other TimeSerie 
@@ -0,0 +1,219 @@
+package org.jquant.serie;
+
+import org.joda.time.DateTime;
+import org.jquant.curve.Interpolation;
+import org.jquant.curve.InterpolationMethod;
+import org.jquant.model.OptionType;
+
+/**
+ * Implied volatility surface : an expiry x strike grid of volatilities for a given date and {@link OptionType}
+ * <ul>
+ * <li>Expiries are times in years (ex : 1M = 1/12)</li>
+ * <li>Strikes are in % of the underlying value (1.0 = ATM) as in {@link VolatilityTermStructure}</li>
+ * </ul>
+ * Along the strikes each expiry (smile) is interpolated with the {@link InterpolationMethod} of the surface
+ * (LINEAR gives the usual bilinear surface, CUBIC_SPLINE a smooth smile), along the expiries the total variance
+ * &sigma;<sup>2</sup>T is interpolated linearly.
+ * Outside of the grid the volatility is flat (closest strike, closest expiry).
+ * <p>
+ * The lookups do not allocate. A surface returned by a {@link VolatilitySurfaceSerie.Cursor} is the view of the cursor
+ * that moves with the dates : it must not be kept from one lookup to the next one.
+ * @author JQUANT TEAM
+ * @see VolatilitySurfaceSerie
+ */
+public class VolatilitySurface {
+
+	private DateTime date;
+
+	private final OptionType type;
+
+	private final double[] expiries;
+
+	private final double[] strikes;
+
+	/**
+	 * Volatilities of each expiry
+	 */
+	private final double[][] smiles;
+
+	private final Interpolation[] interpolations;
+
+	/**
+	 *
+	 * @param date the date of the surface
+	 * @param type the {@link OptionType}
+	 * @param expiries expiries in years, strictly increasing
+	 * @param strikes strikes in % of the underlying, strictly increasing
+	 * @param volatilities the grid, expiry major : volatilities[i * strikes.length + j] is the volatility of the expiry i and the strike j
+	 * @param method the {@link InterpolationMethod} of the smiles
+	 */
+	public VolatilitySurface(DateTime date, OptionType type, double[] expiries, double[] strikes, double[] volatilities, InterpolationMethod method) {
+		this(type, expiries, strikes, method);
+		set(date, volatilities, 0);
+	}
+
+	/**
+	 * Empty surface (view for a {@link VolatilitySurfaceSerie})
+	 */
+	VolatilitySurface(OptionType type, double[] expiries, double[] strikes, InterpolationMethod method) {
+		super();
+		checkAxis(expiries, "expiries");
+		checkAxis(strikes, "strikes");
+		this.type = type;
+		this.expiries = expiries;
+		this.strikes = strikes;
+		this.smiles = new double[expiries.length][strikes.length];
+		this.interpolations = new Interpolation[expiries.length];
+		for (int i = 0; i < expiries.length; i++){
+			interpolations[i] = method.create();
+		}
+	}
+
+	static void checkAxis(double[] axis, String name){
+		if (axis.length == 0){
+			throw new IllegalArgumentException("The surface " + name + " are empty");
+		}
+		for (int i = 1; i < axis.length; i++){
+			if (axis[i] <= axis[i-1]){
+				throw new IllegalArgumentException("The surface " + name + " must be strictly increasing");
+			}
+		}
+	}
+
+	/**
+	 * Load the grid of a date
+	 * @param date the date of the grid
+	 * @param data the grid storage
+	 * @param offset position of the grid in the storage
+	 */
+	void set(DateTime date, double[] data, int offset){
+		this.date = date;
+		int nbStrikes = strikes.length;
+		for (int i = 0; i < expiries.length; i++){
+			System.arraycopy(data, offset + i * nbStrikes, smiles[i], 0, nbStrikes);
+			interpolations[i].update(strikes, smiles[i], nbStrikes);
+		}
+	}
+
+	/**
+	 *
+	 * @param expiry time to expiry in years
+	 * @param strike strike in % of the underlying (1.0 = ATM)
+	 * @return the implied volatility
+	 */
+	public double getVolatility(double expiry, double strike){
+		int last = expiries.length - 1;
+		if (expiry <= expiries[0]){
+			return getSmileVolatility(0, strike);
+		}
+		if (expiry >= expiries[last]){
+			return getSmileVolatility(last, strike);
+		}
+		int i = locateExpiry(expiry);
+		double t0 = expiries[i];
+		double t1 = expiries[i+1];
+		double v0 = getSmileVolatility(i, strike);
+		double v1 = getSmileVolatility(i+1, strike);
+		// linear total variance
+		double w = (expiry - t0) / (t1 - t0);
+		double variance = ((1 - w) * v0 * v0 * t0 + w * v1 * v1 * t1) / expiry;
+		return Math.sqrt(variance);
+	}
+
+	/**
+	 *
+	 * @param expiry time to expiry in years
+	 * @return the ATM (strike = 1.0) implied volatility
+	 */
+	public double getAtmVolatility(double expiry){
+		return getVolatility(expiry, 1.0);
+	}
+
+	/**
+	 *
+	 * @param expiry time to expiry in years
+	 * @param strike strike in % of the underlying (1.0 = ATM)
+	 * @return &sigma;<sup>2</sup>T
+	 */
+	public double getTotalVariance(double expiry, double strike){
+		double vol = getVolatility(expiry, strike);
+		return vol * vol * expiry;
+	}
+
+	private double getSmileVolatility(int expiryIndex, double strike){
+		// flat extrapolation
+		if (strike <= strikes[0]){
+			return smiles[expiryIndex][0];
+		}
+		if (strike >= strikes[strikes.length-1]){
+			return smiles[expiryIndex][strikes.length-1];
+		}
+		return interpolations[expiryIndex].value(strike);
+	}
+
+	/**
+	 *
+	 * @return i such as expiries[i] &lt;= expiry &lt; expiries[i+1]
+	 */
+	private int locateExpiry(double expiry){
+		int lo = 0;
+		int hi = expiries.length - 1;
+		while (hi - lo > 1){
+			int mid = (lo + hi) >>> 1;
+			if (expiry < expiries[mid]){
+				hi = mid;
+			}else {
+				lo = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 *
+	 * @param expiryIndex index of the expiry
+	 * @param strikeIndex index of the strike
+	 * @return the volatility of the grid
+	 */
+	public double getGridVolatility(int expiryIndex, int strikeIndex){
+		return smiles[expiryIndex][strikeIndex];
+	}
+
+	public DateTime getDate() {
+		return date;
+	}
+
+	public OptionType getType() {
+		return type;
+	}
+
+	/**
+	 *
+	 * @return number of expiries of the grid
+	 */
+	public int getNbExpiries(){
+		return expiries.length;
+	}
+
+	/**
+	 *
+	 * @return number of strikes of the grid
+	 */
+	public int getNbStrikes(){
+		return strikes.length;
+	}
+
+	public double getExpiry(int index){
+		return expiries[index];
+	}
+
+	public double getStrike(int index){
+		return strikes[index];
+	}
+
+	@Override
+	public String toString() {
+		return "VolatilitySurface [date=" + date + ", type=" + type + ", expiries=" + expiries.length + ", strikes=" + strikes.length + "]";
+	}
+
+}
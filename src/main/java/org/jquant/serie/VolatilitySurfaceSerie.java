@@ -0,0 +1,332 @@
+package org.jquant.serie;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.joda.time.DateTime;
+import org.joda.time.Period;
+import org.jquant.curve.InterpolationMethod;
+import org.jquant.model.InstrumentId;
+import org.jquant.model.OptionType;
+
+/**
+ * Historical {@link VolatilitySurface}s of an instrument on a constant grid (expiries as terms, strikes in % of the underlying)
+ * <p>
+ * All the grids are stored one after the other in a single <code>double[]</code> with the timestamps in a <code>long[]</code> :
+ * no object per point or per date (a {@link VolatilityTermStructure} needs a {@link Rate} and a map entry per point).
+ * <p>
+ * Once loaded the serie is not modified : it is shared by the simulations of a {@link org.jquant.data.MarketManager}.
+ * {@link #getSurface(DateTime)} returns the last surface at or before a date (as-of) in a new instance. For the lookups
+ * of a simulation a {@link Cursor} (one per caller) reloads a single view for each new date without allocation
+ * (forward moves are sequential, backward moves use a binary search).
+ * @author JQUANT TEAM
+ * @see VolatilitySurface
+ */
+public class VolatilitySurfaceSerie {
+
+	private InstrumentId symbol;
+
+	private final OptionType type;
+
+	private final double[] expiries;
+
+	private final double[] strikes;
+
+	private final int gridSize;
+
+	private final InterpolationMethod method;
+
+	private long[] timestamps;
+
+	private DateTime[] dates;
+
+	private double[] data;
+
+	private int size;
+
+	/**
+	 *
+	 * @param type the {@link OptionType}
+	 * @param expiries expiries in years, strictly increasing
+	 * @param strikes strikes in % of the underlying, strictly increasing
+	 * @param method the {@link InterpolationMethod} of the smiles
+	 */
+	public VolatilitySurfaceSerie(OptionType type, double[] expiries, double[] strikes, InterpolationMethod method) {
+		super();
+		this.type = type;
+		this.expiries = expiries.clone();
+		this.strikes = strikes.clone();
+		this.gridSize = expiries.length * strikes.length;
+		this.method = method;
+		VolatilitySurface.checkAxis(this.expiries, "expiries");
+		VolatilitySurface.checkAxis(this.strikes, "strikes");
+		this.timestamps = new long[16];
+		this.dates = new DateTime[16];
+		this.data = new double[16 * gridSize];
+	}
+
+	/**
+	 *
+	 * @param type the {@link OptionType}
+	 * @param terms expiries as {@link Period}s (years, months, weeks and days)
+	 * @param strikes strikes in % of the underlying, strictly increasing
+	 * @param method the {@link InterpolationMethod} of the smiles
+	 */
+	public VolatilitySurfaceSerie(OptionType type, Period[] terms, double[] strikes, InterpolationMethod method) {
+		this(type, toYears(terms), strikes, method);
+	}
+
+	/**
+	 * Append the grid of a date, the dates must be added in increasing order (loading only, not thread safe)
+	 * @param date the {@link DateTime} of the grid
+	 * @param volatilities the grid, expiry major : volatilities[i * nbStrikes + j]
+	 */
+	public void addSurface(DateTime date, double[] volatilities){
+		if (volatilities.length != gridSize){
+			throw new IllegalArgumentException("Wrong grid size " + volatilities.length + ", expected " + gridSize);
+		}
+		long t = date.getMillis();
+		if (size > 0 && t <= timestamps[size-1]){
+			throw new IllegalArgumentException("Surfaces must be added in increasing order of dates : " + date);
+		}
+		if (size == timestamps.length){
+			int capacity = Math.max(16, size * 2);
+			timestamps = Arrays.copyOf(timestamps, capacity);
+			dates = Arrays.copyOf(dates, capacity);
+			data = Arrays.copyOf(data, capacity * gridSize);
+		}
+		timestamps[size] = t;
+		dates[size] = date;
+		System.arraycopy(volatilities, 0, data, size * gridSize, gridSize);
+		size++;
+	}
+
+	/**
+	 *
+	 * @param date a {@link DateTime}
+	 * @return the last surface at or before the date (new instance), <code>null</code> before the first surface
+	 */
+	public VolatilitySurface getSurface(DateTime date){
+		int index = floorIndex(date.getMillis(), -1);
+		return index < 0 ? null : get(index);
+	}
+
+	/**
+	 *
+	 * @param index index of the surface
+	 * @return the surface (new instance)
+	 */
+	public VolatilitySurface get(int index){
+		checkIndex(index);
+		VolatilitySurface surface = new VolatilitySurface(type, expiries, strikes, method);
+		surface.set(dates[index], data, index * gridSize);
+		return surface;
+	}
+
+	/**
+	 *
+	 * @param date a {@link DateTime}
+	 * @param expiry time to expiry in years
+	 * @param strike strike in % of the underlying (1.0 = ATM)
+	 * @return the as-of volatility, {@link Double#NaN} before the first surface
+	 */
+	public double getVolatility(DateTime date, double expiry, double strike){
+		VolatilitySurface surface = getSurface(date);
+		return surface == null ? Double.NaN : surface.getVolatility(expiry, strike);
+	}
+
+	/**
+	 *
+	 * @return a new {@link Cursor} on the serie, for one caller
+	 */
+	public Cursor cursor(){
+		return new Cursor();
+	}
+
+	private void checkIndex(int index){
+		if (index < 0 || index >= size){
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	/**
+	 *
+	 * @param t a time in milliseconds
+	 * @param hint index of the previous lookup, -1 if none
+	 * @return index of the last surface at or before t, -1 if none
+	 */
+	private int floorIndex(long t, int hint){
+		int index = hint;
+		if (index >= 0 && timestamps[index] <= t){
+			// sequential forward move
+			while (index + 1 < size && timestamps[index+1] <= t){
+				index++;
+			}
+			return index;
+		}
+		index = Arrays.binarySearch(timestamps, 0, size, t);
+		return index >= 0 ? index : -index - 2;
+	}
+
+	/**
+	 * Release the unused capacity
+	 */
+	public void trimToSize(){
+		timestamps = Arrays.copyOf(timestamps, size);
+		dates = Arrays.copyOf(dates, size);
+		data = Arrays.copyOf(data, size * gridSize);
+	}
+
+	public int size(){
+		return size;
+	}
+
+	public DateTime getFirstDate(){
+		return size > 0 ? dates[0] : null;
+	}
+
+	public DateTime getLastDate(){
+		return size > 0 ? dates[size-1] : null;
+	}
+
+	public InstrumentId getSymbol() {
+		return symbol;
+	}
+
+	public void setSymbol(InstrumentId symbol) {
+		this.symbol = symbol;
+	}
+
+	public OptionType getType() {
+		return type;
+	}
+
+	/**
+	 * Build the serie from the legacy {@link VolatilityTermStructure}s (one per term and strike)
+	 * <p> Volatilities of the structures flagged {@link TermStructure#isPercent()} are divided by 100.
+	 * The grid of a date is complete when every point has been quoted once, the last quote of a point is used (as-of)
+	 * when it is missing on a date. The dates before the first complete grid are ignored.
+	 * @param structures the {@link VolatilityTermStructure}s of the same {@link OptionType}
+	 * @param method the {@link InterpolationMethod} of the smiles
+	 * @return the {@link VolatilitySurfaceSerie}
+	 */
+	public static VolatilitySurfaceSerie fromTermStructures(List<VolatilityTermStructure> structures, InterpolationMethod method){
+		if (structures.isEmpty()){
+			throw new IllegalArgumentException("No volatility term structure");
+		}
+		TreeMap<Double, Period> terms = new TreeMap<Double, Period>();
+		TreeSet<Double> strikeSet = new TreeSet<Double>();
+		TreeSet<DateTime> dateSet = new TreeSet<DateTime>();
+		OptionType type = structures.get(0).getType();
+		for (VolatilityTermStructure vts : structures){
+			if (vts.getType() != type){
+				throw new IllegalArgumentException("Mixed option types : " + type + " and " + vts.getType());
+			}
+			terms.put(toYears(vts.getTerm()), vts.getTerm());
+			strikeSet.add(vts.getStrike());
+			dateSet.addAll(vts.getDateTimes());
+		}
+		double[] expiries = toArray(terms.keySet());
+		double[] strikes = toArray(strikeSet);
+		VolatilitySurfaceSerie serie = new VolatilitySurfaceSerie(type, expiries, strikes, method);
+
+		int[] positions = new int[structures.size()];
+		double[] scales = new double[structures.size()];
+		for (int k = 0; k < positions.length; k++){
+			VolatilityTermStructure vts = structures.get(k);
+			positions[k] = Arrays.binarySearch(expiries, toYears(vts.getTerm())) * strikes.length + Arrays.binarySearch(strikes, vts.getStrike());
+			scales[k] = vts.isPercent() ? 0.01 : 1.0;
+		}
+		double[] grid = new double[serie.gridSize];
+		Arrays.fill(grid, Double.NaN);
+		int missing = grid.length;
+		for (DateTime date : dateSet){
+			for (int k = 0; k < positions.length; k++){
+				Rate r = structures.get(k).getValue(date);
+				if (r != null){
+					if (Double.isNaN(grid[positions[k]])){
+						missing--;
+					}
+					grid[positions[k]] = r.getRate() * scales[k];
+				}
+			}
+			if (missing == 0){
+				serie.addSurface(date, grid);
+			}
+		}
+		return serie;
+	}
+
+	/**
+	 * As-of lookups of one caller (a strategy) : the surfaces share a single view reloaded for each new date, without
+	 * allocation. A surface returned by a cursor is valid until the next lookup of the cursor, use
+	 * {@link VolatilitySurfaceSerie#getSurface(DateTime)} for a surface to keep.
+	 * <p> A cursor is used by one thread.
+	 */
+	public final class Cursor {
+
+		private final VolatilitySurface view = new VolatilitySurface(type, expiries, strikes, method);
+
+		private int viewIndex = -1;
+
+		private Cursor() {
+			super();
+		}
+
+		/**
+		 *
+		 * @param date a {@link DateTime}
+		 * @return the last surface at or before the date (view of the cursor), <code>null</code> before the first surface
+		 */
+		public VolatilitySurface getSurface(DateTime date){
+			int index = floorIndex(date.getMillis(), viewIndex);
+			return index < 0 ? null : get(index);
+		}
+
+		/**
+		 *
+		 * @param index index of the surface
+		 * @return the surface (view of the cursor)
+		 */
+		public VolatilitySurface get(int index){
+			checkIndex(index);
+			if (index != viewIndex){
+				view.set(dates[index], data, index * gridSize);
+				viewIndex = index;
+			}
+			return view;
+		}
+
+		/**
+		 *
+		 * @return the serie of the cursor
+		 */
+		public VolatilitySurfaceSerie getSerie(){
+			return VolatilitySurfaceSerie.this;
+		}
+	}
+
+	private static double[] toArray(Collection<Double> values){
+		double[] array = new double[values.size()];
+		int i = 0;
+		for (Double d : values){
+			array[i++] = d;
+		}
+		return array;
+	}
+
+	private static double[] toYears(Period[] terms){
+		double[] years = new double[terms.length];
+		for (int i = 0; i < terms.length; i++){
+			years[i] = toYears(terms[i]);
+		}
+		return years;
+	}
+
+	private static double toYears(Period term){
+		return term.getYears() + term.getMonths() / 12.0 + (term.getWeeks() * 7 + term.getDays()) / 365.0;
+	}
+}
@@ -1,14 +1,21 @@
 package org.jquant.strategy;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
+import org.jquant.data.IMarketManager;
+import org.jquant.event.TimerSource;
+import org.jquant.indicator.CandleIndicator;
+import org.jquant.indicator.IndicatorRegistry;
 import org.jquant.model.InstrumentId;
 import org.jquant.model.MarketDataPrecision;
 import org.jquant.order.IOrderManager;
 import org.jquant.order.LimitOrder;
+import org.jquant.order.MarketOnCloseOrder;
 import org.jquant.order.MarketOrder;
 import org.jquant.order.Order;
 import org.jquant.order.Order.OrderSide;
@@ -16,8 +23,13 @@ import org.jquant.order.StopOrder;
 import org.jquant.order.TrailingStopOrder;
 import org.jquant.portfolio.Portfolio;
 import org.jquant.portfolio.Trade.TradeSide;
+import org.jquant.serie.BBBA;
 import org.jquant.serie.Candle;
 import org.jquant.serie.Candle.CandleData;
+import org.jquant.serie.CandleSerie;
+import org.jquant.serie.VolatilitySurface;
+import org.jquant.serie.VolatilitySurfaceSerie;
+import org.jquant.strategy.sizing.PositionSizer;
 
 /**
  * Base Class for a Strategy
@@ -53,6 +65,31 @@ public abstract class AbstractStrategy implements IStrategy {
 	 */
 	protected IOrderManager orderManager;
 	
+	/**
+	 * The {@link IMarketManager} (implied volatilities ...)
+	 */
+	private IMarketManager marketManager;
+	
+	/**
+	 * Lookups of the volatility surfaces of the strategy (the series are shared by the simulations)
+	 */
+	private final Map<InstrumentId, VolatilitySurfaceSerie.Cursor> volatilityCursors = new HashMap<InstrumentId, VolatilitySurfaceSerie.Cursor>();
+	
+	/**
+	 * The timers of the simulation 
+	 */
+	private TimerSource timers;
+	
+	/**
+	 * {@link #getPositionSizer()}
+	 */
+	private PositionSizer positionSizer;
+	
+	/**
+	 * {@link #getIndicator(Class, CandleSerie, Object...)}
+	 */
+	private IndicatorRegistry indicators;
+	
 
 	
 	
@@ -72,17 +109,37 @@ public abstract class AbstractStrategy implements IStrategy {
 
 	@Override 
 	public void onPositionOpened(TradeSide side, InstrumentId instrument){
-		logger.debug("Position opened for Instrument " + instrument );
+		if (logger.isDebugEnabled()){
+			logger.debug("Position opened for Instrument " + instrument );
+		}
 	}
 	
 	@Override
 	public void onCandleOpen(InstrumentId instrument, Candle candle){
-		logger.debug("Candle opened for Instrument " + instrument );
+		if (logger.isDebugEnabled()){
+			logger.debug("Candle opened for Instrument " + instrument );
+		}
 	}
 	
 	@Override
 	public void onCandle(InstrumentId instrument, Candle candle){
-		logger.debug("Candle closed for Instrument " + instrument );
+		if (logger.isDebugEnabled()){
+			logger.debug("Candle closed for Instrument " + instrument );
+		}
+	}
+	
+	@Override
+	public void onQuote(InstrumentId instrument, BBBA quote){
+		if (logger.isDebugEnabled()){
+			logger.debug("Quote received for Instrument " + instrument );
+		}
+	}
+	
+	@Override
+	public void onTimer(DateTime time){
+		if (logger.isDebugEnabled()){
+			logger.debug("Timer expired " + time );
+		}
 	}
 	
 	/**
@@ -92,6 +149,14 @@ public abstract class AbstractStrategy implements IStrategy {
 	protected MarketDataPrecision getFrequency() {
 		return frequency;
 	}
+	
+	/**
+	 * With the QUOTE precision the StrategyRunner loads the quotes of the market and calls {@link #onQuote(InstrumentId, BBBA)}
+	 * @param frequency the {@link MarketDataPrecision} of the strategy
+	 */
+	protected void setFrequency(MarketDataPrecision frequency) {
+		this.frequency = frequency;
+	}
 
 
 
@@ -144,6 +209,23 @@ public abstract class AbstractStrategy implements IStrategy {
 		
 	}
 	
+	/**
+	 * Convenience method : sends a Market On Close Order to the OrderManager
+	 * @param instrument  The asset you want to trade {@link InstrumentId} 
+	 * @param side {@link OrderSide} BUY or SELL 
+	 * @param qty the qty you want to trade
+	 * @param text comments on the order 
+	 * @return The submitted {@link Order}
+	 * @see MarketOnCloseOrder
+	 */
+	protected Order sendMarketOnCloseOrder(InstrumentId instrument, OrderSide side,double qty, String text){
+		
+		MarketOnCloseOrder mocOrder = new MarketOnCloseOrder(side, instrument, qty, text, now);
+		orderManager.sendOrder(mocOrder);
+		return mocOrder;
+		
+	}
+	
 	/**
 	 * Convenience method : sends a Limit Order to the OrderManager
 	 * @param instrument The asset you want to trade {@link InstrumentId} 
@@ -207,6 +289,92 @@ public abstract class AbstractStrategy implements IStrategy {
 		this.portfolio = portfolio;
 	}
 	
+	protected void setMarketManager(IMarketManager marketManager) {
+		this.marketManager = marketManager;
+	}
+	
+	protected void setTimers(TimerSource timers) {
+		this.timers = timers;
+	}
+	
+	/**
+	 * The position sizer of the simulation : volatility of the instruments and quantities of the orders from a risk budget
+	 * @return the {@link PositionSizer}, <code>null</code> outside of a simulation
+	 */
+	protected PositionSizer getPositionSizer() {
+		return positionSizer;
+	}
+	
+	protected void setPositionSizer(PositionSizer positionSizer) {
+		this.positionSizer = positionSizer;
+	}
+	
+	/**
+	 * An indicator shared with the other strategies of the simulation : the strategies asking for the same indicator 
+	 * on the same serie get the same instance, computed once per candle
+	 * <pre>
+	 * sma = getIndicator(SMA.class, serie, 50, CandleData.CLOSE);
+	 * </pre>
+	 * @param type class of the indicator
+	 * @param input the input serie
+	 * @param parameters the other arguments of the constructor of the indicator
+	 * @return the indicator
+	 * @see IndicatorRegistry
+	 */
+	protected <T extends CandleIndicator> T getIndicator(Class<T> type, CandleSerie input, Object... parameters){
+		if (indicators == null){
+			// outside of a simulation
+			indicators = new IndicatorRegistry();
+		}
+		return indicators.acquire(type, input, parameters);
+	}
+	
+	/**
+	 * Stop using an indicator given by {@link #getIndicator(Class, CandleSerie, Object...)}
+	 * @param indicator the indicator
+	 */
+	protected void releaseIndicator(CandleIndicator indicator){
+		indicators.release(indicator);
+	}
+	
+	protected void setIndicatorRegistry(IndicatorRegistry indicators) {
+		this.indicators = indicators;
+	}
+	
+	/**
+	 * Schedule a call to {@link #onTimer(DateTime)}
+	 * @param time the expiry {@link DateTime}, not before {@link #getNow()}
+	 */
+	protected void scheduleTimer(DateTime time){
+		if (timers == null){
+			throw new IllegalStateException("No timer outside of a simulation");
+		}
+		timers.schedule(time, this);
+	}
+	
+	/**
+	 * Convenience method : the implied volatility surface of an instrument at the current trading system time
+	 * <p> The surface is the view of a cursor of the strategy : no allocation, but it is reloaded by the next call for 
+	 * the same instrument (use {@link VolatilitySurfaceSerie#getSurface(DateTime)} for a surface to keep)
+	 * @param instrument the underlying {@link InstrumentId}
+	 * @return the last {@link VolatilitySurface} known at {@link #getNow()}, <code>null</code> if none
+	 */
+	protected VolatilitySurface getVolatilitySurface(InstrumentId instrument){
+		if (marketManager == null || now == null){
+			return null;
+		}
+		VolatilitySurfaceSerie serie = marketManager.getVolatilitySurfaceSerie(instrument);
+		if (serie == null){
+			return null;
+		}
+		VolatilitySurfaceSerie.Cursor cursor = volatilityCursors.get(instrument);
+		if (cursor == null || cursor.getSerie() != serie){
+			cursor = serie.cursor();
+			volatilityCursors.put(instrument, cursor);
+		}
+		return cursor.getSurface(now);
+	}
+	
 	
 
 	/**
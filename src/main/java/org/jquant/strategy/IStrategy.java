@@ -2,6 +2,7 @@ package org.jquant.strategy;
 
 import java.util.List;
 
+import org.jquant.event.TimerListener;
 import org.jquant.model.InstrumentId;
 import org.jquant.portfolio.Trade.TradeSide;
 import org.jquant.serie.BBBA;
@@ -10,12 +11,12 @@ import org.jquant.serie.Candle;
 /**
  * Interface to be implemented by Strategies 
  * <p> A Strategy is a component that defines a market (insvestment universe) and a handles a Candle  or a BBBA 
- * <p> TODO : onQuote() for INTRADAY
+ * <p> The strategy also receives the timers it has scheduled ({@link TimerListener#onTimer(org.joda.time.DateTime)})
  * @author patrick.merheb
  * @see BBBA
  * @see Candle
  */
-public interface IStrategy {
+public interface IStrategy extends TimerListener {
 
 	/**
 	 * 
@@ -48,6 +49,14 @@ public interface IStrategy {
 	public void onCandleOpen(InstrumentId instrument, Candle candle);
 	
 	
+	/**
+	 * Called for each best bid / best ask update on instrument (QUOTE precision) 
+	 * @param instrument an {@link InstrumentId}
+	 * @param quote a {@link BBBA}
+	 */
+	public void onQuote(InstrumentId instrument, BBBA quote);
+	
+	
 	/**
 	 * Called when a new position is opened 
 	 * @param side the {@link TradeSide} BUY : Long SELL : Short  
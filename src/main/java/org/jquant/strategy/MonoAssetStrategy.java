@@ -38,6 +38,9 @@ public abstract class MonoAssetStrategy extends AbstractStrategy {
 
 	public void setInstrument(InstrumentId instrument) {
 		this.instrument = instrument;
+		// the market of the instance is its instrument (routing of the candles and of the fills)
+		getMarket().clear();
+		getMarket().add(instrument);
 	}
 
 	
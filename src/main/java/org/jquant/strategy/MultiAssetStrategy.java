@@ -5,8 +5,12 @@ package org.jquant.strategy;
 
 import java.util.Map;
 
+import org.joda.time.DateTime;
 import org.jquant.model.InstrumentId;
+import org.jquant.serie.Candle;
 import org.jquant.serie.CandleSerie;
+import org.jquant.strategy.universe.Factor;
+import org.jquant.strategy.universe.Universe;
 
 /**
  * @author patrick.merheb
@@ -19,6 +23,11 @@ public abstract class MultiAssetStrategy extends AbstractStrategy {
 	 */
 	private Map<InstrumentId, CandleSerie> candleSeries;
 	
+	/**
+	 * Cross-sectional view of the market (created on demand)
+	 */
+	private Universe universe;
+	
 	
 	
 	/**
@@ -38,6 +47,49 @@ public abstract class MultiAssetStrategy extends AbstractStrategy {
 		this.candleSeries = map;
 	}
 	
+	/**
+	 * The cross-sectional view of the strategy market : factors registered here (usually in {@link #init()}) are computed
+	 * for every instrument of the slice before {@link #onMarketSlice(DateTime)} is called
+	 * @return the {@link Universe} of the strategy market
+	 */
+	protected Universe getUniverse(){
+		if (universe == null){
+			universe = new Universe(getMarket());
+		}
+		return universe;
+	}
+	
+	/**
+	 * Convenience method : register a {@link Factor} in the {@link Universe}
+	 * @param name the factor name
+	 * @param factor the {@link Factor}
+	 * @return the index of the factor
+	 */
+	protected int addFactor(String name, Factor factor){
+		return getUniverse().addFactor(name, factor);
+	}
+	
+	/**
+	 * Used by the Strategy Runner once all the candles of a slice are in the CandleSeries
+	 * @param slice the market slice
+	 */
+	void updateUniverse(Map<InstrumentId, Candle> slice){
+		if (universe != null){
+			universe.update(slice, candleSeries);
+		}
+	}
+	
+	/**
+	 * Called once per market slice, after the candles of the slice have been dispatched and the {@link Universe} updated :
+	 * the place for the cross-sectional decisions (rankings, screening, rebalancing)
+	 * @param date the slice {@link DateTime}
+	 */
+	public void onMarketSlice(DateTime date){
+		if (logger.isDebugEnabled()){
+			logger.debug("Market slice " + date);
+		}
+	}
+	
 	
 
 	
@@ -20,4 +20,19 @@ public @interface Parameter {
 
 	String category() default "";
 	String description() default "";
+	
+	/**
+	 * Optimization range : first value 
+	 */
+	double min() default Double.NaN;
+	
+	/**
+	 * Optimization range : last value (included) 
+	 */
+	double max() default Double.NaN;
+	
+	/**
+	 * Optimization range : increment, the parameter is not optimized if it is not positive 
+	 */
+	double step() default 0;
 }
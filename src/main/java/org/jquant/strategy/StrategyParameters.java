@@ -0,0 +1,74 @@
+package org.jquant.strategy;
+
+import java.lang.reflect.Field;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Access to the {@link Parameter} fields of a strategy
+ * @author JQUANT TEAM
+ */
+public final class StrategyParameters {
+
+	private StrategyParameters() {
+		super();
+	}
+
+	/**
+	 *
+	 * @param stratClass a strategy class
+	 * @return the {@link Parameter} fields by name, from the class to its super classes
+	 */
+	public static Map<String, Field> getParameterFields(Class<?> stratClass){
+		Map<String, Field> fields = new LinkedHashMap<String, Field>();
+		for (Class<?> c = stratClass; c != null && !c.equals(Object.class); c = c.getSuperclass()){
+			for (Field field : c.getDeclaredFields()){
+				if (field.isAnnotationPresent(Parameter.class) && !fields.containsKey(field.getName())){
+					field.setAccessible(true);
+					fields.put(field.getName(), field);
+				}
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * Set the parameters of a strategy
+	 * <p> The numbers are converted to the type of the field (a range of doubles can set an int period)
+	 * @param strategy the strategy instance
+	 * @param parameters values by {@link Parameter} field name
+	 * @throws IllegalArgumentException if a parameter is not a {@link Parameter} field of the strategy
+	 */
+	public static void apply(Object strategy, Map<String, ?> parameters){
+		Map<String, Field> fields = getParameterFields(strategy.getClass());
+		for (Entry<String, ?> e : parameters.entrySet()){
+			Field field = fields.get(e.getKey());
+			if (field == null){
+				throw new IllegalArgumentException("No parameter " + e.getKey() + " in " + strategy.getClass().getName());
+			}
+			try {
+				field.set(strategy, convert(e.getValue(), field.getType()));
+			}catch (IllegalAccessException ex) {
+				throw new IllegalStateException(ex);
+			}
+		}
+	}
+
+	private static Object convert(Object value, Class<?> type){
+		if (!(value instanceof Number)){
+			return value;
+		}
+		Number n = (Number) value;
+		if (type.equals(int.class) || type.equals(Integer.class)){
+			return (int) Math.round(n.doubleValue());
+		}else if (type.equals(long.class) || type.equals(Long.class)){
+			return Math.round(n.doubleValue());
+		}else if (type.equals(double.class) || type.equals(Double.class)){
+			return n.doubleValue();
+		}else if (type.equals(float.class) || type.equals(Float.class)){
+			return n.floatValue();
+		}
+		return value;
+	}
+}
@@ -1,25 +1,57 @@
 package org.jquant.strategy;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.TreeMap;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
+import org.jquant.checkpoint.Checkpoint;
+import org.jquant.checkpoint.CheckpointInput;
+import org.jquant.checkpoint.CheckpointOutput;
+import org.jquant.checkpoint.Checkpointable;
+import org.jquant.checkpoint.FieldState;
+import org.jquant.data.JQuantDataProvider;
 import org.jquant.data.MarketManager;
+import org.jquant.event.EventQueue;
+import org.jquant.event.EventSource;
+import org.jquant.event.EventType;
+import org.jquant.event.SerieEventSource;
+import org.jquant.event.TimerListener;
+import org.jquant.event.TimerSource;
+import org.jquant.data.JQuantDataProvider;
 import org.jquant.exception.MarketDataReaderException;
+import org.jquant.execution.FillModel;
+import org.jquant.indicator.IndicatorRegistry;
+import org.jquant.instrument.rate.FxConverter;
+import org.jquant.metrics.BacktestMetrics;
+import org.jquant.metrics.BacktestMetrics.Phase;
 import org.jquant.model.Currency;
 import org.jquant.model.InstrumentId;
 import org.jquant.model.InstrumentType;
+import org.jquant.model.MarketDataPrecision;
 import org.jquant.model.MarketIdentifierCode;
 import org.jquant.model.StitchingMethod;
 import org.jquant.order.IOrderManager;
+import org.jquant.order.OrderManager;
 import org.jquant.portfolio.Portfolio;
 import org.jquant.portfolio.PortfolioStatistics;
+import org.jquant.portfolio.ResultCache;
+import org.jquant.portfolio.ResultKey;
+import org.jquant.serie.BBBA;
 import org.jquant.serie.Candle;
 import org.jquant.serie.CandleSerie;
+import org.jquant.serie.CandleSerieView;
+import org.jquant.serie.QuoteSerie;
+import org.jquant.strategy.sizing.PositionSizer;
 import org.jquant.time.calendar.CalendarFactory;
 import org.jquant.time.calendar.IDateTimeCalendar;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -52,9 +84,64 @@ public class StrategyRunner {
 	private Map<String,AbstractStrategy> strategies;
 	
 	/*
-	 * Growing Map of CandleSeries, the candleseries are growing gradually candle by candle during the simulation
+	 * Routing table : the strategies subscribed to each instrument, built once by init
 	 */
-	private final Map<InstrumentId,CandleSerie> series = new HashMap<InstrumentId, CandleSerie>();
+	private final Map<InstrumentId,AbstractStrategy[]> subscriptions = new HashMap<InstrumentId, AbstractStrategy[]>();
+	
+	private static final AbstractStrategy[] NO_SUBSCRIBER = new AbstractStrategy[0];
+	
+	/**
+	 * Order of the instruments in a {@link ResultKey} : every field of the identifier, 
+	 * {@link InstrumentId#compareTo(InstrumentId)} returns 0 for different instruments
+	 */
+	private static final Comparator<InstrumentId> KEY_ORDER = new Comparator<InstrumentId>() {
+		@Override
+		public int compare(InstrumentId i1, InstrumentId i2) {
+			int c = String.valueOf(i1.getProvider()).compareTo(String.valueOf(i2.getProvider()));
+			if (c == 0){
+				c = String.valueOf(i1.getCode()).compareTo(String.valueOf(i2.getCode()));
+			}
+			if (c == 0){
+				c = String.valueOf(i1.getType()).compareTo(String.valueOf(i2.getType()));
+			}
+			if (c == 0){
+				c = String.valueOf(i1.getExchange() == null ? null : i1.getExchange().getCode())
+						.compareTo(String.valueOf(i2.getExchange() == null ? null : i2.getExchange().getCode()));
+			}
+			if (c == 0){
+				c = String.valueOf(i1.getCurrency()).compareTo(String.valueOf(i2.getCurrency()));
+			}
+			return c;
+		}
+	};
+	
+	/*
+	 * Growing Map of CandleSeries, the candleseries are growing gradually candle by candle during the simulation : 
+	 * views over the series of the MarketManager which cursor moves with the candle events  
+	 */
+	private final Map<InstrumentId,CandleSerieView> series = new HashMap<InstrumentId, CandleSerieView>();
+	
+	/*
+	 * The series given to the strategies 
+	 */
+	private final Map<InstrumentId,CandleSerie> visibleSeries = Collections.<InstrumentId,CandleSerie>unmodifiableMap(series);
+	
+	/*
+	 * Last known candle of each instrument (mark to market, market on close orders)
+	 */
+	private final Map<InstrumentId,Candle> lastCandles = new HashMap<InstrumentId, Candle>();
+	
+	/*
+	 * Candles of the current timestamp 
+	 */
+	private final Map<InstrumentId,Candle> slice = new HashMap<InstrumentId, Candle>();
+	
+	private DateTime sliceDate;
+	
+	/**
+	 * Timers scheduled by the strategies
+	 */
+	private TimerSource timers;
 	
 	
 	/**
@@ -84,11 +171,76 @@ public class StrategyRunner {
 	
 	private boolean monoStrategyMode = false;
 	
+	/**
+	 * {@link #setCheckpoint(File, int)}
+	 */
+	private File checkpointFile;
+	
+	private int checkpointInterval;
+	
+	/**
+	 * {@link #resume(File)}
+	 */
+	private File resumeFile;
+	
+	/*
+	 * The events up to this time were dispatched before the checkpoint : they are replayed without dispatch 
+	 */
+	private long resumeTime = Long.MIN_VALUE;
+	
+	private boolean replaying;
+	
+	/**
+	 * {@link #setParameters(Map)}
+	 */
+	private Map<String, ?> parameters;
+	
+	/**
+	 * {@link #setReuseMarketData(boolean)}
+	 */
+	private boolean reuseMarketData;
+	
+	/**
+	 * {@link #getMetrics()}
+	 */
+	private final BacktestMetrics metrics = new BacktestMetrics();
+	
+	/**
+	 * {@link #getPositionSizer()}
+	 */
+	private PositionSizer positionSizer;
+	
+	/**
+	 * {@link #setResultCache(ResultCache)}
+	 */
+	private ResultCache resultCache;
+	
+	/**
+	 * {@link #setCacheSalt(String)}
+	 */
+	private String cacheSalt;
+	
+	/**
+	 * {@link #getIndicatorRegistry()}
+	 */
+	private IndicatorRegistry indicators;
+	
 	
 	public StrategyRunner() {
 		super();
 		
 	}
+	
+	/**
+	 * Runner outside of the Spring context (several simulations in parallel) 
+	 * @param marketMgr the {@link MarketManager} (can be shared by the runners if the market data is already loaded)
+	 * @param orderManager the {@link IOrderManager} of this runner only
+	 */
+	public StrategyRunner(MarketManager marketMgr, IOrderManager orderManager) {
+		super();
+		this.marketMgr = marketMgr;
+		this.orderManager = orderManager;
+	}
 
 
 	/**
@@ -103,6 +255,14 @@ public class StrategyRunner {
 		
 		try{
 			strategies = new HashMap<String, AbstractStrategy>();
+			series.clear();
+			timers = new StrategyTimers(metrics);
+			positionSizer = new PositionSizer(getGlobalPortfolio());
+			if (indicators != null){
+				// the indicators of the previous simulation observe the views of its series
+				indicators.clear();
+			}
+			indicators = new IndicatorRegistry();
 			for (String stratClassName : stratClassNames){
 
 
@@ -129,6 +289,15 @@ public class StrategyRunner {
 		
 		trimCalendar();
 		
+		buildSubscriptions();
+		
+		/*
+		 * Conversion of the instruments quoted in an other currency with the FOREX series of the MarketManager 
+		 */
+		if (getGlobalPortfolio() != null && getGlobalPortfolio().getFxConverter() == null){
+			initFxConverter(getGlobalPortfolio().getCurrency());
+		}
+		
 		/*
 		 * Give the OrderManager access to the global Portfolio to turn filled orders into Trades 
 		 */
@@ -137,6 +306,66 @@ public class StrategyRunner {
 	
 	
 			
+		/**
+		 * Install a {@link FxConverter} on the global portfolio when an instrument of the market is quoted in an other currency
+		 * <p> The missing pairs are loaded from the provider of the instrument (direct, inverse, then through USD). 
+		 * The rate must be known from the first candle of the instrument : the simulation fails before the replay otherwise.
+		 * @param currency the currency of the portfolio
+		 */
+		private void initFxConverter(Currency currency){
+			FxConverter converter = null;
+			for (InstrumentId instrument : series.keySet()){
+				Currency instrumentCurrency = instrument.getCurrency();
+				CandleSerie serie = marketMgr.getCandleSerie(instrument);
+				if (instrumentCurrency == null || instrumentCurrency == currency || serie == null || serie.size() == 0){
+					continue;
+				}
+				if (converter == null){
+					converter = new FxConverter(marketMgr);
+				}
+				DateTime first = serie.getFirstDate();
+				if (!converter.hasRate(instrumentCurrency, currency, first)){
+					loadFxPair(converter, instrument.getProvider(), instrumentCurrency, currency);
+				}
+				if (!converter.hasRate(instrumentCurrency, currency, first) && instrumentCurrency != Currency.USD && currency != Currency.USD){
+					loadFxPair(converter, instrument.getProvider(), instrumentCurrency, Currency.USD);
+					loadFxPair(converter, instrument.getProvider(), currency, Currency.USD);
+				}
+				if (!converter.hasRate(instrumentCurrency, currency, first)){
+					throw new IllegalStateException("No exchange rate " + instrumentCurrency + "/" + currency + " on " + first 
+							+ " (first candle of " + instrument.getCode() + ") : load the FOREX serie " + instrumentCurrency + currency 
+							+ " or " + currency + instrumentCurrency + " in the MarketManager");
+				}
+			}
+			if (converter != null){
+				getGlobalPortfolio().setFxConverter(converter);
+			}
+		}
+
+		/**
+		 * Load the pair base/quote or the inverse one if it is not in the MarketManager yet
+		 */
+		private void loadFxPair(FxConverter converter, JQuantDataProvider provider, Currency base, Currency quote){
+			Currency[][] candidates = {{base, quote}, {quote, base}};
+			for (Currency[] c : candidates){
+				InstrumentId pair = new InstrumentId(provider, c[0].name() + c[1].name(), InstrumentType.FOREX, MarketIdentifierCode.NO_MIC, c[1]);
+				if (marketMgr.getCandleSerie(pair) != null){
+					// already used by the converter
+					continue;
+				}
+				try {
+					marketMgr.addInstrument(pair, getEntryDate(), getExitDate());
+				} catch (MarketDataReaderException e) {
+					logger.warn("Exchange rates " + pair.getCode() + " not loaded : " + e.getMessage());
+				}
+				CandleSerie serie = marketMgr.getCandleSerie(pair);
+				if (serie != null){
+					converter.addPair(c[0], c[1], serie);
+					return;
+				}
+			}
+		}
+
 		private void initMultiStrategy(Class<? extends AbstractStrategy> stratClass) throws InstantiationException, IllegalAccessException {
 			
 			if (monoStrategyMode){
@@ -159,14 +388,14 @@ public class StrategyRunner {
 				/*
 				 * Add to Market Manager
 				 */
-//				marketMgr.addInstrument(symbol, getEntryDate(), getExitDate());
+				addInstrument(symbol, strategy.getFrequency());
 				
 				
 				/*
 				 * Add to the general instruments Map 
 				 */
 				if (!series.containsKey(symbol)){
-					series.put(symbol, new CandleSerie(symbol));
+					series.put(symbol, new CandleSerieView(symbol));
 				}
 			}
 			
@@ -175,9 +404,15 @@ public class StrategyRunner {
 			 * MultiAssetStrategy mode = n instrument --> 1 strategy instance  
 			 */
 			MultiAssetStrategy strat = (MultiAssetStrategy) stratClass.newInstance();
+			applyParameters(strat);
+			strat.initMarket();
 			strat.setOrderManager(orderManager);
 			strat.setPortfolio(getGlobalPortfolio());
-			strat.setCandleSerieMap(series);
+			strat.setMarketManager(marketMgr);
+			strat.setTimers(timers);
+			strat.setPositionSizer(positionSizer);
+			strat.setIndicatorRegistry(indicators);
+			strat.setCandleSerieMap(visibleSeries);
 			
 			/*
 			 * the strategies are listening to the Order Events
@@ -186,7 +421,8 @@ public class StrategyRunner {
 			
 			
 			
-			strategies.put(strat.getId() , strat);
+			// the key of the strategy in the checkpoints
+			strategies.put(strat.getId() != null ? strat.getId() : stratClass.getName(), strat);
 			
 		
 	}
@@ -213,14 +449,14 @@ public class StrategyRunner {
 				/*
 				 * Add to Market Manager
 				 */
-				addInstrument(symbol);
+				addInstrument(symbol, strategy.getFrequency());
 
 
 				/*
 				 * Add to the general instruments Map 
 				 */
 				if (!series.containsKey(symbol)){
-					series.put(symbol, new CandleSerie(symbol));
+					series.put(symbol, new CandleSerieView(symbol));
 				}
 
 				/*
@@ -228,11 +464,16 @@ public class StrategyRunner {
 				 * MonoAssetStrategy mode = 1 instrument --> 1 strategy instance  
 				 */
 				MonoAssetStrategy strat = (MonoAssetStrategy) stratClass.newInstance();
+				applyParameters(strat);
 
 				strat.setInstrument(symbol);
 				strat.setSerie(series.get(symbol));
 				strat.setOrderManager(orderManager); // TODO : Variable de classe et non d'instance
 				strat.setPortfolio(getGlobalPortfolio());
+				strat.setMarketManager(marketMgr);
+				strat.setTimers(timers);
+				strat.setPositionSizer(positionSizer);
+				strat.setIndicatorRegistry(indicators);
 
 				/*
 				 * the strategies are listening to the Order Events
@@ -246,6 +487,15 @@ public class StrategyRunner {
 			strategy = null;
 		}
 
+		/**
+		 * Set the {@link Parameter} fields of a new strategy instance 
+		 */
+		private void applyParameters(AbstractStrategy strat){
+			if (parameters != null){
+				StrategyParameters.apply(strat, parameters);
+			}
+		}
+
 		/**
 		 * StrategyRunner Calendar must start from the oldest historical market data 
 		 * and end at the youngest one.  
@@ -276,10 +526,16 @@ public class StrategyRunner {
 
 		/**
 		 * Use the right Add method of the mktManager depending on tge {@link InstrumentType} of the symbol 
+		 * <p> With the QUOTE {@link MarketDataPrecision} the quotes are loaded too 
 		 * @param symbol {@link InstrumentId}
+		 * @param precision the {@link MarketDataPrecision} of the strategy
 		 * @throws MarketDataReaderException
 		 */
-		private void addInstrument(InstrumentId symbol) {
+		private void addInstrument(InstrumentId symbol, MarketDataPrecision precision) {
+			if (reuseMarketData && marketMgr.getCandleSerie(symbol) != null 
+					&& (!MarketDataPrecision.QUOTE.equals(precision) || marketMgr.getQuoteSerie(symbol) != null)){
+				return;
+			}
 			try {
 				switch (symbol.getType()) {
 				case GENERIC_FUTURE:
@@ -292,6 +548,10 @@ public class StrategyRunner {
 					break;
 				}
 				
+				if (MarketDataPrecision.QUOTE.equals(precision) && marketMgr.getQuoteSerie(symbol) == null){
+					marketMgr.addQuotes(symbol, getEntryDate(), getExitDate());
+				}
+				
 				
 			} catch (MarketDataReaderException e) {
 				throw new RuntimeException("Problem initializing historical market data.",e);
@@ -301,12 +561,37 @@ public class StrategyRunner {
 		/**
 		 * Execute Strategies 
 		 * Dispatch candles/quotes to strategies 
+		 * <p>
+		 * The replay is event driven : the candles and the quotes of each instrument, the timers of the strategies and the ends 
+		 * of the trading days are merged in time order by an {@link EventQueue}. Each candle is dispatched 
+		 * with onCandleOpen then onCandle, whatever its period (daily, minute, tick). At the end of each trading day the 
+		 * Market On Close orders are executed and the global portfolio is marked to market.
+		 * <p>
+		 * When resuming from a checkpoint, the events up to the checkpoint only grow the candle series (hence the indicators) 
+		 * and the universes, the state of the portfolio, the pending orders, the strategies and the timers is the one of the checkpoint.
+		 * <p>
+		 * The time spent in each phase of the dispatch is collected in the {@link #getMetrics() metrics}, logged at the end of the run.
+		 * <p>
+		 * With a {@link #setResultCache(ResultCache) result cache} the simulation is not replayed if its result is in the cache.
 		 * @return a {@link PortfolioStatistics}
 		 */
 		public PortfolioStatistics run(){
 
+			String cacheKey = null;
+			if (resultCache != null && checkpointFile == null && resumeFile == null){
+				cacheKey = getCacheKey();
+				PortfolioStatistics cached = resultCache.get(cacheKey);
+				if (cached != null){
+					logger.info("Back testing result found in the cache " + cacheKey);
+					return cached;
+				}
+			}
+			
 			logger.info("Beginning strategy(ies) back testing");
+			metrics.start();
 			final long start = System.nanoTime();
+			final long scanned = orderManager instanceof OrderManager ? ((OrderManager) orderManager).getNbOrdersScanned() : 0;
+			final long triggered = orderManager instanceof OrderManager ? ((OrderManager) orderManager).getNbOrdersTriggered() : 0;
 			
 			/*
 			 * Call Init Method on Strategies 
@@ -315,77 +600,495 @@ public class StrategyRunner {
 				s.init();
 			}
 
-			IDateTimeCalendar cal = CalendarFactory.getDailyTradingDayBrowser(entryDate, exitDate, MarketIdentifierCode.NO_MIC);
+			EventQueue queue = buildEventQueue();
 			
+			if (resumeFile != null){
+				restoreCheckpoint();
+			}
 
 			/* 
 			 * Simulation rePlay
 			 */ 
-			for (DateTime dt : cal){
+			long nbEvents = 0;
+			long sliceTime = Long.MIN_VALUE;
+			while (!queue.isEmpty()){
+				long time = queue.getTime();
+				if (time != sliceTime){
+					// all the events of the previous timestamp are dispatched
+					endOfSlice();
+					sliceTime = time;
+					replaying = time <= resumeTime;
+				}
+				queue.fireNext();
+				nbEvents++;
+				metrics.incrementEvents();
+			}
+			endOfSlice();
+			replaying = false;
+			resumeTime = Long.MIN_VALUE;
 
-				Map<InstrumentId, Candle> slice = marketMgr.getMarketSlice(dt);
+			PortfolioStatistics stats = new PortfolioStatistics(getGlobalPortfolio(),entryDate.toDate(),exitDate.toDate());
+			
+			final long end = System.nanoTime();
+			metrics.stop();
+			if (orderManager instanceof OrderManager){
+				metrics.addOrders(((OrderManager) orderManager).getNbOrdersScanned() - scanned, ((OrderManager) orderManager).getNbOrdersTriggered() - triggered);
+			}
+			
+			logger.info("Backtesting Time (seconds) taken is " + (end - start)/1.0e9 + " for " + nbEvents + " events");
+			logger.info(metrics);
+			logger.info(indicators);
+			if (cacheKey != null){
+				resultCache.put(cacheKey, stats);
+			}
+			return stats;
+		}
+
+		/**
+		 * The {@link ResultKey} of the simulation : the strategy classes, the parameters, the calendar, the portfolio, 
+		 * the currency conversions, the position sizer, the costs of the order manager and the content of the market data
+		 */
+		private String getCacheKey(){
+			ResultKey key = new ResultKey(cacheSalt);
+			for (String stratClassName : stratClassNames){
+				try {
+					key.add(Class.forName(stratClassName));
+				}catch (ClassNotFoundException e) {
+					throw new RuntimeException(e);
+				}
+			}
+			key.add(parameters);
+			key.add(entryDate.getMillis()).add(exitDate.getMillis());
+			Portfolio ptf = getGlobalPortfolio();
+			key.add(ptf.getName()).add(String.valueOf(ptf.getCurrency())).add(ptf.getInitialWealth()).add(ptf.getCash());
+			key.add(String.valueOf(ptf.getValuationMode())).add(ptf.getTransactions().size());
+			if (ptf.getFxConverter() != null){
+				ptf.getFxConverter().addTo(key);
+			}else {
+				key.add(-1L);
+			}
+			key.add(positionSizer.getWindow()).add(positionSizer.getPeriodsPerYear()).add(positionSizer.getLotSize());
+			if (orderManager instanceof OrderManager){
+				FillModel fillModel = ((OrderManager) orderManager).getFillModel();
+				key.add(fillModel.getClass().getName());
+				key.add(fillModel.getSlippage()).add(fillModel.getFlatFee()).add(fillModel.getSizeFee()).add(fillModel.getVolumeLimit());
+			}else {
+				key.add(orderManager.getClass().getName());
+			}
+			// sorted : the same key whatever the loading order, every instrument is digested
+			List<InstrumentId> instruments = new ArrayList<InstrumentId>(marketMgr.getInstruments());
+			Collections.sort(instruments, KEY_ORDER);
+			for (InstrumentId instrument : instruments){
+				key.add(instrument);
+				key.add(marketMgr.getCandleSerie(instrument));
+				key.add(marketMgr.getQuoteSerie(instrument));
+			}
+			return key.toString();
+		}
 
-				for (Entry<InstrumentId, Candle> pair : slice.entrySet()){
+		/**
+		 * One source per candle serie and quote serie of the MarketManager, the timers and the trading days  
+		 */
+		private EventQueue buildEventQueue(){
+			EventQueue queue = new EventQueue();
+			DateTime from = entryDate.millisOfDay().withMinimumValue();
+			DateTime to = exitDate.millisOfDay().withMaximumValue();
+			for (InstrumentId instrument : marketMgr.getInstruments()){
+				AbstractStrategy[] subscribers = getSubscribers(instrument);
+				QuoteSerie quotes = marketMgr.getQuoteSerie(instrument);
+				if (quotes != null){
+					queue.add(new QuoteEvents(instrument, quotes, from, to, subscribers));
+				}
+				CandleSerieView view = series.get(instrument);
+				if (view == null){
+					view = new CandleSerieView(instrument);
+					series.put(instrument, view);
+				}
+				view.bind(marketMgr.getCandleSerie(instrument), from);
+				queue.add(new CandleEvents(instrument, view, from, to, subscribers));
+			}
+			queue.add(timers);
+			queue.add(new EndOfDayEvents(CalendarFactory.getDailyTradingDayBrowser(entryDate, exitDate, MarketIdentifierCode.NO_MIC)));
+			return queue;
+		}
 
-					InstrumentId instrument = pair.getKey();
-					Candle candle = pair.getValue();
+		/**
+		 * Route each instrument to the strategies which market contains it, in one pass over the markets
+		 * (the market of a {@link MonoAssetStrategy} instance is its instrument)
+		 */
+		private void buildSubscriptions(){
+			Map<InstrumentId, List<AbstractStrategy>> routes = new HashMap<InstrumentId, List<AbstractStrategy>>();
+			for (AbstractStrategy s : strategies.values()){
+				for (InstrumentId instrument : s.getMarket()){
+					List<AbstractStrategy> subscribers = routes.get(instrument);
+					if (subscribers == null){
+						subscribers = new ArrayList<AbstractStrategy>();
+						routes.put(instrument, subscribers);
+					}
+					// an instrument twice in the market
+					if (subscribers.isEmpty() || subscribers.get(subscribers.size() - 1) != s){
+						subscribers.add(s);
+					}
+				}
+			}
+			subscriptions.clear();
+			for (Map.Entry<InstrumentId, List<AbstractStrategy>> e : routes.entrySet()){
+				subscriptions.put(e.getKey(), e.getValue().toArray(new AbstractStrategy[e.getValue().size()]));
+			}
+		}
+		
+		/**
+		 * 
+		 * @param instrument an {@link InstrumentId}
+		 * @return the strategies trading the instrument
+		 */
+		private AbstractStrategy[] getSubscribers(InstrumentId instrument){
+			AbstractStrategy[] subscribers = subscriptions.get(instrument);
+			return subscribers == null ? NO_SUBSCRIBER : subscribers;
+		}
 
-					// Grow the instruments table
-					CandleSerie cs = series.get(instrument);
-					if (cs == null){
-						cs = new CandleSerie(instrument);
-						series.put(instrument, cs);
+		/**
+		 * Cross-sectional update of the multi asset strategies, once all the candles of a timestamp are known
+		 */
+		private void endOfSlice(){
+			if (slice.isEmpty()){
+				return;
+			}
+			long t0 = System.nanoTime();
+			if (!monoStrategyMode){
+				for (AbstractStrategy s : strategies.values()){
+					MultiAssetStrategy strat = (MultiAssetStrategy) s;
+					strat.setNow(sliceDate);
+					strat.updateUniverse(slice);
+					if (!replaying){
+						strat.onMarketSlice(sliceDate);
 					}
-					cs.addValue(candle);
+				}
+			}
+			slice.clear();
+			metrics.record(Phase.SLICE, System.nanoTime() - t0);
+		}
 
-					/*
-					 * Call onCandleOpen in strategies 
-					 */
-					for (IStrategy s : strategies.values()){
-						if ((monoStrategyMode && ((MonoAssetStrategy)s).getInstrument().equals(instrument)) || (!monoStrategyMode && ((MultiAssetStrategy)s).getMarket().contains(instrument))){
+		/**
+		 * Candles of an instrument
+		 */
+		private final class CandleEvents extends SerieEventSource<Candle> {
 
-							s.onCandleOpen(instrument, candle);
-						}
-					}
+			private final InstrumentId instrument;
+
+			private final AbstractStrategy[] subscribers;
+
+			private final CandleSerieView serie;
+
+			/**
+			 * @param serie the view, bound to the serie of the MarketManager : the events are its candles
+			 */
+			CandleEvents(InstrumentId instrument, CandleSerieView serie, DateTime from, DateTime to, AbstractStrategy[] subscribers) {
+				super(EventType.CANDLE, serie.getLoadedCandles(), serie.getLoadedTimes(), from, to);
+				this.instrument = instrument;
+				this.subscribers = subscribers;
+				this.serie = serie;
+			}
 
-					/*
-					 * Call onCandleOpen in OrderManager (execution of start of the day orders ) 
-					 */
-					orderManager.onCandleOpen(instrument, candle);
+			@Override
+			protected void onEvent(Candle candle) {
+				DateTime dt = candle.getDate();
+				long t0 = System.nanoTime();
+
+				// Grow the instruments table (move the cursor of the view)
+				serie.advance(candle);
+				slice.put(instrument, candle);
+				sliceDate = dt;
+				lastCandles.put(instrument, candle);
+				positionSizer.onCandle(instrument, candle);
+				long t1 = System.nanoTime();
+				metrics.record(Phase.SLICE, t1 - t0);
+				if (replaying){
+					return;
+				}
+				metrics.incrementBars();
+
+				/*
+				 * Call onCandleOpen in strategies 
+				 */
+				for (AbstractStrategy s : subscribers){
+					s.setNow(dt); // Internal clock of the strategy
+					s.onCandleOpen(instrument, candle);
+				}
+				long t2 = System.nanoTime();
+				metrics.record(Phase.STRATEGY_CANDLE_OPEN, t2 - t1);
+
+				/*
+				 * Call onCandleOpen in OrderManager (execution of start of the day orders ) 
+				 */
+				orderManager.onCandleOpen(instrument, candle);
+				long t3 = System.nanoTime();
+				metrics.record(Phase.ORDER_CANDLE_OPEN, t3 - t2);
+
+				/*
+				 * Call onCandle (completed candle) in the Order Manager (intra day orders ) 
+				 */
+				orderManager.onCandle(instrument, candle);
+				long t4 = System.nanoTime();
+				metrics.record(Phase.ORDER_CANDLE, t4 - t3);
+
+				/*
+				 * Call onCandle (completed candle) in the strategies
+				 */
+				for (AbstractStrategy s : subscribers){
+					s.setNow(dt);
+					s.onCandle(instrument, candle);
+				}
+				metrics.record(Phase.STRATEGY_CANDLE, System.nanoTime() - t4);
+			}
+		}
 
+		/**
+		 * Best bid / best ask of an instrument 
+		 */
+		private final class QuoteEvents extends SerieEventSource<BBBA> {
 
-					/*
-					 * Call onCandle (completed candle) in the Order Manager (intra day orders ) 
-					 */
-					orderManager.onCandle(instrument, candle);
+			private final InstrumentId instrument;
 
-					/*
-					 * Call onCandle (completed candle) in the strategies
-					 */
-					for (AbstractStrategy s : strategies.values()){
+			private final AbstractStrategy[] subscribers;
 
-						s.setNow(dt); // Internal clock of the strategy
-						if ((monoStrategyMode && ((MonoAssetStrategy)s).getInstrument().equals(instrument)) || (!monoStrategyMode && ((MultiAssetStrategy)s).getMarket().contains(instrument))){
-							s.onCandle(instrument, candle);
-						}
+			QuoteEvents(InstrumentId instrument, QuoteSerie quotes, DateTime from, DateTime to, AbstractStrategy[] subscribers) {
+				super(EventType.QUOTE, quotes, from, to);
+				this.instrument = instrument;
+				this.subscribers = subscribers;
+			}
+
+			@Override
+			protected void onEvent(BBBA quote) {
+				if (replaying){
+					return;
+				}
+				long t0 = System.nanoTime();
+				metrics.incrementQuotes();
+				// pending orders are executed on the quote, the orders sent by the strategies on the next one
+				orderManager.onQuote(instrument, quote);
+				for (AbstractStrategy s : subscribers){
+					s.setNow(quote.getDate());
+					s.onQuote(instrument, quote);
+				}
+				metrics.record(Phase.QUOTE, System.nanoTime() - t0);
+			}
+		}
+
+		/**
+		 * Close of the trading days  
+		 */
+		private final class EndOfDayEvents extends EventSource {
+
+			private final List<DateTime> days = new ArrayList<DateTime>();
+
+			private final long[] times;
+
+			private int cursor;
+
+			EndOfDayEvents(IDateTimeCalendar calendar) {
+				super(EventType.END_OF_DAY);
+				for (DateTime day : calendar){
+					days.add(day);
+				}
+				times = new long[days.size()];
+				for (int i = 0; i < times.length; i++){
+					times[i] = days.get(i).millisOfDay().withMaximumValue().getMillis();
+				}
+			}
+
+			@Override
+			public long getTime() {
+				return cursor < times.length ? times[cursor] : Long.MAX_VALUE;
+			}
+
+			@Override
+			public void fire() {
+				DateTime day = days.get(cursor++);
+				if (replaying){
+					return;
+				}
+
+				// End of the day Orders 
+				long t0 = System.nanoTime();
+				orderManager.onEndOfDay(day, lastCandles);
+				long t1 = System.nanoTime();
+				metrics.record(Phase.END_OF_DAY_ORDERS, t1 - t0);
+
+				//mark the global Portfolio to market and build the equity curve
+				getGlobalPortfolio().markToMarket(day, lastCandles);
+				metrics.record(Phase.MARK_TO_MARKET, System.nanoTime() - t1);
+				
+				if (checkpointFile != null && cursor % checkpointInterval == 0){
+					saveCheckpoint(times[cursor - 1]);
+				}
+			}
+		}
+
+		/**
+		 * Save the state of the simulation at the end of a trading day
+		 * <p> A failed checkpoint does not stop the simulation
+		 * @param time time of the last dispatched event
+		 */
+		private void saveCheckpoint(long time){
+			try {
+				Checkpoint.write(checkpointFile, new RunnerState(time));
+				logger.debug("Checkpoint saved on " + new DateTime(time));
+			}catch (IOException e) {
+				logger.error("Can not save the checkpoint " + checkpointFile, e);
+			}
+		}
+		
+		private void restoreCheckpoint(){
+			try {
+				Checkpoint.read(resumeFile, new RunnerState(Long.MIN_VALUE));
+			}catch (IOException e) {
+				throw new RuntimeException("Can not resume from the checkpoint " + resumeFile, e);
+			}
+			resumeFile = null;
+			logger.info("Resuming the simulation from " + new DateTime(resumeTime));
+		}
+
+		/**
+		 * State of the simulation : the calendar cursor, the fields of the strategies, the global portfolio, 
+		 * the pending orders and the timers 
+		 * <p> The candle series, the indicators and the universes are not saved, they are rebuilt by the replay up to the checkpoint 
+		 */
+		private final class RunnerState implements Checkpointable {
+
+			private final long time;
+
+			RunnerState(long time) {
+				this.time = time;
+			}
+
+			@Override
+			public void writeCheckpoint(CheckpointOutput out) throws IOException {
+				out.writeLong(entryDate.getMillis());
+				out.writeLong(exitDate.getMillis());
+				out.writeLong(time);
+				
+				// strategies by key for a stable order 
+				Map<String, AbstractStrategy> sorted = new TreeMap<String, AbstractStrategy>(strategies);
+				out.writeVarInt(sorted.size());
+				for (Map.Entry<String, AbstractStrategy> e : sorted.entrySet()){
+					out.writeUTF(e.getKey());
+					FieldState.write(out, e.getValue(), getStrategyBaseClass());
+				}
+				
+				getGlobalPortfolio().writeCheckpoint(out);
+				getCheckpointableOrderManager().writeCheckpoint(out);
+				
+				Map<TimerListener, String> keys = new IdentityHashMap<TimerListener, String>();
+				for (Map.Entry<String, AbstractStrategy> e : strategies.entrySet()){
+					keys.put(e.getValue(), e.getKey());
+				}
+				List<DateTime> expiries = new ArrayList<DateTime>();
+				List<TimerListener> listeners = new ArrayList<TimerListener>();
+				timers.getPendingTimers(expiries, listeners);
+				List<Integer> saved = new ArrayList<Integer>();
+				for (int i = 0; i < listeners.size(); i++){
+					if (keys.containsKey(listeners.get(i))){
+						saved.add(i);
+					}else {
+						logger.warn("Timer of " + listeners.get(i) + " not saved in the checkpoint");
 					}
+				}
+				out.writeVarInt(saved.size());
+				for (int i : saved){
+					out.writeDateTime(expiries.get(i));
+					out.writeUTF(keys.get(listeners.get(i)));
+				}
+			}
 
-					// TODO : End of the day Orders 
+			@Override
+			public void readCheckpoint(CheckpointInput in) throws IOException {
+				if (in.readLong() != entryDate.getMillis() || in.readLong() != exitDate.getMillis()){
+					throw new IllegalStateException("The checkpoint was saved by a simulation on another calendar");
+				}
+				resumeTime = in.readLong();
+				
+				int nbStrategies = in.readVarInt();
+				for (int i = 0; i < nbStrategies; i++){
+					FieldState.read(in, getStrategy(in.readUTF()), getStrategyBaseClass());
+				}
+				
+				getGlobalPortfolio().readCheckpoint(in);
+				getCheckpointableOrderManager().readCheckpoint(in);
+				
+				// the timers scheduled by the initialization of the strategies are replaced 
+				timers.clear();
+				int nbTimers = in.readVarInt();
+				for (int i = 0; i < nbTimers; i++){
+					DateTime expiry = in.readDateTime();
+					timers.schedule(expiry, getStrategy(in.readUTF()));
+				}
+			}
 
+			private AbstractStrategy getStrategy(String key){
+				AbstractStrategy s = strategies.get(key);
+				if (s == null){
+					throw new IllegalStateException("The strategy " + key + " of the checkpoint is not in the simulation");
+				}
+				return s;
+			}
 
-				} // end slice loop 
+			/*
+			 * The fields of the framework classes are not saved 
+			 */
+			private Class<?> getStrategyBaseClass(){
+				return monoStrategyMode ? MonoAssetStrategy.class : MultiAssetStrategy.class;
+			}
 
-				//transfer the slice to the global Portfolio for marking to market and build the equity curve
-				getGlobalPortfolio().markToMarket(dt, slice);
+			private Checkpointable getCheckpointableOrderManager(){
+				if (!(orderManager instanceof Checkpointable)){
+					throw new IllegalStateException("The order manager " + orderManager.getClass().getName() + " does not support the checkpoints");
+				}
+				return (Checkpointable) orderManager;
+			}
+		}
 
-			}// End calendar loop 
+		/**
+		 * The strategy clock is set to the timer before its dispatch
+		 */
+		private static final class StrategyTimers extends TimerSource {
 
-			PortfolioStatistics stats = new PortfolioStatistics(getGlobalPortfolio(),entryDate.toDate(),exitDate.toDate());
-			
-			final long end = System.nanoTime();
-			
-			logger.info("Backtesting Time (seconds) taken is " + (end - start)/1.0e9);
-			return stats;
+			private final BacktestMetrics metrics;
+
+			StrategyTimers(BacktestMetrics metrics) {
+				this.metrics = metrics;
+			}
+
+			@Override
+			public void fire() {
+				long t0 = System.nanoTime();
+				super.fire();
+				metrics.record(Phase.TIMER, System.nanoTime() - t0);
+			}
+
+			@Override
+			protected void onTimer(TimerListener listener, DateTime time) {
+				if (listener instanceof AbstractStrategy){
+					((AbstractStrategy) listener).setNow(time);
+				}
+				listener.onTimer(time);
+			}
+		}
+
+		/**
+		 * 
+		 * @return the {@link PositionSizer} shared by the strategies, fed with all the candles of the simulation
+		 */
+		public PositionSizer getPositionSizer() {
+			return positionSizer;
+		}
+
+		/**
+		 * 
+		 * @return the {@link BacktestMetrics} of the last (or current) run
+		 */
+		public BacktestMetrics getMetrics() {
+			return metrics;
 		}
 
 		/**
@@ -424,6 +1127,91 @@ public class StrategyRunner {
 		}
 
 
+		/**
+		 * Save the state of the simulation every <b>interval</b> trading days (at the end of the day)
+		 * @param file the checkpoint {@link File}, <code>null</code> to disable the checkpoints
+		 * @param interval number of trading days between two checkpoints
+		 */
+		public void setCheckpoint(File file, int interval) {
+			if (file != null && interval <= 0){
+				throw new IllegalArgumentException("The checkpoint interval must be positive : " + interval);
+			}
+			this.checkpointFile = file;
+			this.checkpointInterval = interval;
+		}
+
+
+		/**
+		 * The next {@link #run()} resumes from a checkpoint saved by a simulation with the same strategies and calendar
+		 * <p> To be called after {@link #init(DateTime, DateTime)}
+		 * @param file the checkpoint {@link File}
+		 */
+		public void resume(File file) {
+			this.resumeFile = file;
+		}
+
+
+		/**
+		 * Values of the {@link Parameter} fields of the strategies, set before their initialization
+		 * @param parameters values by field name, <code>null</code> to keep the values of the strategy classes
+		 */
+		public void setParameters(Map<String, ?> parameters) {
+			this.parameters = parameters;
+		}
+
+
+		/**
+		 * With <code>true</code> the instruments already loaded in the {@link MarketManager} are not read again : 
+		 * the runners sharing a {@link MarketManager} loaded beforehand do not modify it  
+		 * @param reuseMarketData
+		 */
+		public void setReuseMarketData(boolean reuseMarketData) {
+			this.reuseMarketData = reuseMarketData;
+		}
+
+
+		/**
+		 * 
+		 * @return the {@link IndicatorRegistry} shared by the strategies of the last (or current) simulation
+		 */
+		public IndicatorRegistry getIndicatorRegistry() {
+			return indicators;
+		}
+
+
+		public ResultCache getResultCache() {
+			return resultCache;
+		}
+
+
+		/**
+		 * Memoization of the simulations : an unchanged simulation (same strategies, parameters, calendar, portfolio, 
+		 * currency conversions, position sizer, costs and market data) returns the result of the cache. Not used with checkpoints.
+		 * <p>
+		 * The bytecode of the strategy classes is in the key, not the one of the library : after a change of the library code, 
+		 * clear the cache or change the {@link #setCacheSalt(String) salt}.
+		 * @param resultCache the {@link ResultCache}, <code>null</code> (default) to always replay
+		 */
+		public void setResultCache(ResultCache resultCache) {
+			this.resultCache = resultCache;
+		}
+
+
+		public String getCacheSalt() {
+			return cacheSalt;
+		}
+
+
+		/**
+		 * 
+		 * @param cacheSalt a value digested in the keys of the {@link ResultCache} (a version of the library code), 
+		 * a new salt misses the results cached before
+		 */
+		public void setCacheSalt(String cacheSalt) {
+			this.cacheSalt = cacheSalt;
+		}
+
+
 		public List<String> getStratClassNames() {
 			return stratClassNames;
 		}
@@ -0,0 +1,277 @@
+package org.jquant.strategy.sizing;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jquant.model.InstrumentId;
+import org.jquant.portfolio.Portfolio;
+import org.jquant.serie.Candle;
+import org.jquant.util.FinancialLibrary;
+
+/**
+ * Order quantities from a risk budget, shared by all the strategies of a simulation
+ * <p>
+ * The runner feeds every candle of the book to the sizer : the realized volatility of each instrument (root mean square
+ * of the log returns of the last {@link #getWindow()} closes, annualized like {@link FinancialLibrary#getRealizedVolatility(double[])})
+ * is updated in O(1) per candle and cached, so the strategies do not recompute it. The sizing methods are :
+ * <ul>
+ * <li>{@link #getVolatilityTargetQuantity(InstrumentId, double)} : position with a given annualized volatility</li>
+ * <li>{@link #getRiskPerTradeQuantity(InstrumentId, double, double)} : given loss at the stop</li>
+ * <li>{@link #getKellyQuantity(InstrumentId, double, double, double)} : (fractional) Kelly criterion</li>
+ * <li>{@link #getEqualRiskQuantities(Collection, double)} : equal risk contribution of a basket</li>
+ * </ul>
+ * The capital is the last value of the equity curve of the portfolio (its initial wealth before the first mark to market),
+ * the quantities are rounded down to the {@link #getLotSize() lot size}.
+ * <p> This class is not thread safe, there is one sizer per runner.
+ * @author JQUANT TEAM
+ */
+public class PositionSizer {
+
+	private static final int DEFAULT_WINDOW = 20;
+
+	/**
+	 * Rolling log returns of an instrument
+	 */
+	private static final class VolatilityState {
+
+		private final double[] returns;
+
+		private int next;
+
+		private int count;
+
+		private double sumSq;
+
+		private double lastClose = Double.NaN;
+
+		private int sinceResync;
+
+		VolatilityState(int window) {
+			this.returns = new double[window];
+		}
+
+		void add(double close){
+			if (close > 0 && lastClose > 0){
+				double r = Math.log(close / lastClose);
+				if (count == returns.length){
+					sumSq -= returns[next] * returns[next];
+				}else {
+					count++;
+				}
+				returns[next] = r;
+				sumSq += r * r;
+				next = (next + 1) % returns.length;
+				if (++sinceResync == returns.length){
+					// exact sum once per window against the rounding drift
+					sumSq = 0;
+					for (int i = 0; i < count; i++){
+						sumSq += returns[i] * returns[i];
+					}
+					sinceResync = 0;
+				}
+			}
+			lastClose = close;
+		}
+	}
+
+	private final Map<InstrumentId, VolatilityState> states = new HashMap<InstrumentId, VolatilityState>();
+
+	private final Portfolio portfolio;
+
+	private final int window;
+
+	private int periodsPerYear = 252;
+
+	private double lotSize = 1;
+
+	/**
+	 * Volatility over the last 20 returns
+	 * @param portfolio the {@link Portfolio} which capital is allocated
+	 */
+	public PositionSizer(Portfolio portfolio) {
+		this(portfolio, DEFAULT_WINDOW);
+	}
+
+	/**
+	 *
+	 * @param portfolio the {@link Portfolio} which capital is allocated
+	 * @param window number of returns of the realized volatility
+	 */
+	public PositionSizer(Portfolio portfolio, int window) {
+		if (window < 2){
+			throw new IllegalArgumentException("The volatility window must be at least 2 returns : " + window);
+		}
+		this.portfolio = portfolio;
+		this.window = window;
+	}
+
+	/**
+	 * Update the volatility of the instrument, called by the runner for each candle
+	 * @param instrument an {@link InstrumentId}
+	 * @param candle its new {@link Candle}
+	 */
+	public void onCandle(InstrumentId instrument, Candle candle){
+		VolatilityState state = states.get(instrument);
+		if (state == null){
+			state = new VolatilityState(window);
+			states.put(instrument, state);
+		}
+		state.add(candle.getClose());
+	}
+
+	/**
+	 *
+	 * @param instrument an {@link InstrumentId}
+	 * @return the annualized realized volatility, {@link Double#NaN} before 2 returns
+	 */
+	public double getVolatility(InstrumentId instrument){
+		VolatilityState state = states.get(instrument);
+		if (state == null || state.count < 2){
+			return Double.NaN;
+		}
+		return Math.sqrt((double) periodsPerYear / state.count * state.sumSq);
+	}
+
+	/**
+	 *
+	 * @param instrument an {@link InstrumentId}
+	 * @return the last close of the instrument, {@link Double#NaN} if unknown
+	 */
+	public double getLastPrice(InstrumentId instrument){
+		VolatilityState state = states.get(instrument);
+		return state == null ? Double.NaN : state.lastClose;
+	}
+
+	/**
+	 *
+	 * @return the capital allocated by the sizer
+	 */
+	public double getCapital(){
+		if (portfolio.getEquityCurve().size() == 0){
+			return portfolio.getInitialWealth();
+		}
+		return portfolio.getEquityCurve().getLast().getValue();
+	}
+
+	/**
+	 * Volatility target : the notional of the position is capital * targetVolatility / volatility
+	 * @param instrument an {@link InstrumentId}
+	 * @param targetVolatility annualized volatility of the position relative to the capital (0.1 for 10%)
+	 * @return the quantity, 0 if the volatility is unknown
+	 */
+	public double getVolatilityTargetQuantity(InstrumentId instrument, double targetVolatility){
+		double volatility = getVolatility(instrument);
+		if (Double.isNaN(volatility) || volatility == 0){
+			return 0;
+		}
+		return round(getCapital() * targetVolatility / volatility / getLastPrice(instrument));
+	}
+
+	/**
+	 * Risk per trade : the loss at the stop is a fraction of the capital
+	 * @param instrument an {@link InstrumentId}
+	 * @param riskFraction the fraction of the capital lost at the stop (0.01 for 1%)
+	 * @param stopDistance distance between the entry and the stop, in price
+	 * @return the quantity
+	 */
+	public double getRiskPerTradeQuantity(InstrumentId instrument, double riskFraction, double stopDistance){
+		if (stopDistance <= 0){
+			throw new IllegalArgumentException("The stop distance must be positive : " + stopDistance);
+		}
+		return round(getCapital() * riskFraction / stopDistance);
+	}
+
+	/**
+	 * Kelly criterion : the fraction of the capital invested is f = p - (1 - p) / b
+	 * @param instrument an {@link InstrumentId}
+	 * @param winProbability probability p of a winning trade
+	 * @param winLossRatio ratio b of the average win to the average loss
+	 * @param kellyFraction fraction of the Kelly bet (0.5 for half Kelly)
+	 * @return the quantity, 0 if the edge is negative or the price unknown
+	 */
+	public double getKellyQuantity(InstrumentId instrument, double winProbability, double winLossRatio, double kellyFraction){
+		if (winLossRatio <= 0){
+			throw new IllegalArgumentException("The win/loss ratio must be positive : " + winLossRatio);
+		}
+		double f = winProbability - (1 - winProbability) / winLossRatio;
+		double price = getLastPrice(instrument);
+		if (f <= 0 || Double.isNaN(price)){
+			return 0;
+		}
+		return round(getCapital() * kellyFraction * f / price);
+	}
+
+	/**
+	 * Equal risk contribution of a basket with the diagonal approximation (same correlation between the instruments) :
+	 * the weights are inversely proportional to the volatilities
+	 * @param instruments the basket
+	 * @param exposure total notional of the basket as a fraction of the capital (1 for a fully invested basket)
+	 * @return the quantity of each instrument, the instruments with an unknown volatility are left out
+	 */
+	public Map<InstrumentId, Double> getEqualRiskQuantities(Collection<InstrumentId> instruments, double exposure){
+		Map<InstrumentId, Double> quantities = new LinkedHashMap<InstrumentId, Double>();
+		double sumInverse = 0;
+		for (InstrumentId instrument : instruments){
+			double volatility = getVolatility(instrument);
+			if (!Double.isNaN(volatility) && volatility > 0){
+				sumInverse += 1 / volatility;
+			}
+		}
+		if (sumInverse == 0){
+			return quantities;
+		}
+		double capital = getCapital() * exposure;
+		for (InstrumentId instrument : instruments){
+			double volatility = getVolatility(instrument);
+			if (!Double.isNaN(volatility) && volatility > 0){
+				double weight = (1 / volatility) / sumInverse;
+				quantities.put(instrument, round(capital * weight / getLastPrice(instrument)));
+			}
+		}
+		return quantities;
+	}
+
+	private double round(double quantity){
+		if (Double.isNaN(quantity) || Double.isInfinite(quantity)){
+			return 0;
+		}
+		return Math.floor(quantity / lotSize) * lotSize;
+	}
+
+	/**
+	 *
+	 * @return number of returns of the realized volatility
+	 */
+	public int getWindow() {
+		return window;
+	}
+
+	/**
+	 *
+	 * @return number of candles per year (annualization of the volatility), 252 for daily candles
+	 */
+	public int getPeriodsPerYear() {
+		return periodsPerYear;
+	}
+
+	public void setPeriodsPerYear(int periodsPerYear) {
+		this.periodsPerYear = periodsPerYear;
+	}
+
+	/**
+	 *
+	 * @return the quantities are multiples of the lot size (1 by default)
+	 */
+	public double getLotSize() {
+		return lotSize;
+	}
+
+	public void setLotSize(double lotSize) {
+		if (lotSize <= 0){
+			throw new IllegalArgumentException("The lot size must be positive : " + lotSize);
+		}
+		this.lotSize = lotSize;
+	}
+}
@@ -0,0 +1,21 @@
+package org.jquant.strategy.universe;
+
+import org.jquant.model.InstrumentId;
+import org.jquant.serie.CandleSerie;
+
+/**
+ * A cross-sectional factor : a value computed for each instrument of a {@link Universe} at each market slice
+ * (momentum, distance to a moving average, volatility ...)
+ * @author JQUANT TEAM
+ * @see Universe#addFactor(String, Factor)
+ */
+public interface Factor {
+
+	/**
+	 *
+	 * @param instrument the {@link InstrumentId}
+	 * @param serie the growing {@link CandleSerie} of the instrument (last candle = current slice)
+	 * @return the factor value, {@link Double#NaN} when it is not defined (not enough history ...)
+	 */
+	double compute(InstrumentId instrument, CandleSerie serie);
+}
@@ -0,0 +1,543 @@
+package org.jquant.strategy.universe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.jquant.model.InstrumentId;
+import org.jquant.serie.Candle;
+import org.jquant.serie.CandleSerie;
+
+/**
+ * Cross-sectional view of a market : the values of some factors for every instrument of the universe
+ * <p>
+ * The values are kept in a dense matrix (one <code>double[]</code> per factor, one column per instrument, {@link Double#NaN}
+ * when the value is not defined). For each factor :
+ * <ul>
+ * <li>the mean and the standard deviation are running sums updated with each value, the z-scores do not scan the universe</li>
+ * <li>the instruments are kept sorted by value : the order of the previous slice is re-sorted by insertion, which is linear
+ * when the ranking moves little from one slice to the next one (the usual case for momentum or volatility factors).
+ * A merge sort takes over when the ranking is reshuffled.</li>
+ * </ul>
+ * The sort is lazy : it is done by the first rank / top / bottom query after a change.
+ * <p> Ranks are ascending (0 = lowest value), top-K are the K highest values, bottom-K the K lowest values,
+ * ties are broken by the position of the instrument in the universe.
+ * @author JQUANT TEAM
+ * @see Factor
+ * @see org.jquant.strategy.MultiAssetStrategy#getUniverse()
+ */
+public class Universe {
+
+	/**
+	 * Number of incremental updates of the running sums before an exact recomputation
+	 */
+	private static final int RESYNC = 4096;
+
+	private final InstrumentId[] instruments;
+
+	private final Map<InstrumentId, Integer> indexes;
+
+	private final Map<String, Integer> factorIndexes = new HashMap<String, Integer>();
+
+	private final List<String> factorNames = new ArrayList<String>();
+
+	/**
+	 * Computed factors (<code>null</code> for the factors set with {@link #setValue(int, int, double)})
+	 */
+	private final List<Factor> factors = new ArrayList<Factor>();
+
+	/**
+	 * values[factor][instrument]
+	 */
+	private double[][] values = new double[0][];
+
+	private Ranking[] rankings = new Ranking[0];
+
+	/**
+	 *
+	 * @param instruments the instruments of the universe (duplicates are ignored)
+	 */
+	public Universe(Collection<InstrumentId> instruments) {
+		super();
+		this.indexes = new HashMap<InstrumentId, Integer>(instruments.size() * 2);
+		List<InstrumentId> list = new ArrayList<InstrumentId>(instruments.size());
+		for (InstrumentId instrument : instruments){
+			if (!indexes.containsKey(instrument)){
+				indexes.put(instrument, list.size());
+				list.add(instrument);
+			}
+		}
+		this.instruments = list.toArray(new InstrumentId[list.size()]);
+	}
+
+	/**
+	 * Register a factor computed at each slice by {@link #update(Map, Map)}
+	 * @param name the factor name
+	 * @param factor the {@link Factor}, <code>null</code> if the values are set by the strategy
+	 * @return the index of the factor
+	 */
+	public int addFactor(String name, Factor factor){
+		if (factorIndexes.containsKey(name)){
+			throw new IllegalArgumentException("Factor " + name + " already exists");
+		}
+		int index = factorNames.size();
+		double[] row = new double[instruments.length];
+		Arrays.fill(row, Double.NaN);
+		values = Arrays.copyOf(values, index + 1);
+		values[index] = row;
+		rankings = Arrays.copyOf(rankings, index + 1);
+		rankings[index] = new Ranking(row);
+		factorIndexes.put(name, index);
+		factorNames.add(name);
+		factors.add(factor);
+		return index;
+	}
+
+	/**
+	 * Register a factor whose values are set by the strategy
+	 * @param name the factor name
+	 * @return the index of the factor
+	 */
+	public int addFactor(String name){
+		return addFactor(name, null);
+	}
+
+	/**
+	 *
+	 * @param name the factor name
+	 * @return the index of the factor
+	 */
+	public int getFactorIndex(String name){
+		Integer index = factorIndexes.get(name);
+		if (index == null){
+			throw new IllegalArgumentException("Unknown factor " + name);
+		}
+		return index;
+	}
+
+	/**
+	 *
+	 * @param instrument an {@link InstrumentId}
+	 * @return the position of the instrument in the universe, -1 if it is not in the universe
+	 */
+	public int indexOf(InstrumentId instrument){
+		Integer index = indexes.get(instrument);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 *
+	 * @param index position of the instrument in the universe
+	 * @return the {@link InstrumentId}
+	 */
+	public InstrumentId getInstrument(int index){
+		return instruments[index];
+	}
+
+	/**
+	 *
+	 * @return number of instruments of the universe
+	 */
+	public int size(){
+		return instruments.length;
+	}
+
+	public int getNbFactors(){
+		return factorNames.size();
+	}
+
+	public String getFactorName(int factor){
+		return factorNames.get(factor);
+	}
+
+	/**
+	 * Compute the registered {@link Factor}s of the instruments of a market slice
+	 * <p> The instruments without a candle in the slice keep their last values
+	 * @param slice the market slice
+	 * @param series the growing {@link CandleSerie}s (already containing the candles of the slice)
+	 */
+	public void update(Map<InstrumentId, Candle> slice, Map<InstrumentId, CandleSerie> series){
+		int nbFactors = factors.size();
+		for (Entry<InstrumentId, Candle> entry : slice.entrySet()){
+			Integer instrument = indexes.get(entry.getKey());
+			if (instrument == null){
+				continue;
+			}
+			CandleSerie serie = series.get(entry.getKey());
+			for (int f = 0; f < nbFactors; f++){
+				Factor factor = factors.get(f);
+				if (factor != null){
+					setValue(f, instrument, factor.compute(entry.getKey(), serie));
+				}
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param factor index of the factor
+	 * @param instrument position of the instrument
+	 * @param value the value, {@link Double#NaN} to remove the instrument from the cross section
+	 */
+	public void setValue(int factor, int instrument, double value){
+		rankings[factor].set(instrument, value);
+	}
+
+	/**
+	 *
+	 * @param factor the factor name
+	 * @param instrument the {@link InstrumentId}
+	 * @param value the value, {@link Double#NaN} to remove the instrument from the cross section
+	 */
+	public void setValue(String factor, InstrumentId instrument, double value){
+		setValue(getFactorIndex(factor), checkedIndexOf(instrument), value);
+	}
+
+	/**
+	 * Remove an instrument from all the cross sections (delisting ...)
+	 * @param instrument the {@link InstrumentId}
+	 */
+	public void clear(InstrumentId instrument){
+		int index = checkedIndexOf(instrument);
+		for (Ranking ranking : rankings){
+			ranking.set(index, Double.NaN);
+		}
+	}
+
+	public double getValue(int factor, int instrument){
+		return values[factor][instrument];
+	}
+
+	public double getValue(String factor, InstrumentId instrument){
+		return getValue(getFactorIndex(factor), checkedIndexOf(instrument));
+	}
+
+	/**
+	 *
+	 * @param factor index of the factor
+	 * @return number of instruments with a defined value
+	 */
+	public int getCount(int factor){
+		return rankings[factor].count;
+	}
+
+	/**
+	 *
+	 * @param factor index of the factor
+	 * @return cross-sectional mean, {@link Double#NaN} if no value is defined
+	 */
+	public double getMean(int factor){
+		return rankings[factor].getMean();
+	}
+
+	/**
+	 *
+	 * @param factor index of the factor
+	 * @return cross-sectional (population) standard deviation, {@link Double#NaN} if no value is defined
+	 */
+	public double getStdDev(int factor){
+		return rankings[factor].getStdDev();
+	}
+
+	/**
+	 *
+	 * @param factor index of the factor
+	 * @param instrument position of the instrument
+	 * @return (value - mean) / standard deviation, {@link Double#NaN} if the value is not defined or the cross section is flat
+	 */
+	public double getZScore(int factor, int instrument){
+		Ranking ranking = rankings[factor];
+		double value = values[factor][instrument];
+		double stdDev = ranking.getStdDev();
+		if (Double.isNaN(value) || !(stdDev > 0)){
+			return Double.NaN;
+		}
+		return (value - ranking.getMean()) / stdDev;
+	}
+
+	public double getZScore(String factor, InstrumentId instrument){
+		return getZScore(getFactorIndex(factor), checkedIndexOf(instrument));
+	}
+
+	/**
+	 *
+	 * @param factor index of the factor
+	 * @param instrument position of the instrument
+	 * @return the ascending rank (0 = lowest value), -1 if the value is not defined
+	 */
+	public int getRank(int factor, int instrument){
+		Ranking ranking = rankings[factor];
+		ranking.sort();
+		return ranking.ranks[instrument];
+	}
+
+	public int getRank(String factor, InstrumentId instrument){
+		return getRank(getFactorIndex(factor), checkedIndexOf(instrument));
+	}
+
+	/**
+	 * The instruments with the highest values, highest first
+	 * @param factor index of the factor
+	 * @param k number of instruments
+	 * @param out receives the positions of the instruments
+	 * @return number of positions written : min(k, out.length, {@link #getCount(int)})
+	 */
+	public int top(int factor, int k, int[] out){
+		Ranking ranking = rankings[factor];
+		ranking.sort();
+		int nb = Math.min(Math.min(k, out.length), ranking.count);
+		for (int i = 0; i < nb; i++){
+			out[i] = ranking.order[ranking.count - 1 - i];
+		}
+		return nb;
+	}
+
+	/**
+	 * The instruments with the lowest values, lowest first
+	 * @param factor index of the factor
+	 * @param k number of instruments
+	 * @param out receives the positions of the instruments
+	 * @return number of positions written : min(k, out.length, {@link #getCount(int)})
+	 */
+	public int bottom(int factor, int k, int[] out){
+		Ranking ranking = rankings[factor];
+		ranking.sort();
+		int nb = Math.min(Math.min(k, out.length), ranking.count);
+		System.arraycopy(ranking.order, 0, out, 0, nb);
+		return nb;
+	}
+
+	/**
+	 *
+	 * @param factor the factor name
+	 * @param k number of instruments
+	 * @return the instruments with the highest values, highest first
+	 */
+	public List<InstrumentId> top(String factor, int k){
+		int[] positions = new int[Math.max(0, Math.min(k, instruments.length))];
+		return toInstruments(positions, top(getFactorIndex(factor), k, positions));
+	}
+
+	/**
+	 *
+	 * @param factor the factor name
+	 * @param k number of instruments
+	 * @return the instruments with the lowest values, lowest first
+	 */
+	public List<InstrumentId> bottom(String factor, int k){
+		int[] positions = new int[Math.max(0, Math.min(k, instruments.length))];
+		return toInstruments(positions, bottom(getFactorIndex(factor), k, positions));
+	}
+
+	private List<InstrumentId> toInstruments(int[] positions, int nb){
+		if (nb == 0){
+			return Collections.emptyList();
+		}
+		List<InstrumentId> list = new ArrayList<InstrumentId>(nb);
+		for (int i = 0; i < nb; i++){
+			list.add(instruments[positions[i]]);
+		}
+		return list;
+	}
+
+	private int checkedIndexOf(InstrumentId instrument){
+		Integer index = indexes.get(instrument);
+		if (index == null){
+			throw new IllegalArgumentException(instrument + " is not in the universe");
+		}
+		return index;
+	}
+
+	@Override
+	public String toString() {
+		return "Universe [size=" + instruments.length + ", factors=" + factorNames + "]";
+	}
+
+	/**
+	 * Sorted order and running moments of a factor
+	 */
+	private static final class Ranking {
+
+		private final double[] values;
+
+		/**
+		 * Positions sorted by ascending value, undefined values last
+		 */
+		private final int[] order;
+
+		/**
+		 * Inverse of order (-1 for undefined values)
+		 */
+		private final int[] ranks;
+
+		private int[] scratch;
+
+		private boolean sorted = true;
+
+		private int count;
+
+		/**
+		 * The sums are shifted by a reference value to limit the cancellation of sumSq - sum<sup>2</sup>/n
+		 */
+		private double shift;
+
+		private double sum;
+
+		private double sumSq;
+
+		private int updates;
+
+		Ranking(double[] values) {
+			this.values = values;
+			this.order = new int[values.length];
+			this.ranks = new int[values.length];
+			for (int i = 0; i < order.length; i++){
+				order[i] = i;
+			}
+			Arrays.fill(ranks, -1);
+		}
+
+		void set(int instrument, double value){
+			double old = values[instrument];
+			if (old == value || (Double.isNaN(old) && Double.isNaN(value))){
+				return;
+			}
+			if (!Double.isNaN(old)){
+				double d = old - shift;
+				count--;
+				sum -= d;
+				sumSq -= d * d;
+			}
+			if (!Double.isNaN(value)){
+				double d = value - shift;
+				count++;
+				sum += d;
+				sumSq += d * d;
+			}
+			values[instrument] = value;
+			sorted = false;
+			if (++updates >= RESYNC){
+				resync();
+			}
+		}
+
+		/**
+		 * Exact recomputation of the running sums around the current mean
+		 */
+		private void resync(){
+			double total = 0;
+			int nb = 0;
+			for (double v : values){
+				if (!Double.isNaN(v)){
+					total += v;
+					nb++;
+				}
+			}
+			shift = nb > 0 ? total / nb : 0;
+			sum = 0;
+			sumSq = 0;
+			for (double v : values){
+				if (!Double.isNaN(v)){
+					double d = v - shift;
+					sum += d;
+					sumSq += d * d;
+				}
+			}
+			count = nb;
+			updates = 0;
+		}
+
+		double getMean(){
+			return count > 0 ? shift + sum / count : Double.NaN;
+		}
+
+		double getStdDev(){
+			if (count == 0){
+				return Double.NaN;
+			}
+			double variance = (sumSq - sum * sum / count) / count;
+			return variance > 0 ? Math.sqrt(variance) : 0;
+		}
+
+		void sort(){
+			if (sorted){
+				return;
+			}
+			int n = order.length;
+			// insertion sort of the previous order, the budget bounds the work when the order changed a lot
+			long budget = 8L * n + 64;
+			long moves = 0;
+			for (int i = 1; i < n; i++){
+				int position = order[i];
+				int j = i - 1;
+				while (j >= 0 && less(position, order[j])){
+					order[j+1] = order[j];
+					j--;
+					moves++;
+				}
+				order[j+1] = position;
+				if (moves > budget){
+					mergeSort();
+					break;
+				}
+			}
+			for (int k = 0; k < n; k++){
+				ranks[order[k]] = k < count ? k : -1;
+			}
+			sorted = true;
+		}
+
+		/**
+		 * Bottom up merge sort of order
+		 */
+		private void mergeSort(){
+			int n = order.length;
+			if (scratch == null){
+				scratch = new int[n];
+			}
+			int[] src = order;
+			int[] dst = scratch;
+			for (int width = 1; width < n; width *= 2){
+				for (int lo = 0; lo < n; lo += 2 * width){
+					int mid = Math.min(lo + width, n);
+					int hi = Math.min(lo + 2 * width, n);
+					int a = lo;
+					int b = mid;
+					for (int k = lo; k < hi; k++){
+						if (a < mid && (b >= hi || !less(src[b], src[a]))){
+							dst[k] = src[a++];
+						}else {
+							dst[k] = src[b++];
+						}
+					}
+				}
+				int[] tmp = src;
+				src = dst;
+				dst = tmp;
+			}
+			if (src != order){
+				System.arraycopy(src, 0, order, 0, n);
+			}
+		}
+
+		/**
+		 * Ascending values, undefined values last, ties broken by position
+		 */
+		private boolean less(int a, int b){
+			double va = values[a];
+			double vb = values[b];
+			if (Double.isNaN(va)){
+				return Double.isNaN(vb) && a < b;
+			}
+			if (Double.isNaN(vb) || va < vb){
+				return true;
+			}
+			return va == vb && a < b;
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package org.jquant.strategy.walkforward;
+
+import org.jquant.portfolio.PortfolioStatistics;
+
+/**
+ * Score of an in sample simulation, the parameters with the highest score are kept
+ * @author JQUANT TEAM
+ */
+public interface Objective {
+
+	/**
+	 * Final wealth of the portfolio
+	 */
+	public static final Objective FINAL_WEALTH = new Objective() {
+		@Override
+		public double evaluate(PortfolioStatistics stats) {
+			return stats.getFinalWealth();
+		}
+	};
+
+	/**
+	 * Final wealth divided by the maximum drawdown
+	 */
+	public static final Objective RETURN_OVER_DRAWDOWN = new Objective() {
+		@Override
+		public double evaluate(PortfolioStatistics stats) {
+			double dd = Math.abs(stats.getMaxDrawDownData().getMaxDrawDown());
+			double gain = stats.getFinalWealth() / stats.getInitialWealth() - 1;
+			return dd > 0 ? gain / dd : gain;
+		}
+	};
+
+	/**
+	 *
+	 * @param stats the {@link PortfolioStatistics} of a simulation
+	 * @return the score, {@link Double#NaN} is never kept
+	 */
+	public double evaluate(PortfolioStatistics stats);
+}
@@ -0,0 +1,115 @@
+package org.jquant.strategy.walkforward;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.jquant.strategy.Parameter;
+import org.jquant.strategy.StrategyParameters;
+
+/**
+ * The values to try for each optimized {@link Parameter} of a strategy
+ * <p> The optimization evaluates all the combinations (grid search).
+ * @author JQUANT TEAM
+ */
+public class ParameterSpace {
+
+	private final Map<String, List<Object>> values = new LinkedHashMap<String, List<Object>>();
+
+	/**
+	 * Space of the {@link Parameter} fields with an optimization range (see {@link Parameter#step()})
+	 * @param stratClass the strategy class
+	 * @return a {@link ParameterSpace}
+	 */
+	public static ParameterSpace fromAnnotations(Class<?> stratClass){
+		ParameterSpace space = new ParameterSpace();
+		for (Field field : StrategyParameters.getParameterFields(stratClass).values()){
+			Parameter p = field.getAnnotation(Parameter.class);
+			if (p.step() > 0 && !Double.isNaN(p.min()) && !Double.isNaN(p.max())){
+				space.addRange(field.getName(), p.min(), p.max(), p.step());
+			}
+		}
+		return space;
+	}
+
+	/**
+	 * Values of a parameter
+	 * @param name name of the {@link Parameter} field
+	 * @param parameterValues the values to try
+	 * @return this
+	 */
+	public ParameterSpace add(String name, Object... parameterValues){
+		if (parameterValues.length == 0){
+			throw new IllegalArgumentException("No value for the parameter " + name);
+		}
+		values.put(name, Arrays.asList(parameterValues));
+		return this;
+	}
+
+	/**
+	 * Range of a numeric parameter
+	 * @param name name of the {@link Parameter} field
+	 * @param min first value
+	 * @param max last value (included)
+	 * @param step increment
+	 * @return this
+	 */
+	public ParameterSpace addRange(String name, double min, double max, double step){
+		if (step <= 0 || max < min){
+			throw new IllegalArgumentException("Wrong range of the parameter " + name + " : " + min + " to " + max + " by " + step);
+		}
+		List<Object> range = new ArrayList<Object>();
+		int n = (int) Math.floor((max - min) / step + 1e-9);
+		for (int i = 0; i <= n; i++){
+			range.add(min + i * step);
+		}
+		values.put(name, range);
+		return this;
+	}
+
+	/**
+	 *
+	 * @return number of combinations
+	 */
+	public int size(){
+		int size = 1;
+		for (List<Object> v : values.values()){
+			size *= v.size();
+		}
+		return size;
+	}
+
+	/**
+	 *
+	 * @return the optimized parameters names
+	 */
+	public List<String> getNames(){
+		return Collections.unmodifiableList(new ArrayList<String>(values.keySet()));
+	}
+
+	/**
+	 *
+	 * @return all the combinations of values, the last parameter varying first
+	 */
+	public List<Map<String, Object>> combinations(){
+		List<Map<String, Object>> combinations = new ArrayList<Map<String, Object>>(size());
+		combinations.add(new LinkedHashMap<String, Object>());
+		for (Entry<String, List<Object>> e : values.entrySet()){
+			List<Map<String, Object>> next = new ArrayList<Map<String, Object>>(combinations.size() * e.getValue().size());
+			for (Map<String, Object> c : combinations){
+				for (Object v : e.getValue()){
+					Map<String, Object> combination = new LinkedHashMap<String, Object>(c);
+					combination.put(e.getKey(), v);
+					next.add(combination);
+				}
+			}
+			combinations = next;
+		}
+		return combinations;
+	}
+}
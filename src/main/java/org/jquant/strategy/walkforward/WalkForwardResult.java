@@ -0,0 +1,157 @@
+package org.jquant.strategy.walkforward;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.jquant.portfolio.PortfolioStatistics;
+import org.jquant.serie.DoubleSerie;
+import org.jquant.serie.TimeValue;
+
+/**
+ * Result of a walk forward analysis : the parameters chosen on each train period, the out of sample simulations
+ * and their stitched equity curve. The skipped windows (no in sample score) are not in the equity curve.
+ * @author JQUANT TEAM
+ * @see WalkForwardRunner
+ */
+public class WalkForwardResult {
+
+	private final List<WindowResult> windows;
+
+	private final DoubleSerie equityCurve;
+
+	WalkForwardResult(List<WindowResult> windows, double initialWealth) {
+		this.windows = Collections.unmodifiableList(windows);
+		DoubleSerie[] curves = new DoubleSerie[windows.size()];
+		for (int i = 0; i < curves.length; i++){
+			WindowResult w = windows.get(i);
+			curves[i] = w.isSkipped() ? null : w.getOutOfSample().getPortfolio().getEquityCurve();
+		}
+		this.equityCurve = stitch(curves, initialWealth);
+	}
+
+	/**
+	 * Chain the out of sample equity curves : each curve starts with the initial wealth, it is rescaled
+	 * to start from the last value of the previous ones (the gains are compounded)
+	 * @param curves equity curves of consecutive periods, <code>null</code> for a skipped period
+	 * @param initialWealth initial wealth of each period
+	 * @return the stitched equity curve
+	 */
+	static DoubleSerie stitch(DoubleSerie[] curves, double initialWealth){
+		DoubleSerie stitched = new DoubleSerie();
+		double wealth = initialWealth;
+		for (DoubleSerie curve : curves){
+			if (curve == null){
+				continue;
+			}
+			double scale = wealth / initialWealth;
+			for (TimeValue tv : curve){
+				stitched.add(tv.getDate(), tv.getValue() * scale);
+			}
+			if (curve.size() > 0){
+				wealth = curve.getLast().getValue() * scale;
+			}
+		}
+		return stitched;
+	}
+
+	/**
+	 *
+	 * @return the results of the windows, in time order
+	 */
+	public List<WindowResult> getWindows() {
+		return windows;
+	}
+
+	/**
+	 *
+	 * @return the windows not simulated out of sample, in time order
+	 */
+	public List<WindowResult> getSkippedWindows() {
+		List<WindowResult> skipped = new ArrayList<WindowResult>();
+		for (WindowResult w : windows){
+			if (w.isSkipped()){
+				skipped.add(w);
+			}
+		}
+		return skipped;
+	}
+
+	/**
+	 *
+	 * @return the out of sample equity curves stitched together
+	 */
+	public DoubleSerie getEquityCurve() {
+		return equityCurve;
+	}
+
+	/**
+	 * Optimization and out of sample simulation of a {@link WalkForwardWindow}
+	 */
+	public static final class WindowResult {
+
+		private final WalkForwardWindow window;
+
+		private final Map<String, Object> parameters;
+
+		private final double inSampleScore;
+
+		private final PortfolioStatistics outOfSample;
+
+		/**
+		 * @param parameters the best parameters, <code>null</code> for a skipped window
+		 * @param outOfSample the out of sample simulation, <code>null</code> for a skipped window
+		 */
+		WindowResult(WalkForwardWindow window, Map<String, Object> parameters, double inSampleScore, PortfolioStatistics outOfSample) {
+			this.window = window;
+			this.parameters = parameters != null ? Collections.unmodifiableMap(parameters) : null;
+			this.inSampleScore = inSampleScore;
+			this.outOfSample = outOfSample;
+		}
+
+		public WalkForwardWindow getWindow() {
+			return window;
+		}
+
+		/**
+		 *
+		 * @return <code>true</code> if all the in sample scores were NaN : there is no best parameters and no out of sample simulation
+		 */
+		public boolean isSkipped() {
+			return outOfSample == null;
+		}
+
+		/**
+		 *
+		 * @return the best parameters of the train period, <code>null</code> if the window is skipped
+		 */
+		public Map<String, Object> getParameters() {
+			return parameters;
+		}
+
+		/**
+		 *
+		 * @return the score of the best parameters on the train period, NaN if the window is skipped
+		 */
+		public double getInSampleScore() {
+			return inSampleScore;
+		}
+
+		/**
+		 *
+		 * @return the simulation of the test period with the best parameters, <code>null</code> if the window is skipped
+		 */
+		public PortfolioStatistics getOutOfSample() {
+			return outOfSample;
+		}
+
+		@Override
+		public String toString() {
+			if (isSkipped()){
+				return window + " skipped, no in sample score";
+			}
+			return window + " " + parameters + " in sample score " + inSampleScore;
+		}
+	}
+}
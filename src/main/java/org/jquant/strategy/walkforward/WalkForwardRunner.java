@@ -0,0 +1,327 @@
+package org.jquant.strategy.walkforward;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.joda.time.DateTime;
+import org.jquant.data.MarketManager;
+import org.jquant.execution.FillModel;
+import org.jquant.model.Currency;
+import org.jquant.order.OrderManager;
+import org.jquant.portfolio.Portfolio;
+import org.jquant.portfolio.PortfolioStatistics;
+import org.jquant.portfolio.ResultCache;
+import org.jquant.portfolio.ResultStore;
+import org.jquant.strategy.Parameter;
+import org.jquant.strategy.StrategyRunner;
+import org.jquant.strategy.walkforward.WalkForwardResult.WindowResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Walk forward analysis : on each {@link WalkForwardWindow} the {@link Parameter}s of the strategies are optimized on the
+ * train period, then the best ones are simulated on the test period.
+ * <p>
+ * The market data of the whole analysis is loaded once in the {@link MarketManager}, then every simulation
+ * (one per window and combination of parameters, in sample, plus one per window out of sample) runs in a pool of threads
+ * with its own {@link StrategyRunner}, {@link OrderManager} and {@link Portfolio} over the shared market data.
+ * <p>
+ * A window whose in sample scores are all NaN has no best parameters : it is not simulated out of sample and is reported
+ * as {@link WindowResult#isSkipped() skipped}.
+ * @author JQUANT TEAM
+ * @see WalkForwardResult
+ */
+@Component
+public class WalkForwardRunner {
+
+	/** logger */
+	private static final Logger logger = Logger.getLogger(WalkForwardRunner.class);
+
+	@Autowired
+	private MarketManager marketMgr;
+
+	private List<String> stratClassNames;
+
+	private Currency currency = Currency.USD;
+
+	private double initialCash = 100000;
+
+	private ParameterSpace parameterSpace = new ParameterSpace();
+
+	private Objective objective = Objective.FINAL_WEALTH;
+
+	private FillModel fillModel = new FillModel();
+
+	private int nbThreads = Runtime.getRuntime().availableProcessors();
+
+	private ResultStore resultStore;
+
+	private ResultCache resultCache;
+
+	/**
+	 * Run the analysis
+	 * @param windows the {@link WalkForwardWindow}s, in time order
+	 * @return the {@link WalkForwardResult}
+	 */
+	public WalkForwardResult run(List<WalkForwardWindow> windows){
+		if (windows.isEmpty()){
+			throw new IllegalArgumentException("No walk forward window");
+		}
+		final long start = System.nanoTime();
+		loadMarketData(windows.get(0).getTrainStart(), windows.get(windows.size() - 1).getTestEnd());
+
+		List<Map<String, Object>> combinations = parameterSpace.combinations();
+		logger.info("Walk forward analysis of " + windows.size() + " windows, " + combinations.size() + " parameters combinations, on " + nbThreads + " threads");
+
+		ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+		try {
+			/*
+			 * In sample : all the simulations are queued at once
+			 */
+			List<List<Future<Double>>> scores = new ArrayList<List<Future<Double>>>();
+			for (WalkForwardWindow w : windows){
+				List<Future<Double>> windowScores = new ArrayList<Future<Double>>();
+				for (Map<String, Object> parameters : combinations){
+					windowScores.add(executor.submit(new InSample(w, parameters)));
+				}
+				scores.add(windowScores);
+			}
+
+			/*
+			 * Out of sample with the best parameters of each window
+			 */
+			List<Future<PortfolioStatistics>> outOfSample = new ArrayList<Future<PortfolioStatistics>>();
+			double[] bestScores = new double[windows.size()];
+			int[] best = new int[windows.size()];
+			for (int i = 0; i < windows.size(); i++){
+				List<Future<Double>> windowScores = scores.get(i);
+				double[] values = new double[windowScores.size()];
+				for (int c = 0; c < values.length; c++){
+					values[c] = get(windowScores.get(c));
+				}
+				best[i] = best(values);
+				if (best[i] < 0){
+					logger.warn("No in sample score on " + windows.get(i) + ", the window is skipped");
+					bestScores[i] = Double.NaN;
+					outOfSample.add(null);
+					continue;
+				}
+				bestScores[i] = values[best[i]];
+				final WalkForwardWindow w = windows.get(i);
+				final Map<String, Object> parameters = combinations.get(best[i]);
+				outOfSample.add(executor.submit(new Callable<PortfolioStatistics>() {
+					@Override
+					public PortfolioStatistics call() throws Exception {
+						return simulate(w.getTestStart(), w.getTestEnd(), parameters);
+					}
+				}));
+			}
+
+			List<WindowResult> results = new ArrayList<WindowResult>();
+			for (int i = 0; i < windows.size(); i++){
+				WindowResult result = best[i] < 0 ? new WindowResult(windows.get(i), null, Double.NaN, null) 
+						: new WindowResult(windows.get(i), combinations.get(best[i]), bestScores[i], get(outOfSample.get(i)));
+				logger.info(result);
+				results.add(result);
+			}
+			logger.info("Walk forward analysis time (seconds) " + (System.nanoTime() - start) / 1.0e9);
+			return new WalkForwardResult(results, initialCash);
+		}finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 *
+	 * @param scores the in sample scores of the combinations
+	 * @return index of the highest score (the first one on a tie), -1 if all the scores are NaN
+	 */
+	static int best(double[] scores){
+		int best = -1;
+		for (int c = 0; c < scores.length; c++){
+			if (!Double.isNaN(scores[c]) && (best < 0 || scores[c] > scores[best])){
+				best = c;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Load the instruments of the strategies over the whole analysis, before the parallel simulations
+	 */
+	private void loadMarketData(DateTime from, DateTime to){
+		StrategyRunner loader = new StrategyRunner(marketMgr, new OrderManager());
+		loader.setStratClassNames(stratClassNames);
+		loader.setGlobalPortfolio(new Portfolio("Walk forward", currency, initialCash));
+		loader.init(from, to);
+	}
+
+	/**
+	 * A simulation on a period
+	 * @param from start of the period
+	 * @param to end of the period (excluded)
+	 * @param parameters the values of the {@link Parameter}s
+	 */
+	private PortfolioStatistics simulate(DateTime from, DateTime to, Map<String, Object> parameters){
+		OrderManager orderManager = new OrderManager(fillModel.getSlippage(), fillModel.getFlatFee(), fillModel.getSizeFee());
+		orderManager.getFillModel().setVolumeLimit(fillModel.getVolumeLimit());
+		orderManager.setMktManager(marketMgr);
+
+		StrategyRunner runner = new StrategyRunner(marketMgr, orderManager);
+		runner.setReuseMarketData(true);
+		runner.setStratClassNames(stratClassNames);
+		runner.setParameters(parameters);
+		runner.setResultCache(resultCache);
+		runner.setGlobalPortfolio(new Portfolio("Walk forward", currency, initialCash));
+		runner.init(from, to.minusMillis(1));
+		return runner.run();
+	}
+
+	/**
+	 *
+	 * @return name of the runs in the {@link ResultStore} : the strategy class names
+	 */
+	private String getStrategyName(){
+		StringBuilder sb = new StringBuilder();
+		for (String name : stratClassNames){
+			if (sb.length() > 0){
+				sb.append(',');
+			}
+			sb.append(name);
+		}
+		return sb.toString();
+	}
+
+	private static <T> T get(Future<T> future){
+		try {
+			return future.get();
+		}catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}catch (ExecutionException e) {
+			throw new RuntimeException("Walk forward simulation failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Score of a combination of parameters on a train period
+	 */
+	private final class InSample implements Callable<Double> {
+
+		private final WalkForwardWindow window;
+
+		private final Map<String, Object> parameters;
+
+		InSample(WalkForwardWindow window, Map<String, Object> parameters) {
+			this.window = window;
+			this.parameters = parameters;
+		}
+
+		@Override
+		public Double call() throws Exception {
+			PortfolioStatistics stats = simulate(window.getTrainStart(), window.getTrainEnd(), parameters);
+			if (resultStore != null){
+				resultStore.save(getStrategyName(), parameters, stats);
+			}
+			return objective.evaluate(stats);
+		}
+	}
+
+	public List<String> getStratClassNames() {
+		return stratClassNames;
+	}
+
+	public void setStratClassNames(List<String> stratClassNames) {
+		this.stratClassNames = stratClassNames;
+	}
+
+	public Currency getCurrency() {
+		return currency;
+	}
+
+	public void setCurrency(Currency currency) {
+		this.currency = currency;
+	}
+
+	/**
+	 *
+	 * @return initial cash of every simulation
+	 */
+	public double getInitialCash() {
+		return initialCash;
+	}
+
+	public void setInitialCash(double initialCash) {
+		this.initialCash = initialCash;
+	}
+
+	public ParameterSpace getParameterSpace() {
+		return parameterSpace;
+	}
+
+	public void setParameterSpace(ParameterSpace parameterSpace) {
+		this.parameterSpace = parameterSpace;
+	}
+
+	public Objective getObjective() {
+		return objective;
+	}
+
+	public void setObjective(Objective objective) {
+		this.objective = objective;
+	}
+
+	/**
+	 *
+	 * @return the {@link FillModel} copied in the {@link OrderManager} of every simulation
+	 */
+	public FillModel getFillModel() {
+		return fillModel;
+	}
+
+	public void setFillModel(FillModel fillModel) {
+		this.fillModel = fillModel;
+	}
+
+	public ResultStore getResultStore() {
+		return resultStore;
+	}
+
+	/**
+	 *
+	 * @param resultStore the {@link ResultStore} of the in sample simulations, <code>null</code> (default) to keep only their score
+	 */
+	public void setResultStore(ResultStore resultStore) {
+		this.resultStore = resultStore;
+	}
+
+	public ResultCache getResultCache() {
+		return resultCache;
+	}
+
+	/**
+	 *
+	 * @param resultCache the {@link ResultCache} of the simulations : the windows and combinations already simulated are not replayed
+	 */
+	public void setResultCache(ResultCache resultCache) {
+		this.resultCache = resultCache;
+	}
+
+	public int getNbThreads() {
+		return nbThreads;
+	}
+
+	public void setNbThreads(int nbThreads) {
+		if (nbThreads <= 0){
+			throw new IllegalArgumentException("The number of threads must be positive : " + nbThreads);
+		}
+		this.nbThreads = nbThreads;
+	}
+}
@@ -0,0 +1,97 @@
+package org.jquant.strategy.walkforward;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.ReadablePeriod;
+
+/**
+ * A train (in sample) period followed by a test (out of sample) period
+ * <p> The starts are included, the ends are excluded. This class is immutable.
+ * @author JQUANT TEAM
+ */
+public final class WalkForwardWindow {
+
+	private final DateTime trainStart;
+
+	private final DateTime trainEnd;
+
+	private final DateTime testEnd;
+
+	public WalkForwardWindow(DateTime trainStart, DateTime trainEnd, DateTime testEnd) {
+		if (!trainStart.isBefore(trainEnd) || !trainEnd.isBefore(testEnd)){
+			throw new IllegalArgumentException("Wrong walk forward window " + trainStart + " / " + trainEnd + " / " + testEnd);
+		}
+		this.trainStart = trainStart;
+		this.trainEnd = trainEnd;
+		this.testEnd = testEnd;
+	}
+
+	/**
+	 * Rolling windows : train periods of constant length, moved forward by the test period
+	 * @param from start of the first train period
+	 * @param to end of the last test period (the last test period is truncated)
+	 * @param train length of the train periods
+	 * @param test length of the test periods
+	 * @return the {@link WalkForwardWindow}s
+	 */
+	public static List<WalkForwardWindow> rolling(DateTime from, DateTime to, ReadablePeriod train, ReadablePeriod test){
+		return split(from, to, train, test, false);
+	}
+
+	/**
+	 * Anchored windows : all the train periods start at <b>from</b> and grow by the test period
+	 * @param from start of the train periods
+	 * @param to end of the last test period (the last test period is truncated)
+	 * @param train length of the first train period
+	 * @param test length of the test periods
+	 * @return the {@link WalkForwardWindow}s
+	 */
+	public static List<WalkForwardWindow> anchored(DateTime from, DateTime to, ReadablePeriod train, ReadablePeriod test){
+		return split(from, to, train, test, true);
+	}
+
+	private static List<WalkForwardWindow> split(DateTime from, DateTime to, ReadablePeriod train, ReadablePeriod test, boolean anchored){
+		List<WalkForwardWindow> windows = new ArrayList<WalkForwardWindow>();
+		DateTime trainStart = from;
+		DateTime testStart = from.plus(train);
+		while (testStart.isBefore(to)){
+			DateTime testEnd = testStart.plus(test);
+			if (testEnd.isAfter(to)){
+				testEnd = to;
+			}
+			windows.add(new WalkForwardWindow(trainStart, testStart, testEnd));
+			if (!anchored){
+				trainStart = trainStart.plus(test);
+			}
+			testStart = testEnd;
+		}
+		return windows;
+	}
+
+	public DateTime getTrainStart() {
+		return trainStart;
+	}
+
+	/**
+	 *
+	 * @return end of the train period, start of the test period
+	 */
+	public DateTime getTrainEnd() {
+		return trainEnd;
+	}
+
+	public DateTime getTestStart() {
+		return trainEnd;
+	}
+
+	public DateTime getTestEnd() {
+		return testEnd;
+	}
+
+	@Override
+	public String toString() {
+		return "WalkForwardWindow [train=" + trainStart.toString("dd/MM/yyyy") + "-" + trainEnd.toString("dd/MM/yyyy") + ", test=" + trainEnd.toString("dd/MM/yyyy") + "-" + testEnd.toString("dd/MM/yyyy") + "]";
+	}
+}
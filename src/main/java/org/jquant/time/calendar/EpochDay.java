@@ -0,0 +1,249 @@
+package org.jquant.time.calendar;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+
+/**
+ * Primitive dates : number of days since 1970-01-01 (proleptic gregorian calendar)
+ * <p>
+ * An epoch day is a plain <code>int</code>, the difference of two epoch days is the ACTUAL number of days between them.
+ * The start of the years 1900 - 2199 are precomputed : in this range the conversions do not allocate.
+ * <p> The conversion from a {@link DateTime} uses the local date of the {@link DateTime} (its time zone), the time of the day is ignored.
+ * @author JQUANT TEAM
+ *
+ */
+public final class EpochDay {
+
+	private static final int FIRST_CACHED_YEAR = 1900;
+
+	private static final int LAST_CACHED_YEAR = 2199;
+
+	/**
+	 * Epoch day of the 1st of january of the cached years
+	 */
+	private static final int[] YEAR_STARTS = new int[LAST_CACHED_YEAR - FIRST_CACHED_YEAR + 2];
+
+	private static final int[] DAYS_BEFORE_MONTH = {0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334};
+
+	static {
+		for (int i = 0; i < YEAR_STARTS.length; i++){
+			YEAR_STARTS[i] = computeEpochDay(FIRST_CACHED_YEAR + i, 1, 1);
+		}
+	}
+
+	private EpochDay(){
+
+	}
+
+	/**
+	 *
+	 * @param date a {@link DateTime}
+	 * @return the epoch day of the local date
+	 */
+	public static int of(DateTime date){
+		return of(date.getYear(), date.getMonthOfYear(), date.getDayOfMonth());
+	}
+
+	/**
+	 *
+	 * @param year the year
+	 * @param month 1 - 12
+	 * @param dayOfMonth 1 - 31
+	 * @return the epoch day of the date
+	 */
+	public static int of(int year, int month, int dayOfMonth){
+		if (year >= FIRST_CACHED_YEAR && year <= LAST_CACHED_YEAR){
+			int day = YEAR_STARTS[year - FIRST_CACHED_YEAR] + DAYS_BEFORE_MONTH[month-1] + dayOfMonth - 1;
+			if (month > 2 && isLeapYear(year)){
+				day++;
+			}
+			return day;
+		}
+		return computeEpochDay(year, month, dayOfMonth);
+	}
+
+	/**
+	 *
+	 * @param epochDay an epoch day
+	 * @param zone the {@link DateTimeZone} of the result
+	 * @return the {@link DateTime} at midnight
+	 */
+	public static DateTime toDateTime(int epochDay, DateTimeZone zone){
+		int[] ymd = toYearMonthDay(epochDay);
+		return new DateTime(ymd[0], ymd[1], ymd[2], 0, 0, 0, 0, zone);
+	}
+
+	/**
+	 *
+	 * @param epochDay an epoch day
+	 * @return the {@link DateTime} at midnight in the default time zone
+	 */
+	public static DateTime toDateTime(int epochDay){
+		return toDateTime(epochDay, DateTimeZone.getDefault());
+	}
+
+	/**
+	 *
+	 * @param epochDay an epoch day
+	 * @return the year of the epoch day
+	 */
+	public static int getYear(int epochDay){
+		if (epochDay >= YEAR_STARTS[0] && epochDay < YEAR_STARTS[YEAR_STARTS.length-1]){
+			// first guess from the mean year length, corrected by one year at most
+			int i = (int) ((epochDay - YEAR_STARTS[0]) / 365.2425);
+			if (i + 1 < YEAR_STARTS.length && YEAR_STARTS[i+1] <= epochDay){
+				i++;
+			} else if (YEAR_STARTS[i] > epochDay){
+				i--;
+			}
+			return FIRST_CACHED_YEAR + i;
+		}
+		return toYearMonthDay(epochDay)[0];
+	}
+
+	/**
+	 *
+	 * @param year the year
+	 * @return the epoch day of the 1st of january
+	 */
+	public static int getYearStart(int year){
+		if (year >= FIRST_CACHED_YEAR && year <= LAST_CACHED_YEAR + 1){
+			return YEAR_STARTS[year - FIRST_CACHED_YEAR];
+		}
+		return computeEpochDay(year, 1, 1);
+	}
+
+	/**
+	 *
+	 * @param year the year
+	 * @return <code>true</code> for a leap year
+	 */
+	public static boolean isLeapYear(int year){
+		return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+	}
+
+	/**
+	 *
+	 * @param year the year
+	 * @return 365 or 366
+	 */
+	public static int getYearLength(int year){
+		return isLeapYear(year) ? 366 : 365;
+	}
+
+	/**
+	 * Add months, the day of month is clamped to the end of the month (as {@link DateTime#plusMonths(int)})
+	 * @param epochDay an epoch day
+	 * @param months number of months (may be negative)
+	 * @return the epoch day
+	 */
+	public static int plusMonths(int epochDay, int months){
+		if (months == 0){
+			return epochDay;
+		}
+		int year = getYear(epochDay);
+		int dayOfYear = epochDay - getYearStart(year);
+		int month = getMonth(year, dayOfYear);
+		int dayOfMonth = dayOfYear - getDaysBeforeMonth(year, month) + 1;
+		int m = year * 12 + (month - 1) + months;
+		year = m >= 0 ? m / 12 : (m - 11) / 12;
+		month = m - year * 12 + 1;
+		return of(year, month, Math.min(dayOfMonth, getMonthLength(year, month)));
+	}
+
+	/**
+	 *
+	 * @param epochDay an epoch day
+	 * @return the month of the epoch day (1 - 12)
+	 */
+	public static int getMonth(int epochDay){
+		int year = getYear(epochDay);
+		return getMonth(year, epochDay - getYearStart(year));
+	}
+
+	/**
+	 *
+	 * @param epochDay an epoch day
+	 * @return the day of month of the epoch day (1 - 31)
+	 */
+	public static int getDayOfMonth(int epochDay){
+		int year = getYear(epochDay);
+		int dayOfYear = epochDay - getYearStart(year);
+		return dayOfYear - getDaysBeforeMonth(year, getMonth(year, dayOfYear)) + 1;
+	}
+
+	private static int getMonth(int year, int dayOfYear){
+		int month = 12;
+		while (getDaysBeforeMonth(year, month) > dayOfYear){
+			month--;
+		}
+		return month;
+	}
+
+	private static int getDaysBeforeMonth(int year, int month){
+		return DAYS_BEFORE_MONTH[month-1] + (month > 2 && isLeapYear(year) ? 1 : 0);
+	}
+
+	/**
+	 * Add a {@link Period} (years, months, weeks and days fields, in this order as {@link DateTime#plus(org.joda.time.ReadablePeriod)})
+	 * @param epochDay an epoch day
+	 * @param period the {@link Period}
+	 * @return the epoch day
+	 */
+	public static int plus(int epochDay, Period period){
+		int day = plusMonths(epochDay, period.getYears() * 12);
+		day = plusMonths(day, period.getMonths());
+		return day + period.getWeeks() * 7 + period.getDays();
+	}
+
+	/**
+	 *
+	 * @param year the year
+	 * @param month 1 - 12
+	 * @return number of days of the month
+	 */
+	public static int getMonthLength(int year, int month){
+		switch (month) {
+		case 2:
+			return isLeapYear(year) ? 29 : 28;
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
+	/**
+	 * Civil date from days
+	 * @param epochDay an epoch day
+	 * @return {year, month, dayOfMonth}
+	 */
+	public static int[] toYearMonthDay(int epochDay){
+		int z = epochDay + 719468;
+		int era = (z >= 0 ? z : z - 146096) / 146097;
+		int doe = z - era * 146097;
+		int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		int mp = (5 * doy + 2) / 153;
+		int d = doy - (153 * mp + 2) / 5 + 1;
+		int m = mp < 10 ? mp + 3 : mp - 9;
+		int y = yoe + era * 400 + (m <= 2 ? 1 : 0);
+		return new int[] {y, m, d};
+	}
+
+	/**
+	 * Days from civil date
+	 */
+	private static int computeEpochDay(int year, int month, int dayOfMonth){
+		int y = month <= 2 ? year - 1 : year;
+		int era = (y >= 0 ? y : y - 399) / 400;
+		int yoe = y - era * 400;
+		int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + dayOfMonth - 1;
+		int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		return era * 146097 + doe - 719468;
+	}
+}
@@ -1,18 +1,34 @@
 package org.jquant.time.daycounter;
 
-import org.joda.time.DateTime;
-import org.joda.time.Days;
 
 
 public class Actual360 extends DayCounter{
 
+	/**
+	 * Shared instance
+	 */
+	public static final Actual360 INSTANCE = new Actual360();
+	
 	public Actual360()	{
 		super();
 	}
 
 	@Override
-	public double calculateYearFraction(DateTime startDate, DateTime endDate) {
-
-		return Days.daysBetween(startDate, endDate).getDays()/(double)360;
+	public double yearFraction(int startDay, int endDay) {
+		return (endDay - startDay) / 360.0;
+	}
+	
+	@Override
+	public void yearFractions(int startDay, int[] endDays, double[] fractions, int length) {
+		for (int i = 0; i < length; i++){
+			fractions[i] = (endDays[i] - startDay) / 360.0;
+		}
+	}
+	
+	@Override
+	public void accruals(int[] days, double[] fractions, int length) {
+		for (int i = 0; i < length; i++){
+			fractions[i] = (days[i+1] - days[i]) / 360.0;
+		}
 	}
 }
@@ -1,14 +1,29 @@
 package org.jquant.time.daycounter;
 
-import org.joda.time.DateTime;
-import org.joda.time.Days;
 
 public class Actual365Fixed extends DayCounter{
 
+	/**
+	 * Shared instance
+	 */
+	public static final Actual365Fixed INSTANCE = new Actual365Fixed();
+	
 	@Override
-	public double calculateYearFraction(DateTime startDate, DateTime endDate) {
-
-		return Days.daysBetween(startDate, endDate).getDays()/(double)365;
+	public double yearFraction(int startDay, int endDay) {
+		return (endDay - startDay) / 365.0;
 	}
 
+	@Override
+	public void yearFractions(int startDay, int[] endDays, double[] fractions, int length) {
+		for (int i = 0; i < length; i++){
+			fractions[i] = (endDays[i] - startDay) / 365.0;
+		}
+	}
+	
+	@Override
+	public void accruals(int[] days, double[] fractions, int length) {
+		for (int i = 0; i < length; i++){
+			fractions[i] = (days[i+1] - days[i]) / 365.0;
+		}
+	}
 }
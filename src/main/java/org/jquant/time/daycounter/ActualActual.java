@@ -1,7 +1,17 @@
 package org.jquant.time.daycounter;
 
-import org.joda.time.DateTime;
+import org.jquant.time.calendar.EpochDay;
 
+/**
+ * Actual/Actual conventions
+ * <ul>
+ * <li>ISDA : days in leap years / 366 + days in non leap years / 365</li>
+ * <li>ISMA (ICMA) : days / (frequency x days of the coupon period), the coupon periods are generated backward
+ * from the end date every 12 / frequency months (regular or short first period)</li>
+ * <li>AFB : whole years counted backward from the end date, then days / 366 if the remaining period contains a 29th of february, days / 365 otherwise</li>
+ * </ul>
+ * @author JQUANT TEAM
+ */
 public class ActualActual extends DayCounter{
 
 	// http://www.isda.org/c_and_a/pdf/mktc1198.pdf
@@ -11,8 +21,163 @@ public class ActualActual extends DayCounter{
 		AFB
 	}
 
+	/**
+	 * Shared ISDA instance
+	 */
+	public static final ActualActual ISDA = new ActualActual(Convention.ISDA);
+
+	/**
+	 * Shared AFB instance
+	 */
+	public static final ActualActual AFB = new ActualActual(Convention.AFB);
+
+	/**
+	 * Shared ISMA instance for annual coupons
+	 */
+	public static final ActualActual ISMA_ANNUAL = new ActualActual(Convention.ISMA, 1);
+
+	/**
+	 * Shared ISMA instance for semi annual coupons
+	 */
+	public static final ActualActual ISMA_SEMI_ANNUAL = new ActualActual(Convention.ISMA, 2);
+
+	private final Convention convention;
+
+	/**
+	 * Number of coupons per year (ISMA only)
+	 */
+	private final int frequency;
+
+	/**
+	 * ISDA convention
+	 */
+	public ActualActual() {
+		this(Convention.ISDA);
+	}
+
+	/**
+	 *
+	 * @param convention ISDA or AFB (ISMA with an annual frequency)
+	 */
+	public ActualActual(Convention convention) {
+		this(convention, 1);
+	}
+
+	/**
+	 *
+	 * @param convention the {@link Convention}
+	 * @param frequency number of coupons per year (1, 2, 3, 4, 6 or 12), used by the ISMA convention
+	 */
+	public ActualActual(Convention convention, int frequency) {
+		super();
+		if (frequency <= 0 || 12 % frequency != 0){
+			throw new IllegalArgumentException("Invalid coupon frequency : " + frequency);
+		}
+		this.convention = convention;
+		this.frequency = frequency;
+	}
+
 	@Override
-	public double calculateYearFraction(DateTime startDate, DateTime endDate) {
-		return 0;
+	public double yearFraction(int startDay, int endDay) {
+		if (startDay == endDay){
+			return 0;
+		}
+		if (endDay < startDay){
+			return -yearFraction(endDay, startDay);
+		}
+		switch (convention) {
+		case ISMA:
+			return isma(startDay, endDay);
+		case AFB:
+			return afb(startDay, endDay);
+		default:
+			return isda(startDay, endDay);
+		}
+	}
+
+	/**
+	 * ISMA year fraction with an explicit reference (coupon) period
+	 * @param startDay start of the accrual (epoch day)
+	 * @param endDay end of the accrual (epoch day)
+	 * @param referenceStartDay start of the coupon period (epoch day)
+	 * @param referenceEndDay end of the coupon period (epoch day)
+	 * @return days / (frequency x days of the coupon period)
+	 */
+	public double yearFraction(int startDay, int endDay, int referenceStartDay, int referenceEndDay) {
+		return (endDay - startDay) / (double) (frequency * (referenceEndDay - referenceStartDay));
+	}
+
+	private double isda(int startDay, int endDay){
+		int startYear = EpochDay.getYear(startDay);
+		int endYear = EpochDay.getYear(endDay);
+		if (startYear == endYear){
+			return (endDay - startDay) / (double) EpochDay.getYearLength(startYear);
+		}
+		double fraction = (EpochDay.getYearStart(startYear + 1) - startDay) / (double) EpochDay.getYearLength(startYear);
+		fraction += endYear - startYear - 1;
+		fraction += (endDay - EpochDay.getYearStart(endYear)) / (double) EpochDay.getYearLength(endYear);
+		return fraction;
+	}
+
+	private double isma(int startDay, int endDay){
+		int step = 12 / frequency;
+		double fraction = 0;
+		int periodEnd = endDay;
+		int k = 1;
+		while (periodEnd > startDay){
+			// computed from the end date to avoid the end of month drift
+			int periodStart = EpochDay.plusMonths(endDay, -k * step);
+			fraction += (periodEnd - Math.max(startDay, periodStart)) / (double) (frequency * (periodEnd - periodStart));
+			periodEnd = periodStart;
+			k++;
+		}
+		return fraction;
+	}
+
+	private double afb(int startDay, int endDay){
+		int end = endDay;
+		int years = 0;
+		int k = 1;
+		while (true){
+			int previous = EpochDay.plusMonths(endDay, -12 * k);
+			// the 28th of february of a leap year rolls to the 29th
+			if (EpochDay.getMonth(previous) == 2 && EpochDay.getDayOfMonth(previous) == 28 && EpochDay.isLeapYear(EpochDay.getYear(previous))){
+				previous++;
+			}
+			if (previous < startDay){
+				break;
+			}
+			years++;
+			end = previous;
+			k++;
+		}
+		int basis = containsLeapDay(startDay, end) ? 366 : 365;
+		return years + (end - startDay) / (double) basis;
+	}
+
+	/**
+	 *
+	 * @return <code>true</code> if a 29th of february is in [startDay, endDay[
+	 */
+	private static boolean containsLeapDay(int startDay, int endDay){
+		int startYear = EpochDay.getYear(startDay);
+		int endYear = EpochDay.getYear(endDay);
+		for (int year = startYear; year <= endYear; year++){
+			if (EpochDay.isLeapYear(year)){
+				int leapDay = EpochDay.of(year, 2, 29);
+				if (leapDay >= startDay && leapDay < endDay){
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	public Convention getConvention() {
+		return convention;
+	}
+
+	public int getFrequency() {
+		return frequency;
 	}
 }
@@ -1,9 +1,13 @@
 package org.jquant.time.daycounter;
 
 import org.joda.time.DateTime;
+import org.jquant.time.calendar.EpochDay;
 
 /**
  * Norme de comptage pour l'année
+ * <p> The conventions are stateless : the shared instances ({@link Actual360#INSTANCE}, {@link Actual365Fixed#INSTANCE}, 
+ * {@link ActualActual#ISDA}, {@link ActualActual#AFB} ...) should be used instead of new ones.
+ * <p> The primitive API works on epoch days (see {@link EpochDay}), the {@link DateTime} API is a conversion on top of it.
  * <p> TODO : transformer en enum 
  * @author patrick.merheb
  *
@@ -14,6 +18,41 @@ public abstract class DayCounter {
 
 	}
 	
-	public abstract double calculateYearFraction(DateTime startDate, DateTime endDate);
+	public double calculateYearFraction(DateTime startDate, DateTime endDate){
+		return yearFraction(EpochDay.of(startDate), EpochDay.of(endDate));
+	}
+	
+	/**
+	 * 
+	 * @param startDay start date (epoch day)
+	 * @param endDay end date (epoch day)
+	 * @return the year fraction between the two dates (negative if endDay &lt; startDay)
+	 */
+	public abstract double yearFraction(int startDay, int endDay);
+	
+	/**
+	 * Bulk year fractions from a single start date (curve times)
+	 * @param startDay start date (epoch day)
+	 * @param endDays end dates (epoch days)
+	 * @param fractions the result, fractions[i] = yearFraction(startDay, endDays[i])
+	 * @param length number of dates
+	 */
+	public void yearFractions(int startDay, int[] endDays, double[] fractions, int length){
+		for (int i = 0; i < length; i++){
+			fractions[i] = yearFraction(startDay, endDays[i]);
+		}
+	}
+	
+	/**
+	 * Bulk year fractions of consecutive periods (accruals of a schedule)
+	 * @param days the schedule (epoch days), length + 1 dates
+	 * @param fractions the result, fractions[i] = yearFraction(days[i], days[i+1])
+	 * @param length number of periods
+	 */
+	public void accruals(int[] days, double[] fractions, int length){
+		for (int i = 0; i < length; i++){
+			fractions[i] = yearFraction(days[i], days[i+1]);
+		}
+	}
 
 }
@@ -24,6 +24,7 @@
 package org.jquant.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.log4j.Logger;
@@ -638,7 +639,7 @@ public class FinancialLibrary {
     		double logReturn = Math.log(close[i]/close[i-1]);
     		varOfLogReturns += logReturn*logReturn;
     	}
-    	realizedVariance = 252/(nbPrices-1)*varOfLogReturns;
+    	realizedVariance = 252.0/(nbPrices-1)*varOfLogReturns;
     	return realizedVariance;
     }
     
@@ -650,5 +651,296 @@ public class FinancialLibrary {
     public static double getRealizedVolatility(double[] close) {
     	return Math.sqrt(getRealizedVariance(close));
     }
+
+	/*
+	 * Whole serie variants 
+	 * 
+	 * The input values are ordered like in the single value functions (index 0 = most recent value) and 
+	 * out[skipdays] receives the value of the single value function for this skipdays, Double.NaN where 
+	 * it is not defined (not enough history). 
+	 * The moving windows are updated in one linear pass from the oldest value to the most recent one, 
+	 * the elementwise functions are plain counted loops without branches (auto-vectorized by the JIT). 
+	 * Running sums are recomputed exactly every RESYNC values so that the results stay equal to the 
+	 * single value functions up to the rounding errors.
+	 */
+	
+	private static final int RESYNC = 256;
+	
+	private static int checkBuffers(double[] vals, double[] out) {
+		if (out.length < vals.length) {
+			throw new IllegalArgumentException("Output buffer too small : " + out.length + " < " + vals.length);
+		}
+		return vals.length;
+	}
+	
+	/**
+	 * Whole serie SMA : out[s] = SMA(period, vals, s)
+	 * @param period depth
+	 * @param vals input values (index 0 = most recent)
+	 * @param out output buffer (at least vals.length) 
+	 */
+	public static void SMA(int period, double[] vals, double[] out) {
+		int n = checkBuffers(vals, out);
+		int last = n - period;
+		Arrays.fill(out, Math.max(last + 1, 0), n, Double.NaN);
+		if (last < 0) {
+			return;
+		}
+		double sum = 0;
+		for (int s = last; s >= 0; s--) {
+			if ((last - s) % RESYNC == 0) {
+				sum = 0;
+				for (int i = s; i < s + period; i++) {
+					sum += vals[i];
+				}
+			} else {
+				sum += vals[s] - vals[s + period];
+			}
+			out[s] = sum / period;
+		}
+	}
+	
+	/**
+	 * Whole serie WMA : out[s] = WMA(period, vals, s)
+	 * @param period depth
+	 * @param vals input values (index 0 = most recent)
+	 * @param out output buffer (at least vals.length) 
+	 */
+	public static void WMA(int period, double[] vals, double[] out) {
+		int n = checkBuffers(vals, out);
+		int last = n - period;
+		Arrays.fill(out, Math.max(last + 1, 0), n, Double.NaN);
+		if (last < 0) {
+			return;
+		}
+		int denominator = period * (period + 1) / 2;
+		double numerator = 0;
+		double sum = 0;
+		for (int s = last; s >= 0; s--) {
+			if ((last - s) % RESYNC == 0) {
+				numerator = 0;
+				sum = 0;
+				int weight = period;
+				for (int i = s; i < s + period; i++) {
+					numerator += vals[i] * weight;
+					sum += vals[i];
+					weight--;
+				}
+			} else {
+				// N(s) = N(s+1) - S(s+1) + period * v(s)
+				numerator += period * vals[s] - sum;
+				sum += vals[s] - vals[s + period];
+			}
+			out[s] = numerator / denominator;
+		}
+	}
+	
+	/**
+	 * Whole serie deviation : out[s] = deviation(n, vals, s)
+	 * <p> Sliding window variance update (Welford) : no cancellation of large sums of squares
+	 * @param n depth
+	 * @param vals input values (index 0 = most recent)
+	 * @param out output buffer (at least vals.length) 
+	 */
+	public static void deviation(int n, double[] vals, double[] out) {
+		int size = checkBuffers(vals, out);
+		int last = size - n;
+		Arrays.fill(out, Math.max(last + 1, 0), size, Double.NaN);
+		if (last < 0) {
+			return;
+		}
+		double mean = 0;
+		double m2 = 0;
+		for (int s = last; s >= 0; s--) {
+			if ((last - s) % RESYNC == 0) {
+				mean = SMA(n, vals, s);
+				m2 = 0;
+				for (int i = s; i < s + n; i++) {
+					m2 += (vals[i] - mean) * (vals[i] - mean);
+				}
+			} else {
+				double in = vals[s];
+				double removed = vals[s + n];
+				double previousMean = mean;
+				mean += (in - removed) / n;
+				m2 += (in - removed) * (in - mean + removed - previousMean);
+				if (m2 < 0) {
+					m2 = 0;
+				}
+			}
+			out[s] = Math.sqrt(m2 / n);
+		}
+	}
+	
+	/**
+	 * Whole serie bollinger bands : [lower[s], center[s], upper[s]] = bollinger(n, deviations, vals, s)
+	 * @param n depth 
+	 * @param deviations number of standard deviations spread 
+	 * @param vals input values (index 0 = most recent)
+	 * @param lower lower band output buffer 
+	 * @param center center band (SMA) output buffer 
+	 * @param upper upper band output buffer (used as deviation buffer during the computation)
+	 */
+	public static void bollinger(int n, int deviations, double[] vals, double[] lower, double[] center, double[] upper) {
+		checkBuffers(vals, lower);
+		SMA(n, vals, center);
+		deviation(n, vals, upper);
+		int size = vals.length;
+		for (int s = 0; s < size; s++) {
+			double spread = deviations * upper[s];
+			lower[s] = center[s] - spread;
+			upper[s] = center[s] + spread;
+		}
+	}
+	
+	/**
+	 * Whole serie EMA : out[s] = EMA(n, vals, s) 
+	 * <p> The single value EMA runs from the oldest value : out[s] = v[s] x k + out[s+1] x (1 - k), the results are identical.
+	 * @param n depth
+	 * @param vals input values (index 0 = most recent)
+	 * @param out output buffer (at least vals.length) 
+	 */
+	public static void EMA(int n, double[] vals, double[] out) {
+		int size = checkBuffers(vals, out);
+		if (size == 0) {
+			return;
+		}
+		double exponent = 2 / (double) (n + 1);
+		double value = vals[size - 1] * exponent;
+		for (int i = size - 1; i >= 0; i--) {
+			value = (vals[i] * exponent) + (value * (1 - exponent));
+			out[i] = value;
+		}
+	}
+	
+	/**
+	 * Whole serie MEMA (Wilder smoothing) 
+	 * <p> The single value MEMA seeds the smoothing with a SMA at most ~500 values before skipdays (and the seed depends on skipdays 
+	 * for short series). Here the smoothing is seeded once with the oldest SMA (out[vals.length - period]) and runs over the 
+	 * whole history : the values differ from the single value function by less than (1 - 1/period)<sup>history</sup>, 
+	 * i.e. they are equal once the single value function uses a few multiples of period values.
+	 * @param period depth 
+	 * @param vals input values (index 0 = most recent)
+	 * @param out output buffer (at least vals.length) 
+	 */
+	public static void MEMA(int period, double[] vals, double[] out) {
+		int n = checkBuffers(vals, out);
+		int last = n - period;
+		Arrays.fill(out, Math.max(last + 1, 0), n, Double.NaN);
+		if (last < 0) {
+			return;
+		}
+		double smoothing = 1;
+		if (period != 0) {
+			smoothing = 1 / (double) period;
+		}
+		double mema = SMA(period, vals, last);
+		out[last] = mema;
+		for (int i = last - 1; i >= 0; i--) {
+			mema = (smoothing * vals[i]) + ((1 - smoothing) * mema);
+			out[i] = mema;
+		}
+	}
+	
+	/**
+	 * Whole serie RSI : out[s] = RSI(n, vals, s)
+	 * <p> Up and down moves are summed in sliding windows, the number of down moves in the window is tracked 
+	 * so that the "no down move" case (0.0) is detected exactly. 
+	 * @param n depth
+	 * @param vals input values (index 0 = most recent)
+	 * @param out output buffer (at least vals.length) 
+	 */
+	public static void RSI(int n, double[] vals, double[] out) {
+		int size = checkBuffers(vals, out);
+		int last = size - n - 1;
+		Arrays.fill(out, Math.max(last + 1, 0), size, Double.NaN);
+		if (last < 0) {
+			return;
+		}
+		double up = 0;
+		double down = 0;
+		int nbDown = 0;
+		for (int s = last; s >= 0; s--) {
+			if ((last - s) % RESYNC == 0) {
+				up = 0;
+				down = 0;
+				nbDown = 0;
+				for (int i = s; i < s + n; i++) {
+					double change = vals[i] - vals[i + 1];
+					if (change > 0) {
+						up += change;
+					} else if (change < 0) {
+						down -= change;
+						nbDown++;
+					}
+				}
+			} else {
+				// enters : change(s), leaves : change(s + n)
+				double change = vals[s] - vals[s + 1];
+				if (change > 0) {
+					up += change;
+				} else if (change < 0) {
+					down -= change;
+					nbDown++;
+				}
+				change = vals[s + n] - vals[s + n + 1];
+				if (change > 0) {
+					up -= change;
+				} else if (change < 0) {
+					down += change;
+					nbDown--;
+				}
+				if (nbDown == 0) {
+					down = 0;
+				}
+			}
+			out[s] = down == 0 ? 0.0 : 100 - (100 / (1 + (up / down)));
+		}
+	}
+	
+	/**
+	 * Whole serie ROC : out[s] = ROC(n, vals, s)
+	 * @param n depth
+	 * @param vals input values (index 0 = most recent)
+	 * @param out output buffer (at least vals.length) 
+	 */
+	public static void ROC(int n, double[] vals, double[] out) {
+		int size = checkBuffers(vals, out);
+		int last = size - n - 1;
+		for (int s = 0; s <= last; s++) {
+			out[s] = (vals[s] - vals[s + n]) / vals[s] * 100;
+		}
+		Arrays.fill(out, Math.max(last + 1, 0), size, Double.NaN);
+	}
+	
+	/**
+	 * Whole serie slope : out[s] = slope(n, vals, s)
+	 * @param n depth
+	 * @param vals input values (index 0 = most recent)
+	 * @param out output buffer (at least vals.length) 
+	 */
+	public static void slope(int n, double[] vals, double[] out) {
+		int size = checkBuffers(vals, out);
+		int last = size - n - 1;
+		for (int s = 0; s <= last; s++) {
+			out[s] = (vals[s] - vals[s + n]) / n;
+		}
+		Arrays.fill(out, Math.max(last + 1, 0), size, Double.NaN);
+	}
+	
+	/**
+	 * Whole serie price slope : out[s] = priceSlope(n, vals, s)
+	 * @param n depth
+	 * @param vals input values (index 0 = most recent)
+	 * @param out output buffer (at least vals.length) 
+	 */
+	public static void priceSlope(int n, double[] vals, double[] out) {
+		int size = checkBuffers(vals, out);
+		int last = size - n - 1;
+		for (int s = 0; s <= last; s++) {
+			out[s] = (vals[s] - vals[s + n]) / vals[s] * 100;
+		}
+		Arrays.fill(out, Math.max(last + 1, 0), size, Double.NaN);
+	}
        
 }
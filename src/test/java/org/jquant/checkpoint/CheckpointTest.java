@@ -0,0 +1,441 @@
+package org.jquant.checkpoint;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.joda.time.DateTime;
+import org.jquant.data.Instruments;
+import org.jquant.data.MarketManager;
+import org.jquant.indicator.SMA;
+import org.jquant.model.Currency;
+import org.jquant.model.InstrumentId;
+import org.jquant.model.MarketIdentifierCode;
+import org.jquant.order.LimitOrder;
+import org.jquant.order.MarketOnCloseOrder;
+import org.jquant.order.MarketOrder;
+import org.jquant.order.Order;
+import org.jquant.order.Order.OrderSide;
+import org.jquant.order.OrderManager;
+import org.jquant.order.OrderStatus;
+import org.jquant.order.StopOrder;
+import org.jquant.order.TrailingStopOrder;
+import org.jquant.portfolio.Portfolio;
+import org.jquant.portfolio.PortfolioStatistics;
+import org.jquant.portfolio.Trade;
+import org.jquant.serie.Candle;
+import org.jquant.serie.Candle.CandleData;
+import org.jquant.serie.CandleSerie;
+import org.jquant.serie.QuoteSerie;
+import org.jquant.serie.TimeValue;
+import org.jquant.strategy.MultiAssetStrategy;
+import org.jquant.strategy.StrategyRunner;
+import org.jquant.time.calendar.CalendarFactory;
+import org.jquant.time.calendar.Periods;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * A simulation restored from a checkpoint must go on exactly as the original one
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class CheckpointTest {
+
+	private static final double EPSILON = 1e-9;
+
+	private static final DateTime DAY = new DateTime(2012, 3, 1, 0, 0, 0, 0);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Portfolio and order manager of a simulation
+	 */
+	private static final class State implements Checkpointable {
+
+		private final Portfolio ptf = new Portfolio("Test Ptf", Currency.USD, 100000);
+
+		private final OrderManager orderManager = new OrderManager(0.001, 1.0, 0);
+
+		State() {
+			orderManager.getFillModel().setVolumeLimit(0.5);
+			orderManager.setPortfolio(ptf);
+		}
+
+		void onCandle(InstrumentId instrument, Candle candle){
+			orderManager.onCandleOpen(instrument, candle);
+			orderManager.onCandle(instrument, candle);
+		}
+
+		@Override
+		public void writeCheckpoint(CheckpointOutput out) throws IOException {
+			ptf.writeCheckpoint(out);
+			orderManager.writeCheckpoint(out);
+		}
+
+		@Override
+		public void readCheckpoint(CheckpointInput in) throws IOException {
+			ptf.readCheckpoint(in);
+			orderManager.readCheckpoint(in);
+		}
+	}
+
+	private static Candle candle(int day, double price, double volume){
+		return new Candle(DAY.plusDays(day), Periods.ONE_DAY, price, price + 2, price - 2, price + 1, volume);
+	}
+
+	@Test
+	public void testResume() throws IOException{
+		State state = new State();
+		state.orderManager.sendOrder(new MarketOrder(OrderSide.BUY, Instruments.IBM, 100, CandleData.OPEN, "buy", DAY));
+		state.orderManager.sendOrder(new MarketOrder(OrderSide.BUY, Instruments.GOOG, 10, CandleData.CLOSE, "buy", DAY));
+		state.onCandle(Instruments.IBM, candle(0, 100, 120));
+		state.onCandle(Instruments.GOOG, candle(0, 600, 1000));
+		state.ptf.markToMarket(DAY, new HashMap<InstrumentId, Candle>());
+		state.orderManager.sendOrder(new LimitOrder(OrderSide.SELL, Instruments.GOOG, 5, 650, "limit", DAY));
+		state.orderManager.sendOrder(new StopOrder(OrderSide.SELL, Instruments.GOOG, 5, 590, "stop", DAY));
+		state.orderManager.sendOrder(new TrailingStopOrder(OrderSide.SELL, Instruments.IBM, 0.05, 40, "trailing", DAY));
+		state.orderManager.sendOrder(new MarketOnCloseOrder(OrderSide.SELL, Instruments.GOOG, 2, "moc", DAY));
+		state.onCandle(Instruments.IBM, candle(1, 104, 60));
+		Assert.assertEquals(OrderStatus.PARTIALLY_FILLED, find(state.orderManager, "buy", Instruments.IBM).getStatus());
+
+		File file = new File(folder.getRoot(), "simulation.ckpt");
+		Checkpoint.write(file, state);
+		Assert.assertFalse(new File(file.getPath() + ".tmp").exists());
+
+		State restored = new State();
+		Checkpoint.read(file, restored);
+
+		assertSame(state, restored);
+		Order partial = find(restored.orderManager, "buy", Instruments.IBM);
+		Assert.assertEquals(90, partial.getFilledQuantity(), 0.0);
+		Assert.assertEquals(DAY.plusDays(1), partial.getExecutionTime());
+		Assert.assertEquals(CandleData.OPEN, ((MarketOrder) partial).getOhlc());
+		TrailingStopOrder trailing = (TrailingStopOrder) find(restored.orderManager, "trailing", Instruments.IBM);
+		Assert.assertEquals(105 * 0.95, trailing.getTrigger(), EPSILON);
+
+		// both simulations go on identically
+		for (State s : new State[]{state, restored}){
+			s.onCandle(Instruments.IBM, candle(2, 90, 1000));
+			s.onCandle(Instruments.GOOG, candle(2, 660, 1000));
+			Map<InstrumentId, Candle> last = new HashMap<InstrumentId, Candle>();
+			last.put(Instruments.IBM, candle(2, 90, 1000));
+			last.put(Instruments.GOOG, candle(2, 660, 1000));
+			s.orderManager.onEndOfDay(DAY.plusDays(2), last);
+			s.ptf.markToMarket(DAY.plusDays(2), last);
+		}
+		assertSame(state, restored);
+	}
+
+	private static Order find(OrderManager orderManager, String text, InstrumentId instrument){
+		for (Order o : orderManager.getPendingOrders()){
+			if (o.getText().equals(text) && o.getInstrument().equals(instrument)){
+				return o;
+			}
+		}
+		return null;
+	}
+
+	private static void assertSame(State expected, State actual){
+		Portfolio p1 = expected.ptf;
+		Portfolio p2 = actual.ptf;
+		Assert.assertEquals(p1.getCash(), p2.getCash(), 0.0);
+		Assert.assertEquals(p1.getPositions(), p2.getPositions());
+		Assert.assertEquals(p1.getTransactions().size(), p2.getTransactions().size());
+		for (int i = 0; i < p1.getTransactions().size(); i++){
+			Trade t1 = p1.getTransactions().get(i);
+			Trade t2 = p2.getTransactions().get(i);
+			Assert.assertEquals(t1, t2);
+			Assert.assertEquals(t1.getStatus(), t2.getStatus());
+			Assert.assertEquals(t1.getProfitAndLoss(), t2.getProfitAndLoss(), 0.0);
+		}
+		Assert.assertEquals(p1.getEquityCurve().size(), p2.getEquityCurve().size());
+		Iterator<TimeValue> it = p2.getEquityCurve().iterator();
+		for (TimeValue tv : p1.getEquityCurve()){
+			TimeValue other = it.next();
+			Assert.assertEquals(tv.getDate(), other.getDate());
+			Assert.assertEquals(tv.getValue(), other.getValue(), 0.0);
+		}
+		List<String> o1 = new ArrayList<String>();
+		for (Order o : expected.orderManager.getPendingOrders()){
+			o1.add(o.getClass().getSimpleName() + o + o.getFilledQuantity() + "@" + o.getFilledPrice() + "/" + o.getCommission());
+		}
+		List<String> o2 = new ArrayList<String>();
+		for (Order o : actual.orderManager.getPendingOrders()){
+			o2.add(o.getClass().getSimpleName() + o + o.getFilledQuantity() + "@" + o.getFilledPrice() + "/" + o.getCommission());
+		}
+		Assert.assertEquals(o1, o2);
+	}
+
+	static class BaseStrategy {
+		int framework = 1;
+	}
+
+	static final class FieldStrategy extends BaseStrategy {
+		private int count;
+		private double level;
+		private Double boxed;
+		private String name;
+		private OrderSide side;
+		private DateTime lastTrade;
+		private InstrumentId instrument;
+		private double[] weights;
+		private List<Double> history = new ArrayList<Double>();
+		private CandleSerie serie = new CandleSerie();
+		private Object helper = new Object();
+		private final int parameter;
+		private transient int cache;
+
+		FieldStrategy(int parameter) {
+			this.parameter = parameter;
+		}
+	}
+
+	@Test
+	public void testFieldState() throws IOException{
+		final FieldStrategy strategy = new FieldStrategy(1);
+		strategy.framework = 5;
+		strategy.count = 3;
+		strategy.level = Double.NaN;
+		strategy.boxed = 2.5;
+		strategy.name = "momentum";
+		strategy.side = OrderSide.SELL;
+		strategy.lastTrade = DAY.plusHours(15);
+		strategy.instrument = Instruments.GOOG;
+		strategy.weights = new double[]{0.25, 0.75};
+		strategy.history.add(1.5);
+		strategy.cache = 7;
+
+		final FieldStrategy restored = new FieldStrategy(2);
+		CandleSerie serie = restored.serie;
+		Object helper = restored.helper;
+		File file = new File(folder.getRoot(), "fields.ckpt");
+		Checkpointable fields = new Checkpointable() {
+			@Override
+			public void writeCheckpoint(CheckpointOutput out) throws IOException {
+				FieldState.write(out, strategy, BaseStrategy.class);
+			}
+			@Override
+			public void readCheckpoint(CheckpointInput in) throws IOException {
+				FieldState.read(in, restored, BaseStrategy.class);
+			}
+		};
+		Checkpoint.write(file, fields);
+		Checkpoint.read(file, fields);
+
+		Assert.assertEquals(3, restored.count);
+		Assert.assertTrue(Double.isNaN(restored.level));
+		Assert.assertEquals(Double.valueOf(2.5), restored.boxed);
+		Assert.assertEquals("momentum", restored.name);
+		Assert.assertEquals(OrderSide.SELL, restored.side);
+		Assert.assertEquals(strategy.lastTrade, restored.lastTrade);
+		Assert.assertEquals(Instruments.GOOG, restored.instrument);
+		Assert.assertArrayEquals(new double[]{0.25, 0.75}, restored.weights, 0.0);
+		Assert.assertEquals(strategy.history, restored.history);
+		// not saved : series, not serializable, final, transient and base class fields
+		Assert.assertSame(serie, restored.serie);
+		Assert.assertSame(helper, restored.helper);
+		Assert.assertEquals(2, restored.parameter);
+		Assert.assertEquals(0, restored.cache);
+		Assert.assertEquals(1, restored.framework);
+	}
+
+	/**
+	 * Crossing of the close and its moving average, the position of each instrument is kept in the fields
+	 */
+	public static class CrossStrategy extends MultiAssetStrategy {
+
+		private transient Map<InstrumentId, SMA> averages;
+
+		private boolean[] invested;
+
+		private int nbSignals;
+
+		private DateTime lastSignal;
+
+		@Override
+		public void initMarket() {
+			addInstrument(Instruments.IBM);
+			addInstrument(Instruments.GOOG);
+		}
+
+		@Override
+		public void init() {
+			averages = new HashMap<InstrumentId, SMA>();
+			for (InstrumentId instrument : getMarket()){
+				averages.put(instrument, getIndicator(SMA.class, getCandleSerie(instrument), 5, CandleData.CLOSE));
+			}
+			invested = new boolean[getMarket().size()];
+		}
+
+		@Override
+		public void onCandle(InstrumentId instrument, Candle candle) {
+			double average = averages.get(instrument).getValue(candle.getDate());
+			if (Double.isNaN(average)){
+				return;
+			}
+			int i = getMarket().indexOf(instrument);
+			if (!invested[i] && candle.getClose() > average){
+				sendMarketOrder(instrument, OrderSide.BUY, 10, CandleData.OPEN, "entry " + nbSignals);
+			}else if (invested[i] && candle.getClose() < average){
+				sendMarketOrder(instrument, OrderSide.SELL, 10, CandleData.OPEN, "exit " + nbSignals);
+			}else {
+				return;
+			}
+			invested[i] = !invested[i];
+			nbSignals++;
+			lastSignal = candle.getDate();
+		}
+	}
+
+	/**
+	 * Market data in memory
+	 */
+	private static final class MemoryMarketManager extends MarketManager {
+
+		private final Map<InstrumentId, CandleSerie> candles = new LinkedHashMap<InstrumentId, CandleSerie>();
+
+		@Override
+		public void addInstrument(InstrumentId symbol, DateTime from, DateTime to) {
+			// already loaded
+		}
+
+		@Override
+		public CandleSerie getCandleSerie(InstrumentId symbol) {
+			return candles.get(symbol);
+		}
+
+		@Override
+		public QuoteSerie getQuoteSerie(InstrumentId symbol) {
+			return null;
+		}
+
+		@Override
+		public Set<InstrumentId> getInstruments() {
+			return Collections.unmodifiableSet(candles.keySet());
+		}
+
+		@Override
+		public ImmutablePair<DateTime, DateTime> getFirstLast() {
+			CandleSerie serie = candles.values().iterator().next();
+			return new ImmutablePair<DateTime, DateTime>(serie.getFirstDate(), serie.getLastDate());
+		}
+	}
+
+	private static StrategyRunner runner(MarketManager marketMgr){
+		StrategyRunner runner = new StrategyRunner(marketMgr, new OrderManager(0.001, 1.0, 0));
+		runner.setGlobalPortfolio(new Portfolio("Runner Ptf", Currency.USD, 100000));
+		runner.setStratClassNames(Arrays.asList(CrossStrategy.class.getName()));
+		runner.setReuseMarketData(true);
+		return runner;
+	}
+
+	/**
+	 * A runner resumed from the checkpoint of an other one ends with the same trades, equity curve and statistics
+	 * as a simulation without interruption
+	 */
+	@Test
+	public void testResumeRunner() throws IOException{
+		DateTime entry = new DateTime(2012, 1, 2, 0, 0, 0, 0);
+		DateTime exit = new DateTime(2012, 4, 30, 0, 0, 0, 0);
+		MemoryMarketManager marketMgr = new MemoryMarketManager();
+		int d = 0;
+		for (DateTime day : CalendarFactory.getDailyTradingDayBrowser(entry, exit, MarketIdentifierCode.NO_MIC)){
+			// two cycles of different periods : many crossings
+			double ibm = 100 + 10 * Math.sin(d / 4.0) + d * 0.1;
+			double goog = 300 + 25 * Math.sin(d / 7.0 + 1);
+			add(marketMgr, Instruments.IBM, day, ibm);
+			add(marketMgr, Instruments.GOOG, day, goog);
+			d++;
+		}
+
+		StrategyRunner uninterrupted = runner(marketMgr);
+		uninterrupted.init(entry, exit);
+		PortfolioStatistics expected = uninterrupted.run();
+
+		// the checkpoint of the 50th day, then the end of the simulation from it in an other runner
+		File file = new File(folder.getRoot(), "runner.ckpt");
+		StrategyRunner saved = runner(marketMgr);
+		saved.setCheckpoint(file, 50);
+		saved.init(entry, exit);
+		saved.run();
+		Assert.assertTrue(file.exists());
+
+		StrategyRunner resumed = runner(marketMgr);
+		resumed.resume(file);
+		resumed.init(entry, exit);
+		PortfolioStatistics stats = resumed.run();
+
+		List<Trade> trades = expected.getPortfolio().getTransactions();
+		Assert.assertTrue(trades.size() > 10);
+		Assert.assertEquals(trades.size(), stats.getPortfolio().getTransactions().size());
+		for (int i = 0; i < trades.size(); i++){
+			Trade t1 = trades.get(i);
+			Trade t2 = stats.getPortfolio().getTransactions().get(i);
+			Assert.assertEquals(t1, t2);
+			Assert.assertEquals(t1.getStatus(), t2.getStatus());
+			Assert.assertEquals(t1.getProfitAndLoss(), t2.getProfitAndLoss(), EPSILON);
+		}
+		Assert.assertEquals(expected.getPortfolio().getEquityCurve().size(), stats.getPortfolio().getEquityCurve().size());
+		Iterator<TimeValue> it = stats.getPortfolio().getEquityCurve().iterator();
+		for (TimeValue tv : expected.getPortfolio().getEquityCurve()){
+			TimeValue other = it.next();
+			Assert.assertEquals(tv.getDate(), other.getDate());
+			Assert.assertEquals(tv.getValue(), other.getValue(), EPSILON);
+		}
+
+		Assert.assertEquals(expected.getFinalWealth(), stats.getFinalWealth(), EPSILON);
+		Assert.assertEquals(expected.getRealizedPnL(), stats.getRealizedPnL(), EPSILON);
+		Assert.assertEquals(expected.getOpenPositionsPnL(), stats.getOpenPositionsPnL(), EPSILON);
+		Assert.assertEquals(expected.getTotalTrades(), stats.getTotalTrades());
+		Assert.assertEquals(expected.getWinningTrades(), stats.getWinningTrades());
+		Assert.assertEquals(expected.getLosingTrades(), stats.getLosingTrades());
+		Assert.assertEquals(expected.getLargestLosingTrade(), stats.getLargestLosingTrade(), EPSILON);
+		Assert.assertEquals(expected.getMaxConsecutiveWinners(), stats.getMaxConsecutiveWinners());
+		Assert.assertEquals(expected.getAnnualizedReturn(), stats.getAnnualizedReturn(), EPSILON);
+	}
+
+	private static void add(MemoryMarketManager marketMgr, InstrumentId instrument, DateTime day, double close){
+		CandleSerie serie = marketMgr.candles.get(instrument);
+		if (serie == null){
+			serie = new CandleSerie(instrument);
+			marketMgr.candles.put(instrument, serie);
+		}
+		serie.addValue(new Candle(day, Periods.ONE_DAY, close - 0.5, close + 1, close - 1, close, 1000));
+	}
+
+	@Test
+	public void testTruncatedCheckpoint() throws IOException{
+		State state = new State();
+		state.orderManager.sendOrder(new MarketOrder(OrderSide.BUY, Instruments.IBM, 100, CandleData.OPEN, "buy", DAY));
+		state.onCandle(Instruments.IBM, candle(0, 100, 1000));
+		File file = new File(folder.getRoot(), "truncated.ckpt");
+		Checkpoint.write(file, state);
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(raf.length() - 2);
+		raf.close();
+		try {
+			Checkpoint.read(file, new State());
+			Assert.fail("Truncated checkpoint");
+		}catch (IOException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,214 @@
+package org.jquant.curve;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+
+import org.joda.time.DateTime;
+import org.joda.time.Period;
+import org.jquant.instrument.rate.DepositIndex;
+import org.jquant.instrument.rate.InterestRateIndex;
+import org.jquant.instrument.rate.InterestRateIndex.RateType;
+import org.jquant.instrument.rate.SwapRateIndex;
+import org.jquant.model.Currency;
+import org.jquant.serie.Rate;
+import org.jquant.serie.TermStructure;
+import org.jquant.time.calendar.EpochDay;
+import org.jquant.time.daycounter.Actual360;
+import org.jquant.time.daycounter.Actual365Fixed;
+import org.jquant.time.daycounter.DayCounter;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class CurveBootstrapperTest {
+
+	private static final Period[] DEPOSIT_TERMS = {Period.months(1), Period.months(3), Period.months(6)};
+	private static final double[] DEPOSIT_RATES = {0.010, 0.012, 0.015};
+	private static final Period[] SWAP_TERMS = {Period.years(2), Period.years(5), Period.years(10)};
+	private static final double[] SWAP_RATES = {0.018, 0.025, 0.031};
+
+	private DateTime today;
+
+	@Before
+	public void setup(){
+		today = new DateTime(2012,3,15,0,0,0,0);
+	}
+
+	private List<InterestRateIndex> getQuotes(DateTime date, double shift){
+		List<InterestRateIndex> quotes = new ArrayList<InterestRateIndex>();
+		// Swaps first : the bootstrapper sorts the quotes
+		for (int i = 0; i < SWAP_TERMS.length; i++){
+			quotes.add(new SwapRateIndex(date, SWAP_RATES[i] + shift, Currency.EUR, SWAP_TERMS[i]));
+		}
+		for (int i = 0; i < DEPOSIT_TERMS.length; i++){
+			quotes.add(new DepositIndex(date, DEPOSIT_RATES[i] + shift, Currency.EUR, DEPOSIT_TERMS[i]));
+		}
+		return quotes;
+	}
+
+	private void assertRepriced(CurveBootstrapper bootstrapper, YieldCurve curve, List<InterestRateIndex> quotes){
+		CurvePillar pillar = new CurvePillar();
+		for (InterestRateIndex quote : quotes){
+			bootstrapper.setPillar(pillar, curve.getReferenceDay(), quote);
+			Assert.assertEquals(quote.getTerm().toString(), 0, pillar.residual(curve), 1e-10);
+		}
+	}
+
+	/**
+	 * Every quote must be repriced by the curve, whatever the interpolation
+	 */
+	@Test
+	public void testQuotesRepriced() {
+		for (InterpolationMethod method : InterpolationMethod.values()){
+			CurveBootstrapper bootstrapper = new CurveBootstrapper(method);
+			List<InterestRateIndex> quotes = getQuotes(today, 0);
+			YieldCurve curve = bootstrapper.bootstrap(today, Currency.EUR, quotes);
+
+			Assert.assertEquals(quotes.size() + 1, curve.size());
+			Assert.assertEquals(1.0, curve.getDiscountFactor(today), 0.0);
+			assertRepriced(bootstrapper, curve, quotes);
+
+			// Decreasing discount factors (positive rates)
+			double[] dfs = curve.getDiscountFactors();
+			for (int i = 1; i < dfs.length; i++){
+				Assert.assertTrue(dfs[i] < dfs[i-1]);
+			}
+
+			// Rebuild of the same instance on another day
+			DateTime tomorrow = today.plusDays(1);
+			List<InterestRateIndex> shifted = getQuotes(tomorrow, 0.001);
+			bootstrapper.bootstrap(tomorrow, shifted, curve);
+			Assert.assertEquals(tomorrow, curve.getReferenceDate());
+			assertRepriced(bootstrapper, curve, shifted);
+		}
+	}
+
+	/**
+	 * Single deposit curve : the zero coupon of the index and the curve agree
+	 */
+	@Test
+	public void testZeroCoupon() {
+		DepositIndex deposit = new DepositIndex(today, 0.02, Currency.EUR, Period.years(1));
+		List<InterestRateIndex> quotes = new ArrayList<InterestRateIndex>();
+		quotes.add(deposit);
+		YieldCurve curve = new CurveBootstrapper().bootstrap(today, Currency.EUR, quotes);
+
+		DateTime valueDate = deposit.getValueDate(today);
+		DateTime maturity = deposit.getMaturityDate(valueDate);
+		double t = curve.getTime(maturity) - curve.getTime(valueDate);
+		// flat forward : the forward between value date and maturity is the continuous zero coupon
+		double forward = curve.getForwardRate(curve.getTime(valueDate), curve.getTime(maturity));
+		Assert.assertEquals(Math.log(1 + deposit.getZeroCouponRate()), forward, 1e-10);
+		Assert.assertEquals(deposit.getZeroCouponRate(), deposit.getZeroCouponRate(Actual365Fixed.INSTANCE), 0);
+		// 17/03/2012 -> 17/03/2013 : 365 days, one year in ACT/365 and 365/360 year in ACT/360
+		double zc360 = Math.pow(1 + deposit.getZeroCouponRate(), 360.0 / 365.0) - 1;
+		Assert.assertEquals(zc360, deposit.getZeroCouponRate(Actual360.INSTANCE), 1e-12);
+		Assert.assertEquals(Math.exp(-forward * t), curve.getDiscountFactor(maturity) / curve.getDiscountFactor(valueDate), 1e-12);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNonIncreasingNodes() {
+		YieldCurve curve = new YieldCurve(today, Currency.EUR, InterpolationMethod.LINEAR);
+		curve.addNode(1, 0.01);
+		curve.addNode(1, 0.02);
+	}
+
+	/**
+	 * The incremental daily rebuild gives the same curves as a full bootstrap
+	 */
+	@Test
+	public void testHistoricalBuild() {
+		List<TermStructure> structures = new ArrayList<TermStructure>();
+		for (int i = 0; i < DEPOSIT_TERMS.length; i++){
+			structures.add(getStructure(DEPOSIT_TERMS[i], DEPOSIT_RATES[i], RateType.DEPOSIT));
+		}
+		for (int i = 0; i < SWAP_TERMS.length; i++){
+			structures.add(getStructure(SWAP_TERMS[i], SWAP_RATES[i], RateType.SWAP));
+		}
+		HistoricalCurveBuilder builder = new HistoricalCurveBuilder(Currency.EUR, structures, InterpolationMethod.CUBIC_SPLINE);
+		NavigableMap<DateTime, YieldCurve> curves = builder.build(today, today.plusDays(9));
+		Assert.assertEquals(10, curves.size());
+
+		CurveBootstrapper bootstrapper = new CurveBootstrapper(InterpolationMethod.CUBIC_SPLINE);
+		for (int d = 0; d < 10; d++){
+			DateTime date = today.plusDays(d);
+			YieldCurve expected = bootstrapper.bootstrap(date, Currency.EUR, getQuotes(date, 0.0001 * d));
+			YieldCurve curve = curves.get(date);
+			Assert.assertEquals(expected.size(), curve.size());
+			for (int y = 1; y <= 12; y++){
+				Assert.assertEquals(expected.getZeroRate(y), curve.getZeroRate(y), 1e-9);
+			}
+		}
+	}
+
+	/**
+	 * A pillar moved with the reference date keeps its times : it did not change, its node is reused
+	 */
+	@Test
+	public void testPillarIndependentOfReferenceDate() {
+		CurvePillar pillar = new CurvePillar();
+		DayCounter dayCounter = Currency.EUR.getDayCounter();
+		int day = EpochDay.of(today);
+		Assert.assertTrue(pillar.setMoneyMarket(day, day, Period.months(3), 2, dayCounter, RateType.DEPOSIT, 0.012));
+		Assert.assertFalse(pillar.setMoneyMarket(day, day, Period.months(3), 2, dayCounter, RateType.DEPOSIT, 0.012));
+		// 17/03 -> 17/06 then 18/03 -> 18/06 : same number of days
+		Assert.assertFalse(pillar.setMoneyMarket(day + 1, day + 1, Period.months(3), 2, dayCounter, RateType.DEPOSIT, 0.012));
+		Assert.assertTrue(pillar.setMoneyMarket(day + 1, day + 1, Period.months(3), 2, dayCounter, RateType.DEPOSIT, 0.013));
+		// 29/01 -> 29/02 (31 days) then 30/01 -> 29/02 (30 days)
+		int january = EpochDay.of(new DateTime(2012,1,27,0,0,0,0));
+		pillar.setMoneyMarket(january, january, Period.months(1), 2, dayCounter, RateType.DEPOSIT, 0.01);
+		Assert.assertTrue(pillar.setMoneyMarket(january + 1, january + 1, Period.months(1), 2, dayCounter, RateType.DEPOSIT, 0.01));
+
+		int spot = day + 2;
+		Assert.assertTrue(pillar.setSwap(day, spot, Period.years(5), dayCounter, 1, 0.025));
+		Assert.assertFalse(pillar.setSwap(day + 1, spot + 1, Period.years(5), dayCounter, 1, 0.025));
+	}
+
+	/**
+	 * Unchanged quotes on the following dates : the curve is not bootstrapped again and is still the right one
+	 */
+	@Test
+	public void testHistoricalBuildUnchangedQuotes() {
+		List<TermStructure> structures = new ArrayList<TermStructure>();
+		for (int i = 0; i < DEPOSIT_TERMS.length; i++){
+			structures.add(getStructure(DEPOSIT_TERMS[i], DEPOSIT_RATES[i], RateType.DEPOSIT, 0));
+		}
+		for (int i = 0; i < SWAP_TERMS.length; i++){
+			structures.add(getStructure(SWAP_TERMS[i], SWAP_RATES[i], RateType.SWAP, 0));
+		}
+		HistoricalCurveBuilder builder = new HistoricalCurveBuilder(Currency.EUR, structures, InterpolationMethod.CUBIC_SPLINE);
+		// 15/03 and 16/03 : every schedule moves by one day
+		builder.rebuild(today);
+		double[] nodes = builder.getCurve().getDiscountFactors();
+		YieldCurve curve = builder.rebuild(today.plusDays(1));
+		Assert.assertArrayEquals(nodes, curve.getDiscountFactors(), 1e-12);
+
+		DateTime date = today.plusDays(1);
+		YieldCurve expected = new CurveBootstrapper(InterpolationMethod.CUBIC_SPLINE).bootstrap(date, Currency.EUR, getQuotes(date, 0));
+		Assert.assertEquals(expected.size(), curve.size());
+		for (int y = 1; y <= 12; y++){
+			Assert.assertEquals(expected.getZeroRate(y), curve.getZeroRate(y), 1e-9);
+		}
+	}
+
+	private TermStructure getStructure(Period term, double rate, RateType type){
+		return getStructure(term, rate, type, 0.0001);
+	}
+
+	private TermStructure getStructure(Period term, double rate, RateType type, double dailyShift){
+		List<Rate> list = new ArrayList<Rate>();
+		for (int d = 0; d < 10; d++){
+			// quoted in percent
+			list.add(new Rate(today.plusDays(d), (rate + dailyShift * d) * 100, type));
+		}
+		TermStructure structure = new TermStructure(list, term);
+		structure.setPercent(true);
+		return structure;
+	}
+}
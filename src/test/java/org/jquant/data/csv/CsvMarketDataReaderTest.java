@@ -0,0 +1,174 @@
+package org.jquant.data.csv;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.jquant.data.Instruments;
+import org.jquant.model.InstrumentId;
+import org.jquant.serie.BBBA;
+import org.jquant.serie.Candle;
+import org.jquant.serie.CandleSerie;
+import org.jquant.serie.QuoteSerie;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * CSV files : formats, date filter and parallel parsing
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class CsvMarketDataReaderTest {
+
+	private static final int NB_CANDLES = 5000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private CsvMarketDataReader reader;
+
+	@Before
+	public void setUp(){
+		reader = new CsvMarketDataReader(folder.getRoot());
+		reader.getCandleFormat().setTimeZone(DateTimeZone.UTC);
+		reader.getQuoteFormat().setTimeZone(DateTimeZone.UTC);
+	}
+
+	@Test
+	public void testCandles() throws IOException{
+		write(Instruments.IBM.getCode() + ".csv", "Date,Open,High,Low,Close,Volume\r\n"
+				+ "2012-03-01,100.5,102,99.25,101,1500\r\n"
+				+ "2012/03/02, 101 ,103.75,100,\"103.5\",2000\r\n"
+				+ "20120305,103.5,104,-1.5E2,1.035e2,\r\n"
+				+ "not a date,1,2,3,4,5\r\n"
+				+ "2012-03-06,104,105,103,0.000125,3000");
+		CandleSerie serie = reader.readCandleSerie(Instruments.IBM, null, null);
+		Assert.assertEquals(4, serie.size());
+		Assert.assertEquals(Instruments.IBM, serie.getSymbol());
+
+		Candle first = serie.getFirst();
+		Assert.assertEquals(new DateTime(2012, 3, 1, 0, 0, 0, 0, DateTimeZone.UTC).getMillis(), first.getDate().getMillis());
+		Assert.assertEquals(100.5, first.getOpen(), 0);
+		Assert.assertEquals(102, first.getHigh(), 0);
+		Assert.assertEquals(99.25, first.getLow(), 0);
+		Assert.assertEquals(101, first.getClose(), 0);
+		Assert.assertEquals(1500, first.getVolume(), 0);
+
+		Candle second = serie.get(1);
+		Assert.assertEquals(101, second.getOpen(), 0);
+		Assert.assertEquals(103.5, second.getClose(), 0);
+
+		// exponents and empty volume
+		Candle third = serie.get(2);
+		Assert.assertEquals(new DateTime(2012, 3, 5, 0, 0, 0, 0, DateTimeZone.UTC).getMillis(), third.getDate().getMillis());
+		Assert.assertEquals(-150, third.getLow(), 0);
+		Assert.assertEquals(103.5, third.getClose(), 0);
+		Assert.assertTrue(Double.isNaN(third.getVolume()));
+
+		// last line without new line, decimals parsed exactly
+		Assert.assertEquals(0.000125, serie.getLast().getClose(), 0);
+
+		// date filter
+		serie = reader.readCandleSerie(Instruments.IBM, new DateTime(2012, 3, 2, 0, 0, 0, 0, DateTimeZone.UTC),
+				new DateTime(2012, 3, 5, 0, 0, 0, 0, DateTimeZone.UTC));
+		Assert.assertEquals(2, serie.size());
+		Assert.assertEquals(101, serie.getFirst().getOpen(), 0);
+		Assert.assertEquals(103.5, serie.getLast().getOpen(), 0);
+
+		Assert.assertNull(reader.readCandleSerie(Instruments.MSFT, null, null));
+	}
+
+	@Test
+	public void testQuotes() throws IOException{
+		write(Instruments.EURUSD.getCode() + "_quotes.csv", "Time;Bid;Ask\n"
+				+ "2012-03-01 09:00:00.250;1.31225;1.31230\n"
+				+ "2012-03-01T09:00:01;1.31226;1.31231\n"
+				+ "\n"
+				+ "2012-03-01 09:01;1.31224;1.3123\n");
+		reader.getQuoteFormat().setSeparator(';');
+		QuoteSerie serie = reader.readQuoteSerie(Instruments.EURUSD, null, null);
+		Assert.assertEquals(3, serie.size());
+		BBBA first = serie.getFirst();
+		Assert.assertEquals(new DateTime(2012, 3, 1, 9, 0, 0, 250, DateTimeZone.UTC).getMillis(), first.getDate().getMillis());
+		Assert.assertEquals(1.31225, first.getBestBid(), 0);
+		Assert.assertEquals(1.3123, first.getBestAsk(), 0);
+		Assert.assertEquals(new DateTime(2012, 3, 1, 9, 0, 1, 0, DateTimeZone.UTC).getMillis(), serie.get(1).getDate().getMillis());
+		Assert.assertEquals(new DateTime(2012, 3, 1, 9, 1, 0, 0, DateTimeZone.UTC).getMillis(), serie.getLast().getDate().getMillis());
+
+		// separate time column, local times of the file
+		write(Instruments.EURUSD.getCode() + "_quotes.csv", "20120301,090000,1.5,1.6\n");
+		CsvFormat format = new CsvFormat(2, 3);
+		format.setHeaderLines(0);
+		format.setTimeColumn(1);
+		format.setTimeZone(DateTimeZone.forID("Europe/Paris"));
+		reader.setQuoteFormat(format);
+		serie = reader.readQuoteSerie(Instruments.EURUSD, null, null);
+		Assert.assertEquals(1, serie.size());
+		Assert.assertEquals(new DateTime(2012, 3, 1, 8, 0, 0, 0, DateTimeZone.UTC).getMillis(), serie.getFirst().getDate().getMillis());
+		Assert.assertEquals(1.6, serie.getFirst().getBestAsk(), 0);
+	}
+
+	@Test
+	public void testParallel() throws IOException{
+		StringBuilder csv = new StringBuilder("Date,Open,High,Low,Close,Volume\n");
+		Random random = new Random(42);
+		DateTime date = new DateTime(2000, 1, 1, 0, 0, 0, 0, DateTimeZone.UTC);
+		for (int i = 0; i < NB_CANDLES; i++){
+			int close = 10000 + random.nextInt(1000);
+			csv.append(date.plusDays(i).toString("yyyy-MM-dd")).append(',').append(close / 100.0).append(',')
+					.append((close + 50) / 100.0).append(',').append((close - 50) / 100.0).append(',')
+					.append(close / 100.0).append(',').append(random.nextInt(100000)).append('\n');
+		}
+		write(Instruments.IBM.getCode() + ".csv", csv.toString());
+		write(Instruments.GOOG.getCode() + ".csv", csv.toString());
+		CandleSerie sequential = reader.readCandleSerie(Instruments.IBM, null, null);
+		Assert.assertEquals(NB_CANDLES, sequential.size());
+
+		// ranges of a few lines, cut anywhere in the lines
+		reader.setSplitSize(1000);
+		CandleSerie parallel = reader.readCandleSerie(Instruments.IBM, null, null);
+		assertEquals(sequential, parallel);
+
+		Map<InstrumentId, CandleSerie> series = reader.readCandleSeries(Arrays.asList(Instruments.IBM, Instruments.GOOG, Instruments.MSFT), null, null);
+		Assert.assertEquals(2, series.size());
+		assertEquals(sequential, series.get(Instruments.IBM));
+		assertEquals(sequential, series.get(Instruments.GOOG));
+		Assert.assertEquals(Instruments.GOOG, series.get(Instruments.GOOG).getSymbol());
+	}
+
+	private static void assertEquals(CandleSerie expected, CandleSerie actual){
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++){
+			Candle e = expected.get(i);
+			Candle a = actual.get(i);
+			Assert.assertEquals(e.getDate(), a.getDate());
+			Assert.assertEquals(e.getOpen(), a.getOpen(), 0);
+			Assert.assertEquals(e.getHigh(), a.getHigh(), 0);
+			Assert.assertEquals(e.getLow(), a.getLow(), 0);
+			Assert.assertEquals(e.getClose(), a.getClose(), 0);
+			Assert.assertEquals(e.getVolume(), a.getVolume(), 0);
+		}
+	}
+
+	private void write(String name, String content) throws IOException{
+		Writer writer = new OutputStreamWriter(new FileOutputStream(new File(folder.getRoot(), name)), "US-ASCII");
+		try {
+			writer.write(content);
+		}finally {
+			writer.close();
+		}
+	}
+}
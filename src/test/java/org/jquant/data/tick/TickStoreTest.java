@@ -0,0 +1,120 @@
+package org.jquant.data.tick;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.jquant.serie.BBBA;
+import org.jquant.serie.QuoteSerie;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Compressed tick files : round trip, seek and size
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class TickStoreTest {
+
+	private static final DateTime START = new DateTime(2012, 3, 1, 9, 0, 0, 0);
+
+	private static final int NB_QUOTES = 10000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testQuotes() throws IOException{
+		File file = new File(folder.getRoot(), "EURUSD.jqt");
+		Random random = new Random(42);
+		long[] times = new long[NB_QUOTES];
+		double[] bids = new double[NB_QUOTES];
+		TickWriter writer = new TickWriter(file, TickType.QUOTE, 5, 1000);
+		long time = START.getMillis();
+		int bid = 130000;
+		for (int i = 0; i < NB_QUOTES; i++){
+			// several quotes in the same millisecond
+			time += random.nextInt(3) == 0 ? 0 : random.nextInt(500);
+			bid += random.nextInt(5) - 2;
+			times[i] = time;
+			bids[i] = bid / 1e5;
+			writer.write(time, bids[i], (bid + 2) / 1e5);
+		}
+		writer.close();
+		// delta encoded : a few bytes per quote
+		Assert.assertTrue("File size " + file.length(), file.length() < NB_QUOTES * 6);
+
+		TickReader reader = new TickReader(file);
+		Assert.assertEquals(TickType.QUOTE, reader.getType());
+		Assert.assertEquals(NB_QUOTES, reader.size());
+		Assert.assertEquals(new DateTime(times[0]), reader.getFirstTime());
+		Assert.assertEquals(new DateTime(times[NB_QUOTES - 1]), reader.getLastTime());
+
+		TickCursor cursor = reader.cursor(null);
+		for (int i = 0; i < NB_QUOTES; i++){
+			Assert.assertTrue(cursor.next());
+			Assert.assertEquals(times[i], cursor.getTime());
+			Assert.assertEquals(bids[i], cursor.getBid(), 0);
+			Assert.assertEquals(cursor.getAsk() - cursor.getBid(), 2e-5, 1e-12);
+		}
+		Assert.assertFalse(cursor.next());
+		Assert.assertFalse(cursor.next());
+
+		// seek in the middle of a block
+		int k = 4321;
+		while (k > 0 && times[k - 1] == times[k]){
+			k--;
+		}
+		cursor = reader.cursor(new DateTime(times[k]));
+		Assert.assertTrue(cursor.next());
+		Assert.assertEquals(times[k], cursor.getTime());
+		Assert.assertEquals(bids[k], cursor.getBid(), 0);
+		Assert.assertFalse(reader.cursor(new DateTime(times[NB_QUOTES - 1] + 1)).next());
+
+		QuoteSerie quotes = reader.readQuotes(new DateTime(times[k]), new DateTime(times[k + 10]));
+		BBBA first = quotes.getFirst();
+		Assert.assertEquals(bids[k], first.getBestBid(), 0);
+		reader.close();
+	}
+
+	@Test
+	public void testTrades() throws IOException{
+		File file = new File(folder.getRoot(), "IBM.jqt");
+		TickWriter writer = new TickWriter(file, TickType.TRADE, 2);
+		// prices off the grid of 2 decimals : XOR encoded, still exact
+		double[] prices = {100.123456, 100.12, Math.PI * 10, 99.999999, 101};
+		for (int i = 0; i < prices.length; i++){
+			writer.writeTrade(START.plusSeconds(i), prices[i], 100 * (i + 1));
+		}
+		try {
+			writer.writeTrade(START, 100, 1);
+			Assert.fail("Tick before the previous one");
+		}catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			writer.writeQuote(new BBBA(START.plusHours(1), 1, 2));
+			Assert.fail("Quote in a trade file");
+		}catch (IllegalArgumentException e) {
+			// expected
+		}
+		writer.close();
+
+		TickReader reader = new TickReader(file);
+		TickCursor cursor = reader.cursor(START.plusSeconds(1));
+		for (int i = 1; i < prices.length; i++){
+			Assert.assertTrue(cursor.next());
+			Assert.assertEquals(START.plusSeconds(i).getMillis(), cursor.getTime());
+			Assert.assertEquals(prices[i], cursor.getPrice(), 0);
+			Assert.assertEquals(100 * (i + 1), cursor.getVolume(), 0);
+		}
+		Assert.assertFalse(cursor.next());
+		reader.close();
+	}
+}
@@ -0,0 +1,156 @@
+package org.jquant.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.jquant.serie.BBBA;
+import org.jquant.serie.Candle;
+import org.jquant.serie.CandleSerie;
+import org.jquant.serie.QuoteSerie;
+import org.jquant.time.calendar.Periods;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * The events of the sources must come out in (time, type, registration) order
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class EventQueueTest {
+
+	private static final DateTime T0 = new DateTime(2012, 3, 1, 9, 0, 0, 0);
+
+	private EventQueue queue;
+
+	/*
+	 * Dispatched events : name@minute
+	 */
+	private List<String> events;
+
+	@Before
+	public void setup(){
+		queue = new EventQueue();
+		events = new ArrayList<String>();
+	}
+
+	private CandleSerie minuteCandles(int... minutes){
+		CandleSerie serie = new CandleSerie();
+		for (int m : minutes){
+			serie.addValue(new Candle(T0.plusMinutes(m), Periods.ONE_DAY, 100, 100, 100, 100, 10));
+		}
+		return serie;
+	}
+
+	private SerieEventSource<Candle> candles(final String name, CandleSerie serie, DateTime from, DateTime to){
+		return new SerieEventSource<Candle>(EventType.CANDLE, serie, from, to) {
+			@Override
+			protected void onEvent(Candle value) {
+				log(name, value.getDate());
+			}
+		};
+	}
+
+	private void log(String name, DateTime date){
+		events.add(name + "@" + (date.getMillis() - T0.getMillis()) / 60000);
+	}
+
+	@Test
+	public void testMerge(){
+		QuoteSerie quotes = new QuoteSerie();
+		quotes.addValue(new BBBA(T0.plusMinutes(1), 99, 101));
+		quotes.addValue(new BBBA(T0.plusMinutes(4), 99, 101));
+
+		queue.add(candles("A", minuteCandles(0, 1, 2, 5), null, null));
+		queue.add(candles("B", minuteCandles(1, 3, 5), null, null));
+		queue.add(new SerieEventSource<BBBA>(EventType.QUOTE, quotes, null, null) {
+			@Override
+			protected void onEvent(BBBA value) {
+				log("Q", value.getDate());
+			}
+		});
+
+		Assert.assertEquals(T0.getMillis(), queue.getTime());
+		while (!queue.isEmpty()){
+			queue.fireNext();
+		}
+		// same time : quotes first, then the candles in the registration order
+		Assert.assertEquals("[A@0, Q@1, A@1, B@1, A@2, B@3, Q@4, A@5, B@5]", events.toString());
+		Assert.assertNull(queue.peek());
+	}
+
+	@Test
+	public void testWindow(){
+		SerieEventSource<Candle> source = candles("A", minuteCandles(0, 1, 2, 3, 4, 5), T0.plusMinutes(1), T0.plusMinutes(3));
+		Assert.assertEquals(3, source.remaining());
+		queue.add(source);
+		Assert.assertEquals(3, queue.run(Long.MAX_VALUE));
+		Assert.assertEquals("[A@1, A@2, A@3]", events.toString());
+
+		// window between two values
+		source = candles("B", minuteCandles(0, 10), T0.plusMinutes(1), T0.plusMinutes(9));
+		Assert.assertEquals(0, source.remaining());
+		Assert.assertEquals(Long.MAX_VALUE, source.getTime());
+	}
+
+	@Test
+	public void testTimers(){
+		final TimerSource timers = new TimerSource();
+		final TimerListener listener = new TimerListener() {
+			@Override
+			public void onTimer(DateTime time) {
+				log("T", time);
+			}
+		};
+		queue.add(new SerieEventSource<Candle>(EventType.CANDLE, minuteCandles(0, 2, 4), null, null) {
+			@Override
+			protected void onEvent(Candle value) {
+				log("A", value.getDate());
+				if (value.getDate().equals(T0)){
+					// same time as the current candle : after the candles of this time
+					timers.schedule(T0, listener);
+					timers.schedule(T0.plusMinutes(3), listener);
+				}
+			}
+		});
+		queue.add(candles("B", minuteCandles(0, 3), null, null));
+		queue.add(timers);
+		timers.schedule(T0.plusMinutes(2), listener);
+		queue.run(Long.MAX_VALUE);
+		Assert.assertEquals("[A@0, B@0, T@0, A@2, T@2, B@3, T@3, A@4]", events.toString());
+		Assert.assertEquals(0, timers.size());
+
+		try {
+			timers.schedule(T0, listener);
+			Assert.fail("Timer in the past");
+		}catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testTimerHeap(){
+		TimerSource timers = new TimerSource();
+		final List<Long> fired = new ArrayList<Long>();
+		TimerListener listener = new TimerListener() {
+			@Override
+			public void onTimer(DateTime time) {
+				fired.add(time.getMillis());
+			}
+		};
+		queue.add(timers);
+		Random random = new Random(3);
+		for (int i = 0; i < 1000; i++){
+			timers.schedule(T0.plusSeconds(random.nextInt(500)), listener);
+		}
+		Assert.assertEquals(1000, queue.run(Long.MAX_VALUE));
+		for (int i = 1; i < fired.size(); i++){
+			Assert.assertTrue(fired.get(i - 1) <= fired.get(i));
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package org.jquant.execution;
+
+import org.joda.time.DateTime;
+import org.jquant.data.Instruments;
+import org.jquant.model.Currency;
+import org.jquant.order.LimitOrder;
+import org.jquant.order.MarketOrder;
+import org.jquant.order.Order;
+import org.jquant.order.Order.OrderSide;
+import org.jquant.order.OrderManager;
+import org.jquant.order.OrderStatus;
+import org.jquant.portfolio.Portfolio;
+import org.jquant.serie.BBBA;
+import org.jquant.serie.Candle;
+import org.jquant.time.calendar.Periods;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Slippage, fees and volume limit of the paper broker
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class FillModelTest {
+
+	private static final double EPSILON = 1e-9;
+
+	private static final DateTime DAY = new DateTime(2012, 3, 1, 0, 0, 0, 0);
+
+	@Test
+	public void testCosts(){
+		FillModel model = new FillModel(0.001, 1.0, 0.01);
+		Fill fill = new Fill();
+
+		model.fill(new MarketOrder(OrderSide.BUY, Instruments.IBM, 100, "buy"), 200, 1000, fill);
+		Assert.assertEquals(100, fill.getQuantity(), 0.0);
+		Assert.assertEquals(200.2, fill.getPrice(), EPSILON);
+		Assert.assertEquals(2.0, fill.getCommission(), EPSILON);
+
+		model.fill(new MarketOrder(OrderSide.SELL, Instruments.IBM, 100, "sell"), 200, Double.NaN, fill);
+		Assert.assertEquals(199.8, fill.getPrice(), EPSILON);
+
+		// whole units of 25% of the volume
+		model.setVolumeLimit(0.25);
+		model.fill(new MarketOrder(OrderSide.BUY, Instruments.IBM, 100, "buy"), 200, 130, fill);
+		Assert.assertEquals(32, fill.getQuantity(), 0.0);
+		model.fill(new MarketOrder(OrderSide.BUY, Instruments.IBM, 100, "buy"), 200, 3, fill);
+		Assert.assertEquals(0, fill.getQuantity(), 0.0);
+		// unknown volume
+		model.fill(new MarketOrder(OrderSide.BUY, Instruments.IBM, 100, "buy"), 200, 0, fill);
+		Assert.assertEquals(100, fill.getQuantity(), 0.0);
+	}
+
+	@Test
+	public void testPartialFills(){
+		Portfolio ptf = new Portfolio("Test Ptf", Currency.USD, 100000);
+		OrderManager orderManager = new OrderManager(0, 1.0, 0);
+		orderManager.getFillModel().setVolumeLimit(0.1);
+		orderManager.setPortfolio(ptf);
+
+		Order order = new MarketOrder(OrderSide.BUY, Instruments.IBM, 100, "TU Market Order");
+		orderManager.sendOrder(order);
+
+		orderManager.onCandle(Instruments.IBM, new Candle(DAY, Periods.ONE_DAY, 100, 100, 100, 100, 400));
+		Assert.assertEquals(40, ptf.getPosition(Instruments.IBM), 0.0);
+		Assert.assertEquals(OrderStatus.PARTIALLY_FILLED, order.getStatus());
+		// no second execution on the same candle
+		orderManager.onCandle(Instruments.IBM, new Candle(DAY, Periods.ONE_DAY, 100, 100, 100, 100, 400));
+		Assert.assertEquals(40, ptf.getPosition(Instruments.IBM), 0.0);
+
+		orderManager.onCandle(Instruments.IBM, new Candle(DAY.plusDays(1), Periods.ONE_DAY, 110, 110, 110, 110, 400));
+		orderManager.onCandle(Instruments.IBM, new Candle(DAY.plusDays(2), Periods.ONE_DAY, 120, 120, 120, 120, 400));
+		Assert.assertEquals(100, ptf.getPosition(Instruments.IBM), 0.0);
+		Assert.assertEquals(OrderStatus.FILLED, order.getStatus());
+		Assert.assertEquals(20, order.getLastFilledQuantity(), 0.0);
+		Assert.assertEquals((40 * 100 + 40 * 110 + 20 * 120) / 100.0, order.getFilledPrice(), EPSILON);
+		Assert.assertEquals(3.0, order.getCommission(), EPSILON);
+		Assert.assertEquals(100000 - 10800 - 3, ptf.getCash(), EPSILON);
+
+		// filled order : nothing more
+		orderManager.onCandle(Instruments.IBM, new Candle(DAY.plusDays(3), Periods.ONE_DAY, 120, 120, 120, 120, 400));
+		Assert.assertEquals(100, ptf.getPosition(Instruments.IBM), 0.0);
+	}
+
+	@Test
+	public void testQuotesCrossTheSpread(){
+		Portfolio ptf = new Portfolio("Test Ptf", Currency.USD, 100000);
+		OrderManager orderManager = new OrderManager(0.0005, 0, 0);
+		orderManager.setPortfolio(ptf);
+
+		orderManager.onQuote(Instruments.GOOG, new BBBA(DAY.plusHours(10), 599, 601));
+		orderManager.sendOrder(new LimitOrder(OrderSide.SELL, Instruments.GOOG, 10, 600, "TU Sell Limit Order @600"));
+		// the candles do not execute the orders of a quoted instrument
+		orderManager.onCandle(Instruments.GOOG, new Candle(DAY, Periods.ONE_DAY, 590, 610, 590, 605, 1000000));
+		Assert.assertEquals(0, ptf.getPosition(Instruments.GOOG), 0.0);
+
+		orderManager.onQuote(Instruments.GOOG, new BBBA(DAY.plusHours(11), 602, 603));
+		Assert.assertEquals(-10, ptf.getPosition(Instruments.GOOG), 0.0);
+		Assert.assertEquals(100000 + 10 * 602 * (1 - 0.0005), ptf.getCash(), EPSILON);
+	}
+}
@@ -0,0 +1,291 @@
+package org.jquant.execution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.jquant.data.Instruments;
+import org.jquant.execution.OrderEvent.EventType;
+import org.jquant.model.Currency;
+import org.jquant.model.InstrumentId;
+import org.jquant.order.LimitOrder;
+import org.jquant.order.MarketOnCloseOrder;
+import org.jquant.order.MarketOrder;
+import org.jquant.order.Order;
+import org.jquant.order.Order.OrderSide;
+import org.jquant.order.OrderStatus;
+import org.jquant.portfolio.Portfolio;
+import org.jquant.portfolio.Trade.TradeSide;
+import org.jquant.serie.BBBA;
+import org.jquant.serie.Candle;
+import org.jquant.strategy.IStrategy;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Live order pipeline on the simulated broker : intake from many threads, risk checks, routing and events
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class LiveOrderManagerTest {
+
+	private static final DateTime NOW = new DateTime(2012, 3, 1, 10, 0, 0, 0);
+
+	/**
+	 * Records the events delivered on its thread
+	 */
+	private static class ListeningStrategy implements IStrategy, OrderListener {
+
+		private final List<InstrumentId> market;
+
+		private final List<EventType> types = new ArrayList<EventType>();
+
+		private final List<String> reasons = new ArrayList<String>();
+
+		private int nbOpened;
+
+		private double filled;
+
+		ListeningStrategy(InstrumentId... market) {
+			this.market = Arrays.asList(market);
+		}
+
+		@Override
+		public void onOrderEvent(OrderEvent event) {
+			types.add(event.getType());
+			reasons.add(event.getReason());
+			if (EventType.FILL.equals(event.getType())){
+				filled += event.getQuantity();
+			}
+		}
+
+		@Override
+		public void onPositionOpened(TradeSide side, InstrumentId instrumentId) {
+			nbOpened++;
+		}
+
+		@Override
+		public List<InstrumentId> getMarket() {
+			return market;
+		}
+
+		@Override
+		public void init() {
+			// nothing
+		}
+
+		@Override
+		public void initMarket() {
+			// nothing
+		}
+
+		@Override
+		public void onCandle(InstrumentId instrument, Candle candle) {
+			// nothing
+		}
+
+		@Override
+		public void onCandleOpen(InstrumentId instrument, Candle candle) {
+			// nothing
+		}
+
+		@Override
+		public void onQuote(InstrumentId instrument, BBBA quote) {
+			// nothing
+		}
+
+		@Override
+		public void onTimer(DateTime time) {
+			// nothing
+		}
+	}
+
+	/**
+	 * Dispatch the events of the strategy until it received n of them
+	 */
+	private static void awaitEvents(LiveOrderManager manager, ListeningStrategy strategy, int n) throws InterruptedException{
+		long deadline = System.currentTimeMillis() + 10000;
+		while (strategy.types.size() < n){
+			if (manager.dispatch(strategy) == 0){
+				Assert.assertTrue("Only " + strategy.types.size() + " events of " + n, System.currentTimeMillis() < deadline);
+				Thread.sleep(1);
+			}
+		}
+	}
+
+	@Test
+	public void testConcurrentIntake() throws Exception{
+		final int nbThreads = 4;
+		final int nbOrders = 2000;
+		SimulatedBroker broker = new SimulatedBroker(new FillModel(0, 1.0, 0));
+		broker.onQuote(Instruments.IBM, new BBBA(NOW, 100, 100.5));
+		Portfolio ptf = new Portfolio("Live Ptf", Currency.USD, 1000000);
+		ListeningStrategy strategy = new ListeningStrategy(Instruments.IBM);
+
+		// a ring buffer smaller than the orders of a thread : the producers wait for the order thread
+		final LiveOrderManager manager = new LiveOrderManager(64);
+		manager.addBroker(broker);
+		manager.setPortfolio(ptf);
+		manager.addStrategy(strategy);
+		manager.start();
+
+		Thread[] threads = new Thread[nbThreads];
+		for (int t = 0; t < nbThreads; t++){
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < nbOrders; i++){
+						OrderSide side = i % 2 == 0 ? OrderSide.BUY : OrderSide.SELL;
+						manager.sendOrder(new MarketOrder(side, Instruments.IBM, 10, "live " + i));
+					}
+				}
+			});
+			threads[t].start();
+		}
+		// the strategy thread dispatches meanwhile
+		awaitEvents(manager, strategy, nbThreads * nbOrders);
+		for (Thread t : threads){
+			t.join();
+		}
+		manager.stop();
+
+		Assert.assertEquals(nbThreads * nbOrders, manager.getNbOrders());
+		Assert.assertEquals(nbThreads * nbOrders, manager.getNbExecutions());
+		Assert.assertEquals(0, manager.getNbRejected());
+		Assert.assertEquals(nbThreads * nbOrders, manager.getTurnaround().getCount());
+		Assert.assertEquals(nbThreads * nbOrders * 10, strategy.filled, 0);
+		Assert.assertTrue(strategy.nbOpened > 0);
+		for (EventType type : strategy.types){
+			Assert.assertEquals(EventType.FILL, type);
+		}
+		// as many buys as sells
+		Assert.assertEquals(0, ptf.getPosition(Instruments.IBM), 0);
+		Assert.assertEquals(0, broker.getNbWaitingOrders());
+	}
+
+	@Test
+	public void testStrategyNotDispatching() throws Exception{
+		final int nbOrders = 500;
+		SimulatedBroker broker = new SimulatedBroker();
+		broker.onQuote(Instruments.IBM, new BBBA(NOW, 100, 100.5));
+		ListeningStrategy idle = new ListeningStrategy(Instruments.IBM);
+		ListeningStrategy active = new ListeningStrategy(Instruments.IBM);
+		// buffers smaller than the orders
+		LiveOrderManager manager = new LiveOrderManager(64, 16);
+		manager.addBroker(broker);
+		manager.addStrategy(idle);
+		manager.addStrategy(active);
+		manager.start();
+
+		// the idle strategy does not dispatch its events while the orders are processed, the active one does
+		for (int i = 0; i < nbOrders; i++){
+			manager.sendOrder(new MarketOrder(i % 2 == 0 ? OrderSide.BUY : OrderSide.SELL, Instruments.IBM, 10, "order " + i));
+			if (i % 8 == 7){
+				awaitEvents(manager, active, i + 1);
+			}
+		}
+		awaitEvents(manager, active, nbOrders);
+		manager.stop();
+
+		Assert.assertEquals(nbOrders, manager.getNbExecutions());
+		Assert.assertEquals(nbOrders, active.types.size());
+		Assert.assertEquals(0, manager.getNbOverflowed(active));
+		Assert.assertEquals(nbOrders - 16, manager.getNbOverflowed(idle));
+
+		// no execution is lost for the idle strategy, in order
+		Assert.assertEquals(nbOrders, manager.dispatch(idle));
+		Assert.assertEquals(0, manager.dispatch(idle));
+		Assert.assertEquals(nbOrders, idle.types.size());
+		for (EventType type : idle.types){
+			Assert.assertEquals(EventType.FILL, type);
+		}
+		Assert.assertEquals(nbOrders * 10, idle.filled, 0);
+		Assert.assertEquals(active.nbOpened, idle.nbOpened);
+		Assert.assertEquals(nbOrders / 2, idle.nbOpened);
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test
+	public void testRecordedFill() throws Exception{
+		SimulatedBroker broker = new SimulatedBroker();
+		broker.onQuote(Instruments.IBM, new BBBA(NOW, 100, 100.5));
+		Portfolio ptf = new Portfolio("Live Ptf", Currency.USD, 10000);
+		ListeningStrategy strategy = new ListeningStrategy(Instruments.IBM);
+		LiveOrderManager manager = new LiveOrderManager();
+		manager.addBroker(broker);
+		manager.setPortfolio(ptf);
+		manager.addStrategy(strategy);
+		manager.start();
+
+		Order order = manager.sendOrder(new LimitOrder(OrderSide.BUY, Instruments.IBM, 10, 50, "limit"));
+		long deadline = System.currentTimeMillis() + 10000;
+		while (broker.getNbWaitingOrders() == 0){
+			Assert.assertTrue(System.currentTimeMillis() < deadline);
+			Thread.sleep(1);
+		}
+		// executed elsewhere and recorded on the order by the caller : not filled twice
+		order.addFill(10, 49, 1, NOW);
+		manager.onOrderFilled(order);
+		awaitEvents(manager, strategy, 1);
+		manager.stop();
+
+		Assert.assertEquals(EventType.FILL, strategy.types.get(0));
+		Assert.assertEquals(1, strategy.nbOpened);
+		Assert.assertEquals(OrderStatus.FILLED, order.getStatus());
+		Assert.assertEquals(10, order.getFilledQuantity(), 0);
+		Assert.assertEquals(10, ptf.getPosition(Instruments.IBM), 0);
+		Assert.assertEquals(10000 - 10 * 49 - 1, ptf.getCash(), 1e-9);
+	}
+
+	@Test
+	public void testRiskAndRouting() throws Exception{
+		SimulatedBroker broker = new SimulatedBroker();
+		ListeningStrategy strategy = new ListeningStrategy(Instruments.IBM, Instruments.GOOG, Instruments.MSFT);
+		LiveOrderManager manager = new LiveOrderManager();
+		manager.addBroker(broker);
+		manager.setRiskLimits(new RiskLimits(100, 150, 0));
+		manager.setRoute(Instruments.GOOG, JQuantExecutionProvider.IB);
+		manager.addStrategy(strategy);
+		manager.start();
+
+		// too big, no broker for GOOG, not supported by the simulated broker
+		Order big = manager.sendOrder(new MarketOrder(OrderSide.BUY, Instruments.IBM, 500, "big"));
+		manager.sendOrder(new MarketOrder(OrderSide.BUY, Instruments.GOOG, 10, "goog"));
+		manager.sendOrder(new MarketOnCloseOrder(OrderSide.BUY, Instruments.IBM, 10, "moc", NOW));
+		awaitEvents(manager, strategy, 3);
+		Assert.assertEquals(Arrays.asList(EventType.REJECTED, EventType.REJECTED, EventType.REJECTED), strategy.types);
+		Assert.assertTrue(strategy.reasons.get(0).startsWith("Quantity"));
+		Assert.assertEquals("No broker for IB", strategy.reasons.get(1));
+		Assert.assertEquals(OrderStatus.REJECTED, big.getStatus());
+
+		// the limits wait for a quote, the second one exceeds the position limit with the first one
+		Order limit = manager.sendOrder(new LimitOrder(OrderSide.BUY, Instruments.MSFT, 100, 30, "limit"));
+		manager.sendOrder(new LimitOrder(OrderSide.BUY, Instruments.MSFT, 100, 25, "over"));
+		awaitEvents(manager, strategy, 4);
+		Assert.assertTrue(strategy.reasons.get(3).startsWith("Position"));
+		manager.onQuote(Instruments.MSFT, new BBBA(NOW, 30.5, 31));
+		Assert.assertEquals(1, broker.getNbWaitingOrders());
+		manager.onQuote(Instruments.MSFT, new BBBA(NOW.plusSeconds(1), 29.5, 29.8));
+		awaitEvents(manager, strategy, 5);
+		Assert.assertEquals(EventType.FILL, strategy.types.get(4));
+		Assert.assertEquals(1, strategy.nbOpened);
+
+		// a waiting order is cancelled
+		Order exit = manager.sendOrder(new LimitOrder(OrderSide.SELL, Instruments.MSFT, 100, 40, "exit"));
+		manager.cancelOrder(exit);
+		awaitEvents(manager, strategy, 6);
+		Assert.assertEquals(EventType.CANCELLED, strategy.types.get(5));
+		manager.stop();
+
+		Assert.assertEquals(OrderStatus.FILLED, limit.getStatus());
+		Assert.assertEquals(29.8, limit.getFilledPrice(), 0);
+		Assert.assertEquals(OrderStatus.CANCELLED, exit.getStatus());
+		Assert.assertEquals(6, manager.getNbOrders());
+		Assert.assertEquals(4, manager.getNbRejected());
+		Assert.assertEquals(0, broker.getNbWaitingOrders());
+	}
+}
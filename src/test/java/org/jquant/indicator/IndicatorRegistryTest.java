@@ -0,0 +1,109 @@
+package org.jquant.indicator;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.joda.time.DateTime;
+import org.jquant.data.Instruments;
+import org.jquant.serie.Candle;
+import org.jquant.serie.Candle.CandleData;
+import org.jquant.serie.CandleSerie;
+import org.jquant.time.calendar.Periods;
+import org.jquant.util.FinancialLibrary;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Indicators shared by the strategies : deduplication, reference counting and values
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class IndicatorRegistryTest {
+
+	private static final DateTime DAY = new DateTime(2012, 1, 2, 0, 0, 0, 0);
+
+	private static void addCandles(CandleSerie serie, int from, int to){
+		for (int i = from; i < to; i++){
+			double close = 100 + 10 * Math.sin(i / 7.0) + i * 0.01;
+			serie.addValue(new Candle(DAY.plusDays(i), Periods.ONE_DAY, close - 1, close + 2, close - 2, close, 1000));
+		}
+	}
+
+	@Test
+	public void testSharing(){
+		IndicatorRegistry registry = new IndicatorRegistry();
+		CandleSerie ibm = new CandleSerie(Instruments.IBM);
+		CandleSerie goog = new CandleSerie(Instruments.GOOG);
+
+		SMA sma = registry.acquire(SMA.class, ibm, 20, CandleData.CLOSE);
+		Assert.assertSame(sma, registry.acquire(SMA.class, ibm, 20, CandleData.CLOSE));
+		Assert.assertNotSame(sma, registry.acquire(SMA.class, ibm, 50, CandleData.CLOSE));
+		Assert.assertNotSame(sma, registry.acquire(SMA.class, ibm, 20, CandleData.HIGH));
+		Assert.assertNotSame(sma, registry.acquire(SMA.class, goog, 20, CandleData.CLOSE));
+		HighestHigh hh = registry.acquire(HighestHigh.class, ibm);
+		Assert.assertSame(hh, registry.acquire(HighestHigh.class, ibm));
+		Assert.assertEquals(5, registry.size());
+		Assert.assertEquals(7, registry.getNbRequests());
+		// one observation of the serie by indicator
+		Assert.assertEquals(4, ibm.countObservers());
+
+		Assert.assertEquals(2, registry.getReferences(sma));
+		registry.release(sma);
+		Assert.assertEquals(1, registry.getReferences(sma));
+		Assert.assertEquals(4, ibm.countObservers());
+		registry.release(sma);
+		Assert.assertEquals(0, registry.getReferences(sma));
+		Assert.assertEquals(3, ibm.countObservers());
+		Assert.assertNotSame(sma, registry.acquire(SMA.class, ibm, 20, CandleData.CLOSE));
+
+		registry.clear();
+		Assert.assertEquals(0, registry.size());
+		Assert.assertEquals(0, ibm.countObservers());
+		Assert.assertEquals(0, goog.countObservers());
+	}
+
+	@Test
+	public void testErrors(){
+		IndicatorRegistry registry = new IndicatorRegistry();
+		CandleSerie ibm = new CandleSerie(Instruments.IBM);
+		try {
+			registry.acquire(SMA.class, ibm, "20", CandleData.CLOSE);
+			Assert.fail();
+		}catch (IllegalArgumentException e) {
+			// no such constructor
+		}
+		try {
+			registry.acquire(SMA.class, ibm, 0, CandleData.CLOSE);
+			Assert.fail();
+		}catch (IllegalArgumentException e) {
+			// thrown by the constructor
+		}
+		try {
+			registry.release(new HighestHigh(ibm));
+			Assert.fail();
+		}catch (IllegalArgumentException e) {
+			// not in the registry
+		}
+	}
+
+	@Test
+	public void testSMA(){
+		CandleSerie serie = new CandleSerie(Instruments.IBM);
+		// candles before the indicator
+		addCandles(serie, 0, 5);
+		SMA sma = new IndicatorRegistry().acquire(SMA.class, serie, 10, CandleData.CLOSE);
+		addCandles(serie, 5, 200);
+
+		double[] closes = serie.getData(CandleData.CLOSE);
+		for (int i = 0; i < closes.length; i++){
+			DateTime day = DAY.plusDays(i);
+			if (i < 9){
+				Assert.assertTrue(Double.isNaN(sma.getValue(day)));
+			}else {
+				double expected = FinancialLibrary.SMA(10, ArrayUtils.subarray(closes, i - 9, i + 1), 0);
+				Assert.assertEquals(expected, sma.getValue(day), 0.0);
+			}
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package org.jquant.instrument.rate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.joda.time.DateTime;
+import org.jquant.data.Instruments;
+import org.jquant.model.Currency;
+import org.jquant.model.InstrumentId;
+import org.jquant.portfolio.Portfolio;
+import org.jquant.portfolio.PortfolioException;
+import org.jquant.portfolio.Trade;
+import org.jquant.portfolio.Trade.TradeSide;
+import org.jquant.serie.Candle;
+import org.jquant.serie.CandleSerie;
+import org.jquant.time.calendar.Periods;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Exchange rates and multi currency portfolio
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class FxConverterTest {
+
+	private static final double EPSILON = 1e-12;
+
+	private static final DateTime DAY = new DateTime(2012, 3, 1, 0, 0, 0, 0);
+
+	private static CandleSerie serie(InstrumentId pair, double... closes){
+		CandleSerie serie = new CandleSerie(pair);
+		for (int i = 0; i < closes.length; i++){
+			serie.addValue(new Candle(DAY.plusDays(i), Periods.ONE_DAY, closes[i], closes[i], closes[i], closes[i], 0));
+		}
+		return serie;
+	}
+
+	private static FxConverter converter(){
+		FxConverter fx = new FxConverter();
+		fx.addPair(Currency.EUR, Currency.USD, serie(Instruments.EURUSD, 1.30, 1.40, 1.35));
+		fx.addPair(Currency.USD, Currency.JPY, serie(Instruments.USDJPY, 80, 82, 84));
+		return fx;
+	}
+
+	@Test
+	public void testRates(){
+		FxConverter fx = converter();
+		Assert.assertEquals(2, fx.size());
+		Assert.assertEquals(1, fx.getRate(Currency.GBP, Currency.GBP, DAY), 0);
+		Assert.assertEquals(1.30, fx.getRate(Currency.EUR, Currency.USD, DAY), EPSILON);
+		// the candle of the time, the previous close intraday (the candle of the day is not closed), the last one after the serie
+		Assert.assertEquals(1.40, fx.getRate(Currency.EUR, Currency.USD, DAY.plusDays(1)), EPSILON);
+		Assert.assertEquals(1.30, fx.getRate(Currency.EUR, Currency.USD, DAY.plusDays(1).plusHours(12)), EPSILON);
+		Assert.assertEquals(1.35, fx.getRate(Currency.EUR, Currency.USD, DAY.plusDays(10)), EPSILON);
+		Assert.assertTrue(fx.hasRate(Currency.EUR, Currency.JPY, DAY));
+		Assert.assertFalse(fx.hasRate(Currency.EUR, Currency.USD, DAY.plusHours(12)));
+		Assert.assertFalse(fx.hasRate(Currency.GBP, Currency.USD, DAY));
+		// inverse pair
+		Assert.assertEquals(1 / 1.35, fx.getRate(Currency.USD, Currency.EUR, DAY.plusDays(10)), EPSILON);
+		// triangulation through USD, back in time
+		Assert.assertEquals(1.40 * 82, fx.getRate(Currency.EUR, Currency.JPY, DAY.plusDays(1)), EPSILON);
+		Assert.assertEquals(1 / (1.30 * 80), fx.getRate(Currency.JPY, Currency.EUR, DAY), EPSILON);
+		Assert.assertEquals(100 * 1.35 * 84, fx.convert(100, Currency.EUR, Currency.JPY, DAY.plusDays(2)), EPSILON);
+
+		try {
+			fx.getRate(Currency.EUR, Currency.USD, DAY.minusDays(1));
+			Assert.fail("No rate before the first candle");
+		}catch (IllegalStateException e) {
+			// expected
+		}
+		try {
+			fx.getRate(Currency.GBP, Currency.USD, DAY);
+			Assert.fail("No GBP pair");
+		}catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testMultiCurrencyPortfolio() throws PortfolioException{
+		Portfolio ptf = new Portfolio("Test Ptf", Currency.USD, 10000);
+		ptf.setFxConverter(converter());
+
+		// 10 BUND (EUR) at 100 EUR, EURUSD = 1.30
+		ptf.addTransaction(new Trade(TradeSide.BUY, Instruments.BUND, 10, 1000, DAY));
+		ptf.addTransaction(new Trade(TradeSide.BUY, Instruments.IBM, 5, 500, DAY));
+		Assert.assertEquals(10000 - 1300 - 500, ptf.getCash(), EPSILON);
+
+		Map<InstrumentId, Candle> slice = new HashMap<InstrumentId, Candle>();
+		slice.put(Instruments.BUND, new Candle(DAY.plusDays(1), Periods.ONE_DAY, 110, 110, 110, 110, 0));
+		slice.put(Instruments.IBM, new Candle(DAY.plusDays(1), Periods.ONE_DAY, 120, 120, 120, 120, 0));
+		ptf.markToMarket(DAY.plusDays(1), slice);
+		Assert.assertEquals(8200 + 1100 * 1.40 + 600, ptf.getEquityCurve().getDouble(DAY.plusDays(1)), EPSILON);
+
+		// the sale is converted at the rate of the day
+		ptf.addTransaction(new Trade(TradeSide.SELL, Instruments.BUND, 10, 1100, DAY.plusDays(2)));
+		Assert.assertEquals(8200 + 1100 * 1.35, ptf.getCash(), EPSILON);
+	}
+}
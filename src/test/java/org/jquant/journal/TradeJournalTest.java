@@ -0,0 +1,123 @@
+package org.jquant.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.jquant.data.Instruments;
+import org.jquant.journal.JournalEntry.EntryType;
+import org.jquant.model.Currency;
+import org.jquant.order.LimitOrder;
+import org.jquant.order.MarketOrder;
+import org.jquant.order.Order;
+import org.jquant.order.Order.OrderSide;
+import org.jquant.order.OrderManager;
+import org.jquant.order.OrderStatus;
+import org.jquant.portfolio.Portfolio;
+import org.jquant.serie.Candle;
+import org.jquant.serie.Candle.CandleData;
+import org.jquant.time.calendar.Periods;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Orders and fills recorded by the trade journal
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class TradeJournalTest {
+
+	private static final DateTime DAY = new DateTime(2012, 3, 1, 0, 0, 0, 0);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testOrderManagerJournal() throws IOException{
+		File file = new File(folder.getRoot(), "trades.jqj");
+		TradeJournal journal = new TradeJournal(file);
+		OrderManager orderManager = new OrderManager(0, 1.0, 0);
+		orderManager.setPortfolio(new Portfolio("Test Ptf", Currency.USD, 100000));
+		orderManager.setJournal(journal);
+
+		orderManager.sendOrder(new MarketOrder(OrderSide.BUY, Instruments.IBM, 10, CandleData.CLOSE, "buy", DAY));
+		Order limit = orderManager.sendOrder(new LimitOrder(OrderSide.SELL, Instruments.IBM, 10, 500, "limit", DAY));
+		orderManager.onCandle(Instruments.IBM, new Candle(DAY, Periods.ONE_DAY, 100, 102, 98, 101, 1000));
+		orderManager.cancelOrder(limit);
+		journal.close();
+
+		List<JournalEntry> entries = TradeJournal.read(file);
+		Assert.assertEquals(4, entries.size());
+		Assert.assertEquals(EntryType.ORDER_SENT, entries.get(0).getType());
+		Assert.assertEquals(EntryType.ORDER_SENT, entries.get(1).getType());
+
+		JournalEntry fill = entries.get(2);
+		Assert.assertEquals(EntryType.FILL, fill.getType());
+		Assert.assertEquals(Instruments.IBM, fill.getInstrument());
+		Assert.assertEquals(OrderSide.BUY, fill.getSide());
+		Assert.assertEquals(OrderStatus.FILLED, fill.getStatus());
+		Assert.assertEquals(10, fill.getQuantity(), 0);
+		Assert.assertEquals(101, fill.getPrice(), 0);
+		Assert.assertEquals(1.0, fill.getCommission(), 0);
+		Assert.assertEquals(DAY, fill.getTime());
+		Assert.assertEquals("buy", fill.getText());
+
+		Assert.assertEquals(EntryType.ORDER_CANCELLED, entries.get(3).getType());
+		Assert.assertEquals("limit", entries.get(3).getText());
+		Assert.assertTrue(Double.isNaN(entries.get(3).getPrice()));
+	}
+
+	@Test
+	public void testBackPressure() throws IOException{
+		File file = new File(folder.getRoot(), "trades.jqj");
+		// much more entries than the capacity of the buffer : none is lost
+		TradeJournal journal = new TradeJournal(file, 6);
+		for (int i = 0; i < 10000; i++){
+			journal.onOrderSent(new MarketOrder(OrderSide.BUY, Instruments.GOOG, i + 1, CandleData.OPEN, "order " + i, DAY.plusMinutes(i)));
+		}
+		journal.close();
+		Assert.assertEquals(0, journal.getPending());
+
+		List<JournalEntry> entries = TradeJournal.read(file);
+		Assert.assertEquals(10000, entries.size());
+		for (int i = 0; i < entries.size(); i++){
+			Assert.assertEquals(i + 1, entries.get(i).getQuantity(), 0);
+			Assert.assertEquals(DAY.plusMinutes(i), entries.get(i).getTime());
+		}
+
+		try {
+			journal.onOrderSent(new MarketOrder(OrderSide.BUY, Instruments.GOOG, 1, CandleData.OPEN, "closed", DAY));
+			Assert.fail("Closed journal");
+		}catch (IllegalStateException e) {
+			// expected
+		}
+
+		// a truncated journal is read up to its last complete entry
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(raf.length() - 10);
+		raf.close();
+		Assert.assertEquals(9999, TradeJournal.read(file).size());
+	}
+
+	@Test
+	public void testCloseAfterPublish() throws IOException{
+		// the entries published just before the close are written
+		for (int run = 0; run < 200; run++){
+			File file = new File(folder.getRoot(), "close" + run + ".jqj");
+			TradeJournal journal = new TradeJournal(file, 8);
+			int nbEntries = run % 5 + 1;
+			for (int i = 0; i < nbEntries; i++){
+				journal.onOrderSent(new MarketOrder(OrderSide.SELL, Instruments.IBM, i + 1, CandleData.CLOSE, "order " + i, DAY));
+			}
+			journal.close();
+			Assert.assertEquals(nbEntries, TradeJournal.read(file).size());
+		}
+	}
+}
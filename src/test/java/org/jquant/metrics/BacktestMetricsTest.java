@@ -0,0 +1,102 @@
+package org.jquant.metrics;
+
+import org.joda.time.DateTime;
+import org.jquant.data.Instruments;
+import org.jquant.metrics.BacktestMetrics.Phase;
+import org.jquant.model.Currency;
+import org.jquant.order.LimitOrder;
+import org.jquant.order.MarketOrder;
+import org.jquant.order.Order.OrderSide;
+import org.jquant.order.OrderManager;
+import org.jquant.portfolio.Portfolio;
+import org.jquant.serie.Candle;
+import org.jquant.serie.Candle.CandleData;
+import org.jquant.time.calendar.Periods;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Counters and histograms of the back test
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class BacktestMetricsTest {
+
+	private static final DateTime DAY = new DateTime(2012, 3, 1, 0, 0, 0, 0);
+
+	@Test
+	public void testHistogram(){
+		Histogram h = new Histogram();
+		Assert.assertEquals(0, h.getPercentile(0.5));
+		Assert.assertTrue(Double.isNaN(h.getMean()));
+		for (int i = 1; i <= 100; i++){
+			h.record(i * 10);
+		}
+		Assert.assertEquals(100, h.getCount());
+		Assert.assertEquals(50500, h.getTotal());
+		Assert.assertEquals(505, h.getMean(), 1e-12);
+		Assert.assertEquals(1000, h.getMax());
+		// upper bound of the bucket, at most twice the true value
+		long median = h.getPercentile(0.5);
+		Assert.assertTrue(median >= 500 && median < 1000);
+		Assert.assertEquals(1000, h.getPercentile(1));
+		Assert.assertEquals(15, h.getPercentile(0));
+
+		h.record(0);
+		h.record(-5);
+		Assert.assertEquals(0, h.getPercentile(0));
+		h.reset();
+		Assert.assertEquals(0, h.getCount());
+		Assert.assertEquals(0, h.getMax());
+	}
+
+	@Test
+	public void testMetrics(){
+		BacktestMetrics metrics = new BacktestMetrics();
+		metrics.start();
+		for (int i = 0; i < 1000; i++){
+			metrics.incrementBars();
+			metrics.incrementEvents();
+			metrics.record(Phase.STRATEGY_CANDLE, 100);
+		}
+		metrics.addOrders(30, 2);
+		metrics.stop();
+
+		Assert.assertEquals(1000, metrics.getNbBars());
+		Assert.assertEquals(1000, metrics.getNbEvents());
+		Assert.assertEquals(30, metrics.getNbOrdersScanned());
+		Assert.assertEquals(2, metrics.getNbOrdersTriggered());
+		Assert.assertEquals(100000, metrics.getPhase(Phase.STRATEGY_CANDLE).getTotal());
+		Assert.assertEquals(0, metrics.getPhase(Phase.MARK_TO_MARKET).getCount());
+		Assert.assertTrue(metrics.getElapsed() > 0);
+		Assert.assertTrue(metrics.getBarsPerSecond() > 0);
+		Assert.assertTrue(metrics.toString().contains("strategy_candle"));
+		Assert.assertFalse(metrics.toString().contains("mark_to_market"));
+
+		metrics.start();
+		Assert.assertEquals(0, metrics.getNbBars());
+		Assert.assertEquals(0, metrics.getPhase(Phase.STRATEGY_CANDLE).getCount());
+	}
+
+	@Test
+	public void testOrdersScanned(){
+		OrderManager orderManager = new OrderManager();
+		orderManager.setPortfolio(new Portfolio("Test Ptf", Currency.USD, 100000));
+		orderManager.sendOrder(new MarketOrder(OrderSide.BUY, Instruments.IBM, 10, CandleData.CLOSE, "buy", DAY));
+		orderManager.sendOrder(new LimitOrder(OrderSide.BUY, Instruments.IBM, 10, 50, "limit", DAY));
+
+		Candle candle = new Candle(DAY, Periods.ONE_DAY, 100, 102, 98, 101, 1000);
+		orderManager.onCandleOpen(Instruments.IBM, candle);
+		orderManager.onCandle(Instruments.IBM, candle);
+		Assert.assertEquals(4, orderManager.getNbOrdersScanned());
+		Assert.assertEquals(1, orderManager.getNbOrdersTriggered());
+
+		// the limit order is not triggered
+		orderManager.onCandle(Instruments.IBM, new Candle(DAY.plusDays(1), Periods.ONE_DAY, 100, 102, 98, 101, 1000));
+		Assert.assertEquals(5, orderManager.getNbOrdersScanned());
+		Assert.assertEquals(1, orderManager.getNbOrdersTriggered());
+	}
+}
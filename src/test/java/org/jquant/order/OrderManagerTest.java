@@ -1,12 +1,21 @@
 package org.jquant.order;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.joda.time.DateTime;
 import org.jquant.data.Instruments;
 import org.jquant.model.Currency;
 import org.jquant.model.InstrumentId;
 import org.jquant.order.Order.OrderSide;
 import org.jquant.portfolio.Portfolio;
+import org.jquant.portfolio.Trade.TradeSide;
+import org.jquant.serie.BBBA;
 import org.jquant.serie.Candle;
+import org.jquant.strategy.MonoAssetStrategy;
 import org.jquant.time.calendar.Periods;
 import org.junit.Assert;
 import org.junit.Before;
@@ -141,7 +150,91 @@ public class OrderManagerTest {
 		
 	}
 	
+	@Test
+	public void testMarketOnCloseOrder() {
+		DateTime day = new DateTime(2012, 3, 1, 0, 0, 0, 0);
+		Order mocOrder = new MarketOnCloseOrder(OrderSide.BUY, ibm, 2, "TU Market On Close Order");
+		orderManager.sendOrder(mocOrder);
+		
+		// Intraday candles do not execute the order 
+		Candle first = new Candle(day.plusHours(10),Periods.ONE_DAY, 100,101,99,100,1000);
+		Candle last = new Candle(day.plusHours(16),Periods.ONE_DAY, 100,106,99,105,1000);
+		orderManager.onCandleOpen(ibm, first);
+		orderManager.onCandle(ibm, first);
+		orderManager.onCandle(ibm, last);
+		Assert.assertEquals(0.0,ptf.getPosition(ibm),0.0);
+		
+		Map<InstrumentId, Candle> lastCandles = new HashMap<InstrumentId, Candle>();
+		// No candle of the day : the order stays pending
+		lastCandles.put(ibm, new Candle(day.minusDays(1).plusHours(16),Periods.ONE_DAY, 100,100,100,90,1000));
+		orderManager.onEndOfDay(day, lastCandles);
+		Assert.assertEquals(0.0,ptf.getPosition(ibm),0.0);
+		
+		// executed at the last close of the day 
+		lastCandles.put(ibm, last);
+		orderManager.onEndOfDay(day, lastCandles);
+		Assert.assertEquals(2.0,ptf.getPosition(ibm),0.0);
+		Assert.assertEquals(790,ptf.getCash(),0.0);
+		Assert.assertEquals(OrderStatus.FILLED,mocOrder.getStatus());
+	}
 	
+	@Test
+	public void testQuoteOrders() {
+		DateTime time = new DateTime(2012, 3, 1, 10, 0, 0, 0);
+		Order buyLimitOrder = new LimitOrder(OrderSide.BUY, ibm, 1,100, "TU Buy Limit Order @100 ");
+		orderManager.sendOrder(buyLimitOrder);
+		
+		// ask above the limit 
+		orderManager.onQuote(ibm, new BBBA(time, 100, 100.5));
+		Assert.assertEquals(0.0,ptf.getPosition(ibm),0.0);
+		// BUY at the ask 
+		orderManager.onQuote(ibm, new BBBA(time.plusSeconds(1), 99.5, 99.75));
+		Assert.assertEquals(1.0,ptf.getPosition(ibm),0.0);
+		Assert.assertEquals(1000 - 99.75,ptf.getCash(),0.0);
+		
+		// SELL at the bid 
+		orderManager.sendOrder(new MarketOrder(OrderSide.SELL, ibm, 1, "TU Market Order"));
+		orderManager.onQuote(ibm, new BBBA(time.plusSeconds(2), 99.5, 99.75));
+		Assert.assertEquals(0.0,ptf.getPosition(ibm),0.0);
+		Assert.assertEquals(1000 - 0.25,ptf.getCash(),1e-9);
+	}
 	
+	/**
+	 * The opening of a position is told to the strategies trading the instrument only
+	 */
+	@Test
+	public void testFillRouting() {
+		final List<InstrumentId> opened = new ArrayList<InstrumentId>();
+		OrderManager om = new OrderManager(0, 0, 0);
+		om.setPortfolio(new Portfolio("Test Ptf", Currency.USD,1000));
+		for (InstrumentId instrument : new InstrumentId[]{ibm, google}){
+			MonoAssetStrategy strategy = new MonoAssetStrategy() {
+				@Override
+				public void init() {
+				}
+				
+				@Override
+				public void initMarket() {
+				}
+				
+				@Override
+				public void onPositionOpened(TradeSide side, InstrumentId instrument) {
+					Assert.assertEquals(getInstrument(), instrument);
+					opened.add(instrument);
+				}
+			};
+			strategy.setInstrument(instrument);
+			om.addStrategy(strategy);
+		}
+		
+		om.sendOrder(new MarketOrder(OrderSide.BUY, google, 1, "TU Market Order"));
+		om.onCandle(google, new Candle(new DateTime(),Periods.ONE_DAY, 100,110,90,100,1000000));
+		Assert.assertEquals(Collections.singletonList(google), opened);
+		
+		// not an opening 
+		om.sendOrder(new MarketOrder(OrderSide.BUY, google, 1, "TU Market Order"));
+		om.onCandle(google, new Candle(new DateTime(),Periods.ONE_DAY, 100,110,90,100,1000000));
+		Assert.assertEquals(1, opened.size());
+	}
 
 }
@@ -0,0 +1,164 @@
+package org.jquant.portfolio;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.joda.time.DateTime;
+import org.jquant.data.Instruments;
+import org.jquant.instrument.rate.FxConverter;
+import org.jquant.model.Currency;
+import org.jquant.model.InstrumentId;
+import org.jquant.portfolio.Trade.TradeSide;
+import org.jquant.serie.Candle;
+import org.jquant.serie.CandleSerie;
+import org.jquant.time.calendar.Periods;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Memoization of the simulations : keys, hits and eviction
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class ResultCacheTest {
+
+	private static final DateTime DAY = new DateTime(2012, 1, 2, 0, 0, 0, 0);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private PortfolioStatistics simulate(double amplitude) throws PortfolioException{
+		Portfolio ptf = new Portfolio("Cached Ptf", Currency.USD, 100000);
+		Map<InstrumentId, Candle> slice = new HashMap<InstrumentId, Candle>();
+		for (int i = 0; i < 500; i++){
+			DateTime day = DAY.plusDays(i);
+			double price = 100 + amplitude * Math.sin(i / 10.0);
+			if (i % 20 == 0){
+				ptf.addTransaction(new Trade(TradeSide.BUY, Instruments.IBM, 10, 10 * price, day));
+			}else if (i % 20 == 10){
+				ptf.addTransaction(new Trade(TradeSide.SELL, Instruments.IBM, 10, 10 * price, day));
+			}
+			slice.put(Instruments.IBM, new Candle(day, Periods.ONE_DAY, price, price, price, price, 1000));
+			ptf.markToMarket(day, slice);
+		}
+		return new PortfolioStatistics(ptf, DAY.toDate(), DAY.plusDays(499).toDate());
+	}
+
+	private static CandleSerie serie(double lastClose){
+		CandleSerie serie = new CandleSerie(Instruments.IBM);
+		for (int i = 0; i < 100; i++){
+			double close = i == 99 ? lastClose : 100 + i;
+			serie.addValue(new Candle(DAY.plusDays(i), Periods.ONE_DAY, close, close, close, close, 1000));
+		}
+		return serie;
+	}
+
+	@Test
+	public void testKey(){
+		Map<String, Object> parameters = new LinkedHashMap<String, Object>();
+		parameters.put("period", 10);
+		parameters.put("threshold", 0.5);
+		Map<String, Object> reordered = new LinkedHashMap<String, Object>();
+		reordered.put("threshold", 0.5);
+		reordered.put("period", 10.0);
+
+		String key = new ResultKey().add(Portfolio.class).add(parameters).add(serie(199)).toString();
+		Assert.assertEquals(40, key.length());
+		Assert.assertEquals(key, new ResultKey().add(Portfolio.class).add(reordered).add(serie(199)).toString());
+
+		// an other class, parameter or candle
+		Assert.assertFalse(key.equals(new ResultKey().add(Trade.class).add(parameters).add(serie(199)).toString()));
+		reordered.put("period", 11);
+		Assert.assertFalse(key.equals(new ResultKey().add(Portfolio.class).add(reordered).add(serie(199)).toString()));
+		Assert.assertFalse(key.equals(new ResultKey().add(Portfolio.class).add(parameters).add(serie(199.5)).toString()));
+
+		// an other salt
+		Assert.assertEquals(key, new ResultKey(null).add(Portfolio.class).add(parameters).add(serie(199)).toString());
+		Assert.assertFalse(key.equals(new ResultKey("1.1").add(Portfolio.class).add(parameters).add(serie(199)).toString()));
+	}
+
+	@Test
+	public void testFxConverterKey(){
+		FxConverter converter = new FxConverter();
+		converter.addPair(Currency.EUR, Currency.USD, serie(1.3));
+		ResultKey key = new ResultKey();
+		converter.addTo(key);
+		String eurusd = key.toString();
+
+		converter = new FxConverter();
+		converter.addPair(Currency.EUR, Currency.USD, serie(1.3));
+		key = new ResultKey();
+		converter.addTo(key);
+		Assert.assertEquals(eurusd, key.toString());
+
+		// an other rate, an other pair
+		converter = new FxConverter();
+		converter.addPair(Currency.EUR, Currency.USD, serie(1.31));
+		key = new ResultKey();
+		converter.addTo(key);
+		Assert.assertFalse(eurusd.equals(key.toString()));
+		converter = new FxConverter();
+		converter.addPair(Currency.GBP, Currency.USD, serie(1.3));
+		key = new ResultKey();
+		converter.addTo(key);
+		Assert.assertFalse(eurusd.equals(key.toString()));
+	}
+
+	@Test
+	public void testHit() throws PortfolioException{
+		File directory = new File(folder.getRoot(), "cache");
+		ResultCache cache = new ResultCache(directory, 1 << 20);
+		Assert.assertNull(cache.get("a"));
+		PortfolioStatistics stats = simulate(10);
+		cache.put("a", stats);
+		Assert.assertEquals(1, cache.getNbEntries());
+
+		// an other process
+		cache = new ResultCache(directory, 1 << 20);
+		PortfolioStatistics cached = cache.get("a");
+		Assert.assertNotNull(cached);
+		Assert.assertEquals(1, cache.getNbHits());
+		Assert.assertEquals("Cached Ptf", cached.getPortfolio().getName());
+		Assert.assertEquals(stats.getStart(), cached.getStart());
+		Assert.assertEquals(stats.getEnd(), cached.getEnd());
+		Assert.assertEquals(stats.getInitialWealth(), cached.getInitialWealth(), 0.0);
+		Assert.assertEquals(stats.getFinalWealth(), cached.getFinalWealth(), 0.0);
+		Assert.assertEquals(stats.getRealizedPnL(), cached.getRealizedPnL(), 0.0);
+		Assert.assertEquals(stats.getTotalTrades(), cached.getTotalTrades());
+		Assert.assertEquals(stats.getMaxDrawDownData().getMaxDrawDown(), cached.getMaxDrawDownData().getMaxDrawDown(), 0.0);
+		Assert.assertEquals(stats.getPortfolio().getEquityCurve().size(), cached.getPortfolio().getEquityCurve().size());
+		Assert.assertEquals(stats.getPortfolio().getPosition(Instruments.IBM), cached.getPortfolio().getPosition(Instruments.IBM), 0.0);
+	}
+
+	@Test
+	public void testEviction() throws PortfolioException{
+		File directory = new File(folder.getRoot(), "cache");
+		ResultCache cache = new ResultCache(directory, 1 << 20);
+		PortfolioStatistics stats = simulate(10);
+		cache.put("a", stats);
+		long entrySize = cache.getSize();
+		cache.clear();
+		Assert.assertEquals(0, cache.getSize());
+
+		// room for two entries
+		cache = new ResultCache(directory, entrySize * 2 + entrySize / 2);
+		cache.put("a", stats);
+		cache.put("b", simulate(10));
+		Assert.assertNotNull(cache.get("a"));
+		cache.put("c", simulate(10));
+		// b is the least recently used
+		Assert.assertEquals(2, cache.getNbEntries());
+		Assert.assertNull(cache.get("b"));
+		Assert.assertNotNull(cache.get("a"));
+		Assert.assertNotNull(cache.get("c"));
+		Assert.assertFalse(new File(directory, "b.jqc").exists());
+		Assert.assertTrue(cache.getSize() <= cache.getMaxSize());
+	}
+}
@@ -0,0 +1,112 @@
+package org.jquant.portfolio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.DateTime;
+import org.jquant.data.Instruments;
+import org.jquant.model.Currency;
+import org.jquant.model.InstrumentId;
+import org.jquant.portfolio.Trade.TradeSide;
+import org.jquant.serie.Candle;
+import org.jquant.serie.DoubleSerie;
+import org.jquant.serie.TimeValue;
+import org.jquant.time.calendar.Periods;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Round trip of the result files
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class ResultFileTest {
+
+	private static final DateTime DAY = new DateTime(2012, 1, 2, 0, 0, 0, 0);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private PortfolioStatistics simulate() throws PortfolioException{
+		Portfolio ptf = new Portfolio("Result Ptf", Currency.USD, 100000);
+		Map<InstrumentId, Candle> slice = new HashMap<InstrumentId, Candle>();
+		for (int i = 0; i < 500; i++){
+			DateTime day = DAY.plusDays(i);
+			double price = 100 + 10 * Math.sin(i / 10.0);
+			if (i % 20 == 0){
+				ptf.addTransaction(new Trade(TradeSide.BUY, Instruments.IBM, 10, 10 * price, day));
+			}else if (i % 20 == 10){
+				ptf.addTransaction(new Trade(TradeSide.SELL, Instruments.IBM, 10, 10 * price, day));
+			}
+			slice.put(Instruments.IBM, new Candle(day, Periods.ONE_DAY, price, price, price, price, 1000));
+			ptf.markToMarket(day, slice);
+		}
+		return new PortfolioStatistics(ptf, DAY.toDate(), DAY.plusDays(499).toDate());
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException, PortfolioException{
+		PortfolioStatistics stats = simulate();
+		File file = folder.newFile("result.jqr");
+		ResultWriter.write(file, stats);
+
+		ResultSummary summary = ResultReader.readSummary(file);
+		Assert.assertEquals("Result Ptf", summary.getName());
+		Assert.assertEquals(Currency.USD, summary.getCurrency());
+		Assert.assertEquals(stats.getStart(), summary.getStart());
+		Assert.assertEquals(stats.getEnd(), summary.getEnd());
+		Assert.assertEquals(stats.getFinalWealth(), summary.getFinalWealth(), 0.0);
+		Assert.assertEquals(stats.getRealizedPnL(), summary.getRealizedPnL(), 0.0);
+		Assert.assertEquals(stats.getTotalTrades(), summary.getTotalTrades());
+		Assert.assertEquals(stats.getWinningTrades(), summary.getWinningTrades());
+		Assert.assertEquals(stats.getMaxDrawDownData().getMaxDrawDown(), summary.getMaxDrawDown(), 0.0);
+		Assert.assertEquals(500, summary.getNbEquityValues());
+
+		DoubleSerie curve = ResultReader.readEquityCurve(file);
+		DoubleSerie expected = stats.getPortfolio().getEquityCurve();
+		Assert.assertEquals(expected.size(), curve.size());
+		Iterator<TimeValue> it = curve.iterator();
+		for (TimeValue tv : expected){
+			TimeValue other = it.next();
+			Assert.assertEquals(tv.getDate(), other.getDate());
+			Assert.assertEquals(tv.getValue(), other.getValue(), 0.0);
+		}
+
+		List<Trade> trades = ResultReader.readTrades(file);
+		List<Trade> transactions = stats.getPortfolio().getTransactions();
+		Assert.assertEquals(transactions, trades);
+		for (int i = 0; i < trades.size(); i++){
+			Assert.assertEquals(transactions.get(i).getStatus(), trades.get(i).getStatus());
+			Assert.assertEquals(transactions.get(i).getProfitAndLoss(), trades.get(i).getProfitAndLoss(), 0.0);
+		}
+
+		// much smaller than the java serialization of the statistics
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(bytes);
+		oos.writeObject(stats);
+		oos.close();
+		Assert.assertTrue(file.length() * 3 < bytes.size());
+	}
+
+	@Test
+	public void testNotAResult() throws IOException{
+		File file = folder.newFile("other.bin");
+		try {
+			ResultReader.readSummary(file);
+			Assert.fail("Empty file");
+		}catch (IOException e) {
+			// expected
+		}
+	}
+}
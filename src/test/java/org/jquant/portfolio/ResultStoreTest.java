@@ -0,0 +1,190 @@
+package org.jquant.portfolio;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.joda.time.DateTime;
+import org.jquant.data.Instruments;
+import org.jquant.model.Currency;
+import org.jquant.model.InstrumentId;
+import org.jquant.portfolio.ResultStore.Metric;
+import org.jquant.portfolio.Trade.TradeSide;
+import org.jquant.serie.Candle;
+import org.jquant.serie.DoubleSerie;
+import org.jquant.serie.TimeValue;
+import org.jquant.time.calendar.Periods;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Runs saved in an embedded database : round trip, queries and persistence
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class ResultStoreTest {
+
+	private static final DateTime DAY = new DateTime(2012, 1, 2, 0, 0, 0, 0);
+
+	private static final String STRATEGY = "org.jquant.strategy.SMACrossStrategy";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private PortfolioStatistics simulate(double amplitude) throws PortfolioException{
+		Portfolio ptf = new Portfolio("Result Ptf", Currency.USD, 100000);
+		Map<InstrumentId, Candle> slice = new HashMap<InstrumentId, Candle>();
+		for (int i = 0; i < 2500; i++){
+			DateTime day = DAY.plusDays(i);
+			double price = 100 + amplitude * Math.sin(i / 10.0);
+			if (i % 20 == 0){
+				ptf.addTransaction(new Trade(TradeSide.BUY, Instruments.IBM, 10, 10 * price, day));
+			}else if (i % 20 == 10){
+				ptf.addTransaction(new Trade(TradeSide.SELL, Instruments.IBM, 10, 10 * price, day));
+			}
+			slice.put(Instruments.IBM, new Candle(day, Periods.ONE_DAY, price, price, price, price, 1000));
+			ptf.markToMarket(day, slice);
+		}
+		return new PortfolioStatistics(ptf, DAY.toDate(), DAY.plusDays(2499).toDate());
+	}
+
+	private static Map<String, Object> parameters(int period, double threshold){
+		Map<String, Object> parameters = new HashMap<String, Object>();
+		parameters.put("period", period);
+		parameters.put("threshold", threshold);
+		parameters.put("mode", "FAST");
+		return parameters;
+	}
+
+	@Test
+	public void testRoundTrip() throws PortfolioException{
+		File file = new File(folder.getRoot(), "results");
+		PortfolioStatistics stats = simulate(10);
+		ResultStore store = ResultStore.open(file);
+		long id;
+		try {
+			id = store.save(STRATEGY, parameters(20, 0.5), stats);
+		}finally {
+			store.close();
+		}
+
+		// the runs of the previous nights are in the file
+		store = ResultStore.open(file);
+		try {
+			List<StoredRun> runs = store.findRuns(STRATEGY);
+			Assert.assertEquals(1, runs.size());
+			StoredRun run = runs.get(0);
+			Assert.assertEquals(id, run.getId());
+			Assert.assertEquals(ResultStore.hash(parameters(20, 0.5)), run.getParameterHash());
+			ResultSummary summary = run.getSummary();
+			Assert.assertEquals("Result Ptf", summary.getName());
+			Assert.assertEquals(Currency.USD, summary.getCurrency());
+			Assert.assertEquals(stats.getStart(), summary.getStart());
+			Assert.assertEquals(stats.getFinalWealth(), summary.getFinalWealth(), 0.0);
+			Assert.assertEquals(stats.getTotalTrades(), summary.getTotalTrades());
+			Assert.assertEquals(stats.getMaxDrawDownData().getMaxDrawDown(), summary.getMaxDrawDown(), 0.0);
+
+			Map<String, Object> parameters = store.loadParameters(id);
+			Assert.assertEquals(20.0, parameters.get("period"));
+			Assert.assertEquals(0.5, parameters.get("threshold"));
+			Assert.assertEquals("FAST", parameters.get("mode"));
+			Assert.assertEquals(ResultStore.hash(parameters(20, 0.5)), ResultStore.hash(parameters));
+
+			DoubleSerie curve = store.loadEquityCurve(id);
+			DoubleSerie expected = stats.getPortfolio().getEquityCurve();
+			Assert.assertEquals(expected.size(), curve.size());
+			Iterator<TimeValue> it = curve.iterator();
+			for (TimeValue tv : expected){
+				TimeValue read = it.next();
+				Assert.assertEquals(tv.getDate().getMillis(), read.getDate().getMillis());
+				Assert.assertEquals(tv.getValue(), read.getValue(), 0.0);
+			}
+
+			List<Trade> trades = store.loadTrades(id);
+			List<Trade> expectedTrades = stats.getPortfolio().getTransactions();
+			Assert.assertEquals(expectedTrades.size(), trades.size());
+			for (int i = 0; i < trades.size(); i++){
+				Trade e = expectedTrades.get(i);
+				Trade t = trades.get(i);
+				Assert.assertEquals(e.getInstrument(), t.getInstrument());
+				Assert.assertEquals(e.getSide(), t.getSide());
+				Assert.assertEquals(e.getStatus(), t.getStatus());
+				Assert.assertEquals(e.getTimestamp().getMillis(), t.getTimestamp().getMillis());
+				Assert.assertEquals(e.getQuantity(), t.getQuantity(), 0.0);
+				Assert.assertEquals(e.getPrice(), t.getPrice(), 0.0);
+				Assert.assertEquals(e.getProfitAndLoss(), t.getProfitAndLoss(), 0.0);
+			}
+			Assert.assertSame(trades.get(0).getInstrument(), trades.get(1).getInstrument());
+
+			Assert.assertTrue(store.delete(id));
+			Assert.assertTrue(store.findRuns(STRATEGY).isEmpty());
+			Assert.assertEquals(0, store.loadEquityCurve(id).size());
+			Assert.assertTrue(store.loadTrades(id).isEmpty());
+		}finally {
+			store.close();
+		}
+	}
+
+	@Test
+	public void testQueries() throws PortfolioException{
+		ResultStore store = ResultStore.open(new File(folder.getRoot(), "results"));
+		try {
+			// two nights of the same optimization
+			for (int night = 0; night < 2; night++){
+				for (int amplitude = 1; amplitude <= 5; amplitude++){
+					store.save(STRATEGY, parameters(amplitude, 0.5), simulate(amplitude));
+				}
+			}
+			store.save("other", parameters(1, 0.5), simulate(1));
+
+			List<StoredRun> nights = store.findRuns(STRATEGY, parameters(3, 0.5));
+			Assert.assertEquals(2, nights.size());
+			Assert.assertTrue(nights.get(0).getId() < nights.get(1).getId());
+			Assert.assertEquals(nights.get(0).getSummary().getFinalWealth(), nights.get(1).getSummary().getFinalWealth(), 0.0);
+			Assert.assertEquals(10, store.findRuns(STRATEGY).size());
+			Assert.assertTrue(store.findRuns(STRATEGY, parameters(6, 0.5)).isEmpty());
+
+			List<StoredRun> best = store.findRuns(STRATEGY, Metric.FINAL_WEALTH, true, 3);
+			Assert.assertEquals(3, best.size());
+			for (int i = 1; i < best.size(); i++){
+				Assert.assertTrue(best.get(i - 1).getSummary().getFinalWealth() >= best.get(i).getSummary().getFinalWealth());
+			}
+			for (StoredRun run : store.findRuns(STRATEGY)){
+				Assert.assertTrue(run.getSummary().getFinalWealth() <= best.get(0).getSummary().getFinalWealth());
+			}
+		}finally {
+			store.close();
+		}
+	}
+
+	@Test
+	public void testHashCollision() throws PortfolioException{
+		JdbcConnectionPool pool = JdbcConnectionPool.create("jdbc:h2:" + new File(folder.getRoot(), "results").getAbsolutePath(), "sa", "");
+		try {
+			ResultStore store = new ResultStore(pool);
+			long id = store.save(STRATEGY, parameters(1, 0.5), simulate(1));
+			long other = store.save(STRATEGY, parameters(2, 0.5), simulate(2));
+			// two combinations of the same hash
+			new JdbcTemplate(pool).update("UPDATE RUNS SET PARAM_HASH = ? WHERE ID = ?", ResultStore.hash(parameters(1, 0.5)), other);
+
+			List<StoredRun> runs = store.findRuns(STRATEGY, parameters(1, 0.5));
+			Assert.assertEquals(1, runs.size());
+			Assert.assertEquals(id, runs.get(0).getId());
+			Assert.assertTrue(store.findRuns(STRATEGY, parameters(2, 0.5)).isEmpty());
+			Map<String, Object> reordered = parameters(1, 0.5);
+			reordered.put("period", 1.0);
+			Assert.assertEquals(1, store.findRuns(STRATEGY, reordered).size());
+		}finally {
+			pool.dispose();
+		}
+	}
+}
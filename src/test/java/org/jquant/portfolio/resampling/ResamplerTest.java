@@ -0,0 +1,128 @@
+package org.jquant.portfolio.resampling;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.jquant.portfolio.resampling.Resampler.Method;
+import org.jquant.portfolio.resampling.ResamplingResult.Metric;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Bootstrap resampling of returns and trades
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class ResamplerTest {
+
+	private static double[] returns(int n){
+		Random random = new Random(7);
+		double[] returns = new double[n];
+		for (int i = 0; i < n; i++){
+			returns[i] = 0.0005 + 0.01 * random.nextGaussian();
+		}
+		return returns;
+	}
+
+	@Test
+	public void testDeterministic(){
+		double[] returns = returns(2500);
+		Resampler resampler = new Resampler();
+		resampler.setNbResamples(2000);
+		double[] first = resampler.resampleReturns(returns, 100).getDistribution(Metric.FINAL_WEALTH);
+
+		// same result on a single thread
+		ForkJoinPool pool = new ForkJoinPool(1);
+		try {
+			resampler.setPool(pool);
+			double[] second = resampler.resampleReturns(returns, 100).getDistribution(Metric.FINAL_WEALTH);
+			Assert.assertArrayEquals(first, second, 0);
+
+			resampler.setSeed(resampler.getSeed() + 1);
+			double[] third = resampler.resampleReturns(returns, 100).getDistribution(Metric.FINAL_WEALTH);
+			Assert.assertFalse(first[1000] == third[1000]);
+
+			// the given pool is not shut down
+			resampler.close();
+			Assert.assertFalse(pool.isShutdown());
+		}finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testConfidenceIntervals(){
+		double[] returns = returns(2500);
+		// point estimates on the original serie
+		double mean = 0;
+		double wealth = 100;
+		for (double r : returns){
+			mean += r;
+			wealth *= 1 + r;
+		}
+		mean /= returns.length;
+		double variance = 0;
+		for (double r : returns){
+			variance += (r - mean) * (r - mean);
+		}
+		double sharpe = mean / Math.sqrt(variance / (returns.length - 1)) * Math.sqrt(252);
+
+		for (Method method : Method.values()){
+			Resampler resampler = new Resampler();
+			resampler.setMethod(method);
+			resampler.setNbResamples(10000);
+			ResamplingResult result = resampler.resampleReturns(returns, 100);
+			resampler.close();
+			Assert.assertEquals(10000, result.size());
+
+			double[] sharpeInterval = result.getConfidenceInterval(Metric.SHARPE, 0.95);
+			Assert.assertTrue(sharpeInterval[0] < sharpe && sharpe < sharpeInterval[1]);
+
+			double[] wealthInterval = result.getConfidenceInterval(Metric.FINAL_WEALTH, 0.95);
+			Assert.assertTrue(wealthInterval[0] < wealth && wealth < wealthInterval[1]);
+
+			double[] dd = result.getDistribution(Metric.MAX_DRAWDOWN);
+			Assert.assertTrue(dd[dd.length - 1] <= 0);
+			Assert.assertTrue(dd[0] > -1);
+		}
+	}
+
+	@Test
+	public void testDrawDownProbability(){
+		Resampler resampler = new Resampler();
+		resampler.setMethod(Method.BLOCK);
+		resampler.setBlockLength(5);
+		resampler.setNbResamples(5000);
+		ResamplingResult result = resampler.resampleReturns(returns(1000), 100);
+		resampler.close();
+
+		Assert.assertEquals(0, result.getDrawDownProbability(-1), 0);
+		Assert.assertEquals(1, result.getDrawDownProbability(0.01), 0);
+		double previous = 0;
+		for (double level = -0.5; level <= 0; level += 0.05){
+			double p = result.getDrawDownProbability(level);
+			Assert.assertTrue(p >= previous);
+			previous = p;
+		}
+		Assert.assertEquals(0.5, result.getDrawDownProbability(result.getPercentile(Metric.MAX_DRAWDOWN, 0.5)), 0.01);
+	}
+
+	@Test
+	public void testTrades(){
+		double[] pnl = {100, -50, 200, -150, 80, -20, 60};
+		Resampler resampler = new Resampler();
+		resampler.setBlockLength(1);
+		resampler.setNbResamples(1000);
+		ResamplingResult result = resampler.resampleTrades(pnl, 1000);
+		resampler.close();
+
+		double[] wealth = result.getDistribution(Metric.FINAL_WEALTH);
+		// 7 draws among the P&L
+		Assert.assertTrue(wealth[0] >= 1000 - 7 * 150);
+		Assert.assertTrue(wealth[wealth.length - 1] <= 1000 + 7 * 200);
+		Assert.assertEquals(1000 + 220, result.getMean(Metric.FINAL_WEALTH), 30);
+	}
+}
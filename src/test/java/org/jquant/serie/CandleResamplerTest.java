@@ -0,0 +1,102 @@
+package org.jquant.serie;
+
+import org.joda.time.DateTime;
+import org.joda.time.LocalTime;
+import org.joda.time.Period;
+import org.jquant.data.Instruments;
+import org.jquant.indicator.SMA;
+import org.jquant.serie.Candle.CandleData;
+import org.jquant.time.calendar.DayOfTheWeek;
+import org.jquant.time.calendar.Periods;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Aggregation of fine candles into higher timeframes
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class CandleResamplerTest {
+
+	@Test
+	public void testMinutes(){
+		CandleSerie bars = new CandleSerie(Instruments.IBM);
+		CandleResampler resampler = CandleResampler.minutes(5, bars);
+		DateTime start = new DateTime(2012, 3, 1, 9, 30, 0, 0);
+		for (int i = 0; i < 12; i++){
+			// 1 minute candles 100, 101 ... 111
+			resampler.onCandle(new Candle(start.plusMinutes(i), Period.minutes(1), 100 + i, 100.5 + i, 99 + i, 100 + i, 10));
+		}
+		// 09:30-09:34 and 09:35-09:39 complete, 09:40-09:41 pending
+		Assert.assertEquals(2, bars.size());
+		Candle first = bars.getFirst();
+		Assert.assertEquals(start, first.getDate());
+		Assert.assertEquals(100, first.getOpen(), 0);
+		Assert.assertEquals(104.5, first.getHigh(), 0);
+		Assert.assertEquals(99, first.getLow(), 0);
+		Assert.assertEquals(104, first.getClose(), 0);
+		Assert.assertEquals(50, first.getVolume(), 0);
+		Assert.assertEquals(Period.minutes(5), first.getPeriod());
+		Assert.assertEquals(111, resampler.getCurrent().getClose(), 0);
+
+		Candle last = resampler.flush();
+		Assert.assertEquals(3, bars.size());
+		Assert.assertEquals(start.plusMinutes(10), last.getDate());
+		Assert.assertEquals(20, last.getVolume(), 0);
+		Assert.assertNull(resampler.flush());
+	}
+
+	@Test
+	public void testDailySession(){
+		CandleSerie bars = new CandleSerie(Instruments.EURUSD);
+		// sessions from 17:00 to 17:00
+		CandleResampler resampler = CandleResampler.daily(new LocalTime(17, 0), bars);
+		DateTime monday = new DateTime(2012, 3, 5, 0, 0, 0, 0);
+		resampler.onQuote(new BBBA(monday.plusHours(16), 1.30, 1.32));
+		resampler.onQuote(new BBBA(monday.plusHours(18), 1.33, 1.35));
+		resampler.onQuote(new BBBA(monday.plusHours(30), 1.29, 1.31));
+		Assert.assertEquals(1, bars.size());
+		Assert.assertEquals(1.31, bars.getLast().getClose(), 1e-9);
+		Assert.assertEquals(1.30, resampler.flush().getLow(), 1e-9);
+		Assert.assertEquals(monday.plusHours(18), bars.getLast().getDate());
+	}
+
+	@Test
+	public void testWeeklyAndMonthly(){
+		CandleSerie daily = new CandleSerie(Instruments.IBM);
+		CandleSerie weekly = new CandleSerie(Instruments.IBM);
+		CandleSerie monthly = new CandleSerie(Instruments.IBM);
+		CandleResampler.weekly(DayOfTheWeek.FRIDAY, weekly).subscribe(daily);
+		CandleResampler.monthly(monthly).subscribe(daily);
+		SMA sma = new SMA(weekly, 2, CandleData.CLOSE);
+
+		// business days from Wednesday 2012-02-22 to Friday 2012-03-09
+		DateTime day = new DateTime(2012, 2, 22, 0, 0, 0, 0);
+		double close = 100;
+		while (!day.isAfter(new DateTime(2012, 3, 9, 0, 0, 0, 0))){
+			if (day.getDayOfWeek() <= 5){
+				daily.addValue(new Candle(day, Periods.ONE_DAY, close, close + 1, close - 1, close, 1));
+				close++;
+			}
+			day = day.plusDays(1);
+		}
+
+		// weeks ending 24/02 (3 days), 02/03 and 09/03 : each completed by its Friday candle
+		Assert.assertEquals(3, weekly.size());
+		Assert.assertEquals(new DateTime(2012, 2, 22, 0, 0, 0, 0), weekly.getFirst().getDate());
+		Assert.assertEquals(3, weekly.getFirst().getVolume(), 0);
+		Assert.assertEquals(102, weekly.getFirst().getClose(), 0);
+		Assert.assertEquals(new DateTime(2012, 2, 27, 0, 0, 0, 0), weekly.get(1).getDate());
+		Assert.assertEquals(107, weekly.get(1).getClose(), 0);
+		Assert.assertEquals(102, weekly.get(1).getLow(), 0);
+		Assert.assertEquals((107 + 112) / 2.0, sma.getValue(new DateTime(2012, 3, 5, 0, 0, 0, 0)), 1e-9);
+
+		// February completed by the first candle of March, March pending
+		Assert.assertEquals(1, monthly.size());
+		Assert.assertEquals(6, monthly.getFirst().getVolume(), 0);
+		Assert.assertEquals(105, monthly.getFirst().getClose(), 0);
+	}
+}
@@ -0,0 +1,101 @@
+package org.jquant.serie;
+
+import java.util.Iterator;
+
+import org.joda.time.DateTime;
+import org.jquant.data.Instruments;
+import org.jquant.indicator.SMA;
+import org.jquant.serie.Candle.CandleData;
+import org.jquant.time.calendar.Periods;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Cursor view over a loaded {@link CandleSerie}
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class CandleSerieViewTest {
+
+	private static final DateTime DAY = new DateTime(2012, 1, 2, 0, 0, 0, 0);
+
+	private CandleSerie loaded;
+
+	@Before
+	public void setup(){
+		loaded = new CandleSerie(Instruments.IBM);
+		for (int i = 0; i < 10; i++){
+			double close = 100 + i;
+			loaded.addValue(new Candle(DAY.plusDays(i), Periods.ONE_DAY, close, close + 1, close - 1, close, 1000));
+		}
+	}
+
+	@Test
+	public void testNoLookAhead(){
+		CandleSerieView view = new CandleSerieView(Instruments.IBM);
+		view.bind(loaded, DAY.plusDays(3));
+		Assert.assertEquals(0, view.size());
+		Assert.assertEquals(10, view.getLoadedCandles().length);
+
+		Candle[] candles = view.getLoadedCandles();
+		view.advance(candles[3]);
+		view.advance(candles[4]);
+		Assert.assertEquals(2, view.size());
+		Assert.assertSame(candles[3], view.get(0));
+		Assert.assertSame(candles[4], view.getLast());
+		Assert.assertEquals(DAY.plusDays(3), view.getFirstDate());
+		Assert.assertSame(candles[4], view.getValue(DAY.plusDays(4)));
+
+		// before the start and after the cursor : not visible
+		Assert.assertNull(view.getValue(DAY.plusDays(2)));
+		Assert.assertNull(view.getValue(DAY.plusDays(5)));
+		Assert.assertFalse(view.containsDate(DAY.plusDays(5)));
+		Assert.assertArrayEquals(new double[]{103, 104}, view.getData(CandleData.CLOSE), 0);
+		Assert.assertEquals(2, view.toArray().length);
+		Assert.assertEquals(2, view.getDateTimes().size());
+
+		Iterator<Candle> it = view.iterator();
+		Assert.assertSame(candles[3], it.next());
+		Assert.assertSame(candles[4], it.next());
+		Assert.assertFalse(it.hasNext());
+		Assert.assertSame(candles[4], view.reverseIterator().next());
+
+		// the loaded serie is untouched
+		Assert.assertEquals(10, loaded.size());
+	}
+
+	@Test
+	public void testIndicator(){
+		CandleSerieView view = new CandleSerieView(Instruments.IBM);
+		view.bind(loaded, null);
+		SMA sma = new SMA(view, 3, CandleData.CLOSE);
+		for (Candle candle : view.getLoadedCandles()){
+			view.advance(candle);
+		}
+		Assert.assertTrue(Double.isNaN(sma.getValue(DAY.plusDays(1))));
+		Assert.assertEquals(101, sma.getValue(DAY.plusDays(2)), 1e-9);
+		Assert.assertEquals(108, sma.getValue(DAY.plusDays(9)), 1e-9);
+	}
+
+	@Test
+	public void testReadOnly(){
+		CandleSerieView view = new CandleSerieView(Instruments.IBM);
+		view.bind(loaded, null);
+		try {
+			view.advance(view.getLoadedCandles()[1]);
+			Assert.fail("Not the next candle");
+		}catch (IllegalStateException e) {
+			// expected
+		}
+		try {
+			view.addValue(loaded.getLast());
+			Assert.fail("Read only");
+		}catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+}
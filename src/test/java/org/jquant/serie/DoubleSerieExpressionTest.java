@@ -0,0 +1,124 @@
+package org.jquant.serie;
+
+import org.apache.commons.math3.stat.StatUtils;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.jquant.serie.DoubleSerieExpression.Function;
+import org.jquant.serie.DoubleSerieExpression.Join;
+import org.jquant.serie.DoubleSerieExpression.Operator;
+import org.jquant.serie.DoubleSerieExpression.Statistic;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Joins and operations of the lazy time serie algebra
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class DoubleSerieExpressionTest {
+
+	private static final double EPSILON = 1e-12;
+
+	private final DoubleSerieExpression a = DoubleSerieExpression.of(new long[]{1, 2, 4, 5}, new double[]{10, 20, 40, 50});
+
+	private final DoubleSerieExpression b = DoubleSerieExpression.of(new long[]{2, 3, 5, 6}, new double[]{1, 2, 3, 4});
+
+	@Test
+	public void testJoins(){
+		DoubleSerieExpression inner = a.add(b);
+		Assert.assertArrayEquals(new long[]{2, 5}, inner.getTimes());
+		Assert.assertArrayEquals(new double[]{21, 53}, inner.toArray(), EPSILON);
+
+		DoubleSerieExpression left = a.join(b, Operator.ADD, Join.LEFT, 0);
+		Assert.assertArrayEquals(new long[]{1, 2, 4, 5}, left.getTimes());
+		Assert.assertArrayEquals(new double[]{10, 21, 40, 53}, left.toArray(), EPSILON);
+
+		DoubleSerieExpression outer = a.join(b, Operator.SUBTRACT, Join.OUTER, 0);
+		Assert.assertArrayEquals(new long[]{1, 2, 3, 4, 5, 6}, outer.getTimes());
+		Assert.assertArrayEquals(new double[]{10, 19, -2, 40, 47, -4}, outer.toArray(), EPSILON);
+
+		// last value of b at or before each time of a, none before 2
+		DoubleSerieExpression asof = a.join(b, Operator.MULTIPLY, Join.ASOF);
+		Assert.assertArrayEquals(new long[]{2, 4, 5}, asof.getTimes());
+		Assert.assertArrayEquals(new double[]{20, 80, 150}, asof.toArray(), EPSILON);
+
+		// the same expression twice in a join
+		Assert.assertArrayEquals(new double[]{0, 0, 0, 0}, a.subtract(a).toArray(), EPSILON);
+	}
+
+	@Test
+	public void testSerialOperations(){
+		Assert.assertArrayEquals(new double[]{1, 1, 0.25}, a.returns().toArray(), EPSILON);
+		Assert.assertArrayEquals(new double[]{Math.log(2), Math.log(2), Math.log(1.25)}, a.logReturns().toArray(), EPSILON);
+		Assert.assertArrayEquals(new long[]{2, 4, 5}, a.logReturns().getTimes());
+
+		// the wealth curve goes back to the prices
+		Assert.assertArrayEquals(new double[]{2, 4, 5}, a.returns().add(1).cumulativeProduct().toArray(), EPSILON);
+		Assert.assertArrayEquals(new double[]{20, 40, 50}, a.logReturns().cumulativeSum().apply(Function.EXP).multiply(10).toArray(), 1e-9);
+
+		Assert.assertArrayEquals(new long[]{2, 4, 5}, a.lag(1).getTimes());
+		Assert.assertArrayEquals(new double[]{10, 20, 40}, a.lag(1).toArray(), EPSILON);
+		Assert.assertArrayEquals(new long[]{1, 2}, a.lead(2).getTimes());
+		Assert.assertArrayEquals(new double[]{40, 50}, a.lead(2).toArray(), EPSILON);
+		Assert.assertArrayEquals(a.returns().toArray(), a.divide(a.lag(1)).add(-1).toArray(), EPSILON);
+	}
+
+	@Test
+	public void testRolling(){
+		DoubleSerieExpression x = DoubleSerieExpression.of(new long[]{1, 2, 3, 4, 5, 6, 7}, new double[]{3, 1, 4, 1, 5, 9, 2});
+		Assert.assertArrayEquals(new double[]{8, 6, 10, 15, 16}, x.rolling(3, Statistic.SUM).toArray(), EPSILON);
+		Assert.assertArrayEquals(new double[]{1, 1, 1, 1, 2}, x.rolling(3, Statistic.MIN).toArray(), EPSILON);
+		Assert.assertArrayEquals(new double[]{4, 4, 5, 9, 9}, x.rolling(3, Statistic.MAX).toArray(), EPSILON);
+		Assert.assertArrayEquals(new long[]{3, 4, 5, 6, 7}, x.rolling(3, Statistic.MEAN).getTimes());
+
+		double[] variances = x.rolling(4, Statistic.VARIANCE).toArray();
+		Assert.assertEquals(4, variances.length);
+		Assert.assertEquals(StatUtils.variance(new double[]{3, 1, 4, 1}), variances[0], 1e-9);
+		Assert.assertEquals(StatUtils.variance(new double[]{4, 1, 5, 9}), variances[2], 1e-9);
+		Assert.assertEquals(Math.sqrt(variances[3]), x.rolling(4, Statistic.STDDEV).last(), 1e-9);
+	}
+
+	@Test
+	public void testDoubleSerie(){
+		DoubleSerie serie = a.toDoubleSerie();
+		Assert.assertEquals(4, serie.size());
+		Assert.assertEquals(30, serie.asExpression().mean(), EPSILON);
+		Assert.assertEquals(120, serie.asExpression().sum(), EPSILON);
+
+		// sum keeps the dates of the serie, a missing addend counts for 0
+		DoubleSerie sum = serie.sum(b.toDoubleSerie());
+		Assert.assertArrayEquals(new double[]{10, 21, 40, 53}, sum.getData(), EPSILON);
+
+		// returns at the date of the first value
+		DoubleSerie returns = serie.getReturns();
+		Assert.assertEquals(3, returns.size());
+		Assert.assertEquals(1, returns.getFirst().getValue(), EPSILON);
+		Assert.assertEquals(serie.getFirstDate(), returns.getFirstDate());
+
+		DoubleSerieExpression m = a.multiply(2).materialize();
+		Assert.assertSame(m, m.materialize());
+		Assert.assertEquals(4, m.count());
+	}
+
+	@Test
+	public void testZone(){
+		DateTimeZone tokyo = DateTimeZone.forID("Asia/Tokyo");
+		DoubleSerie serie = new DoubleSerie();
+		DoubleSerie addend = new DoubleSerie();
+		for (int i = 0; i < 3; i++){
+			serie.add(new DateTime(2012, 1, 2 + i, 9, 0, 0, 0, tokyo), i);
+			addend.add(new DateTime(2012, 1, 2 + i, 9, 0, 0, 0, tokyo), 10);
+		}
+
+		// the dates of the sum are those of the left operand, in its zone
+		DoubleSerie sum = serie.sum(addend);
+		Assert.assertEquals(3, sum.size());
+		Assert.assertEquals(serie.getFirstDate(), sum.getFirstDate());
+		Assert.assertEquals(tokyo, sum.getFirstDate().getZone());
+		Assert.assertEquals(9, sum.getFirstDate().getHourOfDay());
+		Assert.assertEquals(tokyo, serie.asExpression().lag(1).multiply(2).materialize().toDoubleSerie().getFirstDate().getZone());
+	}
+}
@@ -0,0 +1,133 @@
+package org.jquant.serie;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.Period;
+import org.jquant.curve.InterpolationMethod;
+import org.jquant.model.OptionType;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class VolatilitySurfaceTest {
+
+	private static final double[] EXPIRIES = {0.25, 0.5, 1.0};
+	private static final double[] STRIKES = {0.8, 0.9, 1.0, 1.1, 1.2};
+	
+	/*
+	 * Skewed smile, decreasing term structure 
+	 */
+	private static final double[] GRID = {
+		0.30, 0.26, 0.22, 0.20, 0.21,
+		0.28, 0.25, 0.22, 0.21, 0.21,
+		0.26, 0.24, 0.22, 0.21, 0.21};
+	
+	private DateTime today;
+	
+	@Before
+	public void setup(){
+		today = new DateTime(2012,3,15,0,0,0,0);
+	}
+	
+	@Test
+	public void testGridAndInterpolation() {
+		for (InterpolationMethod method : InterpolationMethod.values()){
+			VolatilitySurface surface = new VolatilitySurface(today, OptionType.CALL, EXPIRIES, STRIKES, GRID, method);
+			// nodes
+			for (int i = 0; i < EXPIRIES.length; i++){
+				for (int j = 0; j < STRIKES.length; j++){
+					Assert.assertEquals(GRID[i * STRIKES.length + j], surface.getVolatility(EXPIRIES[i], STRIKES[j]), 1e-12);
+				}
+			}
+			// flat extrapolation
+			Assert.assertEquals(0.30, surface.getVolatility(0.1, 0.5), 1e-12);
+			Assert.assertEquals(0.21, surface.getVolatility(5, 1.5), 1e-12);
+			// ATM : linear total variance between 3M and 6M
+			Assert.assertEquals(0.22, surface.getAtmVolatility(0.4), 1e-12);
+			double v = surface.getVolatility(0.75, 0.8);
+			Assert.assertEquals(0.5 * 0.28 * 0.28 * 0.5 + 0.5 * 0.26 * 0.26 * 1.0, v * v * 0.75, 1e-12);
+		}
+		VolatilitySurface bilinear = new VolatilitySurface(today, OptionType.CALL, EXPIRIES, STRIKES, GRID, InterpolationMethod.LINEAR);
+		Assert.assertEquals(0.28, bilinear.getVolatility(0.25, 0.85), 1e-12);
+	}
+	
+	@Test
+	public void testSerieAsOf() {
+		VolatilitySurfaceSerie serie = new VolatilitySurfaceSerie(OptionType.CALL, EXPIRIES, STRIKES, InterpolationMethod.CUBIC_SPLINE);
+		double[] grid = GRID.clone();
+		for (int d = 0; d < 40; d++){
+			for (int k = 0; k < grid.length; k++){
+				grid[k] = GRID[k] + 0.001 * d;
+			}
+			// week-ends are missing
+			serie.addSurface(today.plusDays(d + 2 * (d / 5)), grid);
+		}
+		Assert.assertEquals(40, serie.size());
+		Assert.assertNull(serie.getSurface(today.minusDays(1)));
+		Assert.assertTrue(Double.isNaN(serie.getVolatility(today.minusDays(1), 1, 1)));
+		
+		// forward walk then backward jump 
+		Assert.assertEquals(0.22, serie.getVolatility(today, 1, 1), 1e-12);
+		Assert.assertEquals(0.22 + 0.004, serie.getVolatility(today.plusDays(5), 1, 1), 1e-12);
+		Assert.assertEquals(0.22 + 0.004, serie.getVolatility(today.plusDays(6), 1, 1), 1e-12);
+		Assert.assertEquals(0.22 + 0.005, serie.getVolatility(today.plusDays(7), 1, 1), 1e-12);
+		Assert.assertEquals(0.22 + 0.039, serie.getVolatility(today.plusYears(1), 1, 1), 1e-12);
+		Assert.assertEquals(0.22 + 0.001, serie.getVolatility(today.plusDays(1), 1, 1), 1e-12);
+		Assert.assertEquals(today.plusDays(1), serie.getSurface(today.plusDays(1)).getDate());
+		
+		// the surfaces of the serie are kept, the cursors do not share their view
+		VolatilitySurface kept = serie.getSurface(today);
+		Assert.assertNotSame(kept, serie.getSurface(today));
+		VolatilitySurfaceSerie.Cursor c1 = serie.cursor();
+		VolatilitySurfaceSerie.Cursor c2 = serie.cursor();
+		VolatilitySurface s1 = c1.getSurface(today);
+		Assert.assertSame(s1, c1.getSurface(today.plusDays(1)));
+		Assert.assertEquals(0.22 + 0.001, s1.getVolatility(1, 1), 1e-12);
+		Assert.assertEquals(0.22 + 0.039, c2.getSurface(today.plusYears(1)).getVolatility(1, 1), 1e-12);
+		Assert.assertEquals(0.22 + 0.001, s1.getVolatility(1, 1), 1e-12);
+		Assert.assertEquals(0.22 + 0.004, c1.getSurface(today.plusDays(6)).getVolatility(1, 1), 1e-12);
+		Assert.assertEquals(0.22, kept.getVolatility(1, 1), 1e-12);
+		
+		serie.trimToSize();
+		serie.addSurface(today.plusYears(1), GRID);
+		Assert.assertEquals(41, serie.size());
+	}
+	
+	@Test
+	public void testFromTermStructures() {
+		Period[] terms = {Period.months(3), Period.months(6), Period.years(1)};
+		List<VolatilityTermStructure> structures = new ArrayList<VolatilityTermStructure>();
+		for (int j = STRIKES.length - 1; j >= 0; j--){
+			for (int i = 0; i < terms.length; i++){
+				List<Rate> rates = new ArrayList<Rate>();
+				for (int d = 0; d < 3; d++){
+					// the 1Y 120% is not quoted the first day, the 3M 80% the last day 
+					if ((d == 0 && i == 2 && j == 4) || (d == 2 && i == 0 && j == 0)){
+						continue;
+					}
+					rates.add(new Rate(today.plusDays(d), 100 * GRID[i * STRIKES.length + j] + d, null));
+				}
+				VolatilityTermStructure vts = new VolatilityTermStructure(rates, terms[i], OptionType.PUT, STRIKES[j]);
+				vts.setPercent(true);
+				structures.add(vts);
+			}
+		}
+		VolatilitySurfaceSerie serie = VolatilitySurfaceSerie.fromTermStructures(structures, InterpolationMethod.LINEAR);
+		Assert.assertEquals(OptionType.PUT, serie.getType());
+		Assert.assertEquals(2, serie.size());
+		Assert.assertEquals(today.plusDays(1), serie.getFirstDate());
+		VolatilitySurface surface = serie.getSurface(today.plusDays(2));
+		Assert.assertEquals(3, surface.getNbExpiries());
+		Assert.assertEquals(5, surface.getNbStrikes());
+		Assert.assertEquals(GRID[7] + 0.02, surface.getVolatility(0.5, 1.0), 1e-12);
+		// as-of 
+		Assert.assertEquals(GRID[0] + 0.01, surface.getVolatility(0.25, 0.8), 1e-12);
+	}
+}
@@ -0,0 +1,85 @@
+package org.jquant.strategy.sizing;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.jquant.data.Instruments;
+import org.jquant.model.Currency;
+import org.jquant.model.InstrumentId;
+import org.jquant.portfolio.Portfolio;
+import org.jquant.serie.Candle;
+import org.jquant.time.calendar.Periods;
+import org.jquant.util.FinancialLibrary;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Incremental volatility and sizing methods
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class PositionSizerTest {
+
+	private static final double EPSILON = 1e-9;
+
+	private static final DateTime DAY = new DateTime(2012, 3, 1, 0, 0, 0, 0);
+
+	private static double[] feed(PositionSizer sizer, InstrumentId instrument, double dailyVol, int n, long seed){
+		Random random = new Random(seed);
+		double[] closes = new double[n];
+		double price = 100;
+		for (int i = 0; i < n; i++){
+			price *= Math.exp(dailyVol * random.nextGaussian());
+			closes[i] = price;
+			sizer.onCandle(instrument, new Candle(DAY.plusDays(i), Periods.ONE_DAY, price, price, price, price, 0));
+		}
+		return closes;
+	}
+
+	@Test
+	public void testVolatility(){
+		PositionSizer sizer = new PositionSizer(new Portfolio("Test Ptf", Currency.USD, 100000), 20);
+		Assert.assertTrue(Double.isNaN(sizer.getVolatility(Instruments.IBM)));
+		double[] closes = feed(sizer, Instruments.IBM, 0.01, 500, 1);
+		// same as the realized volatility of the last 21 closes
+		double[] window = Arrays.copyOfRange(closes, closes.length - 21, closes.length);
+		Assert.assertEquals(FinancialLibrary.getRealizedVolatility(window), sizer.getVolatility(Instruments.IBM), EPSILON);
+		Assert.assertEquals(closes[closes.length - 1], sizer.getLastPrice(Instruments.IBM), 0);
+	}
+
+	@Test
+	public void testSizing(){
+		Portfolio ptf = new Portfolio("Test Ptf", Currency.USD, 100000);
+		PositionSizer sizer = new PositionSizer(ptf);
+		feed(sizer, Instruments.IBM, 0.01, 100, 1);
+		feed(sizer, Instruments.GOOG, 0.02, 100, 2);
+		double volIbm = sizer.getVolatility(Instruments.IBM);
+		double priceIbm = sizer.getLastPrice(Instruments.IBM);
+
+		Assert.assertEquals(100000, sizer.getCapital(), 0);
+		Assert.assertEquals(Math.floor(100000 * 0.1 / volIbm / priceIbm), sizer.getVolatilityTargetQuantity(Instruments.IBM, 0.1), 0);
+		Assert.assertEquals(0, sizer.getVolatilityTargetQuantity(Instruments.HEINZ, 0.1), 0);
+		Assert.assertEquals(200, sizer.getRiskPerTradeQuantity(Instruments.IBM, 0.01, 5), 0);
+
+		// p = 0.6, b = 1 : f = 0.2, half Kelly
+		Assert.assertEquals(Math.floor(100000 * 0.1 / priceIbm), sizer.getKellyQuantity(Instruments.IBM, 0.6, 1, 0.5), 0);
+		Assert.assertEquals(0, sizer.getKellyQuantity(Instruments.IBM, 0.4, 1, 1), 0);
+
+		sizer.setLotSize(10);
+		Map<InstrumentId, Double> basket = sizer.getEqualRiskQuantities(Arrays.asList(Instruments.IBM, Instruments.GOOG, Instruments.HEINZ), 1);
+		Assert.assertEquals(2, basket.size());
+		double riskIbm = basket.get(Instruments.IBM) * priceIbm * volIbm;
+		double riskGoog = basket.get(Instruments.GOOG) * sizer.getLastPrice(Instruments.GOOG) * sizer.getVolatility(Instruments.GOOG);
+		Assert.assertEquals(1, riskIbm / riskGoog, 0.05);
+		Assert.assertEquals(0, basket.get(Instruments.IBM) % 10, 0);
+
+		// the capital follows the equity curve
+		ptf.getEquityCurve().add(DAY, 50000);
+		Assert.assertEquals(100, sizer.getRiskPerTradeQuantity(Instruments.IBM, 0.01, 5), 0);
+	}
+}
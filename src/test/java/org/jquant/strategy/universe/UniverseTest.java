@@ -0,0 +1,176 @@
+package org.jquant.strategy.universe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.joda.time.Period;
+import org.jquant.data.JQuantDataProvider;
+import org.jquant.model.Currency;
+import org.jquant.model.InstrumentId;
+import org.jquant.model.InstrumentType;
+import org.jquant.model.MarketIdentifierCode;
+import org.jquant.serie.Candle;
+import org.jquant.serie.CandleSerie;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * The incremental rankings and moments must match a sort / a scan of the cross section
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class UniverseTest {
+
+	private static final double EPSILON = 1e-9;
+
+	private static final int SIZE = 500;
+
+	private List<InstrumentId> instruments;
+
+	private Universe universe;
+
+	private Random random;
+
+	@Before
+	public void setup(){
+		instruments = new ArrayList<InstrumentId>();
+		for (int i = 0; i < SIZE; i++){
+			instruments.add(new InstrumentId(JQuantDataProvider.YAHOO, "EQ" + i, InstrumentType.EQUITY, MarketIdentifierCode.XPAR, Currency.EUR));
+		}
+		universe = new Universe(instruments);
+		random = new Random(7);
+	}
+
+	@Test
+	public void testIncrementalRanking(){
+		int momentum = universe.addFactor("MOMENTUM");
+		double[] values = new double[SIZE];
+		for (int slice = 0; slice < 50; slice++){
+			for (int i = 0; i < SIZE; i++){
+				if (slice == 0 || slice == 25){
+					// full reshuffle
+					values[i] = random.nextGaussian();
+				}else {
+					values[i] += 0.01 * random.nextGaussian();
+				}
+				// a few undefined values
+				double v = (i + slice) % 97 == 0 ? Double.NaN : values[i];
+				universe.setValue(momentum, i, v);
+			}
+			check(momentum);
+		}
+	}
+
+	private void check(int factor){
+		Integer[] expected = new Integer[SIZE];
+		int count = 0;
+		double sum = 0;
+		for (int i = 0; i < SIZE; i++){
+			double v = universe.getValue(factor, i);
+			if (!Double.isNaN(v)){
+				expected[count++] = i;
+				sum += v;
+			}
+		}
+		final double[] row = new double[SIZE];
+		for (int i = 0; i < SIZE; i++){
+			row[i] = universe.getValue(factor, i);
+		}
+		Arrays.sort(expected, 0, count, new java.util.Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				int c = Double.compare(row[a], row[b]);
+				return c != 0 ? c : a.compareTo(b);
+			}
+		});
+		double mean = sum / count;
+		double sumSq = 0;
+		for (int k = 0; k < count; k++){
+			sumSq += (row[expected[k]] - mean) * (row[expected[k]] - mean);
+		}
+		double stdDev = Math.sqrt(sumSq / count);
+
+		Assert.assertEquals(count, universe.getCount(factor));
+		Assert.assertEquals(mean, universe.getMean(factor), EPSILON);
+		Assert.assertEquals(stdDev, universe.getStdDev(factor), EPSILON);
+		for (int k = 0; k < count; k++){
+			int i = expected[k];
+			Assert.assertEquals(k, universe.getRank(factor, i));
+			Assert.assertEquals((row[i] - mean) / stdDev, universe.getZScore(factor, i), 1e-7);
+		}
+
+		int[] out = new int[10];
+		Assert.assertEquals(10, universe.top(factor, 10, out));
+		for (int k = 0; k < 10; k++){
+			Assert.assertEquals(expected[count - 1 - k].intValue(), out[k]);
+		}
+		Assert.assertEquals(10, universe.bottom(factor, 10, out));
+		for (int k = 0; k < 10; k++){
+			Assert.assertEquals(expected[k].intValue(), out[k]);
+		}
+	}
+
+	@Test
+	public void testUndefinedValues(){
+		universe.addFactor("VOL");
+		Assert.assertEquals(0, universe.getCount(0));
+		Assert.assertTrue(Double.isNaN(universe.getMean(0)));
+		Assert.assertTrue(universe.top("VOL", 5).isEmpty());
+
+		universe.setValue("VOL", instruments.get(3), 0.2);
+		universe.setValue("VOL", instruments.get(8), 0.1);
+		Assert.assertEquals(Arrays.asList(instruments.get(3), instruments.get(8)), universe.top("VOL", 5));
+		Assert.assertEquals(Arrays.asList(instruments.get(8)), universe.bottom("VOL", 1));
+		Assert.assertEquals(-1, universe.getRank("VOL", instruments.get(0)));
+		Assert.assertTrue(Double.isNaN(universe.getZScore("VOL", instruments.get(0))));
+
+		universe.clear(instruments.get(3));
+		Assert.assertEquals(1, universe.getCount(0));
+		Assert.assertEquals(0, universe.getRank("VOL", instruments.get(8)));
+		// flat cross section
+		Assert.assertTrue(Double.isNaN(universe.getZScore("VOL", instruments.get(8))));
+	}
+
+	@Test
+	public void testFactorUpdate(){
+		universe.addFactor("LAST_RETURN", new Factor() {
+			@Override
+			public double compute(InstrumentId instrument, CandleSerie serie) {
+				if (serie.size() < 2){
+					return Double.NaN;
+				}
+				return serie.getLast().getClose() / serie.getFirst().getClose() - 1;
+			}
+		});
+		Map<InstrumentId, CandleSerie> series = new HashMap<InstrumentId, CandleSerie>();
+		DateTime date = new DateTime(2012, 1, 2, 0, 0, 0, 0);
+		for (int day = 0; day < 2; day++){
+			Map<InstrumentId, Candle> slice = new HashMap<InstrumentId, Candle>();
+			for (int i = 0; i < 20; i++){
+				InstrumentId instrument = instruments.get(i);
+				double close = day == 0 ? 100 : 100 + i;
+				Candle candle = new Candle(date.plusDays(day), Period.days(1), close, close, close, close, 1000);
+				CandleSerie serie = series.get(instrument);
+				if (serie == null){
+					serie = new CandleSerie(instrument);
+					series.put(instrument, serie);
+				}
+				serie.addValue(candle);
+				slice.put(instrument, candle);
+			}
+			universe.update(slice, series);
+		}
+		Assert.assertEquals(20, universe.getCount(0));
+		Assert.assertEquals(Arrays.asList(instruments.get(19), instruments.get(18)), universe.top("LAST_RETURN", 2));
+		Assert.assertEquals(0.19, universe.getValue("LAST_RETURN", instruments.get(19)), EPSILON);
+	}
+}
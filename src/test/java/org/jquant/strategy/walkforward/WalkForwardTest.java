@@ -0,0 +1,117 @@
+package org.jquant.strategy.walkforward;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.DateTime;
+import org.joda.time.Months;
+import org.jquant.serie.DoubleSerie;
+import org.jquant.strategy.Parameter;
+import org.jquant.strategy.StrategyParameters;
+import org.jquant.strategy.walkforward.WalkForwardResult.WindowResult;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Windows, parameters and stitching of the walk forward analysis
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class WalkForwardTest {
+
+	private static final DateTime FROM = new DateTime(2010, 1, 1, 0, 0, 0, 0);
+
+	static class Breakout {
+		@Parameter(min=10, max=30, step=10)
+		private int period = 20;
+
+		@Parameter(min=0.01, max=0.02, step=0.005)
+		private double threshold;
+
+		@Parameter(description="not optimized")
+		private String name;
+	}
+
+	@Test
+	public void testWindows(){
+		List<WalkForwardWindow> rolling = WalkForwardWindow.rolling(FROM, FROM.plusMonths(14), Months.months(12), Months.months(1));
+		Assert.assertEquals(2, rolling.size());
+		Assert.assertEquals(FROM.plusMonths(1), rolling.get(1).getTrainStart());
+		Assert.assertEquals(FROM.plusMonths(13), rolling.get(1).getTestStart());
+		Assert.assertEquals(FROM.plusMonths(14), rolling.get(1).getTestEnd());
+
+		List<WalkForwardWindow> anchored = WalkForwardWindow.anchored(FROM, FROM.plusMonths(10), Months.months(6), Months.months(3));
+		Assert.assertEquals(2, anchored.size());
+		Assert.assertEquals(FROM, anchored.get(1).getTrainStart());
+		Assert.assertEquals(FROM.plusMonths(9), anchored.get(1).getTrainEnd());
+		// truncated last test period
+		Assert.assertEquals(FROM.plusMonths(10), anchored.get(1).getTestEnd());
+	}
+
+	@Test
+	public void testParameterSpace(){
+		ParameterSpace space = ParameterSpace.fromAnnotations(Breakout.class);
+		Assert.assertEquals("[period, threshold]", space.getNames().toString());
+		Assert.assertEquals(9, space.size());
+		List<Map<String, Object>> combinations = space.combinations();
+		Assert.assertEquals(9, combinations.size());
+		Assert.assertEquals(10.0, combinations.get(0).get("period"));
+		Assert.assertEquals(0.015, (Double) combinations.get(1).get("threshold"), 1e-12);
+		Assert.assertEquals(30.0, combinations.get(8).get("period"));
+
+		Breakout strategy = new Breakout();
+		StrategyParameters.apply(strategy, combinations.get(8));
+		Assert.assertEquals(30, strategy.period);
+		Assert.assertEquals(0.02, strategy.threshold, 1e-12);
+
+		Map<String, Object> unknown = new HashMap<String, Object>();
+		unknown.put("lookback", 5);
+		try {
+			StrategyParameters.apply(strategy, unknown);
+			Assert.fail("Unknown parameter");
+		}catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testStitch(){
+		DoubleSerie first = new DoubleSerie();
+		first.add(FROM, 100);
+		first.add(FROM.plusDays(1), 110);
+		DoubleSerie second = new DoubleSerie();
+		second.add(FROM.plusDays(2), 90);
+		second.add(FROM.plusDays(3), 100);
+
+		DoubleSerie stitched = WalkForwardResult.stitch(new DoubleSerie[]{first, second}, 100);
+		Assert.assertEquals(4, stitched.size());
+		Assert.assertEquals(110, stitched.getDouble(FROM.plusDays(1)), 1e-12);
+		Assert.assertEquals(99, stitched.getDouble(FROM.plusDays(2)), 1e-12);
+		Assert.assertEquals(110, stitched.getDouble(FROM.plusDays(3)), 1e-12);
+
+		// a skipped period between them
+		stitched = WalkForwardResult.stitch(new DoubleSerie[]{first, null, second}, 100);
+		Assert.assertEquals(4, stitched.size());
+		Assert.assertEquals(110, stitched.getDouble(FROM.plusDays(3)), 1e-12);
+	}
+
+	@Test
+	public void testBest(){
+		Assert.assertEquals(1, WalkForwardRunner.best(new double[]{Double.NaN, 2, 1, 2}));
+		Assert.assertEquals(0, WalkForwardRunner.best(new double[]{-1, Double.NaN}));
+		// no score : the window is skipped
+		Assert.assertEquals(-1, WalkForwardRunner.best(new double[]{Double.NaN, Double.NaN}));
+		Assert.assertEquals(-1, WalkForwardRunner.best(new double[0]));
+
+		WalkForwardWindow window = new WalkForwardWindow(FROM, FROM.plusMonths(1), FROM.plusMonths(2));
+		WalkForwardResult result = new WalkForwardResult(Collections.singletonList(new WindowResult(window, null, Double.NaN, null)), 100);
+		Assert.assertEquals(1, result.getSkippedWindows().size());
+		Assert.assertTrue(result.getWindows().get(0).isSkipped());
+		Assert.assertEquals(0, result.getEquityCurve().size());
+	}
+}
@@ -0,0 +1,94 @@
+package org.jquant.time.daycounter;
+
+import org.joda.time.DateTime;
+import org.jquant.time.calendar.EpochDay;
+import org.jquant.time.daycounter.ActualActual.Convention;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Reference values from the ISDA paper (http://www.isda.org/c_and_a/pdf/mktc1198.pdf)
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class DayCounterTest {
+
+	private static final double EPSILON = 1e-12;
+
+	@Test
+	public void testEpochDay() {
+		Assert.assertEquals(0, EpochDay.of(1970, 1, 1));
+		Assert.assertEquals(-1, EpochDay.of(1969, 12, 31));
+		Assert.assertEquals(EpochDay.of(2000, 3, 1), EpochDay.of(2000, 2, 29) + 1);
+		Assert.assertEquals(EpochDay.of(1850, 3, 1), EpochDay.of(1850, 2, 28) + 1);
+
+		// round trip over 1890 - 2210 (cached and computed years)
+		DateTime date = new DateTime(1890, 1, 1, 12, 0, 0, 0);
+		int day = EpochDay.of(date);
+		for (int i = 0; i < 320 * 366; i += 7){
+			DateTime d = date.plusDays(i);
+			Assert.assertEquals(day + i, EpochDay.of(d));
+			Assert.assertEquals(d.getYear(), EpochDay.getYear(day + i));
+			Assert.assertEquals(d.getMonthOfYear(), EpochDay.getMonth(day + i));
+			Assert.assertEquals(d.getDayOfMonth(), EpochDay.getDayOfMonth(day + i));
+			Assert.assertEquals(EpochDay.of(d.plusMonths(7)), EpochDay.plusMonths(day + i, 7));
+			Assert.assertEquals(EpochDay.of(d.minusMonths(13)), EpochDay.plusMonths(day + i, -13));
+		}
+		Assert.assertEquals(new DateTime(2012, 2, 29, 0, 0, 0, 0), EpochDay.toDateTime(EpochDay.of(2012, 2, 29)));
+	}
+
+	@Test
+	public void testActualActualRegularPeriod() {
+		int start = EpochDay.of(2003, 11, 1);
+		int end = EpochDay.of(2004, 5, 1);
+		Assert.assertEquals(61 / 365.0 + 121 / 366.0, ActualActual.ISDA.yearFraction(start, end), EPSILON);
+		Assert.assertEquals(0.5, ActualActual.ISMA_SEMI_ANNUAL.yearFraction(start, end), EPSILON);
+		Assert.assertEquals(182 / 366.0, ActualActual.AFB.yearFraction(start, end), EPSILON);
+		Assert.assertEquals(-0.5, ActualActual.ISMA_SEMI_ANNUAL.yearFraction(end, start), EPSILON);
+	}
+
+	@Test
+	public void testActualActualShortFirstPeriod() {
+		int start = EpochDay.of(1999, 2, 1);
+		int end = EpochDay.of(1999, 7, 1);
+		Assert.assertEquals(150 / 365.0, ActualActual.ISDA.yearFraction(start, end), EPSILON);
+		Assert.assertEquals(150 / 365.0, ActualActual.ISMA_ANNUAL.yearFraction(start, end), EPSILON);
+		Assert.assertEquals(150 / 365.0, ActualActual.AFB.yearFraction(start, end), EPSILON);
+	}
+
+	@Test
+	public void testActualActualLongFirstPeriod() {
+		int start = EpochDay.of(2002, 8, 15);
+		int end = EpochDay.of(2004, 7, 15);
+		Assert.assertEquals(139 / 365.0 + 1 + 196 / 366.0, ActualActual.ISDA.yearFraction(start, end), EPSILON);
+		Assert.assertEquals(1 + 334 / 365.0, new ActualActual(Convention.ISMA, 1).yearFraction(start, end), EPSILON);
+		Assert.assertEquals(1 + 334 / 365.0, ActualActual.AFB.yearFraction(start, end), EPSILON);
+	}
+
+	@Test
+	public void testBulkYearFractions() {
+		DateTime start = new DateTime(2010, 6, 30, 0, 0, 0, 0);
+		int startDay = EpochDay.of(start);
+		int[] days = new int[41];
+		for (int i = 0; i < days.length; i++){
+			days[i] = EpochDay.plusMonths(startDay, 3 * i);
+		}
+		DayCounter[] counters = {Actual360.INSTANCE, Actual365Fixed.INSTANCE, ActualActual.ISDA, ActualActual.AFB, ActualActual.ISMA_SEMI_ANNUAL};
+		double[] fractions = new double[days.length];
+		double[] accruals = new double[days.length - 1];
+		for (DayCounter counter : counters){
+			counter.yearFractions(startDay, days, fractions, days.length);
+			counter.accruals(days, accruals, accruals.length);
+			for (int i = 0; i < days.length; i++){
+				Assert.assertEquals(counter.yearFraction(startDay, days[i]), fractions[i], 0.0);
+				Assert.assertEquals(counter.calculateYearFraction(start, start.plusMonths(3 * i)), fractions[i], 0.0);
+				if (i > 0){
+					Assert.assertEquals(counter.yearFraction(days[i-1], days[i]), accruals[i-1], 0.0);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package org.jquant.util;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * The whole serie variants must give the numbers of the single value functions
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:jquant-test-config.xml"})
+public class FinancialLibraryTest {
+
+	private static final double EPSILON = 1e-9;
+	
+	private static final int PERIOD = 14;
+	
+	/*
+	 * Random walk, index 0 = most recent  
+	 */
+	private double[] vals;
+	
+	private double[] out;
+	
+	@Before
+	public void setup(){
+		Random random = new Random(42);
+		vals = new double[1500];
+		double price = 100;
+		for (int i = vals.length - 1; i >= 0; i--){
+			price *= Math.exp(0.01 * random.nextGaussian());
+			// flat prices sometimes (no down move windows for the RSI)
+			vals[i] = i > 700 && i < 720 ? vals[i+1] : price;
+		}
+		out = new double[vals.length];
+	}
+	
+	private void assertSerie(String name, double[] expected, double[] actual){
+		for (int s = 0; s < expected.length; s++){
+			if (Double.isNaN(expected[s])){
+				Assert.assertTrue(name + "[" + s + "]", Double.isNaN(actual[s]));
+			} else {
+				Assert.assertEquals(name + "[" + s + "]", expected[s], actual[s], EPSILON * Math.max(1, Math.abs(expected[s])));
+			}
+		}
+	}
+	
+	@Test
+	public void testMovingAverages() {
+		double[] expected = new double[vals.length];
+		for (int s = 0; s < vals.length; s++){
+			expected[s] = s + PERIOD <= vals.length ? FinancialLibrary.SMA(PERIOD, vals, s) : Double.NaN;
+		}
+		FinancialLibrary.SMA(PERIOD, vals, out);
+		assertSerie("SMA", expected, out);
+		
+		for (int s = 0; s < vals.length; s++){
+			expected[s] = s + PERIOD <= vals.length ? FinancialLibrary.WMA(PERIOD, vals, s) : Double.NaN;
+		}
+		FinancialLibrary.WMA(PERIOD, vals, out);
+		assertSerie("WMA", expected, out);
+		
+		for (int s = 0; s < vals.length; s++){
+			expected[s] = FinancialLibrary.EMA(PERIOD, vals, s);
+		}
+		FinancialLibrary.EMA(PERIOD, vals, out);
+		for (int s = 0; s < vals.length; s++){
+			Assert.assertEquals(expected[s], out[s], 0.0);
+		}
+		
+		// MEMA : the single value function uses ~500 values of history
+		FinancialLibrary.MEMA(PERIOD, vals, out);
+		for (int s = 0; s < 100; s++){
+			Assert.assertEquals(FinancialLibrary.MEMA(PERIOD, vals, s), out[s], EPSILON * out[s]);
+		}
+		Assert.assertTrue(Double.isNaN(out[vals.length - 1]));
+	}
+	
+	@Test
+	public void testBollinger() {
+		double[] lower = new double[vals.length];
+		double[] center = new double[vals.length];
+		double[] upper = new double[vals.length];
+		FinancialLibrary.deviation(PERIOD, vals, out);
+		FinancialLibrary.bollinger(PERIOD, 2, vals, lower, center, upper);
+		for (int s = 0; s < vals.length; s++){
+			if (s + PERIOD <= vals.length){
+				Assert.assertEquals(FinancialLibrary.deviation(PERIOD, vals, s), out[s], EPSILON);
+				double[] bands = FinancialLibrary.bollinger(PERIOD, 2, vals, s);
+				Assert.assertEquals(bands[0], lower[s], EPSILON);
+				Assert.assertEquals(bands[1], center[s], EPSILON);
+				Assert.assertEquals(bands[2], upper[s], EPSILON);
+			} else {
+				Assert.assertTrue(Double.isNaN(out[s]));
+				Assert.assertTrue(Double.isNaN(upper[s]));
+			}
+		}
+	}
+	
+	@Test
+	public void testMomentum() {
+		double[] expected = new double[vals.length];
+		for (int s = 0; s < vals.length; s++){
+			expected[s] = s + PERIOD < vals.length ? FinancialLibrary.RSI(PERIOD, vals, s) : Double.NaN;
+		}
+		FinancialLibrary.RSI(PERIOD, vals, out);
+		assertSerie("RSI", expected, out);
+		Assert.assertEquals(0.0, out[705], 0.0);
+		
+		for (int s = 0; s < vals.length; s++){
+			expected[s] = s + PERIOD < vals.length ? FinancialLibrary.ROC(PERIOD, vals, s) : Double.NaN;
+		}
+		FinancialLibrary.ROC(PERIOD, vals, out);
+		assertSerie("ROC", expected, out);
+		
+		for (int s = 0; s < vals.length; s++){
+			expected[s] = s + PERIOD < vals.length ? FinancialLibrary.slope(PERIOD, vals, s) : Double.NaN;
+		}
+		FinancialLibrary.slope(PERIOD, vals, out);
+		assertSerie("slope", expected, out);
+		
+		for (int s = 0; s < vals.length; s++){
+			expected[s] = s + PERIOD < vals.length ? FinancialLibrary.priceSlope(PERIOD, vals, s) : Double.NaN;
+		}
+		FinancialLibrary.priceSlope(PERIOD, vals, out);
+		assertSerie("priceSlope", expected, out);
+	}
+	
+	@Test
+	public void testRealizedVolatility() {
+		// daily volatility 1% : about 16% a year, whatever the number of prices
+		double vol = FinancialLibrary.getRealizedVolatility(vals);
+		Assert.assertEquals(0.01 * Math.sqrt(252), vol, 0.01);
+		double[] month = new double[21];
+		System.arraycopy(vals, 0, month, 0, month.length);
+		double sumSq = 0;
+		for (int i = 1; i < month.length; i++){
+			sumSq += Math.log(month[i] / month[i-1]) * Math.log(month[i] / month[i-1]);
+		}
+		Assert.assertEquals(Math.sqrt(252.0 / 20 * sumSq), FinancialLibrary.getRealizedVolatility(month), EPSILON);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testBufferTooSmall() {
+		FinancialLibrary.SMA(PERIOD, vals, new double[10]);
+	}
+}